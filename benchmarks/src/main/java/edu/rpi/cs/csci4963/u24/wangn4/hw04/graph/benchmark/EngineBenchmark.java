@@ -0,0 +1,97 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.benchmark;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.EventDrivenInfection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphGenerator;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Simulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tick and event-driven engines over whole runs on a large sparse random graph.
+ * A handful of initially infected nodes keeps the outbreak small, which is where processing
+ * events instead of sweeping the infected frontier every tick pays off.
+ * Every run restarts from the same seed inside the measured time; {@link #reset()} gives the
+ * baseline to subtract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"tick", "event"})
+    public String engine;
+
+    @Param({"1000000"})
+    public int nodes;
+
+    @Param({"0.00001"})
+    public double infectionRate;
+
+    @Param({"100"})
+    public int ticks;
+
+    private CompactGraph topology;
+    private Simulation simulation;
+
+    /**
+     * Generates the graph and builds the model once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        topology = GraphGenerator.erdosRenyi(nodes, 4.0 / nodes, SEED).build();
+        simulation = engine.equals("event")
+                ? new EventDrivenInfection(topology, infectionRate, 0.5, 0.1, 10, SEED)
+                : new Infection(topology, infectionRate, 0.5, 0.1, 10, SEED);
+    }
+
+    /**
+     * Releases the model's workers.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simulation.shutdown();
+    }
+
+    /**
+     * Restarting the run alone, the baseline included in {@link #run()}.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Simulation reset() {
+        simulation.reset(SEED);
+        return simulation;
+    }
+
+    /**
+     * A whole run from the same seed, stopped early once nobody is infected.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Simulation run() {
+        simulation.reset(SEED);
+        for (int tick = 0; tick < ticks && !simulation.getStateCounts().isFinished(); tick++)
+            simulation.tick();
+        return simulation;
+    }
+}
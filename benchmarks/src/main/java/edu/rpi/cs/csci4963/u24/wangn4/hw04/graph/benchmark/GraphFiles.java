@@ -0,0 +1,91 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the graph files bundled with the application as plain files the loader can map.
+ */
+final class GraphFiles {
+    private static final String RESOURCE_DIRECTORY = "/edu/rpi/cs/csci4963/u24/wangn4/hw04/graph/graph_files/";
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private GraphFiles() {
+    }
+
+    /**
+     * Writes a bundled graph to a temporary file, repeated as disjoint copies.
+     * Copy k shifts every numeric id by k times the largest id plus one, and string ids get a
+     * prefix, so the scaled graph keeps the degree distribution of the original.
+     *
+     * @param name  the bundled graph name, without the ".edges.csv" suffix
+     * @param scale the number of copies to write
+     * @return the temporary file, deleted when the JVM exits
+     * @throws IOException if the graph is missing or cannot be written
+     */
+    static Path scaled(String name, int scale) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        long maxId = -1;
+        boolean numeric = true;
+        try (InputStream in = GraphFiles.class.getResourceAsStream(RESOURCE_DIRECTORY + name + ".edges.csv")) {
+            if (in == null)
+                throw new IOException("No bundled graph " + name);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(";");
+                if (parts.length < 2)
+                    continue;
+                lines.add(parts);
+                for (int i = 0; i < parts.length && numeric; i++) {
+                    try {
+                        maxId = Math.max(maxId, Long.parseLong(parts[i].trim()));
+                    } catch (NumberFormatException e) {
+                        numeric = false;
+                    }
+                }
+            }
+        }
+
+        Path file = Files.createTempFile(name + "-x" + scale, ".edges.csv");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int copy = 0; copy < scale; copy++) {
+                for (String[] parts : lines) {
+                    for (int i = 0; i < parts.length; i++) {
+                        if (i > 0)
+                            out.write(';');
+                        out.write(shift(parts[i].trim(), copy, maxId, numeric));
+                    }
+                    out.write('\n');
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Renames a node id for one copy of a scaled graph.
+     *
+     * @param id      the original id
+     * @param copy    the index of the copy
+     * @param maxId   the largest numeric id of the original
+     * @param numeric whether all ids of the original are numeric
+     * @return the id of the node in the given copy
+     */
+    private static String shift(String id, int copy, long maxId, boolean numeric) {
+        if (copy == 0)
+            return id;
+        return numeric ? Long.toString(Long.parseLong(id) + copy * (maxId + 1)) : copy + "_" + id;
+    }
+}
@@ -0,0 +1,124 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.benchmark;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Graph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Node;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeState;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.StateCounts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the graph accessors the GUI calls on every tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphViewBenchmark {
+    @Param({"BAn10000m3", "Email-Enron"})
+    public String graph;
+
+    private Graph view;
+    private Infection infection;
+
+    /**
+     * Loads the graph and advances a run a few ticks so every state is present.
+     *
+     * @throws IOException if the graph cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        infection = new Infection(GraphLoader.load(GraphFiles.scaled(graph, 1)), 0.1, 0.01, 0.1, 2, 42);
+        for (int tick = 0; tick < 5; tick++)
+            infection.tick();
+        view = infection.getGraph();
+    }
+
+    /**
+     * Copies the node list.
+     *
+     * @return the node list
+     */
+    @Benchmark
+    public List<Node> getNodes() {
+        return view.getNodes();
+    }
+
+    /**
+     * Walks every node through the read-only node view.
+     *
+     * @return the number of infected nodes
+     */
+    @Benchmark
+    public int nodeView() {
+        int infected = 0;
+        for (Node node : view.getNodeView()) {
+            if (node.getState() == NodeState.INFECTED)
+                infected++;
+        }
+        return infected;
+    }
+
+    /**
+     * Walks every adjacency entry through the index based iteration API.
+     *
+     * @return the sum of all neighbor indices
+     */
+    @Benchmark
+    public long forEachNeighbor() {
+        long[] sum = new long[1];
+        view.forEachNode(index -> view.forEachNeighbor(index, neighbor -> sum[0] += neighbor));
+        return sum[0];
+    }
+
+    /**
+     * Counts the adjacency entries.
+     *
+     * @return the number of adjacency entries
+     */
+    @Benchmark
+    public int edgeSize() {
+        return view.edgeSize();
+    }
+
+    /**
+     * The aggregation InfectionController.updateChart() runs on every tick: one stream
+     * over a fresh node list per plotted state.
+     *
+     * @return the infected, recovered and dead counts
+     */
+    @Benchmark
+    public long[] chartCounts() {
+        long infected = view.getNodes().stream().filter(node -> node.getState() == NodeState.INFECTED).count();
+        long recovered = view.getNodes().stream().filter(node -> node.getState() == NodeState.RECOVERED).count();
+        long dead = view.getNodes().stream().filter(node -> node.getState() == NodeState.DEAD).count();
+        return new long[]{infected, recovered, dead};
+    }
+
+    /**
+     * The same counts read from the model's state counters.
+     *
+     * @return the number of nodes in each state
+     */
+    @Benchmark
+    public StateCounts stateCounts() {
+        return infection.getStateCounts();
+    }
+}
@@ -0,0 +1,76 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.benchmark;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading every bundled graph, and scaled up copies of it, from CSV and from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"Zachary", "GermanBoysSchoolClass", "BAn10000m3", "Email-Enron"})
+    public String graph;
+
+    @Param({"1", "16"})
+    public int scale;
+
+    private Path csv;
+    private Path snapshot;
+
+    /**
+     * Writes the CSV and snapshot files of the graph once per trial.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        csv = GraphFiles.scaled(graph, scale);
+        snapshot = Files.createTempFile(graph + "-x" + scale, GraphSnapshot.EXTENSION);
+        snapshot.toFile().deleteOnExit();
+        GraphSnapshot.write(GraphLoader.load(csv), snapshot);
+    }
+
+    /**
+     * Parses the CSV edge list.
+     *
+     * @return the loaded graph
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public CompactGraph loadCsv() throws IOException {
+        return GraphLoader.load(csv);
+    }
+
+    /**
+     * Reads the binary snapshot.
+     *
+     * @return the loaded graph
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public CompactGraph loadSnapshot() throws IOException {
+        return GraphSnapshot.read(snapshot);
+    }
+}
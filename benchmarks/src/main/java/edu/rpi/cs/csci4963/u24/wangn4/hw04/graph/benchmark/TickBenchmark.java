@@ -0,0 +1,126 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.benchmark;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.InfectionCheckpoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the phases of a simulation tick on pools of increasing size, giving the scaling curve
+ * of the model. Each measured call starts from the same state: the run is reset to a fixed seed
+ * and advanced to the starting tick once per trial, and every call restores that checkpoint
+ * before the measured phase. Per-invocation setup would distort timings of this scale, so the
+ * restore is measured instead and {@link #restore()} gives the baseline to subtract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"BAn10000m3", "Email-Enron"})
+    public String graph;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"0", "3"})
+    public int startTick;
+
+    @Param({"16"})
+    public int scale;
+
+    private ForkJoinPool pool;
+    private Infection infection;
+    private InfectionCheckpoint start;
+
+    /**
+     * Loads the graph and builds the model once per trial.
+     *
+     * @throws IOException if the graph cannot be loaded
+     */
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        CompactGraph topology = GraphLoader.load(GraphFiles.scaled(graph, scale));
+        pool = new ForkJoinPool(threads);
+        infection = new Infection(topology, 0.1, 0.01, 0.1, 10, SEED, pool);
+        for (int tick = 0; tick < startTick; tick++)
+            infection.tick();
+        start = infection.checkpoint();
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Restoring the starting tick alone, the baseline included in every other benchmark.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Infection restore() {
+        infection.restore(start);
+        return infection;
+    }
+
+    /**
+     * A full tick: infection, recovery and the force of infection update.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Infection tick() {
+        infection.restore(start);
+        infection.tick();
+        return infection;
+    }
+
+    /**
+     * The infection phase on its own.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Infection infect() {
+        infection.restore(start);
+        infection.infect();
+        return infection;
+    }
+
+    /**
+     * The recovery phase on its own.
+     *
+     * @return the model, so the work cannot be eliminated
+     */
+    @Benchmark
+    public Infection recover() {
+        infection.restore(start);
+        infection.recover();
+        return infection;
+    }
+}
@@ -0,0 +1,13 @@
+#!/bin/bash
+
+# Install the application so the benchmarks can depend on it
+echo "Installing the project..."
+./mvnw -q install -DskipTests
+
+# Build the benchmark jar
+echo "Building the benchmarks..."
+(cd benchmarks && ../mvnw -q package)
+
+# Run all benchmarks with the allocation profiler, passing through any extra JMH options
+echo "Running the benchmarks..."
+java -jar benchmarks/target/benchmarks.jar -prof gc -rf csv -rff benchmarks/results.csv "$@"
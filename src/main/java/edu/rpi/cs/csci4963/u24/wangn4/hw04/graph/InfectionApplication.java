@@ -11,6 +11,7 @@ import java.io.IOException;
  * The InfectionApplication class is the main entry point for the infection simulation application.
  */
 public class InfectionApplication extends Application {
+    private InfectionController controller;
 
     /**
      * Starts the JavaFX application.
@@ -22,12 +23,23 @@ public class InfectionApplication extends Application {
     public void start(Stage stage) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(InfectionApplication.class.getResource("infection-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load());
+        controller = fxmlLoader.getController();
         stage.setTitle("Infection Simulation");
         stage.setScene(scene);
         stage.setMaximized(true);
         stage.show();
     }
 
+    /**
+     * Stops the simulation and its threads when the application exits.
+     */
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.close();
+        }
+    }
+
     /**
      * The main method to launch the JavaFX application.
      *
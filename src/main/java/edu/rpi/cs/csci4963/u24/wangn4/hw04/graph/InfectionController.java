@@ -1,40 +1,103 @@
 package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph;
 
-import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Graph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Checkpointer;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLayout;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphSnapshot;
 import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.InfectionCheckpoint;
 import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeState;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.SimulationRunner;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.StateCounts;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TickMetrics;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TimeSeries;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.WorkerPools;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.GridPane;
 import javafx.stage.FileChooser;
 
 import java.io.File;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 
 /**
  * Controller class for managing the infection simulation.
+ * All of its threads live as long as the controller: the model ticks on a shared compute pool,
+ * graphs load on virtual threads and one runner thread drives the ticks, so loading, starting,
+ * pausing and resetting never create threads. {@link #close()} releases them when the window closes.
+ * <p>
+ * The simulation speed does not depend on the UI: the runner ticks at the configured rate and
+ * publishes every tick into a bounded ring, which the chart samples once per frame into a
+ * primitive {@link TimeSeries}. The chart only ever holds a downsampled view of that history, so
+ * its cost stays the same however long the run is. Scrolling zooms the view around the mouse,
+ * dragging pans it and a double click goes back to following the whole run.
+ * <p>
+ * The network tab draws the nodes in their current states with a {@link NetworkView}. The layout
+ * is computed once per graph on the compute pool, cached next to the graph file, and the view is
+ * only redrawn while its tab is showing.
+ * <p>
+ * Runs are checkpointed next to the graph file every {@link #CHECKPOINT_INTERVAL}, on pause and
+ * when the window closes. Loading a graph that has a checkpoint offers to resume the run from it.
+ * The ticks of the current graph are recorded into {@link TickMetrics}, registered with JMX.
  */
-public class InfectionController {
-
+public class InfectionController implements AutoCloseable {
+    /**
+     * The number of ticks the runner may get ahead of the chart before ticks are dropped from it.
+     */
+    private static final int SNAPSHOT_CAPACITY = 4096;
+    /**
+     * The largest number of points each series of the chart shows.
+     */
+    private static final int VISIBLE_POINTS = 600;
+    /**
+     * The narrowest view, in ticks, the chart can be zoomed in to.
+     */
+    private static final double MIN_VISIBLE_TICKS = 10;
+    /**
+     * How much one scroll step zooms the view.
+     */
+    private static final double ZOOM_STEP = 1.25;
+    /**
+     * The time between two checkpoints of a running simulation.
+     */
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+
+    private final WorkerPools pools = new WorkerPools();
+    private final SimulationRunner runner = new SimulationRunner(SNAPSHOT_CAPACITY);
+    private final TickMetrics metrics = new TickMetrics();
+    private AnimationTimer sampler;
+    private long cursor = 0;
+    private final TimeSeries history = new TimeSeries();
+    private boolean following = true;
+    private boolean isChartStale = false;
+    private double viewFrom = 0;
+    private double viewTo = 1;
+    private double dragX;
     private Infection infection;
-    private ScheduledExecutorService executorService;
-    private int tickCount = 0;
+    private Checkpointer checkpointer;
     private boolean isGraphLoaded = false;
 
     private double infectionRate = 0.1;
     private double recoveryRate = 0.01;
     private double forceOfInfection = 0.1;
     private int maxInfectionTime = 10;
-    private String csvFile;
+    private double ticksPerSecond = 1;
 
     @FXML
     private MenuBar menuBar;
@@ -45,6 +108,12 @@ public class InfectionController {
     @FXML
     private LineChart<Number, Number> lineChart;
 
+    @FXML
+    private Tab networkTab;
+
+    @FXML
+    private NetworkView networkView;
+
     @FXML
     private NumberAxis xAxis;
 
@@ -81,6 +150,9 @@ public class InfectionController {
     @FXML
     private TextField maxInfectionTimeField;
 
+    @FXML
+    private TextField ticksPerSecondField;
+
     private XYChart.Series<Number, Number> infectedSeries;
     private XYChart.Series<Number, Number> recoveredSeries;
     private XYChart.Series<Number, Number> deadSeries;
@@ -104,11 +176,36 @@ public class InfectionController {
 
         lineChart.getData().clear(); // Clear existing series
         lineChart.getData().addAll(infectedSeries, recoveredSeries, deadSeries);
+        // the series are redrawn in full every frame, so skip the per-point symbols and animations
+        lineChart.setCreateSymbols(false);
+        lineChart.setAnimated(false);
+        xAxis.setAutoRanging(false);
+        lineChart.setOnScroll(this::zoomChart);
+        lineChart.setOnMousePressed(event -> dragX = event.getSceneX());
+        lineChart.setOnMouseDragged(this::panChart);
+        lineChart.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                following = true;
+                isChartStale = true;
+            }
+        });
+        networkTab.setOnSelectionChanged(event -> networkView.invalidate());
 
         loadGraphButton.setOnAction(event -> loadGraph());
         startButton.setOnAction(event -> startSimulation());
         pauseButton.setOnAction(event -> pauseSimulation());
         resetButton.setOnAction(event -> resetSimulation());
+
+        if (sampler == null) {
+            metrics.register("InfectionController");
+            sampler = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    sampleSnapshots();
+                }
+            };
+            sampler.start();
+        }
     }
 
     /**
@@ -145,6 +242,14 @@ public class InfectionController {
         double recoveryRate = Double.parseDouble(recoveryRateField.getText());
         double forceOfInfection = Double.parseDouble(forceOfInfectionField.getText());
         int maxInfectionTime = Integer.parseInt(maxInfectionTimeField.getText());
+        if (!ticksPerSecondField.getText().isBlank()) {
+            ticksPerSecond = Double.parseDouble(ticksPerSecondField.getText());
+            if (!(ticksPerSecond >= 0)) {
+                showAlert(AlertType.ERROR, "Invalid Configuration", null, "Ticks per second must be 0 (as fast as possible) or more.");
+                return;
+            }
+            runner.setTicksPerSecond(ticksPerSecond);
+        }
 
         updateInfectionParameters(infectionRate, recoveryRate, forceOfInfection, maxInfectionTime);
 
@@ -153,34 +258,135 @@ public class InfectionController {
     }
 
     /**
-     * Loads a graph from a CSV file and initializes the infection model.
+     * Loads a graph from a CSV file or graph snapshot and initializes the infection model.
+     * The topology is read once here, on a virtual thread; resets only reinitialise the model's per-run state.
      */
     private void loadGraph() {
-        Graph graph = new Graph();
-
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Graph File");
         File file = fileChooser.showOpenDialog(null);
 
         if (file != null) {
             String fileName = file.getName();
-            if (!fileName.endsWith(".csv")) {
-                showAlert(AlertType.ERROR, "Invalid File", null, "Please select a valid CSV file.");
+            if (!fileName.endsWith(".csv") && !fileName.endsWith(GraphSnapshot.EXTENSION)) {
+                showAlert(AlertType.ERROR, "Invalid File", null, "Please select a valid CSV or graph snapshot file.");
                 return;
             }
 
-            csvFile = file.toString();
+            // read the file off the FX thread, then install the model back on it
+            loadGraphButton.setDisable(true);
+            pools.io().execute(() -> {
+                try {
+                    CompactGraph topology = GraphLoader.load(file.toPath());
+                    InfectionCheckpoint checkpoint = readCheckpoint(topology, file.toPath());
+                    Platform.runLater(() -> installGraph(topology, file.toPath(), checkpoint));
+                } catch (IOException e) {
+                    Platform.runLater(() -> showAlert(AlertType.ERROR, "Invalid File", null, "The graph could not be read: " + e.getMessage()));
+                } catch (RuntimeException e) {
+                    // nothing else would report it, the task runs on an executor thread
+                    e.printStackTrace();
+                    Platform.runLater(() -> showAlert(AlertType.ERROR, "Invalid File", null, "The graph could not be loaded: " + e));
+                } finally {
+                    Platform.runLater(() -> loadGraphButton.setDisable(false));
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the checkpoint saved next to a graph file, if any. Runs off the FX thread.
+     *
+     * @param topology the network of nodes
+     * @param file     the file the topology was read from
+     * @return the checkpoint, or null if there is none for this graph or it cannot be read
+     */
+    private InfectionCheckpoint readCheckpoint(CompactGraph topology, Path file) {
+        try {
+            return InfectionCheckpoint.read(checkpointPath(file), topology);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Gets the file the runs on a graph are checkpointed to.
+     *
+     * @param file the file the graph was read from
+     * @return the checkpoint file next to it
+     */
+    private static Path checkpointPath(Path file) {
+        return file.resolveSibling(file.getFileName() + InfectionCheckpoint.EXTENSION);
+    }
 
-            infection = new Infection(graph, infectionRate, recoveryRate, forceOfInfection, maxInfectionTime, csvFile);
+    /**
+     * Replaces the infection model with a new one on a loaded topology.
+     * The previous run is checkpointed and its model closed first, so its state can be collected.
+     * The layout of the network is then read from its cache or computed in the background.
+     *
+     * @param topology   the network of nodes
+     * @param file       the file the topology was read from
+     * @param checkpoint a checkpoint of a run on the topology to offer resuming, or null
+     */
+    private void installGraph(CompactGraph topology, Path file, InfectionCheckpoint checkpoint) {
+        runner.pause();
+        saveCheckpoint();
+        closeCheckpointer();
+        if (infection != null) {
+            infection.close();
+        }
+        infection = new Infection(topology, infectionRate, recoveryRate, forceOfInfection, maxInfectionTime, ThreadLocalRandom.current().nextLong(), pools.compute());
+        infection.setMetrics(metrics);
+        metrics.reset();
+        checkpointer = new Checkpointer(checkpointPath(file), CHECKPOINT_INTERVAL, pools.io());
+        runner.setCheckpointer(checkpointer);
+
+        initialize();
+        showDialogue("Graph Loaded", null, "The graph has been successfully loaded.");
+        isGraphLoaded = true;
+        resetSimulation();
+        if (checkpoint != null) {
+            offerResume(checkpoint);
+        }
+        layOut(topology, file);
+    }
 
-            initialize();
-            updateChart();
-            showDialogue("Graph Loaded", null, "The graph has been successfully loaded.");
-            isGraphLoaded = true;
-            resetSimulation();
+    /**
+     * Asks whether to resume the run of a checkpoint and restores it if so.
+     * The configured parameters are kept for the next reset.
+     *
+     * @param checkpoint a checkpoint of a run on the current graph
+     */
+    private void offerResume(InfectionCheckpoint checkpoint) {
+        Alert alert = new Alert(AlertType.CONFIRMATION);
+        alert.setTitle("Resume Simulation");
+        alert.setHeaderText(null);
+        alert.setContentText("A checkpoint of this graph was saved at tick " + checkpoint.getTick() + ". Resume the simulation from it?");
+        if (alert.showAndWait().filter(ButtonType.OK::equals).isPresent() && infection.restore(checkpoint)) {
+            restartChart();
         }
     }
 
+    /**
+     * Gets the layout of the current network on a virtual thread and shows it once it is ready,
+     * unless another graph was loaded in the meantime.
+     *
+     * @param topology the network of nodes
+     * @param file     the file the topology was read from, next to which the layout is cached
+     */
+    private void layOut(CompactGraph topology, Path file) {
+        Infection current = infection;
+        networkView.showMessage("Laying out the network...");
+        pools.io().execute(() -> {
+            GraphLayout layout = GraphLayout.load(topology, file.resolveSibling(file.getFileName() + GraphLayout.EXTENSION), pools.compute());
+            Platform.runLater(() -> {
+                if (infection == current) {
+                    networkView.show(layout, current.getStates(), topology);
+                }
+            });
+        });
+    }
+
     /**
      * Starts the infection simulation.
      */
@@ -189,24 +395,46 @@ public class InfectionController {
             showAlert(AlertType.WARNING, "Warning", null, "Please load the graph before starting or resetting the simulation.");
             return;
         }
-        executorService = Executors.newSingleThreadScheduledExecutor();
-        executorService.scheduleAtFixedRate(() -> {
-            infection.tick();
-            updateChart();
-            if (infection.getGraph().getNodes().stream().allMatch(node -> node.getState() == NodeState.RECOVERED || node.getState() == NodeState.DEAD)) {
-                executorService.shutdown();
-                showDialogue("Simulation Complete", null, "The simulation has completed. All nodes have recovered or died.");
-            }
-        }, 0, 1, TimeUnit.SECONDS);
+        if (infection.getStateCounts().isFinished()) {
+            return;
+        }
+        runner.setTicksPerSecond(ticksPerSecond);
+        runner.start(infection, () -> Platform.runLater(() ->
+                showDialogue("Simulation Complete", null, "The simulation has completed. No nodes are infected anymore.")));
     }
 
     /**
-     * Pauses the infection simulation.
+     * Pauses the infection simulation after the tick in progress.
      */
     private void pauseSimulation() {
-        if (executorService != null) {
-            executorService.shutdown();
+        runner.pause();
+        saveCheckpoint();
+    }
+
+    /**
+     * Checkpoints the current run in the background, unless it has not started.
+     * Must be called while the runner is paused.
+     */
+    private void saveCheckpoint() {
+        if (checkpointer != null && infection.getTickCount() > 0) {
+            checkpointer.save(infection);
+        }
+    }
+
+    /**
+     * Waits for the checkpoints of the current graph to be written and stops checkpointing it.
+     */
+    private void closeCheckpointer() {
+        if (checkpointer == null) {
+            return;
         }
+        runner.setCheckpointer(null);
+        try {
+            checkpointer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        checkpointer = null;
     }
 
     /**
@@ -217,34 +445,135 @@ public class InfectionController {
             showAlert(AlertType.WARNING, "Warning", null, "Please load the graph before starting or resetting the simulation.");
             return;
         }
-        if (executorService != null) {
-            executorService.shutdown();
+        runner.pause();
+
+        infection.setInfectionRate(infectionRate);
+        infection.setRecoveryRate(recoveryRate);
+        infection.setForceOfInfection(forceOfInfection);
+        infection.setMaxInfectionTime(maxInfectionTime);
+        infection.reset(ThreadLocalRandom.current().nextLong());
+        restartChart();
+    }
+
+    /**
+     * Starts the chart over from the current state of the model. Must be called while the runner is paused.
+     */
+    private void restartChart() {
+        // ticks of the previous run still in the ring must not reach the new chart
+        cursor = runner.snapshots().published();
+        history.clear();
+        history.append(infection.getStateCounts());
+        following = true;
+        redrawChart();
+        networkView.invalidate();
+    }
+
+    /**
+     * Records the ticks published since the last frame and redraws the chart and the network if
+     * anything changed. Runs once per frame, so however fast the simulation goes they are drawn at
+     * most once a frame.
+     */
+    private void sampleSnapshots() {
+        long before = cursor;
+        cursor = runner.snapshots().drain(cursor, history::append);
+        if (cursor != before || isChartStale) {
+            redrawChart();
+        }
+        if (cursor != before) {
+            networkView.invalidate();
+        }
+        if (networkTab.isSelected()) {
+            networkView.render();
+        }
+    }
+
+    /**
+     * Replaces the points of every series with a downsampled view of the history.
+     * While following, the view covers the whole run; otherwise it is the zoomed or panned window.
+     * Must be called on the FX thread.
+     */
+    private void redrawChart() {
+        isChartStale = false;
+        if (history.isEmpty()) {
+            return;
+        }
+        if (following) {
+            viewFrom = history.firstTick();
+            viewTo = Math.max(history.lastTick(), viewFrom + MIN_VISIBLE_TICKS);
         }
-        tickCount = 0;
-        infectedSeries.getData().clear();
-        recoveredSeries.getData().clear();
-        deadSeries.getData().clear();
-
-        Graph graph = new Graph();
-        infection = new Infection(graph, infectionRate, recoveryRate, forceOfInfection, maxInfectionTime, csvFile);
-        updateChart();
+        long from = (long) Math.floor(viewFrom);
+        long to = (long) Math.ceil(viewTo);
+        infectedSeries.getData().setAll(points(NodeState.INFECTED, from, to));
+        recoveredSeries.getData().setAll(points(NodeState.RECOVERED, from, to));
+        deadSeries.getData().setAll(points(NodeState.DEAD, from, to));
+
+        xAxis.setLowerBound(viewFrom);
+        xAxis.setUpperBound(viewTo);
+        xAxis.setTickUnit(Math.max(1, Math.ceil((viewTo - viewFrom) / 10)));
     }
 
     /**
-     * Updates the chart with the current infection data.
+     * Gets the points of one state to show in a range of ticks.
+     *
+     * @param state the state
+     * @param from  the first tick of the range
+     * @param to    the last tick of the range
+     * @return at most {@link #VISIBLE_POINTS} chart points
      */
-    private void updateChart() {
-        Platform.runLater(() -> {
-            int infectedCount = (int) infection.getGraph().getNodes().stream().filter(node -> node.getState() == NodeState.INFECTED).count();
-            int recoveredCount = (int) infection.getGraph().getNodes().stream().filter(node -> node.getState() == NodeState.RECOVERED).count();
-            int deadCount = (int) infection.getGraph().getNodes().stream().filter(node -> node.getState() == NodeState.DEAD).count();
+    private List<XYChart.Data<Number, Number>> points(NodeState state, long from, long to) {
+        List<XYChart.Data<Number, Number>> points = new ArrayList<>(VISIBLE_POINTS);
+        history.downsample(state, from, to, VISIBLE_POINTS, (tick, value) -> points.add(new XYChart.Data<>(tick, value)));
+        return points;
+    }
 
-            infectedSeries.getData().add(new XYChart.Data<>(tickCount, infectedCount));
-            recoveredSeries.getData().add(new XYChart.Data<>(tickCount, recoveredCount));
-            deadSeries.getData().add(new XYChart.Data<>(tickCount, deadCount));
+    /**
+     * Zooms the chart in or out around the tick under the mouse.
+     *
+     * @param event the scroll event
+     */
+    private void zoomChart(ScrollEvent event) {
+        if (history.isEmpty() || event.getDeltaY() == 0) {
+            return;
+        }
+        double anchor = xAxis.getValueForDisplay(xAxis.sceneToLocal(event.getSceneX(), event.getSceneY()).getX()).doubleValue();
+        anchor = Math.clamp(anchor, viewFrom, viewTo);
+        double factor = event.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP;
+        showTicks(anchor - (anchor - viewFrom) * factor, anchor + (viewTo - anchor) * factor);
+    }
 
-            tickCount++;
-        });
+    /**
+     * Pans the chart along with the mouse.
+     *
+     * @param event the drag event
+     */
+    private void panChart(MouseEvent event) {
+        if (history.isEmpty() || following || xAxis.getWidth() <= 0) {
+            return;
+        }
+        double shift = (dragX - event.getSceneX()) * (viewTo - viewFrom) / xAxis.getWidth();
+        dragX = event.getSceneX();
+        showTicks(viewFrom + shift, viewTo + shift);
+    }
+
+    /**
+     * Moves the view to a range of ticks, kept within the recorded run.
+     * A range covering the whole run goes back to following it.
+     *
+     * @param from the first tick to show
+     * @param to   the last tick to show
+     */
+    private void showTicks(double from, double to) {
+        double first = history.firstTick();
+        double last = Math.max(history.lastTick(), first + MIN_VISIBLE_TICKS);
+        double width = Math.max(to - from, MIN_VISIBLE_TICKS);
+        if (width >= last - first) {
+            following = true;
+        } else {
+            following = false;
+            viewFrom = Math.clamp(from, first, last - width);
+            viewTo = viewFrom + width;
+        }
+        isChartStale = true;
     }
 
     /**
@@ -277,4 +606,23 @@ public class InfectionController {
         alert.setContentText(content);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    /**
+     * Stops the simulation, checkpoints it and releases the model and every thread of the controller.
+     * Waits for a graph that is still loading and the last checkpoint to finish.
+     */
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.stop();
+        }
+        runner.close();
+        saveCheckpoint();
+        closeCheckpointer();
+        if (infection != null) {
+            infection.close();
+        }
+        metrics.unregister();
+        pools.close();
+    }
+}
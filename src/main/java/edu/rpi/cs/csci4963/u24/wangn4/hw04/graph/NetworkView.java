@@ -0,0 +1,383 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Graph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLayout;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeStateStore;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * Draws the network of a simulation on a canvas, with every node colored by its current state.
+ * The node positions come from a precomputed {@link GraphLayout}, and the colors are read straight
+ * from the {@link NodeStateStore} of the running simulation every frame, so nothing per node is
+ * kept in the scene graph.
+ * <p>
+ * The level of detail follows the zoom: only the nodes inside the view are visited, through the
+ * grid index of the layout. While few enough of them are visible and they are large enough, they
+ * are drawn as circles over their edges; otherwise every node is written as a small square into
+ * a pixel buffer, where infected nodes win over dead, recovered and susceptible ones sharing a
+ * pixel, and the buffer is drawn as one image. Either way a frame costs at most one pass over
+ * the visible nodes.
+ * <p>
+ * Scrolling zooms around the mouse, dragging pans and a double click fits the whole network.
+ * Must only be used on the FX thread.
+ */
+public class NetworkView extends Pane {
+    /**
+     * The radius of a node in layout units, where linked nodes are about 1 apart.
+     */
+    private static final double NODE_RADIUS = 0.3;
+    /**
+     * The smallest radius in pixels nodes are drawn as circles with.
+     */
+    private static final double MIN_CIRCLE_RADIUS = 1.5;
+    /**
+     * The largest number of visible nodes drawn as circles.
+     */
+    private static final int CIRCLE_BUDGET = 20_000;
+    /**
+     * The largest number of edge ends of the visible nodes for which the edges are drawn.
+     */
+    private static final int EDGE_BUDGET = 30_000;
+    /**
+     * How much one scroll step zooms the view.
+     */
+    private static final double ZOOM_STEP = 1.25;
+    /**
+     * The largest zoom, in pixels per layout unit.
+     */
+    private static final double MAX_SCALE = 400;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final Color BACKGROUND_COLOR = Color.WHITE;
+    private static final Color EDGE_COLOR = Color.rgb(176, 190, 197, 0.6);
+    /**
+     * The color of every state, indexed by state code.
+     */
+    private static final int[] STATE_ARGB = {0xFF9AA5B1, 0xFFE53935, 0xFF43A047, 0xFF424242};
+    /**
+     * Which state is drawn on top when nodes share a pixel, indexed by state code.
+     */
+    private static final byte[] STATE_PRIORITY = {1, 4, 2, 3};
+    /**
+     * The state codes in the order their circles are drawn, so infected nodes end up on top.
+     */
+    private static final byte[] DRAWING_ORDER = {
+            NodeStateStore.SUSCEPTIBLE, NodeStateStore.RECOVERED, NodeStateStore.DEAD, NodeStateStore.INFECTED};
+
+    private final Canvas canvas = new Canvas();
+    private final Color[] stateColors = new Color[STATE_ARGB.length];
+    private GraphLayout layout;
+    private NodeStateStore states;
+    private CompactGraph topology;
+    private String message;
+    private double centerX;
+    private double centerY;
+    private double scale = 1;
+    private boolean isFitted = false;
+    private boolean isStale = true;
+    private double dragX;
+    private double dragY;
+    private int[] visible = new int[1024];
+    private int visibleCount;
+    private int[] pixels = new int[0];
+    private byte[] priorities = new byte[0];
+    private WritableImage image;
+    /*
+        Abstraction function:
+            Shows node i of layout at screen point ((x(i) - centerX) * scale + width / 2,
+            (y(i) - centerY) * scale + height / 2), colored by states.getStateCode(i), or message
+            when there is no layout. isStale tells whether the canvas differs from that picture.
+        Rep Invariant:
+            layout, states and topology are all null or all hold the same number of nodes;
+            scale > 0; visible[0..visibleCount) are node indices; pixels and priorities have the
+            same length, which is the area of image when image is not null.
+     */
+
+    /**
+     * Creates an empty view.
+     */
+    public NetworkView() {
+        for (int s = 0; s < STATE_ARGB.length; s++) {
+            int argb = STATE_ARGB[s];
+            stateColors[s] = Color.rgb(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF);
+        }
+        getChildren().add(canvas);
+        setOnScroll(this::zoom);
+        setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        setOnMouseDragged(this::pan);
+        setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                isFitted = false;
+                isStale = true;
+            }
+        });
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the layout, states and topology disagree or the buffers are invalid
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        if ((layout == null) != (states == null) || (layout == null) != (topology == null))
+            throw new RuntimeException("NetworkView is missing part of the network");
+        if (layout != null && (layout.size() != states.size() || layout.size() != topology.size()))
+            throw new RuntimeException("NetworkView layout, states and topology have different sizes");
+        if (!(scale > 0))
+            throw new RuntimeException("NetworkView.scale is not positive");
+        if (pixels.length != priorities.length)
+            throw new RuntimeException("NetworkView pixel buffers have different lengths");
+    }
+
+    /**
+     * Shows a network, fitted to the view.
+     *
+     * @param layout   the positions of the nodes
+     * @param states   the states of the nodes, read again on every frame
+     * @param topology the edges between the nodes
+     * @return true if the network was shown, false if the three do not have the same number of nodes
+     */
+    public boolean show(GraphLayout layout, NodeStateStore states, CompactGraph topology) {
+        if (layout.size() != states.size() || layout.size() != topology.size())
+            return false;
+        this.layout = layout;
+        this.states = states;
+        this.topology = topology;
+        this.message = null;
+        isFitted = false;
+        isStale = true;
+
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Shows a message instead of a network, e.g. while a layout is computed.
+     *
+     * @param message the message
+     */
+    public void showMessage(String message) {
+        this.layout = null;
+        this.states = null;
+        this.topology = null;
+        this.message = message;
+        isStale = true;
+
+        checkRep();
+    }
+
+    /**
+     * Marks the node states as changed, so the next {@link #render()} draws them again.
+     */
+    public void invalidate() {
+        isStale = true;
+    }
+
+    /**
+     * Draws the network if anything changed since the last call. Meant to be called once per frame.
+     */
+    public void render() {
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        if (!isStale || width < 1 || height < 1)
+            return;
+        isStale = false;
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.setFill(BACKGROUND_COLOR);
+        graphics.fillRect(0, 0, width, height);
+        if (layout == null) {
+            if (message != null) {
+                graphics.setFill(Color.GRAY);
+                graphics.fillText(message, 10, 20);
+            }
+            return;
+        }
+        if (!isFitted)
+            fit(width, height);
+
+        double left = centerX - width / 2 / scale, top = centerY - height / 2 / scale;
+        double right = centerX + width / 2 / scale, bottom = centerY + height / 2 / scale;
+        double margin = NODE_RADIUS;
+        double radius = NODE_RADIUS * scale;
+        if (radius < MIN_CIRCLE_RADIUS || layout.countNear(left, top, right, bottom) > CIRCLE_BUDGET) {
+            renderPixels(graphics, (int) width, (int) height, left, top, right, bottom, radius);
+            return;
+        }
+
+        visibleCount = 0;
+        layout.forEachIn(left - margin, top - margin, right + margin, bottom + margin, this::addVisible);
+        renderEdges(graphics, left, top, right, bottom);
+        for (byte state : DRAWING_ORDER) {
+            graphics.setFill(stateColors[state]);
+            for (int k = 0; k < visibleCount; k++) {
+                int i = visible[k];
+                if (states.getStateCode(i) == state)
+                    graphics.fillOval((layout.x(i) - left) * scale - radius, (layout.y(i) - top) * scale - radius, 2 * radius, 2 * radius);
+            }
+        }
+    }
+
+    /**
+     * Draws the edges of the visible nodes as one path, unless there are too many of them.
+     * An edge between two visible nodes is drawn once, from its lower node.
+     *
+     * @param graphics the graphics of the canvas
+     * @param left     the left edge of the view in layout units
+     * @param top      the top edge of the view in layout units
+     * @param right    the right edge of the view in layout units
+     * @param bottom   the bottom edge of the view in layout units
+     */
+    private void renderEdges(GraphicsContext graphics, double left, double top, double right, double bottom) {
+        int[] offsets = topology.offsets();
+        int[] neighbors = topology.neighbors();
+        long ends = 0;
+        for (int k = 0; k < visibleCount; k++)
+            ends += offsets[visible[k] + 1] - offsets[visible[k]];
+        if (ends > EDGE_BUDGET)
+            return;
+
+        graphics.setStroke(EDGE_COLOR);
+        graphics.setLineWidth(1);
+        graphics.beginPath();
+        for (int k = 0; k < visibleCount; k++) {
+            int i = visible[k];
+            double x = (layout.x(i) - left) * scale, y = (layout.y(i) - top) * scale;
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                int j = neighbors[e];
+                boolean isOtherVisible = layout.x(j) >= left && layout.x(j) <= right && layout.y(j) >= top && layout.y(j) <= bottom;
+                if (j < i && isOtherVisible)
+                    continue;
+                graphics.moveTo(x, y);
+                graphics.lineTo((layout.x(j) - left) * scale, (layout.y(j) - top) * scale);
+            }
+        }
+        graphics.stroke();
+    }
+
+    /**
+     * Writes the visible nodes into a pixel buffer as squares about as wide as the nodes, and
+     * draws the buffer. Edges are left out at this level of detail.
+     *
+     * @param graphics the graphics of the canvas
+     * @param width    the width of the canvas in pixels
+     * @param height   the height of the canvas in pixels
+     * @param left     the left edge of the view in layout units
+     * @param top      the top edge of the view in layout units
+     * @param right    the right edge of the view in layout units
+     * @param bottom   the bottom edge of the view in layout units
+     * @param radius   the radius of a node in pixels
+     */
+    private void renderPixels(GraphicsContext graphics, int width, int height,
+                              double left, double top, double right, double bottom, double radius) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new WritableImage(width, height);
+            pixels = new int[width * height];
+            priorities = new byte[width * height];
+        }
+        Arrays.fill(pixels, BACKGROUND);
+        Arrays.fill(priorities, (byte) 0);
+        int dot = (int) Math.clamp(Math.round(2 * radius), 1, 4);
+        layout.forEachIn(left, top, right, bottom, i -> {
+            byte state = states.getStateCode(i);
+            byte priority = STATE_PRIORITY[state];
+            int px = (int) ((layout.x(i) - left) * scale), py = (int) ((layout.y(i) - top) * scale);
+            for (int y = Math.max(0, py); y < Math.min(height, py + dot); y++) {
+                for (int x = Math.max(0, px); x < Math.min(width, px + dot); x++) {
+                    int p = y * width + x;
+                    if (priority > priorities[p]) {
+                        priorities[p] = priority;
+                        pixels[p] = STATE_ARGB[state];
+                    }
+                }
+            }
+        });
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        graphics.drawImage(image, 0, 0);
+    }
+
+    /**
+     * Adds a node to the visible nodes of the frame.
+     *
+     * @param node the node
+     */
+    private void addVisible(int node) {
+        if (visibleCount == visible.length)
+            visible = Arrays.copyOf(visible, visibleCount * 2);
+        visible[visibleCount++] = node;
+    }
+
+    /**
+     * Centers the layout and zooms so all of it fits the canvas.
+     *
+     * @param width  the width of the canvas
+     * @param height the height of the canvas
+     */
+    private void fit(double width, double height) {
+        double spanX = Math.max(layout.maxX() - layout.minX(), 1) + 2 * NODE_RADIUS;
+        double spanY = Math.max(layout.maxY() - layout.minY(), 1) + 2 * NODE_RADIUS;
+        scale = Math.min(MAX_SCALE, 0.95 * Math.min(width / spanX, height / spanY));
+        centerX = (layout.minX() + layout.maxX()) / 2;
+        centerY = (layout.minY() + layout.maxY()) / 2;
+        isFitted = true;
+    }
+
+    /**
+     * Zooms in or out around the point under the mouse.
+     *
+     * @param event the scroll event
+     */
+    private void zoom(ScrollEvent event) {
+        if (layout == null || event.getDeltaY() == 0)
+            return;
+        double width = canvas.getWidth(), height = canvas.getHeight();
+        // the layout point under the mouse stays under it
+        double anchorX = centerX + (event.getX() - width / 2) / scale;
+        double anchorY = centerY + (event.getY() - height / 2) / scale;
+        double fitScale = Math.min(width / Math.max(layout.maxX() - layout.minX(), 1), height / Math.max(layout.maxY() - layout.minY(), 1));
+        double factor = event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+        scale = Math.clamp(scale * factor, Math.min(fitScale / 2, MAX_SCALE), MAX_SCALE);
+        centerX = anchorX - (event.getX() - width / 2) / scale;
+        centerY = anchorY - (event.getY() - height / 2) / scale;
+        isStale = true;
+    }
+
+    /**
+     * Pans the view along with the mouse.
+     *
+     * @param event the drag event
+     */
+    private void pan(MouseEvent event) {
+        centerX -= (event.getX() - dragX) / scale;
+        centerY -= (event.getY() - dragY) / scale;
+        dragX = event.getX();
+        dragY = event.getY();
+        isStale = true;
+    }
+
+    /**
+     * Resizes the canvas to fill the view.
+     */
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            isStale = true;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompartmentModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Command line options of the form {@code --name value}.
+ */
+final class Arguments {
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args    the arguments to parse
+     * @param allowed the option names that may appear, without the leading dashes
+     * @throws IllegalArgumentException if an option is unknown, repeated or missing its value
+     */
+    Arguments(String[] args, Set<String> allowed) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || !allowed.contains(args[i].substring(2)))
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            if (values.put(args[i].substring(2), args[i + 1]) != null)
+                throw new IllegalArgumentException("Repeated option: " + args[i]);
+        }
+    }
+
+    /**
+     * Gets a required string option.
+     *
+     * @param name the option name
+     * @return the value of the option
+     * @throws IllegalArgumentException if the option is missing
+     */
+    String require(String name) {
+        String value = values.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing option: --" + name);
+        return value;
+    }
+
+    /**
+     * Gets a string option.
+     *
+     * @param name     the option name
+     * @param fallback the value if the option is missing
+     * @return the value of the option
+     */
+    String get(String name, String fallback) {
+        return values.getOrDefault(name, fallback);
+    }
+
+    /**
+     * Whether an option was given.
+     *
+     * @param name the option name
+     * @return true if the option is present
+     */
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * Gets an int option.
+     *
+     * @param name     the option name
+     * @param fallback the value if the option is missing
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not an int
+     */
+    int getInt(String name, int fallback) {
+        String value = values.get(name);
+        try {
+            return value == null ? fallback : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Gets a long option.
+     *
+     * @param name     the option name
+     * @param fallback the value if the option is missing
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not a long
+     */
+    long getLong(String name, long fallback) {
+        String value = values.get(name);
+        try {
+            return value == null ? fallback : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Gets a double option.
+     *
+     * @param name     the option name
+     * @param fallback the value if the option is missing
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is not a number
+     */
+    double getDouble(String name, double fallback) {
+        String value = values.get(name);
+        try {
+            return value == null ? fallback : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Gets a boolean option.
+     *
+     * @param name     the option name
+     * @param fallback the value if the option is missing
+     * @return the value of the option
+     * @throws IllegalArgumentException if the value is neither true nor false
+     */
+    boolean getBoolean(String name, boolean fallback) {
+        String value = values.get(name);
+        if (value == null)
+            return fallback;
+        if (!value.equals("true") && !value.equals("false"))
+            throw new IllegalArgumentException("--" + name + " must be true or false: " + value);
+        return value.equals("true");
+    }
+
+    /**
+     * Reads the --format option telling how a CSV graph file is laid out.
+     *
+     * @return true for weighted contact lists, false for plain edge lists
+     * @throws IllegalArgumentException if the format is neither edges nor contacts
+     */
+    boolean isContactFormat() {
+        String value = get("format", "edges");
+        if (!value.equals("edges") && !value.equals("contacts"))
+            throw new IllegalArgumentException("--format must be edges or contacts: " + value);
+        return value.equals("contacts");
+    }
+
+    /**
+     * Reads the --engine and --model options telling which simulation engine to run.
+     *
+     * @return the compartment model engine if a model file is given, otherwise the named engine
+     * @throws IllegalArgumentException if both are given, the engine is unknown or the model file
+     *                                  cannot be read or does not declare a valid model
+     */
+    Engine engine() {
+        if (!has("model"))
+            return Engine.parse(get("engine", "tick"));
+        if (has("engine"))
+            throw new IllegalArgumentException("--model runs its own engine and cannot be combined with --engine");
+        try {
+            return Engine.compartments(CompartmentModel.read(Path.of(get("model", null))));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("--model cannot be read: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--model: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Describes the engine the --engine and --model options select, so results of different
+     * engines are told apart. A model is described by a checksum of its file, so an edited model
+     * counts as a different one.
+     *
+     * @return the engine name and the model checksum, or none without a model
+     * @throws IllegalArgumentException if the model file cannot be read
+     */
+    String engineIdentity() {
+        if (!has("model"))
+            return "engine=" + get("engine", "tick").toLowerCase(Locale.ROOT) + " model=none";
+        CRC32 checksum = new CRC32();
+        try {
+            checksum.update(Files.readAllBytes(Path.of(get("model", null))));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("--model cannot be read: " + e.getMessage());
+        }
+        return "engine=compartments model=" + Long.toHexString(checksum.getValue());
+    }
+}
@@ -0,0 +1,88 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompartmentInfection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompartmentModel;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.EventDrivenInfection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Simulation;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TickMetrics;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The simulation engine a batch run uses, creating one simulation per replica.
+ */
+@FunctionalInterface
+public interface Engine {
+    /**
+     * The discrete-time {@link Infection} model, updating every infected node each tick.
+     */
+    Engine TICK = (topology, parameters, seed, pool) -> new Infection(topology, parameters.infectionRate(),
+            parameters.recoveryRate(), parameters.forceOfInfection(), parameters.maxInfectionTime(), seed, pool);
+
+    /**
+     * The continuous-time {@link EventDrivenInfection} model, processing only the events that happen.
+     */
+    Engine EVENT = (topology, parameters, seed, pool) -> new EventDrivenInfection(topology, parameters.infectionRate(),
+            parameters.recoveryRate(), parameters.forceOfInfection(), parameters.maxInfectionTime(), seed);
+
+    /**
+     * Creates a simulation with this engine.
+     *
+     * @param topology   the network to run on
+     * @param parameters the model parameters
+     * @param seed       the seed of the run
+     * @param pool       the pool a tick model runs its ticks on
+     * @return the new simulation
+     */
+    Simulation create(CompactGraph topology, Parameters parameters, long seed, ForkJoinPool pool);
+
+    /**
+     * Gets this engine recording the ticks of the {@link Infection} models it creates into metrics.
+     * Other simulations are created unchanged.
+     *
+     * @param metrics the metrics every tick model records into
+     * @return the instrumented engine
+     */
+    default Engine withMetrics(TickMetrics metrics) {
+        Objects.requireNonNull(metrics);
+        return (topology, parameters, seed, pool) -> {
+            Simulation simulation = create(topology, parameters, seed, pool);
+            if (simulation instanceof Infection infection)
+                infection.setMetrics(metrics);
+            return simulation;
+        };
+    }
+
+    /**
+     * Gets an engine running a compartment model with {@link CompartmentInfection}.
+     * The model's own durations and rates replace the recovery rate and maximum infection time
+     * of the parameters.
+     *
+     * @param model the compartment model
+     * @return the engine
+     */
+    static Engine compartments(CompartmentModel model) {
+        Objects.requireNonNull(model);
+        return (topology, parameters, seed, pool) -> new CompartmentInfection(topology, model,
+                parameters.infectionRate(), parameters.forceOfInfection(), seed, pool);
+    }
+
+    /**
+     * Parses an engine name as given on the command line.
+     *
+     * @param name tick or event, in any case
+     * @return the engine
+     * @throws IllegalArgumentException if the name is not an engine
+     */
+    static Engine parse(String name) {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "tick" -> TICK;
+            case "event" -> EVENT;
+            default -> throw new IllegalArgumentException("--engine must be tick or event: " + name);
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.ResultWriter;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Simulation;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TransitionTracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A Monte Carlo ensemble of independent runs of a simulation engine on one shared topology.
+ * Replica seeds are derived from the ensemble seed, so an ensemble is reproducible whatever
+ * the number of threads it runs on. The ticks of the replicas can be streamed to a
+ * {@link ResultWriter} as they run.
+ */
+public final class Ensemble {
+    private final CompactGraph topology;
+    private final Parameters parameters;
+    private final int replicas;
+    private final int maxTicks;
+    private final long seed;
+    private final Engine engine;
+
+    /**
+     * Constructs an ensemble of runs of the tick model.
+     *
+     * @param topology   the network every replica runs on
+     * @param parameters the model parameters of every replica
+     * @param replicas   the number of runs
+     * @param maxTicks   the number of ticks after which a run is stopped
+     * @param seed       the seed every replica seed is derived from
+     */
+    public Ensemble(CompactGraph topology, Parameters parameters, int replicas, int maxTicks, long seed) {
+        this(topology, parameters, replicas, maxTicks, seed, Engine.TICK);
+    }
+
+    /**
+     * Constructs an ensemble.
+     *
+     * @param topology   the network every replica runs on
+     * @param parameters the model parameters of every replica
+     * @param replicas   the number of runs
+     * @param maxTicks   the number of ticks after which a run is stopped
+     * @param seed       the seed every replica seed is derived from
+     * @param engine     the simulation engine of every replica
+     */
+    public Ensemble(CompactGraph topology, Parameters parameters, int replicas, int maxTicks, long seed, Engine engine) {
+        Objects.requireNonNull(topology);
+        Objects.requireNonNull(parameters);
+        Objects.requireNonNull(engine);
+        if (replicas < 1 || maxTicks < 0)
+            throw new IllegalArgumentException("Ensemble needs at least one replica and a non-negative tick count");
+        this.topology = topology;
+        this.parameters = parameters;
+        this.replicas = replicas;
+        this.maxTicks = maxTicks;
+        this.seed = seed;
+        this.engine = engine;
+    }
+
+    /**
+     * Runs every replica on a pool, as many at a time as the pool has workers.
+     * The models tick on the same pool, so their block tasks fill in any idle workers.
+     *
+     * @param pool the pool to run on
+     * @return the trajectories of the replicas, in replica order
+     */
+    public List<Trajectory> run(ForkJoinPool pool) {
+        return runAll(pool, null);
+    }
+
+    /**
+     * Runs every replica on a pool and records every tick of every replica as it runs.
+     *
+     * @param pool    the pool to run on
+     * @param results the writer to record the ticks with
+     * @return the trajectories of the replicas, in replica order
+     * @throws IOException if the results cannot be written
+     */
+    public List<Trajectory> run(ForkJoinPool pool, ResultWriter results) throws IOException {
+        try {
+            return runAll(pool, results);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs every replica on a pool, cancelling the rest once a replica fails to record its ticks.
+     *
+     * @param pool    the pool to run on
+     * @param results the writer to record the ticks with, or null
+     * @return the trajectories of the replicas, in replica order
+     * @throws UncheckedIOException if the results cannot be written
+     */
+    private List<Trajectory> runAll(ForkJoinPool pool, ResultWriter results) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<ForkJoinTask<Trajectory>> tasks = new ArrayList<>(replicas);
+        for (int r = 0; r < replicas; r++) {
+            int replica = r;
+            long replicaSeed = seeds.nextLong();
+            tasks.add(pool.submit(() -> {
+                try {
+                    return runReplica(engine, topology, parameters, maxTicks, replica, replicaSeed, pool, results);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+
+        List<Trajectory> trajectories = new ArrayList<>(replicas);
+        try {
+            for (ForkJoinTask<Trajectory> task : tasks)
+                trajectories.add(task.join());
+        } catch (UncheckedIOException e) {
+            for (ForkJoinTask<Trajectory> task : tasks)
+                task.cancel(false);
+            throw e;
+        }
+        return trajectories;
+    }
+
+    /**
+     * Runs a single replica until nobody is infected or the tick limit is reached.
+     *
+     * @param engine      the simulation engine
+     * @param topology    the network to run on
+     * @param parameters  the model parameters
+     * @param maxTicks    the number of ticks after which the run is stopped
+     * @param replicaSeed the seed of the replica
+     * @param pool        the pool a tick model ticks on
+     * @return the trajectory of the replica
+     */
+    static Trajectory runReplica(Engine engine, CompactGraph topology, Parameters parameters, int maxTicks,
+                                 long replicaSeed, ForkJoinPool pool) {
+        try {
+            return runReplica(engine, topology, parameters, maxTicks, 0, replicaSeed, pool, null);
+        } catch (IOException e) {
+            // nothing is written without a result writer
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs a single replica until nobody is infected or the tick limit is reached, recording
+     * every tick and, if the writer asks for them, the state changes of every tick.
+     *
+     * @param engine      the simulation engine
+     * @param topology    the network to run on
+     * @param parameters  the model parameters
+     * @param maxTicks    the number of ticks after which the run is stopped
+     * @param replica     the number of the replica in the ensemble
+     * @param replicaSeed the seed of the replica
+     * @param pool        the pool a tick model ticks on
+     * @param results     the writer to record the ticks with, or null
+     * @return the trajectory of the replica
+     * @throws IOException if the results cannot be written
+     */
+    static Trajectory runReplica(Engine engine, CompactGraph topology, Parameters parameters, int maxTicks,
+                                 int replica, long replicaSeed, ForkJoinPool pool, ResultWriter results) throws IOException {
+        try (Simulation simulation = engine.create(topology, parameters, replicaSeed, pool)) {
+            Trajectory trajectory = new Trajectory(replicaSeed);
+            TransitionTracker tracker = results != null && results.isRecordingTransitions()
+                    ? new TransitionTracker(simulation.getStates()) : null;
+            trajectory.record(simulation.getStateCounts());
+            if (results != null)
+                results.recordCounts(replica, replicaSeed, simulation.getStateCounts());
+            for (int tick = 0; tick < maxTicks && !simulation.getStateCounts().isFinished(); tick++) {
+                simulation.tick();
+                trajectory.record(simulation.getStateCounts());
+                if (results != null)
+                    results.recordCounts(replica, replicaSeed, simulation.getStateCounts());
+                if (tracker != null)
+                    tracker.record(replica, simulation.getTickCount(), results);
+            }
+            return trajectory;
+        }
+    }
+}
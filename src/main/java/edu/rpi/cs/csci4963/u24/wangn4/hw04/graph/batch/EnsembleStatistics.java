@@ -0,0 +1,85 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeState;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the per-tick statistics of an ensemble as CSV.
+ */
+public final class EnsembleStatistics {
+    /**
+     * The quantiles reported for every tick and state.
+     */
+    private static final double[] QUANTILES = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private EnsembleStatistics() {
+    }
+
+    /**
+     * Writes the mean, minimum, maximum and quantiles over all replicas for every tick and state.
+     * Replicas that finished early count with their final state.
+     *
+     * @param trajectories the trajectories of the ensemble
+     * @param out          the writer to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeSummary(List<Trajectory> trajectories, Writer out) throws IOException {
+        out.write("tick,state,mean,min,p05,p25,p50,p75,p95,max\n");
+        int ticks = 0;
+        for (Trajectory trajectory : trajectories)
+            ticks = Math.max(ticks, trajectory.ticks());
+
+        int[] values = new int[trajectories.size()];
+        for (int tick = 0; tick < ticks; tick++) {
+            for (NodeState state : NodeState.values()) {
+                long sum = 0;
+                for (int r = 0; r < values.length; r++) {
+                    values[r] = trajectories.get(r).count(tick, state);
+                    sum += values[r];
+                }
+                Arrays.sort(values);
+
+                StringBuilder row = new StringBuilder();
+                row.append(tick).append(',').append(state.name().toLowerCase(Locale.ROOT));
+                row.append(',').append(format((double) sum / values.length));
+                row.append(',').append(values[0]);
+                for (double q : QUANTILES)
+                    row.append(',').append(format(quantile(values, q)));
+                row.append(',').append(values[values.length - 1]).append('\n');
+                out.write(row.toString());
+            }
+        }
+    }
+
+    /**
+     * Computes a quantile of sorted values by linear interpolation between the closest ranks.
+     *
+     * @param sorted the values in ascending order
+     * @param q      the quantile in [0, 1]
+     * @return the quantile
+     */
+    static double quantile(int[] sorted, double q) {
+        double rank = q * (sorted.length - 1);
+        int below = (int) Math.floor(rank);
+        int above = Math.min(sorted.length - 1, below + 1);
+        return sorted[below] + (rank - below) * (sorted[above] - sorted[below]);
+    }
+
+    /**
+     * Formats a statistic with a fixed number of decimals.
+     *
+     * @param value the value to format
+     * @return the formatted value
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
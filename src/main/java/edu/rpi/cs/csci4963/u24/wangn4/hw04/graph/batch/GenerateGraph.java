@@ -0,0 +1,83 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphGenerator;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Generates a synthetic graph and writes it as a CSV edge list or a graph snapshot.
+ */
+public final class GenerateGraph {
+    private static final String USAGE = """
+            Usage: GenerateGraph --model <ba|er|ws|sbm> --nodes <n> --output <file.csv|file.csr> [options]
+              --seed <n>             graph seed (default 0)
+              ba:  --edges-per-node <m>           edges brought by every new node (default 3)
+              er:  --edges <m>                    expected number of edges
+              ws:  --degree <k> --rewiring <p>    ring degree (default 10) and rewiring probability (default 0.1)
+              sbm: --communities <c> --p-in <p> --p-out <p>
+                                                  c equal communities and their edge probabilities""";
+
+    private static final Set<String> OPTIONS = Set.of("model", "nodes", "output", "seed", "edges-per-node", "edges",
+            "degree", "rewiring", "communities", "p-in", "p-out");
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private GenerateGraph() {
+    }
+
+    /**
+     * Entry point of the generator.
+     *
+     * @param args the command line options, see {@link #USAGE}
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        GraphGenerator generator;
+        Path output;
+        try {
+            Arguments arguments = new Arguments(args, OPTIONS);
+            int nodes = arguments.getInt("nodes", 0);
+            long seed = arguments.getLong("seed", 0);
+            output = Path.of(arguments.require("output"));
+            generator = switch (arguments.require("model")) {
+                case "ba" -> GraphGenerator.barabasiAlbert(nodes, arguments.getInt("edges-per-node", 3), seed);
+                case "er" -> {
+                    double edges = arguments.getDouble("edges", -1);
+                    if (edges < 0)
+                        throw new IllegalArgumentException("--edges must be given and non-negative");
+                    double pairs = (double) nodes * (nodes - 1) / 2;
+                    yield GraphGenerator.erdosRenyi(nodes, pairs == 0 ? 0 : Math.min(1, edges / pairs), seed);
+                }
+                case "ws" -> GraphGenerator.wattsStrogatz(nodes, arguments.getInt("degree", 10),
+                        arguments.getDouble("rewiring", 0.1), seed);
+                case "sbm" -> {
+                    int communities = arguments.getInt("communities", 0);
+                    if (communities < 1 || communities > nodes)
+                        throw new IllegalArgumentException("--communities must lie between 1 and --nodes");
+                    int[] sizes = new int[communities];
+                    Arrays.fill(sizes, nodes / communities);
+                    for (int c = 0; c < nodes % communities; c++)
+                        sizes[c]++;
+                    yield GraphGenerator.stochasticBlockModel(sizes, arguments.getDouble("p-in", -1),
+                            arguments.getDouble("p-out", -1), seed);
+                }
+                default -> throw new IllegalArgumentException("Unknown model: " + arguments.require("model"));
+            };
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (output.toString().endsWith(GraphSnapshot.EXTENSION))
+            generator.writeSnapshot(output);
+        else
+            generator.writeCsv(output);
+    }
+}
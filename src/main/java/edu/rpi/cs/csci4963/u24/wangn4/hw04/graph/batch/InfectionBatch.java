@@ -0,0 +1,158 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.MetricsServer;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.ResultFormat;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.ResultWriter;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TickMetrics;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.WorkerPools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs a Monte Carlo ensemble of the Infection model without the GUI.
+ * The state counts of every tick, and optionally every state change, are streamed to disk by a
+ * {@link ResultWriter} while the replicas run; the per-tick statistics are written as CSV at the end.
+ * The tick metrics of the run are registered with JMX and can be served to Prometheus.
+ */
+public final class InfectionBatch {
+    private static final String USAGE = """
+            Usage: InfectionBatch --graph <file.csv|file.csr> [options]
+              --format <edges|contacts>   CSV layout: id;neighbor;... lines or weighted
+                                          u;v;weight[;start;end] contacts (default edges)
+              --engine <tick|event>       discrete-time ticks or continuous-time events (default tick)
+              --model <file>              compartment model file, replacing the recovery rate and
+                                          maximum infection time (default the built-in SIRD model)
+              --replicas <n>              number of runs (default 100)
+              --ticks <n>                 maximum ticks per run (default 1000)
+              --seed <n>                  ensemble seed (default random)
+              --infection-rate <r>        initial infection rate (default 0.1)
+              --recovery-rate <r>         recovery rate (default 0.01)
+              --force-of-infection <f>    initial force of infection (default 0.1)
+              --max-infection-time <t>    maximum infection time (default 10)
+              --threads <n>               worker threads (default all processors)
+              --output <prefix>           writes <prefix>-runs.csv and <prefix>-summary.csv (default ensemble)
+              --output-format <f>         csv, csv.gz or binary runs and events files, named
+                                          <prefix>-runs.csv, .csv.gz or .bin (default csv)
+              --events <true|false>       also writes every state change to <prefix>-events (default false)
+              --metrics-port <port>       serves tick metrics at http://localhost:<port>/metrics""";
+
+    private static final Set<String> OPTIONS = Set.of("graph", "format", "engine", "model", "replicas", "ticks", "seed",
+            "infection-rate", "recovery-rate", "force-of-infection", "max-infection-time", "threads", "output", "output-format",
+            "events", "metrics-port");
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private InfectionBatch() {
+    }
+
+    /**
+     * Entry point of the batch runner.
+     *
+     * @param args the command line options, see {@link #USAGE}
+     * @throws IOException if the graph cannot be loaded or the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments;
+        Parameters parameters;
+        int replicas, ticks, threads, metricsPort;
+        boolean contacts;
+        Engine engine;
+        ResultFormat format;
+        boolean events;
+        try {
+            arguments = new Arguments(args, OPTIONS);
+            arguments.require("graph");
+            contacts = arguments.isContactFormat();
+            engine = arguments.engine();
+            parameters = parameters(arguments);
+            replicas = arguments.getInt("replicas", 100);
+            ticks = arguments.getInt("ticks", 1000);
+            threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+            format = ResultFormat.parse(arguments.get("output-format", ResultFormat.CSV.label()));
+            events = arguments.getBoolean("events", false);
+            metricsPort = arguments.getInt("metrics-port", -1);
+            if (replicas < 1 || ticks < 0 || threads < 1)
+                throw new IllegalArgumentException("--replicas and --threads must be positive, --ticks non-negative");
+            if (arguments.has("metrics-port") && (metricsPort < 0 || metricsPort > 65535))
+                throw new IllegalArgumentException("--metrics-port must be a port number");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        long seed = arguments.getLong("seed", ThreadLocalRandom.current().nextLong());
+        String prefix = arguments.get("output", "ensemble");
+
+        CompactGraph topology = GraphLoader.load(Path.of(arguments.require("graph")), contacts);
+        System.err.println("Loaded " + topology.size() + " nodes, running " + replicas + " replicas with seed " + seed);
+
+        TickMetrics metrics = new TickMetrics();
+        metrics.register("InfectionBatch");
+        try (WorkerPools pools = new WorkerPools(threads);
+             MetricsServer server = metricsPort < 0 ? null : new MetricsServer(metrics, metricsPort, pools.io())) {
+            if (server != null)
+                System.err.println("Serving metrics at http://localhost:" + server.getPort() + MetricsServer.PATH);
+            List<Trajectory> trajectories;
+            // the runs stream out on the I/O threads while the replicas tick
+            try (ResultWriter results = ResultWriter.open(prefix, format, events, pools.io())) {
+                trajectories = new Ensemble(topology, parameters, replicas, ticks, seed, engine.withMetrics(metrics))
+                        .run(pools.compute(), results);
+            }
+            write(Path.of(prefix + "-summary.csv"), out -> EnsembleStatistics.writeSummary(trajectories, out));
+        }
+    }
+
+    /**
+     * Writes a UTF-8 text file.
+     *
+     * @param path    the file to write
+     * @param content writes the content of the file
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path path, Content content) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            content.writeTo(out);
+        }
+    }
+
+    /**
+     * The content of an output file.
+     */
+    @FunctionalInterface
+    private interface Content {
+        /**
+         * Writes the content.
+         *
+         * @param out the destination
+         * @throws IOException if the destination cannot be written
+         */
+        void writeTo(Writer out) throws IOException;
+    }
+
+    /**
+     * Reads the model parameters, using the GUI defaults for any that are missing.
+     *
+     * @param arguments the parsed command line
+     * @return the model parameters
+     * @throws IllegalArgumentException if a parameter is malformed or out of range
+     */
+    static Parameters parameters(Arguments arguments) {
+        Parameters parameters = new Parameters(arguments.getDouble("infection-rate", 0.1),
+                arguments.getDouble("recovery-rate", 0.01), arguments.getDouble("force-of-infection", 0.1),
+                arguments.getInt("max-infection-time", 10));
+        if (!parameters.isValid())
+            throw new IllegalArgumentException("Rates must lie in [0, 1] and --max-infection-time must be non-negative");
+        return parameters;
+    }
+}
@@ -0,0 +1,112 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.GraphLoader;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.MetricsServer;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.TickMetrics;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.WorkerPools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs a parameter sweep of the Infection model without the GUI, resuming any earlier run of the same sweep.
+ * The tick metrics of the sweep are registered with JMX and can be served to Prometheus.
+ */
+public final class InfectionSweep {
+    private static final String USAGE = """
+            Usage: InfectionSweep --graph <file.csv|file.csr> --output <results.csv> [options]
+              --format <edges|contacts>       CSV layout: id;neighbor;... lines or weighted
+                                              u;v;weight[;start;end] contacts (default edges)
+              Parameter values are a single value, a list a,b,c or min:max:count
+              --infection-rate <values>       initial infection rates (default 0.1)
+              --recovery-rate <values>        recovery rates (default 0.01)
+              --force-of-infection <values>   initial forces of infection (default 0.1)
+              --max-infection-time <values>   maximum infection times (default 10)
+              --samples <n>                   draw n Latin hypercube points over the value ranges
+                                              instead of running the full grid
+              --engine <tick|event>           discrete-time ticks or continuous-time events (default tick)
+              --model <file>                  compartment model file, replacing the recovery rate and
+                                              maximum infection time (default the built-in SIRD model)
+              --replicas <n>                  runs per point (default 10)
+              --ticks <n>                     maximum ticks per run (default 1000)
+              --seed <n>                      sweep seed (default 0)
+              --threads <n>                   worker threads (default all processors)
+              --metrics-port <port>           serves tick metrics at http://localhost:<port>/metrics
+            Rerunning the same command after an interruption only runs the missing replicas. A results
+            file written with other ticks, engine, model or graph is refused.""";
+
+    private static final Set<String> OPTIONS = Set.of("graph", "format", "engine", "model", "output", "infection-rate",
+            "recovery-rate", "force-of-infection", "max-infection-time", "samples", "replicas", "ticks", "seed", "threads", "metrics-port");
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private InfectionSweep() {
+    }
+
+    /**
+     * Entry point of the sweep runner.
+     *
+     * @param args the command line options, see {@link #USAGE}
+     * @throws IOException if the graph cannot be loaded or the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments;
+        List<Parameters> points;
+        int replicas, ticks, threads, metricsPort;
+        long seed;
+        boolean contacts;
+        Engine engine;
+        String engineIdentity;
+        try {
+            arguments = new Arguments(args, OPTIONS);
+            arguments.require("graph");
+            arguments.require("output");
+            contacts = arguments.isContactFormat();
+            engine = arguments.engine();
+            engineIdentity = arguments.engineIdentity();
+            SweepSpace space = new SweepSpace(SweepSpace.parseAxis(arguments.get("infection-rate", "0.1")),
+                    SweepSpace.parseAxis(arguments.get("recovery-rate", "0.01")),
+                    SweepSpace.parseAxis(arguments.get("force-of-infection", "0.1")),
+                    SweepSpace.parseAxis(arguments.get("max-infection-time", "10")));
+            seed = arguments.getLong("seed", 0);
+            points = arguments.has("samples")
+                    ? space.latinHypercube(arguments.getInt("samples", 0), seed) : space.grid();
+            for (Parameters point : points) {
+                if (!point.isValid())
+                    throw new IllegalArgumentException("Rates must lie in [0, 1] and maximum infection times must be non-negative");
+            }
+            replicas = arguments.getInt("replicas", 10);
+            ticks = arguments.getInt("ticks", 1000);
+            threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+            metricsPort = arguments.getInt("metrics-port", -1);
+            if (replicas < 1 || ticks < 0 || threads < 1)
+                throw new IllegalArgumentException("--replicas and --threads must be positive, --ticks non-negative");
+            if (arguments.has("metrics-port") && (metricsPort < 0 || metricsPort > 65535))
+                throw new IllegalArgumentException("--metrics-port must be a port number");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        CompactGraph topology = GraphLoader.load(Path.of(arguments.require("graph")), contacts);
+        TickMetrics metrics = new TickMetrics();
+        metrics.register("InfectionSweep");
+        ParameterSweep sweep = new ParameterSweep(topology, points, replicas, ticks, seed, engine.withMetrics(metrics));
+        try (WorkerPools pools = new WorkerPools(threads);
+             MetricsServer server = metricsPort < 0 ? null : new MetricsServer(metrics, metricsPort, pools.io());
+             SweepResults results = new SweepResults(Path.of(arguments.require("output")), sweep.describe(engineIdentity))) {
+            if (server != null)
+                System.err.println("Serving metrics at http://localhost:" + server.getPort() + MetricsServer.PATH);
+            System.err.println("Loaded " + topology.size() + " nodes, " + results.finishedCount() + " of "
+                    + sweep.runCount() + " runs already done");
+            int ran = sweep.run(pools.compute(), results);
+            System.err.println("Finished " + ran + " runs");
+        }
+    }
+}
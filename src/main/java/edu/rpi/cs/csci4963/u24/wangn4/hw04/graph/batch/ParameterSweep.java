@@ -0,0 +1,125 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs replicas of a simulation engine for every point of a parameter sweep on one shared topology.
+ * Every (point, replica) run is an independent task on a work-stealing pool, and its seed depends only
+ * on the sweep seed and its indices, so an interrupted sweep resumes with exactly the runs it missed.
+ */
+public final class ParameterSweep {
+    private final CompactGraph topology;
+    private final List<Parameters> points;
+    private final int replicas;
+    private final int maxTicks;
+    private final long seed;
+    private final Engine engine;
+
+    /**
+     * Constructs a parameter sweep of the tick model.
+     *
+     * @param topology the network every run uses
+     * @param points   the parameter points to run
+     * @param replicas the number of runs per point
+     * @param maxTicks the number of ticks after which a run is stopped
+     * @param seed     the seed every run seed is derived from
+     */
+    public ParameterSweep(CompactGraph topology, List<Parameters> points, int replicas, int maxTicks, long seed) {
+        this(topology, points, replicas, maxTicks, seed, Engine.TICK);
+    }
+
+    /**
+     * Constructs a parameter sweep.
+     *
+     * @param topology the network every run uses
+     * @param points   the parameter points to run
+     * @param replicas the number of runs per point
+     * @param maxTicks the number of ticks after which a run is stopped
+     * @param seed     the seed every run seed is derived from
+     * @param engine   the simulation engine of every run
+     */
+    public ParameterSweep(CompactGraph topology, List<Parameters> points, int replicas, int maxTicks, long seed, Engine engine) {
+        Objects.requireNonNull(topology);
+        Objects.requireNonNull(points);
+        Objects.requireNonNull(engine);
+        if (points.isEmpty() || replicas < 1 || maxTicks < 0)
+            throw new IllegalArgumentException("Sweep needs points, at least one replica and a non-negative tick count");
+        this.topology = topology;
+        this.points = List.copyOf(points);
+        this.replicas = replicas;
+        this.maxTicks = maxTicks;
+        this.seed = seed;
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the total number of runs in the sweep.
+     *
+     * @return points times replicas
+     */
+    public long runCount() {
+        return (long) points.size() * replicas;
+    }
+
+    /**
+     * Describes the settings every run of this sweep shares besides its parameters and seed,
+     * for {@link SweepResults} to refuse resuming a different sweep.
+     *
+     * @param engine the engine, as named on the command line, and its model if any
+     * @return the tick limit, the engine and the fingerprint of the topology on one line
+     */
+    public String describe(String engine) {
+        return "ticks=" + maxTicks + " " + engine + " graph=" + Long.toHexString(topology.fingerprint());
+    }
+
+    /**
+     * Runs every run not yet in the results file and appends each one as soon as it finishes.
+     *
+     * @param pool    the pool to run on
+     * @param results the results file
+     * @return the number of runs performed
+     * @throws IOException if the results file cannot be written or belongs to another sweep
+     */
+    public int run(ForkJoinPool pool, SweepResults results) throws IOException {
+        SplittableRandom pointSeeds = new SplittableRandom(seed);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int p = 0; p < points.size(); p++) {
+            int point = p;
+            Parameters parameters = points.get(p);
+            SplittableRandom replicaSeeds = new SplittableRandom(pointSeeds.nextLong());
+            for (int r = 0; r < replicas; r++) {
+                int replica = r;
+                long replicaSeed = replicaSeeds.nextLong();
+                if (results.isFinished(point, replica, replicaSeed, parameters))
+                    continue;
+                tasks.add(pool.submit(() -> {
+                    Trajectory trajectory = Ensemble.runReplica(engine, topology, parameters, maxTicks, replicaSeed, pool);
+                    try {
+                        results.append(point, replica, parameters, trajectory);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+
+        try {
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+        } catch (UncheckedIOException e) {
+            for (ForkJoinTask<?> task : tasks)
+                task.cancel(false);
+            throw e.getCause();
+        }
+        return tasks.size();
+    }
+}
@@ -0,0 +1,45 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+/**
+ * The parameters an {@link edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.Infection} model is built with.
+ *
+ * @param infectionRate    the rate at which nodes are infected when a run starts
+ * @param recoveryRate     the rate at which nodes recover from infection
+ * @param forceOfInfection the initial force of infection
+ * @param maxInfectionTime the maximum time a node can be infected
+ */
+public record Parameters(double infectionRate, double recoveryRate, double forceOfInfection, int maxInfectionTime) {
+    /**
+     * The column names matching {@link #toCsv()}.
+     */
+    public static final String CSV_HEADER = "infection_rate,recovery_rate,force_of_infection,max_infection_time";
+
+    /**
+     * Formats the parameters as CSV fields.
+     *
+     * @return the parameters separated by commas
+     */
+    public String toCsv() {
+        return infectionRate + "," + recoveryRate + "," + forceOfInfection + "," + maxInfectionTime;
+    }
+
+    /**
+     * Whether the rates are probabilities and the maximum infection time is non-negative.
+     *
+     * @return true if the Infection model accepts these parameters
+     */
+    public boolean isValid() {
+        return inUnitRange(infectionRate) && inUnitRange(recoveryRate) && inUnitRange(forceOfInfection)
+                && maxInfectionTime >= 0;
+    }
+
+    /**
+     * Whether a value is a probability.
+     *
+     * @param value the value to check
+     * @return true if the value lies in [0, 1]
+     */
+    private static boolean inUnitRange(double value) {
+        return value >= 0 && value <= 1;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeState;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only CSV file holding one row per finished run of a parameter sweep.
+ * Every row is flushed as soon as its run finishes, so after a crash the file holds every run
+ * that completed and a reopened sweep only runs the rest.
+ * The file starts with a comment line describing the settings every run shares, such as the
+ * tick limit, the engine and the graph; a sweep with other settings does not resume from it.
+ */
+public final class SweepResults implements Closeable {
+    /**
+     * The header of the results file.
+     */
+    public static final String HEADER = "point,replica,seed," + Parameters.CSV_HEADER
+            + ",ticks,susceptible,infected,recovered,dead,peak_infected,peak_tick";
+    private static final int FIELDS = HEADER.split(",").length;
+    private static final int KEY_FIELDS = 7;
+    private static final String COMMENT = "# ";
+
+    private final Map<Long, String> finished;
+    private final BufferedWriter out;
+    /*
+        Abstraction function:
+            The file already holds a row for run (point, replica) iff finished contains
+            key(point, replica), mapped to the identifying fields of that row.
+        Rep Invariant:
+            The file starts with the comment line of its sweep and ends with a complete row or
+            the header.
+     */
+
+    /**
+     * Opens a results file, creating it or picking up the runs an earlier sweep already wrote.
+     * A row cut short by a crash is dropped.
+     *
+     * @param path  the results file
+     * @param sweep the settings every run of the sweep shares, on one line, such as
+     *              {@link ParameterSweep#describe(String)} gives
+     * @throws IOException if the file cannot be accessed, is not a sweep results file or was
+     *                     written by a sweep with other settings
+     */
+    public SweepResults(Path path, String sweep) throws IOException {
+        if (sweep.indexOf('\n') >= 0 || sweep.indexOf('\r') >= 0)
+            throw new IllegalArgumentException("The sweep settings must fit on one line");
+        finished = new HashMap<>();
+        long keep = 0;
+        if (Files.exists(path)) {
+            byte[] content = Files.readAllBytes(path);
+            int start = 0;
+            int lines = 0;
+            for (int end = 0; end < content.length; end++) {
+                if (content[end] != '\n')
+                    continue;
+                String line = new String(content, start, end - start, StandardCharsets.UTF_8);
+                if (lines == 0) {
+                    if (!line.startsWith(COMMENT))
+                        throw new IOException("Not a sweep results file: " + path);
+                    if (!line.equals(COMMENT + sweep))
+                        throw new IOException("Results file belongs to a different sweep: it has "
+                                + line.substring(COMMENT.length()) + ", this sweep has " + sweep);
+                } else if (lines == 1) {
+                    if (!line.equals(HEADER))
+                        throw new IOException("Not a sweep results file: " + path);
+                } else {
+                    String[] fields = line.split(",", -1);
+                    if (fields.length != FIELDS)
+                        throw new IOException("Malformed sweep result: " + line);
+                    try {
+                        finished.put(key(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])), identity(fields));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed sweep result: " + line);
+                    }
+                }
+                lines++;
+                start = end + 1;
+                // a file cut short before its header is written again from the start
+                if (lines >= 2)
+                    keep = start;
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(keep);
+        channel.position(keep);
+        out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        if (keep == 0) {
+            out.write(COMMENT + sweep);
+            out.write('\n');
+            out.write(HEADER);
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    /**
+     * Combines a point and replica index into one map key.
+     *
+     * @param point   the index of the parameter point
+     * @param replica the index of the replica
+     * @return the key of the run
+     */
+    private static long key(int point, int replica) {
+        return (long) point << 32 | replica;
+    }
+
+    /**
+     * Joins the fields that identify which run a row belongs to.
+     *
+     * @param fields all fields of a row
+     * @return the point, replica, seed and parameter fields joined by commas
+     */
+    private static String identity(String[] fields) {
+        return String.join(",", Arrays.copyOf(fields, KEY_FIELDS));
+    }
+
+    /**
+     * Returns the number of runs already in the file.
+     *
+     * @return the number of finished runs
+     */
+    public int finishedCount() {
+        return finished.size();
+    }
+
+    /**
+     * Checks whether a run is already in the file.
+     *
+     * @param point      the index of the parameter point
+     * @param replica    the index of the replica
+     * @param seed       the seed the run uses
+     * @param parameters the parameters the run uses
+     * @return true if the file holds the run
+     * @throws IOException if the file holds a different run under the same indices
+     */
+    public boolean isFinished(int point, int replica, long seed, Parameters parameters) throws IOException {
+        String identity = finished.get(key(point, replica));
+        if (identity == null)
+            return false;
+        if (!identity.equals(point + "," + replica + "," + seed + "," + parameters.toCsv()))
+            throw new IOException("Results file belongs to a different sweep, run " + point + "/" + replica + " differs");
+        return true;
+    }
+
+    /**
+     * Appends the row of a finished run and flushes it to the file.
+     *
+     * @param point      the index of the parameter point
+     * @param replica    the index of the replica
+     * @param parameters the parameters of the run
+     * @param trajectory the trajectory of the run
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void append(int point, int replica, Parameters parameters, Trajectory trajectory)
+            throws IOException {
+        int last = trajectory.ticks() - 1;
+        int peak = trajectory.peakTick(NodeState.INFECTED);
+        StringBuilder row = new StringBuilder();
+        row.append(point).append(',').append(replica).append(',').append(trajectory.getSeed()).append(',')
+                .append(parameters.toCsv()).append(',').append(last);
+        for (NodeState state : NodeState.values())
+            row.append(',').append(trajectory.count(last, state));
+        row.append(',').append(trajectory.count(peak, NodeState.INFECTED))
+                .append(',').append(peak).append('\n');
+        out.write(row.toString());
+        out.flush();
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
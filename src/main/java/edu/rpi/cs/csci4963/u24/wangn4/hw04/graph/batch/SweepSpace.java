@@ -0,0 +1,149 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * The values each of the four model parameters takes in a parameter sweep.
+ * A space is enumerated either as the full grid of all value combinations or as a Latin
+ * hypercube sample spanning the range of every parameter.
+ */
+public final class SweepSpace {
+    private final double[] infectionRates;
+    private final double[] recoveryRates;
+    private final double[] forcesOfInfection;
+    private final double[] maxInfectionTimes;
+    /*
+        Abstraction function:
+            Parameter k of the sweep takes the values held by the k-th array.
+        Rep Invariant:
+            Every array is non-empty.
+     */
+
+    /**
+     * Constructs a sweep space. The arrays are not copied.
+     *
+     * @param infectionRates    the infection rates to sweep
+     * @param recoveryRates     the recovery rates to sweep
+     * @param forcesOfInfection the initial forces of infection to sweep
+     * @param maxInfectionTimes the maximum infection times to sweep
+     */
+    public SweepSpace(double[] infectionRates, double[] recoveryRates, double[] forcesOfInfection,
+                      double[] maxInfectionTimes) {
+        this.infectionRates = Objects.requireNonNull(infectionRates);
+        this.recoveryRates = Objects.requireNonNull(recoveryRates);
+        this.forcesOfInfection = Objects.requireNonNull(forcesOfInfection);
+        this.maxInfectionTimes = Objects.requireNonNull(maxInfectionTimes);
+        if (infectionRates.length == 0 || recoveryRates.length == 0 || forcesOfInfection.length == 0
+                || maxInfectionTimes.length == 0)
+            throw new IllegalArgumentException("Every swept parameter needs at least one value");
+    }
+
+    /**
+     * Parses the values of one parameter. Accepts a single value, a comma separated list,
+     * or {@code min:max:count} for count evenly spaced values from min to max inclusive.
+     *
+     * @param spec the values to parse
+     * @return the parsed values
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    public static double[] parseAxis(String spec) {
+        try {
+            String[] range = spec.split(":");
+            if (range.length == 3) {
+                double min = Double.parseDouble(range[0]);
+                double max = Double.parseDouble(range[1]);
+                int count = Integer.parseInt(range[2]);
+                if (count < 1)
+                    throw new IllegalArgumentException("Range needs at least one value: " + spec);
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++)
+                    values[i] = count == 1 ? min : min + (max - min) * i / (count - 1);
+                return values;
+            }
+            if (range.length != 1)
+                throw new IllegalArgumentException("Expected a value, a list or min:max:count: " + spec);
+
+            String[] list = spec.split(",");
+            double[] values = new double[list.length];
+            for (int i = 0; i < list.length; i++)
+                values[i] = Double.parseDouble(list[i].trim());
+            return values;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number in " + spec);
+        }
+    }
+
+    /**
+     * Enumerates every combination of parameter values.
+     *
+     * @return the grid points, with the infection rate varying slowest
+     */
+    public List<Parameters> grid() {
+        List<Parameters> points = new ArrayList<>();
+        for (double infectionRate : infectionRates)
+            for (double recoveryRate : recoveryRates)
+                for (double force : forcesOfInfection)
+                    for (double maxInfectionTime : maxInfectionTimes)
+                        points.add(new Parameters(infectionRate, recoveryRate, force, (int) Math.round(maxInfectionTime)));
+        return points;
+    }
+
+    /**
+     * Draws a Latin hypercube sample over the range of every parameter.
+     * Each parameter range is cut into as many strata as there are samples and every stratum
+     * is hit exactly once, so few samples still cover every range evenly.
+     *
+     * @param samples the number of points to draw
+     * @param seed    the seed of the sample
+     * @return the sampled points
+     */
+    public List<Parameters> latinHypercube(int samples, long seed) {
+        if (samples < 1)
+            throw new IllegalArgumentException("Latin hypercube needs at least one sample");
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] infectionRate = stratify(infectionRates, samples, random);
+        double[] recoveryRate = stratify(recoveryRates, samples, random);
+        double[] force = stratify(forcesOfInfection, samples, random);
+        double[] maxInfectionTime = stratify(maxInfectionTimes, samples, random);
+
+        List<Parameters> points = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++)
+            points.add(new Parameters(infectionRate[i], recoveryRate[i], force[i], (int) Math.round(maxInfectionTime[i])));
+        return points;
+    }
+
+    /**
+     * Draws one value from every stratum of a parameter's range, in random order.
+     *
+     * @param axis    the values of the parameter, whose minimum and maximum span the range
+     * @param samples the number of strata
+     * @param random  the source of randomness
+     * @return one value per sample
+     */
+    private static double[] stratify(double[] axis, int samples, SplittableRandom random) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : axis) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        int[] strata = new int[samples];
+        for (int i = 0; i < samples; i++)
+            strata[i] = i;
+        for (int i = samples - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = strata[i];
+            strata[i] = strata[j];
+            strata[j] = swap;
+        }
+
+        double[] values = new double[samples];
+        for (int i = 0; i < samples; i++)
+            values[i] = min + (max - min) * (strata[i] + random.nextDouble()) / samples;
+        return values;
+    }
+}
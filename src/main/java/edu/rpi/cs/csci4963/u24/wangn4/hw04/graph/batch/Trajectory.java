@@ -0,0 +1,91 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.NodeState;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.StateCounts;
+
+import java.util.Arrays;
+
+/**
+ * The number of nodes in every state after every tick of one run.
+ * A run stops once nothing can change any more, so ticks past its end report its final counts.
+ */
+public final class Trajectory {
+    private static final int STATES = NodeState.values().length;
+
+    private final long seed;
+    private int[] counts;
+    private int ticks = 0;
+    /*
+        Abstraction function:
+            After tick t of the run seeded with seed, counts[t * STATES + s] nodes were in state s.
+        Rep Invariant:
+            counts.length >= ticks * STATES.
+     */
+
+    /**
+     * Constructs an empty trajectory.
+     *
+     * @param seed the seed of the run
+     */
+    public Trajectory(long seed) {
+        this.seed = seed;
+        this.counts = new int[64 * STATES];
+    }
+
+    /**
+     * Appends the counts of the next tick.
+     *
+     * @param stateCounts the number of nodes in each state
+     */
+    public void record(StateCounts stateCounts) {
+        if ((ticks + 1) * STATES > counts.length)
+            counts = Arrays.copyOf(counts, counts.length * 2);
+        for (NodeState state : NodeState.values())
+            counts[ticks * STATES + state.ordinal()] = (int) stateCounts.get(state);
+        ticks++;
+    }
+
+    /**
+     * Gets the seed of the run.
+     *
+     * @return the run seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of recorded ticks, including the initial state.
+     *
+     * @return the number of recorded ticks
+     */
+    public int ticks() {
+        return ticks;
+    }
+
+    /**
+     * Gets the number of nodes in a state after a tick.
+     *
+     * @param tick  the tick, where ticks past the end of the run report its final counts
+     * @param state the state to count
+     * @return the number of nodes in the state
+     */
+    public int count(int tick, NodeState state) {
+        return counts[Math.min(tick, ticks - 1) * STATES + state.ordinal()];
+    }
+
+    /**
+     * Finds the first tick at which a state held the most nodes.
+     *
+     * @param state the state to look at
+     * @return the tick of the peak
+     */
+    public int peakTick(NodeState state) {
+        int peak = 0;
+        for (int tick = 1; tick < ticks; tick++) {
+            if (count(tick, state) > count(peak, state))
+                peak = tick;
+        }
+        return peak;
+    }
+}
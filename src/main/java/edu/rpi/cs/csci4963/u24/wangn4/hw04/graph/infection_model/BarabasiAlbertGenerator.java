@@ -0,0 +1,104 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Barabási–Albert preferential attachment generator.
+ * Attachment depends on every earlier edge, so the growth runs once, sequentially, and keeps
+ * only the target of each edge; sources follow from the edge number. Choosing a uniformly
+ * random endpoint of an earlier edge picks a node proportionally to its degree. The stored
+ * targets take four bytes per edge and are then emitted in parallel blocks.
+ */
+final class BarabasiAlbertGenerator extends GraphGenerator {
+    private static final int EDGES_PER_BLOCK = 1 << 16;
+
+    private final int edgesPerNode;
+    private final int edges;
+    private int[] targets;
+    /*
+        Abstraction function:
+            Edge e joins source(e) and targets[e]. The first edgesPerNode edges form a star
+            around node 0, after which node edgesPerNode + 1 + k owns the edgesPerNode edges
+            starting at edgesPerNode * (k + 1).
+        Rep Invariant:
+            targets is null until the graph is first generated, then has length edges.
+     */
+
+    /**
+     * Constructs the generator.
+     *
+     * @param size         the number of nodes
+     * @param edgesPerNode the number of edges every new node brings
+     * @param seed         the seed of the graph
+     */
+    BarabasiAlbertGenerator(int size, int edgesPerNode, long seed) {
+        super(size, seed);
+        if (edgesPerNode < 1 || edgesPerNode >= size)
+            throw new IllegalArgumentException("Edges per node must be at least 1 and below the number of nodes");
+        long edges = (long) edgesPerNode * (size - edgesPerNode);
+        if (2 * edges > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges for int indices: " + edges);
+        this.edgesPerNode = edgesPerNode;
+        this.edges = (int) edges;
+    }
+
+    /**
+     * Gets the source of an edge.
+     *
+     * @param edge the edge number
+     * @return the node that created the edge, or the star leaf for the initial edges
+     */
+    private int source(int edge) {
+        return edge < edgesPerNode ? edge + 1 : edgesPerNode + edge / edgesPerNode;
+    }
+
+    /**
+     * Grows the graph on first use.
+     *
+     * @return the target of every edge
+     */
+    private synchronized int[] targets() {
+        if (targets != null)
+            return targets;
+        int[] grown = new int[edges];
+        SplittableRandom stream = random.stream(0, RandomStreams.SEED_PHASE, 0);
+        for (int edge = edgesPerNode; edge < edges; edge += edgesPerNode) {
+            // every endpoint of the edges of earlier nodes, two per edge
+            long endpoints = 2L * edge;
+            for (int j = 0; j < edgesPerNode; j++) {
+                int target;
+                boolean repeated;
+                do {
+                    long endpoint = stream.nextLong(endpoints);
+                    int other = (int) (endpoint >>> 1);
+                    target = (endpoint & 1) == 0 ? source(other) : grown[other];
+                    repeated = false;
+                    for (int k = 0; k < j && !repeated; k++)
+                        repeated = grown[edge + k] == target;
+                } while (repeated);
+                grown[edge + j] = target;
+            }
+        }
+        targets = grown;
+        return targets;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int blocks() {
+        return (edges + EDGES_PER_BLOCK - 1) / EDGES_PER_BLOCK;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(int block, EdgeSink sink) {
+        int[] targets = targets();
+        int end = (int) Math.min(edges, (long) (block + 1) * EDGES_PER_BLOCK);
+        for (int edge = block * EDGES_PER_BLOCK; edge < end; edge++)
+            sink.edge(source(edge), targets[edge]);
+    }
+}
@@ -0,0 +1,60 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * ForkJoin task running a body once for every block in a range of blocks.
+ * The range is split in halves until a single block remains, so idle workers
+ * can steal the other half.
+ */
+final class BlockTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    /**
+     * The number of nodes in every block but the last.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    // tasks are never serialized, so the body need not be
+    @SuppressWarnings("serial")
+    private final IntConsumer body;
+    private final int fromBlock;
+    private final int toBlock;
+
+    /**
+     * Constructs a task over the blocks [fromBlock, toBlock).
+     *
+     * @param body      the work to do for one block, given the block number
+     * @param fromBlock the first block, inclusive
+     * @param toBlock   the last block, exclusive
+     */
+    BlockTask(IntConsumer body, int fromBlock, int toBlock) {
+        this.body = body;
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+    }
+
+    /**
+     * Returns the number of blocks needed to cover the given number of nodes.
+     *
+     * @param size the number of nodes
+     * @return the number of blocks
+     */
+    static int blockCount(int size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Runs the body on a single block or splits the range in two.
+     */
+    @Override
+    protected void compute() {
+        if (toBlock - fromBlock <= 1) {
+            for (int block = fromBlock; block < toBlock; block++)
+                body.accept(block);
+            return;
+        }
+        int mid = (fromBlock + toBlock) >>> 1;
+        invokeAll(new BlockTask(body, fromBlock, mid), new BlockTask(body, mid, toBlock));
+    }
+}
@@ -0,0 +1,141 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Periodically saves an {@link Infection} run to a checkpoint file without slowing its ticks.
+ * The tick thread only copies the node arrays; the copy is written by an I/O thread while the
+ * run goes on. A checkpoint that falls due while the previous one is still being written is
+ * skipped, so a slow disk costs checkpoints rather than ticks.
+ */
+public final class Checkpointer implements AutoCloseable {
+    private final Path path;
+    private final long interval;
+    private final ExecutorService io;
+    private long lastSave;
+    private InfectionCheckpoint queued;
+    private boolean writing = false;
+    private IOException failure;
+    /*
+        Abstraction function:
+            Checkpoints of a run go to the file at path, at most one every interval nanoseconds;
+            queued is the next one to write, if any.
+        Rep Invariant:
+            interval >= 0; queued is null unless writing.
+     */
+
+    /**
+     * Creates a checkpointer. The first periodic checkpoint is due one interval from now.
+     *
+     * @param path     the checkpoint file
+     * @param interval the time between two periodic checkpoints
+     * @param io       the executor the files are written on
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public Checkpointer(Path path, Duration interval, ExecutorService io) {
+        if (interval.isNegative())
+            throw new IllegalArgumentException("The checkpoint interval must be non-negative: " + interval);
+        this.path = Objects.requireNonNull(path);
+        this.interval = interval.toNanos();
+        this.io = Objects.requireNonNull(io);
+        this.lastSave = System.nanoTime();
+    }
+
+    /**
+     * Gets the checkpoint file.
+     *
+     * @return the path checkpoints are written to
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Takes a checkpoint of a run if one is due and none is being written. Called on the tick
+     * thread between two ticks; never waits for the disk.
+     *
+     * @param infection the run to save
+     * @return true if a checkpoint was taken
+     */
+    public synchronized boolean afterTick(Infection infection) {
+        if (writing || System.nanoTime() - lastSave < interval)
+            return false;
+        submit(infection.checkpoint());
+        return true;
+    }
+
+    /**
+     * Takes a checkpoint of a run now and writes it in the background, after the one being
+     * written if any. Must be called between ticks.
+     *
+     * @param infection the run to save
+     */
+    public synchronized void save(Infection infection) {
+        submit(infection.checkpoint());
+    }
+
+    /**
+     * Waits until every checkpoint taken so far is written.
+     *
+     * @throws IOException if a checkpoint could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        boolean interrupted = false;
+        while (writing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Queues a checkpoint for writing, replacing a queued one that is not written yet.
+     *
+     * @param checkpoint the checkpoint to write
+     */
+    private void submit(InfectionCheckpoint checkpoint) {
+        lastSave = System.nanoTime();
+        queued = checkpoint;
+        if (!writing) {
+            writing = true;
+            io.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes queued checkpoints on the I/O thread until none is left.
+     */
+    private void drain() {
+        while (true) {
+            InfectionCheckpoint checkpoint;
+            synchronized (this) {
+                checkpoint = queued;
+                queued = null;
+                if (checkpoint == null) {
+                    writing = false;
+                    notifyAll();
+                    return;
+                }
+            }
+            try {
+                checkpoint.write(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+                synchronized (this) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
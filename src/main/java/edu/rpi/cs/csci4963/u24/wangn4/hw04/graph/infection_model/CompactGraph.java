@@ -0,0 +1,410 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable compressed sparse row (CSR) representation of an undirected graph.
+ * Nodes are addressed by a dense index in [0, size()) and the neighbors of node i
+ * are stored in neighbors[offsets[i] .. offsets[i + 1]).
+ * Node ids are either arbitrary strings or, for graphs whose ids are all integers,
+ * a sorted int array that needs no string dictionary at all.
+ * Adjacency entries may carry a weight and a window of ticks during which they are active,
+ * stored in primitive arrays parallel to the neighbor array. Graphs without them leave the
+ * arrays null, meaning a weight of 1 and an edge that is always active.
+ */
+public final class CompactGraph {
+    private final String[] ids;
+    private final int[] numericIds;
+    private final Map<String, Integer> indexById;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final float[] weights;
+    private final int[] activeFrom;
+    private final int[] activeUntil;
+    private volatile long fingerprint;
+    /*
+        Abstraction function:
+            Node i has the id ids[i], or the decimal form of numericIds[i] if ids is null,
+            and is adjacent to every node stored in neighbors[offsets[i] .. offsets[i + 1]).
+            Entry e has the weight weights[e], or 1 if weights is null, and is active during
+            the ticks [activeFrom[e], activeUntil[e]), or always if activeFrom is null.
+        Rep Invariant:
+            Exactly one of ids and numericIds is null. With n nodes, offsets.length == n + 1,
+            offsets[0] == 0, offsets is non-decreasing, offsets[n] == neighbors.length and every
+            neighbor is a valid index. indexById maps ids[i] to i for every i, numericIds is
+            strictly increasing and non-negative.
+            weights is null or as long as neighbors with finite non-negative values. activeFrom
+            and activeUntil are both null or both as long as neighbors with
+            0 <= activeFrom[e] <= activeUntil[e].
+            fingerprint is 0 or the value fingerprint() returns.
+     */
+
+    /**
+     * Constructs a CompactGraph from already built CSR arrays.
+     * The arrays are not copied and must not be modified afterwards.
+     *
+     * @param ids       the string id of every node, indexed by node index
+     * @param offsets   the start of every node's neighbor range, with a trailing end sentinel
+     * @param neighbors the concatenated neighbor indices of all nodes
+     */
+    public CompactGraph(String[] ids, int[] offsets, int[] neighbors) {
+        this(ids, offsets, neighbors, null, null, null);
+    }
+
+    /**
+     * Constructs a CompactGraph with weighted and possibly time-varying adjacency entries.
+     * The arrays are not copied and must not be modified afterwards.
+     *
+     * @param ids         the string id of every node, indexed by node index
+     * @param offsets     the start of every node's neighbor range, with a trailing end sentinel
+     * @param neighbors   the concatenated neighbor indices of all nodes
+     * @param weights     the weight of every adjacency entry, or null for all 1
+     * @param activeFrom  the first tick every adjacency entry is active in, or null if always active
+     * @param activeUntil the tick every adjacency entry stops being active in, or null if always active
+     */
+    public CompactGraph(String[] ids, int[] offsets, int[] neighbors, float[] weights, int[] activeFrom, int[] activeUntil) {
+        Objects.requireNonNull(ids);
+        Objects.requireNonNull(offsets);
+        Objects.requireNonNull(neighbors);
+        this.ids = ids;
+        this.numericIds = null;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+        this.activeFrom = activeFrom;
+        this.activeUntil = activeUntil;
+        this.indexById = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++)
+            indexById.put(ids[i], i);
+
+        checkRep();
+    }
+
+    /**
+     * Constructs a CompactGraph whose node ids are non-negative integers.
+     * The arrays are not copied and must not be modified afterwards.
+     *
+     * @param numericIds the id of every node, indexed by node index and strictly increasing
+     * @param offsets    the start of every node's neighbor range, with a trailing end sentinel
+     * @param neighbors  the concatenated neighbor indices of all nodes
+     */
+    public CompactGraph(int[] numericIds, int[] offsets, int[] neighbors) {
+        this(numericIds, offsets, neighbors, null, null, null);
+    }
+
+    /**
+     * Constructs a CompactGraph whose node ids are non-negative integers, with weighted and
+     * possibly time-varying adjacency entries.
+     * The arrays are not copied and must not be modified afterwards.
+     *
+     * @param numericIds  the id of every node, indexed by node index and strictly increasing
+     * @param offsets     the start of every node's neighbor range, with a trailing end sentinel
+     * @param neighbors   the concatenated neighbor indices of all nodes
+     * @param weights     the weight of every adjacency entry, or null for all 1
+     * @param activeFrom  the first tick every adjacency entry is active in, or null if always active
+     * @param activeUntil the tick every adjacency entry stops being active in, or null if always active
+     */
+    public CompactGraph(int[] numericIds, int[] offsets, int[] neighbors, float[] weights, int[] activeFrom, int[] activeUntil) {
+        Objects.requireNonNull(numericIds);
+        Objects.requireNonNull(offsets);
+        Objects.requireNonNull(neighbors);
+        this.ids = null;
+        this.numericIds = numericIds;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+        this.activeFrom = activeFrom;
+        this.activeUntil = activeUntil;
+        this.indexById = null;
+
+        checkRep();
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the CSR arrays are inconsistent
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        int size = size();
+        if (offsets.length != size + 1 || offsets[0] != 0 || offsets[size] != neighbors.length)
+            throw new RuntimeException("CompactGraph.offsets does not match the node and neighbor arrays");
+        for (int i = 0; i < size; i++) {
+            if (offsets[i] > offsets[i + 1])
+                throw new RuntimeException("CompactGraph.offsets is not sorted at " + i);
+        }
+        for (int neighbor : neighbors) {
+            if (neighbor < 0 || neighbor >= size)
+                throw new RuntimeException("CompactGraph.neighbors contains an invalid index " + neighbor);
+        }
+        if (numericIds != null) {
+            for (int i = 0; i < size; i++) {
+                if (numericIds[i] < 0 || (i > 0 && numericIds[i - 1] >= numericIds[i]))
+                    throw new RuntimeException("CompactGraph.numericIds is not strictly increasing at " + i);
+            }
+        }
+        if (weights != null) {
+            if (weights.length != neighbors.length)
+                throw new RuntimeException("CompactGraph.weights does not match the neighbor array");
+            for (float weight : weights) {
+                if (!(weight >= 0) || Float.isInfinite(weight))
+                    throw new RuntimeException("CompactGraph.weights contains an invalid weight " + weight);
+            }
+        }
+        if ((activeFrom == null) != (activeUntil == null))
+            throw new RuntimeException("CompactGraph activity windows are missing an end");
+        if (activeFrom != null) {
+            if (activeFrom.length != neighbors.length || activeUntil.length != neighbors.length)
+                throw new RuntimeException("CompactGraph activity windows do not match the neighbor array");
+            for (int e = 0; e < activeFrom.length; e++) {
+                if (activeFrom[e] < 0 || activeFrom[e] > activeUntil[e])
+                    throw new RuntimeException("CompactGraph activity window of entry " + e + " is invalid");
+            }
+        }
+    }
+
+    /**
+     * Builds a CompactGraph from the nodes and edges currently held by a Graph.
+     * Every edge is shared by the lists of both endpoints and contributes the opposite
+     * endpoint to the neighbor range of each.
+     *
+     * @param nodes the nodes to include, in the order their indices are assigned
+     * @return the CSR form of the given nodes and their edges
+     */
+    static CompactGraph of(Node[] nodes) {
+        // Node.equals compares states, so nodes have to be told apart by identity
+        Map<Node, Integer> indexOf = new IdentityHashMap<>(nodes.length);
+        String[] ids = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ids[i] = nodes[i].getId();
+            indexOf.put(nodes[i], i);
+        }
+
+        int[] offsets = new int[nodes.length + 1];
+        boolean weighted = false;
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i + 1] = offsets[i] + nodes[i].getChildren().size();
+            for (Edge edge : nodes[i].getChildren())
+                weighted |= edge.getWeight() != 1;
+        }
+
+        int[] neighbors = new int[offsets[nodes.length]];
+        float[] weights = weighted ? new float[neighbors.length] : null;
+        for (int i = 0; i < nodes.length; i++) {
+            int cursor = offsets[i];
+            for (Edge edge : nodes[i].getChildren()) {
+                if (weights != null)
+                    weights[cursor] = edge.getWeight();
+                neighbors[cursor++] = indexOf.get(edge.getOther(nodes[i]));
+            }
+        }
+        return new CompactGraph(ids, offsets, neighbors, weights, null, null);
+    }
+
+    /**
+     * Returns the number of nodes in the graph
+     *
+     * @return the number of nodes in the graph
+     */
+    public int size() {
+        return ids != null ? ids.length : numericIds.length;
+    }
+
+    /**
+     * Returns the number of stored adjacency entries, counting each endpoint of an edge once.
+     *
+     * @return the length of the neighbor array
+     */
+    public int edgeSize() {
+        return neighbors.length;
+    }
+
+    /**
+     * Looks up the dense index of a node.
+     *
+     * @param id the string id of the node
+     * @return the index of the node or -1 if no such node exists
+     */
+    public int indexOf(String id) {
+        if (id == null)
+            return -1;
+        if (indexById != null) {
+            Integer index = indexById.get(id);
+            return index == null ? -1 : index;
+        }
+
+        int numericId;
+        try {
+            numericId = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        // only the canonical decimal form names a node, as with string ids
+        if (!Integer.toString(numericId).equals(id))
+            return -1;
+        int index = Arrays.binarySearch(numericIds, numericId);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Gets the string id of a node.
+     *
+     * @param index the dense index of the node
+     * @return the id of the node
+     */
+    public String idOf(int index) {
+        return ids != null ? ids[index] : Integer.toString(numericIds[index]);
+    }
+
+    /**
+     * Whether the node ids of this graph are stored as integers.
+     *
+     * @return true if ids are numeric, false if they are strings
+     */
+    public boolean hasNumericIds() {
+        return numericIds != null;
+    }
+
+    /**
+     * The numeric id array backing this graph. Callers must not modify it.
+     *
+     * @return the id of every node or null if ids are strings
+     */
+    int[] numericIds() {
+        return numericIds;
+    }
+
+    /**
+     * Returns the number of neighbors of a node.
+     *
+     * @param index the dense index of the node
+     * @return the number of neighbors
+     */
+    public int degree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * Hashes the adjacency of this graph, including the weights and activity windows of its
+     * entries, so files derived from it such as layouts and checkpoints are not used with a
+     * changed graph. Takes O(n + m) time the first time it is called.
+     *
+     * @return the fingerprint
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash != 0)
+            return hash;
+
+        hash = size() * 31L + edgeSize();
+        for (int offset : offsets)
+            hash = hash * 31 + offset;
+        for (int neighbor : neighbors)
+            hash = hash * 31 + neighbor;
+        // a missing array hashes differently from any present one, even one of all defaults
+        hash = hash * 31 + (weights == null ? 1 : 2);
+        if (weights != null) {
+            for (float weight : weights)
+                hash = hash * 31 + Float.floatToIntBits(weight);
+        }
+        hash = hash * 31 + (activeFrom == null ? 1 : 2);
+        if (activeFrom != null) {
+            for (int e = 0; e < activeFrom.length; e++)
+                hash = (hash * 31 + activeFrom[e]) * 31 + activeUntil[e];
+        }
+        // the graph never changes, so the hash is kept; a hash of 0 is just recomputed
+        fingerprint = hash;
+        return hash;
+    }
+
+    /**
+     * The offsets array backing this graph. Callers must not modify it.
+     *
+     * @return the neighbor range start of every node followed by the end sentinel
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * The neighbor array backing this graph. Callers must not modify it.
+     *
+     * @return the concatenated neighbor indices of all nodes
+     */
+    public int[] neighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Whether the adjacency entries of this graph carry weights.
+     *
+     * @return true if weights are stored, false if every weight is 1
+     */
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    /**
+     * Whether the adjacency entries of this graph are only active during windows of ticks.
+     *
+     * @return true if activity windows are stored, false if every entry is always active
+     */
+    public boolean isTemporal() {
+        return activeFrom != null;
+    }
+
+    /**
+     * Gets the weight of an adjacency entry.
+     *
+     * @param entry the position of the entry in the neighbor array
+     * @return the weight of the entry
+     */
+    public float weight(int entry) {
+        return weights == null ? 1 : weights[entry];
+    }
+
+    /**
+     * Whether an adjacency entry is active during a tick.
+     *
+     * @param entry the position of the entry in the neighbor array
+     * @param tick  the tick number
+     * @return true if the entry's window contains the tick
+     */
+    public boolean isActive(int entry, long tick) {
+        return activeFrom == null || (tick >= activeFrom[entry] && tick < activeUntil[entry]);
+    }
+
+    /**
+     * The weight array parallel to the neighbor array. Callers must not modify it.
+     *
+     * @return the weight of every adjacency entry or null if every weight is 1
+     */
+    public float[] weights() {
+        return weights;
+    }
+
+    /**
+     * The window start array parallel to the neighbor array. Callers must not modify it.
+     *
+     * @return the first active tick of every adjacency entry or null if entries are always active
+     */
+    public int[] activeFrom() {
+        return activeFrom;
+    }
+
+    /**
+     * The window end array parallel to the neighbor array. Callers must not modify it.
+     *
+     * @return the tick every adjacency entry stops being active in, or null if entries are always active
+     */
+    public int[] activeUntil() {
+        return activeUntil;
+    }
+}
@@ -0,0 +1,518 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs any {@link CompartmentModel} on a graph with the same synchronous, block parallel tick
+ * as {@link Infection}.
+ * The model is compiled into a {@link TransitionTable} up front, and every node's compartment is
+ * a byte code, so the tick loops only do array lookups whatever model is running.
+ * A tick has two phases. In the contact phase every node of an infectious compartment tries to
+ * infect each susceptible neighbor with probability 1 - (1 - f)^(a * b * w), for the force of
+ * infection f, the infectivity a and susceptibility b of the two compartments and the edge weight w.
+ * In the progression phase every node of a compartment it can leave on its own either reaches the
+ * end of its duration, makes one of its per-tick moves, or stays another tick.
+ * Two frontiers track the nodes of infectious and of transient compartments, so neither phase
+ * visits nodes with nothing to do.
+ * <p>
+ * The node state store mirrors the compartments: each node holds the state its compartment
+ * reports as, and its infection time counts the ticks spent in its current compartment.
+ */
+public class CompartmentInfection implements Simulation {
+    private static final VarHandle CODES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final Graph graph;
+    private final CompactGraph compact;
+    private final CompartmentModel model;
+    private final TransitionTable table;
+    private final NodeStateStore states;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final byte[] compartments;
+    private final byte[] nextCompartments;
+    private final Frontier infectious;
+    private final Frontier transients;
+    private final Frontier fresh;
+    private final long[] counts;
+    private final int[] blockDeltas;
+    private final double[] logEscape;
+    private final double[] chance;
+    private RandomStreams random;
+    private long tickCount = 0;
+    private double infectionRate;
+    private double forceOfInfection;
+    private volatile StateCounts stateCounts;
+    private volatile long[] published;
+    /*
+        Abstraction function:
+            Node i is in compartment compartments[i] of the model. nextCompartments is scratch
+            space for the contact phase. counts[c] nodes are in compartment c.
+        Rep Invariant:
+            Between phases nextCompartments equals compartments, infectious holds exactly the
+            nodes of infectious compartments and transients those of transient compartments,
+            fresh is empty, counts matches compartments and every node's state in the store is
+            the kind of its compartment.
+            logEscape[a * k + b] == infectivity[a] * susceptibility[b] * ln(1 - forceOfInfection)
+            and chance[a * k + b] == 1 - exp(logEscape[a * k + b]) for k compartments.
+     */
+
+    /**
+     * Constructs a run of a compartment model on its own pool.
+     *
+     * @param topology         the immutable network of nodes
+     * @param model            the compartment model
+     * @param infectionRate    the fraction of nodes starting in the model's initial compartment
+     * @param forceOfInfection the chance an infectious node infects a susceptible neighbor each tick
+     * @param seed             the seed of every random decision of the run
+     */
+    public CompartmentInfection(CompactGraph topology, CompartmentModel model, double infectionRate, double forceOfInfection, long seed) {
+        this(topology, model, infectionRate, forceOfInfection, seed, null);
+    }
+
+    /**
+     * Constructs a run of a compartment model ticking on a shared pool.
+     *
+     * @param topology         the immutable network of nodes
+     * @param model            the compartment model
+     * @param infectionRate    the fraction of nodes starting in the model's initial compartment
+     * @param forceOfInfection the chance an infectious node infects a susceptible neighbor each tick
+     * @param seed             the seed of every random decision of the run
+     * @param pool             the pool to run ticks on, which {@link #shutdown()} leaves running,
+     *                         or null to create one owned by this run
+     */
+    public CompartmentInfection(CompactGraph topology, CompartmentModel model, double infectionRate, double forceOfInfection, long seed, ForkJoinPool pool) {
+        this.graph = new Graph(topology);
+        this.compact = graph.freeze();
+        this.model = Objects.requireNonNull(model);
+        this.table = model.compile();
+        this.states = new NodeStateStore(compact.size());
+        graph.bindStates(states);
+        this.ownsPool = pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : pool;
+        this.compartments = new byte[compact.size()];
+        this.nextCompartments = new byte[compact.size()];
+        this.infectious = new Frontier(compact.size());
+        this.transients = new Frontier(compact.size());
+        this.fresh = new Frontier(compact.size());
+        this.counts = new long[table.size()];
+        this.blockDeltas = new int[BlockTask.blockCount(compact.size()) * table.size()];
+        this.logEscape = new double[table.size() * table.size()];
+        this.chance = new double[logEscape.length];
+        this.infectionRate = infectionRate;
+        this.forceOfInfection = forceOfInfection;
+
+        reset(seed);
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the frontiers, counts or store disagree with the compartments
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        long[] scanned = new long[counts.length];
+        for (int i = 0; i < compartments.length; i++) {
+            int c = compartments[i];
+            if (nextCompartments[i] != c)
+                throw new RuntimeException("CompartmentInfection buffers differ at node " + i);
+            if (infectious.contains(i) != table.isInfectious(c) || transients.contains(i) != table.isTransient(c))
+                throw new RuntimeException("CompartmentInfection frontiers do not match node " + i);
+            if (states.getState(i).code() != table.kind()[c])
+                throw new RuntimeException("CompartmentInfection store does not match node " + i);
+            scanned[c]++;
+        }
+        if (!Arrays.equals(scanned, counts))
+            throw new RuntimeException("CompartmentInfection.counts does not match the compartments");
+        if (fresh.count() != 0)
+            throw new RuntimeException("CompartmentInfection.fresh is not empty");
+    }
+
+    /**
+     * Restarts the run from tick 0 with a new seed, without touching the topology.
+     * Every node returns to the model's first compartment, and nodes are then moved to its
+     * initial compartment based on the infection rate, with the same draws as {@link Infection}.
+     *
+     * @param seed the seed of every random decision of the new run
+     */
+    @Override
+    public synchronized void reset(long seed) {
+        random = new RandomStreams(seed);
+        tickCount = 0;
+        int size = table.size();
+        double log = forceOfInfection >= 1 ? Double.NEGATIVE_INFINITY : Math.log1p(-forceOfInfection);
+        for (int a = 0; a < size; a++) {
+            for (int b = 0; b < size; b++) {
+                double weight = table.infectivity()[a] * table.susceptibility()[b];
+                // a zero weight never transmits, even with an infinite logarithm
+                logEscape[a * size + b] = weight == 0 ? 0 : weight * log;
+                chance[a * size + b] = -Math.expm1(logEscape[a * size + b]);
+            }
+        }
+        states.clear();
+        fresh.clear();
+        Arrays.fill(counts, 0);
+        counts[0] = compartments.length;
+        // the store starts out susceptible, so move every node to the state of the first compartment
+        states.transfer(NodeStateStore.SUSCEPTIBLE, table.kind()[0], compartments.length);
+
+        pool.invoke(new BlockTask(this::seedBlock, 0, blockCount()));
+        applyDeltas();
+        publish();
+
+        checkRep();
+    }
+
+    /**
+     * Stops the worker threads of this run, unless they belong to a shared pool.
+     * The run must not be ticked afterwards.
+     */
+    @Override
+    public void shutdown() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /**
+     * Advances the run by one tick: the contact phase followed by the progression phase.
+     */
+    @Override
+    public synchronized void tick() {
+        pool.invoke(new BlockTask(this::contactBlock, 0, blockCount()));
+        pool.invoke(new BlockTask(this::commitBlock, 0, blockCount()));
+        applyDeltas();
+        pool.invoke(new BlockTask(this::progressBlock, 0, blockCount()));
+        applyDeltas();
+        tickCount++;
+        publish();
+
+        checkRep();
+    }
+
+    /**
+     * Assigns the initial compartment of every node of one block.
+     *
+     * @param block the block to seed
+     */
+    private void seedBlock(int block) {
+        SplittableRandom rng = random.stream(0, RandomStreams.SEED_PHASE, block);
+        byte start = 0;
+        byte initial = table.initial();
+        int from = block * BlockTask.BLOCK_SIZE;
+        int end = Math.min(compartments.length, from + BlockTask.BLOCK_SIZE);
+        Arrays.fill(compartments, from, end, start);
+        Arrays.fill(nextCompartments, from, end, start);
+        Arrays.fill(states.timeInfected(), from, end, 0);
+
+        for (int i = from; i < end; i++) {
+            boolean infected = rng.nextDouble() < infectionRate;
+            byte c = infected ? initial : start;
+            if (infected && c != start) {
+                compartments[i] = c;
+                nextCompartments[i] = c;
+                count(block, start, c);
+            }
+            place(i, c);
+        }
+    }
+
+    /**
+     * Lets the infectious nodes of one block infect their susceptible neighbors.
+     * Compartments are read from the current buffer and infections claimed in the next one with
+     * a compare-and-set, so each infected neighbor is counted once and the order of blocks does not matter.
+     *
+     * @param block the block whose infectious nodes spread the infection
+     */
+    private void contactBlock(int block) {
+        long[] active = infectious.words();
+        int[] offsets = compact.offsets();
+        int[] neighbors = compact.neighbors();
+        float[] weights = compact.weights();
+        int[] activeFrom = compact.activeFrom();
+        int[] activeUntil = compact.activeUntil();
+        byte[] targets = table.infectTarget();
+        int size = table.size();
+        int endWord = infectious.endWord(block);
+        SplittableRandom rng = null;
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = active[w];
+            if (bits == 0)
+                continue;
+            if (rng == null)
+                rng = random.stream(tickCount, RandomStreams.INFECT_PHASE, block);
+            for (; bits != 0; bits &= bits - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+                int row = compartments[node] * size;
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    int child = neighbors[e];
+                    byte c = compartments[child];
+                    if (targets[c] < 0 || (activeFrom != null && (tickCount < activeFrom[e] || tickCount >= activeUntil[e])))
+                        continue;
+                    double p = weights == null ? chance[row + c] : -Math.expm1(weights[e] * logEscape[row + c]);
+                    if (rng.nextDouble() < p && CODES.compareAndSet(nextCompartments, child, c, targets[c])) {
+                        fresh.add(child);
+                        count(block, c, targets[c]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings one block up to date after the contact phase: the nodes infected in it take their
+     * new compartment in the current buffer and join the frontiers of that compartment.
+     *
+     * @param block the block to commit
+     */
+    private void commitBlock(int block) {
+        long[] added = fresh.words();
+        int[] dwell = states.timeInfected();
+        int endWord = fresh.endWord(block);
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = added[w];
+            if (bits == 0)
+                continue;
+            added[w] = 0;
+            for (; bits != 0; bits &= bits - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+                byte c = nextCompartments[node];
+                compartments[node] = c;
+                dwell[node] = 0;
+                place(node, c);
+            }
+        }
+    }
+
+    /**
+     * Moves the nodes of one block that can leave their compartment on their own.
+     * A node only changes itself, so both buffers and its frontier bits are written in place.
+     *
+     * @param block the block to update
+     */
+    private void progressBlock(int block) {
+        long[] active = transients.words();
+        int[] dwell = states.timeInfected();
+        int[] duration = table.duration();
+        int endWord = transients.endWord(block);
+        SplittableRandom rng = null;
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = active[w];
+            if (bits == 0)
+                continue;
+            if (rng == null)
+                rng = random.stream(tickCount, RandomStreams.RECOVER_PHASE, block);
+            for (; bits != 0; bits &= bits - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+                byte c = compartments[node];
+                int target = duration[c] >= 0 && dwell[node] >= duration[c]
+                        ? table.outcome(c, rng.nextDouble()) : table.transition(c, rng.nextDouble());
+                if (target < 0 || target == c) {
+                    dwell[node]++;
+                    continue;
+                }
+                compartments[node] = (byte) target;
+                nextCompartments[node] = (byte) target;
+                dwell[node] = 0;
+                count(block, c, target);
+                place(node, target);
+            }
+        }
+    }
+
+    /**
+     * Sets the frontier bits and store state of a node that entered a compartment.
+     * Must only be called by the worker owning the node's block.
+     *
+     * @param node        the node
+     * @param compartment the compartment it is now in
+     */
+    private void place(int node, int compartment) {
+        if (table.isInfectious(compartment))
+            infectious.add(node);
+        else
+            infectious.remove(node);
+        if (table.isTransient(compartment))
+            transients.add(node);
+        else
+            transients.remove(node);
+
+        byte kind = table.kind()[compartment];
+        states.states()[node] = kind;
+        states.nextStates()[node] = kind;
+        if (kind == NodeStateStore.INFECTED)
+            states.infected().add(node);
+        else
+            states.infected().remove(node);
+    }
+
+    /**
+     * Records a move between compartments made by a block's worker.
+     *
+     * @param block the block of the worker
+     * @param from  the compartment left
+     * @param to    the compartment entered
+     */
+    private void count(int block, int from, int to) {
+        blockDeltas[block * table.size() + from]--;
+        blockDeltas[block * table.size() + to]++;
+    }
+
+    /**
+     * Adds the moves counted by the blocks to the compartment and state counts and clears them.
+     */
+    private void applyDeltas() {
+        int size = table.size();
+        for (int block = 0; block < blockCount(); block++) {
+            for (int c = 0; c < size; c++) {
+                int delta = blockDeltas[block * size + c];
+                if (delta == 0)
+                    continue;
+                blockDeltas[block * size + c] = 0;
+                counts[c] += delta;
+                // the deltas of a block sum to zero, so taking them all from SUSCEPTIBLE nets out
+                states.transfer(NodeStateStore.SUSCEPTIBLE, table.kind()[c], delta);
+            }
+        }
+    }
+
+    /**
+     * Publishes the counts of the last completed tick.
+     */
+    private void publish() {
+        stateCounts = StateCounts.of(tickCount, states);
+        published = counts.clone();
+    }
+
+    /**
+     * Returns the number of blocks the nodes are split into.
+     *
+     * @return the number of blocks
+     */
+    private int blockCount() {
+        return blockDeltas.length / table.size();
+    }
+
+    /**
+     * Sets the fraction of nodes starting in the initial compartment.
+     *
+     * @param infectionRate the new infection rate, used from the next {@link #reset(long)}
+     */
+    public void setInfectionRate(double infectionRate) {
+        this.infectionRate = infectionRate;
+    }
+
+    /**
+     * Sets the chance an infectious node infects a susceptible neighbor each tick.
+     *
+     * @param forceOfInfection the new force of infection, used from the next {@link #reset(long)}
+     */
+    public void setForceOfInfection(double forceOfInfection) {
+        this.forceOfInfection = forceOfInfection;
+    }
+
+    /**
+     * Gets the fraction of nodes starting in the initial compartment.
+     *
+     * @return the infection rate
+     */
+    public double getInfectionRate() {
+        return infectionRate;
+    }
+
+    /**
+     * Gets the chance an infectious node infects a susceptible neighbor each tick.
+     *
+     * @return the force of infection
+     */
+    public double getForceOfInfection() {
+        return forceOfInfection;
+    }
+
+    /**
+     * Gets the model this run simulates.
+     *
+     * @return the compartment model
+     */
+    public CompartmentModel getModel() {
+        return model;
+    }
+
+    /**
+     * Gets the number of nodes in every compartment as of the last completed tick.
+     *
+     * @return a copy of the counts, indexed by compartment
+     */
+    public long[] getCompartmentCounts() {
+        return published.clone();
+    }
+
+    /**
+     * Gets the compartment a node is in.
+     *
+     * @param index the dense index of the node
+     * @return the compartment index within the model
+     */
+    public synchronized int getCompartment(int index) {
+        return compartments[index];
+    }
+
+    /**
+     * Gets the graph representing the network of nodes.
+     *
+     * @return the graph
+     */
+    @Override
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the seed this run was started with.
+     *
+     * @return the run seed
+     */
+    @Override
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Gets the number of ticks run so far.
+     *
+     * @return the number of completed ticks
+     */
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the number of nodes reporting as every state as of the last completed tick.
+     *
+     * @return the latest state counts
+     */
+    @Override
+    public StateCounts getStateCounts() {
+        return stateCounts;
+    }
+
+    /**
+     * Gets the store mirroring the state every node reports as.
+     *
+     * @return the node state store
+     */
+    @Override
+    public NodeStateStore getStates() {
+        return states;
+    }
+}
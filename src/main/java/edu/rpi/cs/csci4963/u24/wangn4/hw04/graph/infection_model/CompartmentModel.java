@@ -0,0 +1,633 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable declaration of a compartmental epidemic model: its compartments and the rules moving
+ * nodes between them, to be run by {@link CompartmentInfection}.
+ * <p>
+ * Every compartment reports as one of the four {@link NodeState}s, so an exposed compartment can
+ * count as infected and a vaccinated one as recovered. Nodes move between compartments in three ways:
+ * <ul>
+ *     <li>by contact: a node in a susceptible compartment is infected by an infectious neighbor
+ *     with the force of infection, scaled by the infectivity of the neighbor's compartment and the
+ *     susceptibility of its own, and moves to the compartment its susceptibility names;</li>
+ *     <li>by transition: a node leaves a compartment with a fixed probability every tick;</li>
+ *     <li>by duration: a node that has spent a fixed number of ticks in a compartment leaves it,
+ *     moving to one of its outcomes at random.</li>
+ * </ul>
+ * All nodes start in the first compartment declared, except for those infected when a run starts,
+ * which start in the initial compartment.
+ * <p>
+ * Models are built with a {@link Builder} or read from a text file with one rule per line:
+ * <pre>
+ * # SEIR with waning immunity
+ * compartment S susceptible
+ * compartment E infected
+ * compartment I infected
+ * compartment R recovered
+ * initial I
+ * susceptible S E 1.0
+ * infectious I 1.0
+ * transition E I 0.2
+ * transition I R 0.1
+ * transition R S 0.01
+ * </pre>
+ * and {@code duration I 10} followed by {@code outcome I R 0.9} and {@code outcome I D 0.1}
+ * for a fixed infectious period.
+ */
+public final class CompartmentModel {
+    /**
+     * The largest number of compartments a model may have, since compartments are stored as bytes.
+     */
+    public static final int MAX_COMPARTMENTS = Byte.MAX_VALUE;
+
+    private final String[] names;
+    private final NodeState[] kinds;
+    private final int initial;
+    private final double[] infectivity;
+    private final double[] susceptibility;
+    private final int[] infectTarget;
+    private final List<Rule> transitions;
+    private final int[] duration;
+    private final List<Rule> outcomes;
+    /*
+        Abstraction function:
+            Compartment c is called names[c] and reports as kinds[c]. Nodes infected at the start
+            go to compartment initial, all others to compartment 0. A node in compartment c infects
+            with weight infectivity[c] and, if infectTarget[c] >= 0, is infected with weight
+            susceptibility[c] and then moves to infectTarget[c]. transitions holds the per-tick
+            moves, duration[c] the ticks after which a node leaves c, or -1, and outcomes where it goes.
+        Rep Invariant:
+            1 <= names.length <= MAX_COMPARTMENTS, names are distinct and all arrays have one
+            entry per compartment. Weights are finite and non-negative. Every compartment's
+            transition probabilities sum to at most 1, and its outcome probabilities to 1 if it
+            has a duration and are absent otherwise.
+     */
+
+    /**
+     * A move of nodes from one compartment to another with some probability.
+     *
+     * @param from        the compartment left
+     * @param to          the compartment entered
+     * @param probability the chance of the move
+     */
+    private record Rule(int from, int to, double probability) {
+    }
+
+    /**
+     * Constructs a model from a validated builder.
+     *
+     * @param builder the builder holding the declaration
+     */
+    private CompartmentModel(Builder builder) {
+        int size = builder.names.size();
+        this.names = builder.names.toArray(new String[0]);
+        this.kinds = builder.kinds.toArray(new NodeState[0]);
+        this.initial = builder.index(builder.initial);
+        this.infectivity = new double[size];
+        this.susceptibility = new double[size];
+        this.infectTarget = new int[size];
+        this.duration = new int[size];
+        Arrays.fill(infectTarget, -1);
+        Arrays.fill(duration, -1);
+        for (Map.Entry<String, Double> entry : builder.infectivity.entrySet())
+            infectivity[builder.index(entry.getKey())] = entry.getValue();
+        for (Map.Entry<String, String> entry : builder.infectTarget.entrySet()) {
+            int c = builder.index(entry.getKey());
+            infectTarget[c] = builder.index(entry.getValue());
+            susceptibility[c] = builder.susceptibility.get(entry.getKey());
+        }
+        for (Map.Entry<String, Integer> entry : builder.duration.entrySet())
+            duration[builder.index(entry.getKey())] = entry.getValue();
+        this.transitions = builder.rules(builder.transitions, builder.transitionProbabilities);
+        this.outcomes = builder.rules(builder.outcomes, builder.outcomeProbabilities);
+
+        checkRep();
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the model is inconsistent
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        if (names.length < 1 || names.length > MAX_COMPARTMENTS)
+            throw new RuntimeException("CompartmentModel has " + names.length + " compartments");
+        for (int c = 0; c < names.length; c++) {
+            if (infectivity[c] < 0 || susceptibility[c] < 0)
+                throw new RuntimeException("CompartmentModel has a negative weight in " + names[c]);
+        }
+    }
+
+    /**
+     * Starts the declaration of a new model.
+     *
+     * @return an empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The model of {@link Infection}: infected nodes stay infected for a fixed time and then
+     * recover or die.
+     *
+     * @param recoveryRate     the chance that a node recovers rather than dies
+     * @param maxInfectionTime the number of ticks a node stays infected
+     * @return the SIRD model
+     */
+    public static CompartmentModel sird(double recoveryRate, int maxInfectionTime) {
+        return builder()
+                .compartment("S", NodeState.SUSCEPTIBLE)
+                .compartment("I", NodeState.INFECTED)
+                .compartment("R", NodeState.RECOVERED)
+                .compartment("D", NodeState.DEAD)
+                .initial("I")
+                .susceptible("S", "I", 1)
+                .infectious("I", 1)
+                .duration("I", maxInfectionTime)
+                .outcome("I", "R", recoveryRate)
+                .outcome("I", "D", 1 - recoveryRate)
+                .build();
+    }
+
+    /**
+     * The SEIR model: infected nodes go through a non-infectious exposed stage first.
+     * The exposed stage reports as infected.
+     *
+     * @param incubationRate the chance an exposed node becomes infectious each tick
+     * @param recoveryRate   the chance an infectious node recovers each tick
+     * @return the SEIR model
+     */
+    public static CompartmentModel seir(double incubationRate, double recoveryRate) {
+        return builder()
+                .compartment("S", NodeState.SUSCEPTIBLE)
+                .compartment("E", NodeState.INFECTED)
+                .compartment("I", NodeState.INFECTED)
+                .compartment("R", NodeState.RECOVERED)
+                .initial("I")
+                .susceptible("S", "E", 1)
+                .infectious("I", 1)
+                .transition("E", "I", incubationRate)
+                .transition("I", "R", recoveryRate)
+                .build();
+    }
+
+    /**
+     * The SIRS model: immunity wanes and recovered nodes become susceptible again.
+     *
+     * @param recoveryRate the chance an infected node recovers each tick
+     * @param waningRate   the chance a recovered node loses its immunity each tick
+     * @return the SIRS model
+     */
+    public static CompartmentModel sirs(double recoveryRate, double waningRate) {
+        return builder()
+                .compartment("S", NodeState.SUSCEPTIBLE)
+                .compartment("I", NodeState.INFECTED)
+                .compartment("R", NodeState.RECOVERED)
+                .initial("I")
+                .susceptible("S", "I", 1)
+                .infectious("I", 1)
+                .transition("I", "R", recoveryRate)
+                .transition("R", "S", waningRate)
+                .build();
+    }
+
+    /**
+     * The SIR model with ongoing vaccination by a leaky vaccine.
+     * The vaccinated compartment reports as recovered.
+     *
+     * @param recoveryRate    the chance an infected node recovers each tick
+     * @param vaccinationRate the chance a susceptible node is vaccinated each tick
+     * @param efficacy        the factor by which vaccination reduces susceptibility
+     * @return the SIRV model
+     */
+    public static CompartmentModel sirv(double recoveryRate, double vaccinationRate, double efficacy) {
+        return builder()
+                .compartment("S", NodeState.SUSCEPTIBLE)
+                .compartment("I", NodeState.INFECTED)
+                .compartment("R", NodeState.RECOVERED)
+                .compartment("V", NodeState.RECOVERED)
+                .initial("I")
+                .susceptible("S", "I", 1)
+                .susceptible("V", "I", 1 - efficacy)
+                .infectious("I", 1)
+                .transition("I", "R", recoveryRate)
+                .transition("S", "V", vaccinationRate)
+                .build();
+    }
+
+    /**
+     * Reads a model from a text file.
+     *
+     * @param path the model file
+     * @return the model
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file does not declare a valid model
+     */
+    public static CompartmentModel read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a model in the text format. Blank lines and everything after a '#' are ignored.
+     *
+     * @param reader the source of the declaration
+     * @return the model
+     * @throws IOException              if the source cannot be read
+     * @throws IllegalArgumentException if the source does not declare a valid model
+     */
+    public static CompartmentModel read(Reader reader) throws IOException {
+        Builder builder = builder();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            String[] tokens = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (tokens[0].isEmpty())
+                continue;
+            try {
+                declare(builder, tokens);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + number + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Applies one line of a model file to a builder.
+     *
+     * @param builder the builder
+     * @param tokens  the words of the line
+     * @throws IllegalArgumentException if the line is not a valid rule
+     */
+    private static void declare(Builder builder, String[] tokens) {
+        String keyword = tokens[0].toLowerCase(Locale.ROOT);
+        int arguments = switch (keyword) {
+            case "initial" -> 1;
+            case "compartment", "infectious", "duration" -> 2;
+            case "susceptible", "transition", "outcome" -> 3;
+            default -> throw new IllegalArgumentException("Unknown rule " + tokens[0]);
+        };
+        if (tokens.length != arguments + 1)
+            throw new IllegalArgumentException(keyword + " takes " + arguments + " arguments");
+        try {
+            switch (keyword) {
+                case "compartment" -> builder.compartment(tokens[1], NodeState.valueOf(tokens[2].toUpperCase(Locale.ROOT)));
+                case "initial" -> builder.initial(tokens[1]);
+                case "infectious" -> builder.infectious(tokens[1], Double.parseDouble(tokens[2]));
+                case "duration" -> builder.duration(tokens[1], Integer.parseInt(tokens[2]));
+                case "susceptible" -> builder.susceptible(tokens[1], tokens[2], Double.parseDouble(tokens[3]));
+                case "transition" -> builder.transition(tokens[1], tokens[2], Double.parseDouble(tokens[3]));
+                case "outcome" -> builder.outcome(tokens[1], tokens[2], Double.parseDouble(tokens[3]));
+                default -> throw new AssertionError(keyword);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in " + keyword + " rule");
+        }
+    }
+
+    /**
+     * Compiles the model into the flat tables driven by {@link CompartmentInfection}.
+     *
+     * @return the transition table of this model
+     */
+    TransitionTable compile() {
+        int size = names.length;
+        byte[] kind = new byte[size];
+        byte[] target = new byte[size];
+        for (int c = 0; c < size; c++) {
+            kind[c] = kinds[c].code();
+            target[c] = (byte) infectTarget[c];
+        }
+        int[] transitionOffsets = new int[size + 1];
+        byte[] transitionTargets = new byte[transitions.size()];
+        double[] transitionThresholds = new double[transitions.size()];
+        flatten(transitions, transitionOffsets, transitionTargets, transitionThresholds);
+        int[] outcomeOffsets = new int[size + 1];
+        byte[] outcomeTargets = new byte[outcomes.size()];
+        double[] outcomeThresholds = new double[outcomes.size()];
+        flatten(outcomes, outcomeOffsets, outcomeTargets, outcomeThresholds);
+        // outcomes always pick one of them, whatever the rounding of their sum
+        for (int c = 0; c < size; c++) {
+            if (outcomeOffsets[c + 1] > outcomeOffsets[c])
+                outcomeThresholds[outcomeOffsets[c + 1] - 1] = Double.POSITIVE_INFINITY;
+        }
+        return new TransitionTable(kind, (byte) initial, infectivity.clone(), susceptibility.clone(), target,
+                duration.clone(), transitionOffsets, transitionTargets, transitionThresholds,
+                outcomeOffsets, outcomeTargets, outcomeThresholds);
+    }
+
+    /**
+     * Lays rules out as one range per compartment left, in declaration order, with the running
+     * sum of their probabilities so a single uniform draw selects one of them.
+     *
+     * @param rules      the rules
+     * @param offsets    filled with the start of every compartment's range and an end sentinel
+     * @param targets    filled with the compartment entered by every rule
+     * @param thresholds filled with the cumulative probability of every rule within its range
+     */
+    private static void flatten(List<Rule> rules, int[] offsets, byte[] targets, double[] thresholds) {
+        for (Rule rule : rules)
+            offsets[rule.from() + 1]++;
+        for (int c = 1; c < offsets.length; c++)
+            offsets[c] += offsets[c - 1];
+        int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+        for (Rule rule : rules) {
+            int slot = cursor[rule.from()]++;
+            targets[slot] = (byte) rule.to();
+            thresholds[slot] = (slot > offsets[rule.from()] ? thresholds[slot - 1] : 0) + rule.probability();
+        }
+    }
+
+    /**
+     * Returns the number of compartments.
+     *
+     * @return the number of compartments
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of a compartment.
+     *
+     * @param compartment the compartment index
+     * @return the name of the compartment
+     */
+    public String name(int compartment) {
+        return names[compartment];
+    }
+
+    /**
+     * Gets the node state a compartment reports as.
+     *
+     * @param compartment the compartment index
+     * @return the state of the compartment
+     */
+    public NodeState kind(int compartment) {
+        return kinds[compartment];
+    }
+
+    /**
+     * Finds a compartment by name.
+     *
+     * @param name the name of the compartment
+     * @return the compartment index or -1 if there is no such compartment
+     */
+    public int indexOf(String name) {
+        return Arrays.asList(names).indexOf(name);
+    }
+
+    /**
+     * Returns the names of the compartments in declaration order.
+     *
+     * @return the compartment names, such as [S, E, I, R]
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+
+    /**
+     * Collects the declaration of a {@link CompartmentModel}. Rules may name compartments that are
+     * declared later; everything is checked by {@link #build()}.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<NodeState> kinds = new ArrayList<>();
+        private String initial;
+        private final Map<String, Double> infectivity = new HashMap<>();
+        private final Map<String, Double> susceptibility = new HashMap<>();
+        private final Map<String, String> infectTarget = new HashMap<>();
+        private final Map<String, Integer> duration = new HashMap<>();
+        private final List<String[]> transitions = new ArrayList<>();
+        private final List<Double> transitionProbabilities = new ArrayList<>();
+        private final List<String[]> outcomes = new ArrayList<>();
+        private final List<Double> outcomeProbabilities = new ArrayList<>();
+
+        /**
+         * Only created by {@link CompartmentModel#builder()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Declares a compartment. The first compartment declared is where nodes start.
+         *
+         * @param name the unique name of the compartment
+         * @param kind the state nodes in the compartment report as
+         * @return this builder
+         * @throws IllegalArgumentException if the name is already taken
+         */
+        public Builder compartment(String name, NodeState kind) {
+            Objects.requireNonNull(name);
+            Objects.requireNonNull(kind);
+            if (names.contains(name))
+                throw new IllegalArgumentException("Duplicate compartment " + name);
+            names.add(name);
+            kinds.add(kind);
+            return this;
+        }
+
+        /**
+         * Sets the compartment of the nodes infected when a run starts.
+         *
+         * @param name the compartment
+         * @return this builder
+         */
+        public Builder initial(String name) {
+            this.initial = Objects.requireNonNull(name);
+            return this;
+        }
+
+        /**
+         * Makes the nodes of a compartment infect their neighbors.
+         *
+         * @param name        the compartment
+         * @param infectivity the factor scaling the force of infection of its nodes
+         * @return this builder
+         * @throws IllegalArgumentException if the infectivity is negative or not finite
+         */
+        public Builder infectious(String name, double infectivity) {
+            this.infectivity.put(Objects.requireNonNull(name), requireWeight(infectivity));
+            return this;
+        }
+
+        /**
+         * Makes the nodes of a compartment susceptible to infection by their neighbors.
+         *
+         * @param name           the compartment
+         * @param target         the compartment infected nodes move to
+         * @param susceptibility the factor scaling the force of infection on its nodes
+         * @return this builder
+         * @throws IllegalArgumentException if the susceptibility is negative or not finite
+         */
+        public Builder susceptible(String name, String target, double susceptibility) {
+            this.susceptibility.put(Objects.requireNonNull(name), requireWeight(susceptibility));
+            this.infectTarget.put(name, Objects.requireNonNull(target));
+            return this;
+        }
+
+        /**
+         * Adds a move that each node of a compartment makes with a fixed probability every tick.
+         *
+         * @param from        the compartment left
+         * @param to          the compartment entered
+         * @param probability the chance per tick
+         * @return this builder
+         */
+        public Builder transition(String from, String to, double probability) {
+            transitions.add(new String[]{Objects.requireNonNull(from), Objects.requireNonNull(to)});
+            transitionProbabilities.add(probability);
+            return this;
+        }
+
+        /**
+         * Makes nodes leave a compartment after a fixed number of ticks, to one of its outcomes.
+         * A node checks its time before its transitions, so transitions only fire before the time is up.
+         *
+         * @param name  the compartment
+         * @param ticks the number of ticks a node stays
+         * @return this builder
+         * @throws IllegalArgumentException if the number of ticks is negative
+         */
+        public Builder duration(String name, int ticks) {
+            if (ticks < 0)
+                throw new IllegalArgumentException("Duration must be non-negative: " + ticks);
+            duration.put(Objects.requireNonNull(name), ticks);
+            return this;
+        }
+
+        /**
+         * Adds a compartment that nodes may move to once their time in a compartment is up.
+         *
+         * @param from        the compartment with a duration
+         * @param to          the compartment entered
+         * @param probability the chance of this outcome
+         * @return this builder
+         */
+        public Builder outcome(String from, String to, double probability) {
+            outcomes.add(new String[]{Objects.requireNonNull(from), Objects.requireNonNull(to)});
+            outcomeProbabilities.add(probability);
+            return this;
+        }
+
+        /**
+         * Validates the declaration and creates the model.
+         *
+         * @return the model
+         * @throws IllegalArgumentException if a rule names an undeclared compartment, a probability
+         * lies outside [0, 1], the transitions of a compartment can sum to more than 1, or the
+         * outcomes of a compartment with a duration do not sum to 1
+         */
+        public CompartmentModel build() {
+            if (names.isEmpty() || names.size() > MAX_COMPARTMENTS)
+                throw new IllegalArgumentException("A model needs 1 to " + MAX_COMPARTMENTS + " compartments");
+            if (initial == null)
+                throw new IllegalArgumentException("No initial compartment");
+            index(initial);
+            for (String name : infectivity.keySet())
+                index(name);
+            for (Map.Entry<String, String> entry : infectTarget.entrySet()) {
+                index(entry.getKey());
+                index(entry.getValue());
+            }
+
+            for (String name : duration.keySet())
+                index(name);
+            double[] transitionSums = sums(transitions, transitionProbabilities);
+            double[] outcomeSums = sums(outcomes, outcomeProbabilities);
+            for (int c = 0; c < names.size(); c++) {
+                if (transitionSums[c] > 1 + 1e-9)
+                    throw new IllegalArgumentException("Transitions out of " + names.get(c) + " sum to more than 1");
+                boolean timed = duration.containsKey(names.get(c));
+                if (timed ? Math.abs(outcomeSums[c] - 1) > 1e-9 : outcomeSums[c] != 0)
+                    throw new IllegalArgumentException("Outcomes of " + names.get(c)
+                            + (timed ? " must sum to 1" : " need a duration"));
+            }
+            return new CompartmentModel(this);
+        }
+
+        /**
+         * Adds up the probabilities of a list of moves per compartment left, checking each of them.
+         *
+         * @param moves         the moves as (from, to) names
+         * @param probabilities the probability of every move
+         * @return the sum of probabilities per compartment
+         */
+        private double[] sums(List<String[]> moves, List<Double> probabilities) {
+            double[] sums = new double[names.size()];
+            for (int i = 0; i < moves.size(); i++) {
+                double probability = probabilities.get(i);
+                if (!(probability >= 0 && probability <= 1))
+                    throw new IllegalArgumentException("Probability must lie in [0, 1]: " + probability);
+                index(moves.get(i)[1]);
+                sums[index(moves.get(i)[0])] += probability;
+            }
+            return sums;
+        }
+
+        /**
+         * Converts a list of moves to rules on compartment indices.
+         *
+         * @param moves         the moves as (from, to) names
+         * @param probabilities the probability of every move
+         * @return the rules
+         */
+        private List<Rule> rules(List<String[]> moves, List<Double> probabilities) {
+            List<Rule> rules = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++)
+                rules.add(new Rule(index(moves.get(i)[0]), index(moves.get(i)[1]), probabilities.get(i)));
+            return List.copyOf(rules);
+        }
+
+        /**
+         * Finds a declared compartment.
+         *
+         * @param name the compartment name
+         * @return the index of the compartment
+         * @throws IllegalArgumentException if no compartment has the name
+         */
+        private int index(String name) {
+            int index = names.indexOf(name);
+            if (index < 0)
+                throw new IllegalArgumentException("Unknown compartment " + name);
+            return index;
+        }
+
+        /**
+         * Checks an infectivity or susceptibility.
+         *
+         * @param weight the weight
+         * @return the weight
+         * @throws IllegalArgumentException if the weight is negative or not finite
+         */
+        private static double requireWeight(double weight) {
+            if (!(weight >= 0) || Double.isInfinite(weight))
+                throw new IllegalArgumentException("Weight must be finite and non-negative: " + weight);
+            return weight;
+        }
+    }
+}
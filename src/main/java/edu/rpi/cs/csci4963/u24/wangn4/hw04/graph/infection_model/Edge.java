@@ -3,29 +3,48 @@ package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
 import java.util.Objects;
 
 /**
- * Edge class for storing a connection from parent node to child node.
+ * Edge class for storing an undirected connection between a parent node and a child node.
+ * An edge is stored once and shared by both endpoints, which resolve the node on the other
+ * end with {@link #getOther(Node)}.
  */
 public class Edge {
     private int hash = -1;
     private final Node parent;
     private final Node child;
     private String label;
+    private final float weight;
     private String stringCache = null;
 
     /**
-     * Construct an Edge class instance with the provided data.
+     * Construct an Edge class instance with the provided data and a weight of 1.
      *
      * @param parent the parent node where the edge originates
      * @param child  the child node where the edge points to
      * @param label  the label to apply to the edge
      */
     public Edge(Node parent, Node child, String label) {
+        this(parent, child, label, 1);
+    }
+
+    /**
+     * Construct a weighted Edge class instance with the provided data.
+     *
+     * @param parent the parent node where the edge originates
+     * @param child  the child node where the edge points to
+     * @param label  the label to apply to the edge
+     * @param weight the contact weight, such as its duration, scaling the chance of transmission
+     * @throws IllegalArgumentException if the weight is negative or not finite
+     */
+    public Edge(Node parent, Node child, String label, float weight) {
         Objects.requireNonNull(parent);
         Objects.requireNonNull(child);
         Objects.requireNonNull(label);
+        if (!(weight >= 0) || Float.isInfinite(weight))
+            throw new IllegalArgumentException("Edge weight must be finite and non-negative: " + weight);
         this.parent = parent;
         this.child = child;
         this.label = label;
+        this.weight = weight;
     }
 
     /**
@@ -45,6 +64,16 @@ public class Edge {
             this.label = label;
     }
 
+    /**
+     * The weight of this edge. Over one tick an infected endpoint transmits across an edge of
+     * weight w with probability 1 - (1 - f)^w for a force of infection f.
+     *
+     * @return the weight of this edge
+     */
+    public float getWeight() {
+        return weight;
+    }
+
     /**
      * The parent node where this edge originates from.
      *
@@ -64,10 +93,26 @@ public class Edge {
     }
 
     /**
-     * Compares this with the supplied object to check equality via the label field.
+     * The endpoint of this edge opposite to the given node.
+     *
+     * @param node one endpoint of this edge
+     * @return the other endpoint, the node itself for a self loop, or null if node is not an endpoint
+     */
+    public Node getOther(Node node) {
+        if (node == parent)
+            return child;
+        if (node == child)
+            return parent;
+        return null;
+    }
+
+    /**
+     * Compares this with the supplied object to check equality via the endpoints and label.
+     * Edges are undirected, so the order of the endpoints does not matter. Endpoints are
+     * compared by identity since Node equality only looks at node states.
      *
      * @param obj the other object to check for equality with.
-     * @return true if the same object by reference or label field is the same
+     * @return true if the same object by reference or both edges join the same nodes under the same label
      */
     @Override
     public boolean equals(Object obj) {
@@ -77,18 +122,21 @@ public class Edge {
             return false;
 
         Edge other = (Edge) obj;
-        return this.getLabel().equals(other.getLabel());
+        boolean sameEnds = (parent == other.parent && child == other.child)
+                || (parent == other.child && child == other.parent);
+        return sameEnds && this.getLabel().equals(other.getLabel());
     }
 
     /**
      * Uses various hash methods to create a hashcode for this object.
+     * The hash is symmetric in the endpoints and ignores the mutable label.
      *
      * @return a hash code for this object
      */
     @Override
     public int hashCode() {
         if (hash == -1)
-            hash = this.parent.hashCode() + this.child.hashCode();
+            hash = System.identityHashCode(parent) + System.identityHashCode(child);
         return hash;
     }
 
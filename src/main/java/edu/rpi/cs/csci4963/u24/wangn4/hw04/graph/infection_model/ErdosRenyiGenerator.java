@@ -0,0 +1,52 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Erdős–Rényi G(n, p) generator.
+ * Each block covers a range of nodes v and decides the pairs (v, w) with w &lt; v, jumping from
+ * one edge to the next with geometrically distributed skips, so the cost is proportional to the
+ * number of edges rather than the number of pairs.
+ */
+final class ErdosRenyiGenerator extends GraphGenerator {
+    private final double probability;
+    private final double logFailure;
+
+    /**
+     * Constructs the generator.
+     *
+     * @param size        the number of nodes
+     * @param probability the probability of each edge
+     * @param seed        the seed of the graph
+     */
+    ErdosRenyiGenerator(int size, double probability, long seed) {
+        super(size, seed);
+        if (!(probability >= 0 && probability <= 1))
+            throw new IllegalArgumentException("Edge probability must lie in [0, 1]");
+        this.probability = probability;
+        this.logFailure = Math.log1p(-probability);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int blocks() {
+        return BlockTask.blockCount(size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(int block, EdgeSink sink) {
+        if (probability == 0)
+            return;
+        SplittableRandom stream = random.stream(0, RandomStreams.SEED_PHASE, block);
+        int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+        for (int v = block * BlockTask.BLOCK_SIZE; v < end; v++) {
+            for (long w = skip(stream, logFailure); w < v; w += 1 + skip(stream, logFailure))
+                sink.edge(v, (int) w);
+        }
+    }
+}
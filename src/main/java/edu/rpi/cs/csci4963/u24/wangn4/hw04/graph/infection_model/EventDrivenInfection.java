@@ -0,0 +1,384 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Continuous-time counterpart of {@link Infection}, simulated event by event with the
+ * next-reaction method.
+ * An infected node transmits along each edge as a Poisson process whose rate makes the chance
+ * of transmission within one unit of time equal to the force of infection, scaled by the edge
+ * weight, and only inside the edge's activity window. It stays infected for exactly the maximum
+ * infection time and then recovers with the recovery rate or dies.
+ * <p>
+ * Every node has at most one pending event in an {@link IndexedMinHeap}: the earliest time it is
+ * due to be infected while susceptible, or the time it is removed while infected. When a node is
+ * infected, the transmission time to each susceptible neighbor is drawn once and the neighbor's
+ * pending infection is moved earlier if the new time beats it and falls before the transmitting
+ * node is removed. Work is therefore only done when events happen, and a tick merely processes
+ * the events falling inside it, however large the graph.
+ * <p>
+ * Unlike the tick model the force of infection stays at its initial value, and the infection
+ * times of the node state store are not advanced, since removals are scheduled up front.
+ * The initial infections are drawn exactly as in {@link Infection}, so both models start a run
+ * with the same seed from the same infected nodes.
+ */
+public class EventDrivenInfection implements Simulation {
+    private final Graph graph;
+    private final CompactGraph compact;
+    private final NodeStateStore states;
+    private final IndexedMinHeap events;
+    private RandomStreams random;
+    private SplittableRandom rng;
+    private long tickCount = 0;
+    private double time = 0;
+    private long eventCount = 0;
+    private double infectionRate;
+    private double recoveryRate;
+    private double initialForceOfInfection;
+    private double forceOfInfection;
+    private double transmissionRate;
+    private int maxInfectionTime;
+    private volatile StateCounts counts;
+    /*
+        Abstraction function:
+            The run is at simulated time time, after tickCount completed ticks and eventCount
+            events. events holds the next event of every node that has one: the time a
+            susceptible node is due to be infected, or the time an infected node is removed.
+        Rep Invariant:
+            Every key of events is a susceptible or infected node, every infected node is a key
+            and no pending event lies before time. transmissionRate == -ln(1 - forceOfInfection).
+     */
+
+    /**
+     * Constructs an event-driven model on a topology that has already been loaded, with a random seed.
+     *
+     * @param topology the immutable network of nodes
+     * @param infectionRate the fraction of nodes infected when the run starts
+     * @param recoveryRate the chance that a node recovers rather than dies once its infection ends
+     * @param forceOfInfection the chance an infected node infects a neighbor over one unit of time
+     * @param maxInfectionTime the time a node stays infected
+     */
+    public EventDrivenInfection(CompactGraph topology, double infectionRate, double recoveryRate, double forceOfInfection, int maxInfectionTime) {
+        this(topology, infectionRate, recoveryRate, forceOfInfection, maxInfectionTime, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs an event-driven model on a topology that has already been loaded.
+     * The model gets its own Graph view, so any number of models can share one CompactGraph.
+     *
+     * @param topology the immutable network of nodes
+     * @param infectionRate the fraction of nodes infected when the run starts
+     * @param recoveryRate the chance that a node recovers rather than dies once its infection ends
+     * @param forceOfInfection the chance an infected node infects a neighbor over one unit of time
+     * @param maxInfectionTime the time a node stays infected
+     * @param seed the seed of every random decision of the run
+     */
+    public EventDrivenInfection(CompactGraph topology, double infectionRate, double recoveryRate, double forceOfInfection, int maxInfectionTime, long seed) {
+        this.graph = new Graph(topology);
+        this.compact = graph.freeze();
+        this.states = new NodeStateStore(compact.size());
+        graph.bindStates(states);
+        this.events = new IndexedMinHeap(compact.size());
+        this.infectionRate = infectionRate;
+        this.recoveryRate = recoveryRate;
+        this.initialForceOfInfection = forceOfInfection;
+        this.maxInfectionTime = maxInfectionTime;
+
+        reset(seed);
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if a pending event lies in the past or belongs to a removed node
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        if (events.peekPriority() < time)
+            throw new RuntimeException("EventDrivenInfection has an event before the current time");
+        for (int node = 0; node < states.size(); node++) {
+            NodeState state = states.getState(node);
+            if (events.contains(node) && state != NodeState.SUSCEPTIBLE && state != NodeState.INFECTED)
+                throw new RuntimeException("EventDrivenInfection has an event for removed node " + node);
+            if (state == NodeState.INFECTED && !events.contains(node))
+                throw new RuntimeException("EventDrivenInfection never removes infected node " + node);
+        }
+    }
+
+    /**
+     * Restarts the run from time 0 with a new seed, without touching the topology.
+     * Every node is made susceptible again and then infected based on the infection rate.
+     *
+     * @param seed the seed of every random decision of the new run
+     */
+    @Override
+    public synchronized void reset(long seed) {
+        random = new RandomStreams(seed);
+        rng = random.stream(0, RandomStreams.EVENT_PHASE, 0);
+        tickCount = 0;
+        time = 0;
+        eventCount = 0;
+        forceOfInfection = initialForceOfInfection;
+        transmissionRate = forceOfInfection >= 1 ? Double.POSITIVE_INFINITY : -Math.log1p(-forceOfInfection);
+        states.clear();
+        events.clear();
+
+        // infect the same nodes as the tick model, then let them schedule their transmissions
+        int blocks = BlockTask.blockCount(states.size());
+        for (int block = 0; block < blocks; block++) {
+            SplittableRandom seeding = random.stream(0, RandomStreams.SEED_PHASE, block);
+            int end = Math.min(states.size(), (block + 1) * BlockTask.BLOCK_SIZE);
+            for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+                if (seeding.nextDouble() < infectionRate)
+                    states.setState(i, NodeState.INFECTED);
+            }
+        }
+        for (int i = 0; i < states.size(); i++) {
+            if (states.getState(i) == NodeState.INFECTED)
+                spread(i);
+        }
+        counts = StateCounts.of(tickCount, states);
+
+        checkRep();
+    }
+
+    /**
+     * Has nothing to release, since events are processed on the calling thread.
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * Advances the run by one unit of time, processing every event before the end of the tick.
+     */
+    @Override
+    public synchronized void tick() {
+        advanceTo(tickCount + 1);
+        tickCount++;
+        counts = StateCounts.of(tickCount, states);
+    }
+
+    /**
+     * Processes every event due before a point in time and moves the clock there.
+     * The published state counts are only updated by {@link #tick()}.
+     *
+     * @param until the time to advance to, no earlier than the current time
+     */
+    public synchronized void advanceTo(double until) {
+        while (events.peekPriority() < until)
+            step();
+        time = Math.max(time, until);
+
+        checkRep();
+    }
+
+    /**
+     * Processes the next pending event.
+     *
+     * @return false if there was no event left to process
+     */
+    public synchronized boolean step() {
+        if (events.isEmpty())
+            return false;
+        time = events.peekPriority();
+        int node = events.poll();
+        eventCount++;
+        if (states.states()[node] == NodeStateStore.SUSCEPTIBLE) {
+            states.setState(node, NodeState.INFECTED);
+            spread(node);
+        } else {
+            states.setState(node, rng.nextDouble() < recoveryRate ? NodeState.RECOVERED : NodeState.DEAD);
+        }
+        return true;
+    }
+
+    /**
+     * Schedules the removal of a node infected at the current time and its transmissions to
+     * its susceptible neighbors.
+     *
+     * @param node the newly infected node
+     */
+    private void spread(int node) {
+        double removal = time + Math.max(maxInfectionTime, 0);
+        int[] offsets = compact.offsets();
+        int[] neighbors = compact.neighbors();
+        float[] weights = compact.weights();
+        int[] activeFrom = compact.activeFrom();
+        int[] activeUntil = compact.activeUntil();
+        byte[] state = states.states();
+
+        for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+            int child = neighbors[e];
+            if (state[child] != NodeStateStore.SUSCEPTIBLE)
+                continue;
+            double rate = weights == null ? transmissionRate : weights[e] * transmissionRate;
+            // a zero weight times an infinite rate is NaN and transmits as little as a zero rate
+            if (!(rate > 0))
+                continue;
+            double start = activeFrom == null ? time : Math.max(time, activeFrom[e]);
+            double end = activeFrom == null ? removal : Math.min(removal, activeUntil[e]);
+            if (start >= end)
+                continue;
+            double at = start - Math.log1p(-rng.nextDouble()) / rate;
+            if (at < end && at < events.priority(child))
+                events.put(child, at);
+        }
+        events.put(node, removal);
+    }
+
+    /**
+     * Gets the simulated time, which lies between the last processed event and the next one.
+     *
+     * @return the current time
+     */
+    public synchronized double getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the number of events processed since the run started.
+     *
+     * @return the number of infections and removals so far, not counting the initial infections
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets the number of events waiting to be processed.
+     *
+     * @return the number of pending infections and removals
+     */
+    public synchronized int getPendingEventCount() {
+        return events.size();
+    }
+
+    /**
+     * Sets the fraction of nodes infected when the run is reset.
+     *
+     * @param infectionRate the new infection rate, used from the next {@link #reset(long)}
+     */
+    public void setInfectionRate(double infectionRate) {
+        this.infectionRate = infectionRate;
+    }
+
+    /**
+     * Sets the chance that a node recovers rather than dies, used by every later removal.
+     *
+     * @param recoveryRate the new recovery rate
+     */
+    public void setRecoveryRate(double recoveryRate) {
+        this.recoveryRate = recoveryRate;
+    }
+
+    /**
+     * Sets the force of infection a run starts with. The current run keeps its own force of
+     * infection, which {@link #getForceOfInfection()} reports until the next reset.
+     *
+     * @param forceOfInfection the new initial force of infection, used from the next {@link #reset(long)}
+     */
+    public void setForceOfInfection(double forceOfInfection) {
+        this.initialForceOfInfection = forceOfInfection;
+    }
+
+    /**
+     * Sets the time a node stays infected, used for nodes infected from now on.
+     *
+     * @param maxInfectionTime the new maximum infection time
+     */
+    public synchronized void setMaxInfectionTime(int maxInfectionTime) {
+        this.maxInfectionTime = maxInfectionTime;
+    }
+
+    /**
+     * Gets the fraction of nodes infected when the run starts.
+     *
+     * @return the infection rate
+     */
+    public double getInfectionRate() {
+        return infectionRate;
+    }
+
+    /**
+     * Gets the chance that a node recovers rather than dies.
+     *
+     * @return the recovery rate
+     */
+    public double getRecoveryRate() {
+        return recoveryRate;
+    }
+
+    /**
+     * Gets the time a node stays infected.
+     *
+     * @return the maximum infection time
+     */
+    public int getMaxInfectionTime() {
+        return maxInfectionTime;
+    }
+
+    /**
+     * Gets the chance an infected node infects a neighbor over one unit of time in the current run.
+     * A value given to {@link #setForceOfInfection(double)} only shows here after the next reset.
+     *
+     * @return the force of infection of the current run
+     */
+    public double getForceOfInfection() {
+        return forceOfInfection;
+    }
+
+    /**
+     * Gets the graph representing the network of nodes.
+     *
+     * @return the graph
+     */
+    @Override
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the seed this run was started with.
+     *
+     * @return the run seed
+     */
+    @Override
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Gets the number of ticks run so far.
+     *
+     * @return the number of completed ticks
+     */
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the number of nodes in every state as of the last completed tick.
+     * Takes O(1) time and does not wait for a tick in progress.
+     *
+     * @return the latest state counts
+     */
+    @Override
+    public StateCounts getStateCounts() {
+        return counts;
+    }
+
+    /**
+     * Gets the store holding the state of every node.
+     *
+     * @return the node state store
+     */
+    @Override
+    public NodeStateStore getStates() {
+        return states;
+    }
+}
@@ -0,0 +1,102 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Bitset of node indices, used to track the active set of an outbreak.
+ * Bit i is stored in words[i / 64]; a block of {@link BlockTask#BLOCK_SIZE} nodes spans
+ * {@link #WORDS_PER_BLOCK} whole words, so workers of different blocks never share a word.
+ */
+final class Frontier {
+    static final int WORDS_PER_BLOCK = BlockTask.BLOCK_SIZE / Long.SIZE;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+
+    /**
+     * Constructs an empty frontier for the given number of nodes.
+     *
+     * @param size the number of nodes
+     */
+    Frontier(int size) {
+        this.words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Adds a node, safe to call concurrently from any block.
+     *
+     * @param index the node to add
+     */
+    void add(int index) {
+        WORDS.getAndBitwiseOr(words, index >>> 6, 1L << index);
+    }
+
+    /**
+     * Removes a node, safe to call concurrently from any block.
+     *
+     * @param index the node to remove
+     */
+    void remove(int index) {
+        WORDS.getAndBitwiseAnd(words, index >>> 6, ~(1L << index));
+    }
+
+    /**
+     * Checks whether a node is in the frontier.
+     *
+     * @param index the node to look up
+     * @return true if the node is in the frontier
+     */
+    boolean contains(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the number of nodes in the frontier.
+     *
+     * @return the number of set bits
+     */
+    long count() {
+        long count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Removes every node from the frontier.
+     */
+    void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * The words backing this frontier, for block-wise iteration by tick loops.
+     *
+     * @return the bit words
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * The first word of a block.
+     *
+     * @param block the block number
+     * @return the index of the block's first word
+     */
+    static int firstWord(int block) {
+        return block * WORDS_PER_BLOCK;
+    }
+
+    /**
+     * The word after the last word of a block.
+     *
+     * @param block the block number
+     * @return the exclusive end of the block's words
+     */
+    int endWord(int block) {
+        return Math.min(words.length, (block + 1) * WORDS_PER_BLOCK);
+    }
+}
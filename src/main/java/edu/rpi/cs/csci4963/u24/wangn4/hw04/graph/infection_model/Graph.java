@@ -1,25 +1,43 @@
 package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Graph class for representing a directed graph of Nodes via directed Edges.
  * Nodes are connected to each other via Edges.
  * Edges are labeled with a string.
+ * Once loaded, a graph can be frozen into an immutable {@link CompactGraph}; from then on
+ * the Nodes and Edges handed out by this class are views on top of the compact form.
+ * Frozen graphs can also be walked by node index, through the forEach methods, index streams
+ * and spliterators, which read the compact arrays directly and allocate nothing per node or edge.
  */
 public class Graph {
     public static final boolean DISABLE_CHECK_REP = true;
 
     private final Map<String, Node> nodesById;
+    private CompactGraph compact;
+    private Node[] nodesByIndex;
+    private NodeStateStore states;
     /*
         Abstraction function:
             The nodes represent all the nodes in this graph.
             All nodes must have a unique id and unique data.
+            Once frozen, compact holds the topology and nodesByIndex[i] caches the view of node i.
         Rep Invariant:
             The nodes are mapped using their data field and id to the node object.
+            If compact is null nodesByIndex is null, otherwise nodesById is empty and
+            nodesByIndex.length == compact.size().
      */
 
     /**
@@ -31,6 +49,21 @@ public class Graph {
         checkRep();
     }
 
+    /**
+     * Constructs a frozen Graph that is a view on top of an existing CompactGraph.
+     * Several graphs may share the same CompactGraph.
+     *
+     * @param compact the topology backing this graph
+     */
+    public Graph(CompactGraph compact) {
+        Objects.requireNonNull(compact);
+        this.nodesById = new HashMap<>();
+        this.compact = compact;
+        this.nodesByIndex = new Node[compact.size()];
+
+        checkRep();
+    }
+
     /**
      * Checks ensuring the fields are storing valid data.
      *
@@ -42,6 +75,88 @@ public class Graph {
 
         if (nodesById.containsValue(null))
             throw new RuntimeException("Graph.nodes contains a value of null");
+        if (compact != null && (!nodesById.isEmpty() || nodesByIndex.length != compact.size()))
+            throw new RuntimeException("Graph.compact does not match the node views");
+    }
+
+    /**
+     * Freezes this graph into its compact form.
+     * Nodes are assigned dense indices and their edge lists are released, after which
+     * nodes and edges can no longer be added or removed.
+     *
+     * @return the compact form of this graph
+     */
+    public synchronized CompactGraph freeze() {
+        if (compact != null)
+            return compact;
+
+        Node[] nodes = nodesById.values().toArray(new Node[0]);
+        compact = CompactGraph.of(nodes);
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i].bind(this, i);
+        nodesByIndex = nodes;
+        nodesById.clear();
+        checkRep();
+        return compact;
+    }
+
+    /**
+     * Freezes an empty graph with a compact form built elsewhere, such as by a {@link GraphLoader}.
+     *
+     * @param compact the topology to back this graph with
+     * @return true if loaded, false if this graph already has nodes or has been frozen
+     */
+    public synchronized boolean load(CompactGraph compact) {
+        if (compact == null || this.compact != null || !nodesById.isEmpty())
+            return false;
+
+        this.compact = compact;
+        this.nodesByIndex = new Node[compact.size()];
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Whether this graph has been frozen into its compact form.
+     *
+     * @return true if frozen, false if nodes and edges can still be added
+     */
+    public boolean isFrozen() {
+        return compact != null;
+    }
+
+    /**
+     * The compact form of this graph.
+     *
+     * @return the compact graph or null if this graph has not been frozen
+     */
+    public CompactGraph getCompactGraph() {
+        return compact;
+    }
+
+    /**
+     * Binds the store holding the per-node state of this frozen graph.
+     * Nodes of this graph read and write their state and infection time through it.
+     *
+     * @param states the store to bind, sized to this graph
+     * @throws IllegalStateException if this graph has not been frozen
+     * @throws IllegalArgumentException if the store does not match the size of this graph
+     */
+    public synchronized void bindStates(NodeStateStore states) {
+        if (compact == null)
+            throw new IllegalStateException("Graph has not been frozen");
+        if (states != null && states.size() != compact.size())
+            throw new IllegalArgumentException("NodeStateStore size does not match the graph");
+        this.states = states;
+    }
+
+    /**
+     * The store holding the per-node state of this graph.
+     *
+     * @return the bound store or null if none is bound
+     */
+    public NodeStateStore getStates() {
+        return states;
     }
 
     /**
@@ -51,7 +166,7 @@ public class Graph {
      * @return true if successfully added, false if not added
      */
     public synchronized boolean addNode(Node node) {
-        if (node == null ||  nodesById.containsKey(node.getId()))
+        if (node == null || compact != null || nodesById.containsKey(node.getId()))
             return false;
         nodesById.put(node.getId(), node);
         checkRep();
@@ -65,7 +180,7 @@ public class Graph {
      * @return true if successfully removed otherwise false
      */
     public synchronized boolean removeNode(Node node) {
-        if (node == null || !containsNode(node))
+        if (node == null || compact != null || !containsNode(node))
             return false;
 
         nodesById.remove(node.getId());
@@ -74,20 +189,55 @@ public class Graph {
     }
 
     /**
-     * Adds an edge into this graph.
+     * Adds an undirected edge into this graph.
+     * The edge is stored once and shared by the lists of both endpoints.
      *
      * @param parent the originating node
      * @param child  the destination node
      * @param label  the label to apply to the edge for identification
-     * @return true if added to the graph, false if any of the params are null
+     * @return true if added to the graph, false if any of the params are null or the nodes are already joined by an equal edge
      */
     public synchronized boolean addEdge(Node parent, Node child, String label) {
-        if (parent == null || child == null || label == null)
+        return addEdge(parent, child, label, 1);
+    }
+
+    /**
+     * Adds a weighted undirected edge into this graph.
+     * The edge is stored once and shared by the lists of both endpoints.
+     *
+     * @param parent the originating node
+     * @param child  the destination node
+     * @param label  the label to apply to the edge for identification
+     * @param weight the contact weight of the edge
+     * @return true if added to the graph, false if any of the params are null, the weight is
+     * negative or not finite, or the nodes are already joined by an equal edge
+     */
+    public synchronized boolean addEdge(Node parent, Node child, String label, float weight) {
+        if (parent == null || child == null || label == null || compact != null
+                || !(weight >= 0) || Float.isInfinite(weight))
             return false;
 
-        // Reflexive edge because we don't have a directed graph
-        parent.addChild(new Edge(parent, child, label));
-        child.addChild(new Edge(parent, child, label));
+        Edge edge = new Edge(parent, child, label, weight);
+        if (parent.containsChild(edge))
+            return false;
+        parent.addChild(edge);
+        if (child != parent)
+            child.addChild(edge);
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Removes an undirected edge from both of its endpoints.
+     *
+     * @param edge the edge to remove
+     * @return true if removed, false if the edge is null, not in this graph or the graph has been frozen
+     */
+    public synchronized boolean removeEdge(Edge edge) {
+        if (edge == null || compact != null || !edge.getParent().remove(edge))
+            return false;
+        if (edge.getChild() != edge.getParent())
+            edge.getChild().remove(edge);
         checkRep();
         return true;
     }
@@ -99,7 +249,10 @@ public class Graph {
      * @return true if found, false if not found
      */
     public boolean containsNode(Node node) {
-        return nodesById.containsValue(node);
+        if (compact != null)
+            return node != null && node.getGraph() == this;
+        // Node equality only compares states, so nodes are matched by identity
+        return node != null && nodesById.get(node.getId()) == node;
     }
 
     /**
@@ -109,16 +262,197 @@ public class Graph {
      * @return the Node if found or null if not found
      */
     public Node getNode(String id) {
-        return nodesById.get(id);
+        if (compact == null)
+            return nodesById.get(id);
+        int index = compact.indexOf(id);
+        return index < 0 ? null : getNode(index);
+    }
+
+    /**
+     * Using the dense index of a frozen graph get the Node object.
+     *
+     * @param index the index of the Node in the compact graph
+     * @return the Node at the given index
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public synchronized Node getNode(int index) {
+        if (compact == null)
+            throw new IllegalStateException("Graph has not been frozen");
+        Node node = nodesByIndex[index];
+        if (node == null) {
+            node = new Node(compact.idOf(index), NodeState.SUSCEPTIBLE);
+            node.bind(this, index);
+            nodesByIndex[index] = node;
+        }
+        return node;
     }
 
     /**
      * A list of all Nodes in the graph.
+     * This copies the node list on every call; prefer {@link #getNodeView()} or the index
+     * based iteration methods on frozen graphs.
      *
      * @return a list of all nodes within this graph
      */
-    public List<Node> getNodes() {
-        return new ArrayList<>(nodesById.values());
+    public synchronized List<Node> getNodes() {
+        if (compact == null)
+            return new ArrayList<>(nodesById.values());
+        for (int i = 0; i < nodesByIndex.length; i++)
+            getNode(i);
+        return new ArrayList<>(Arrays.asList(nodesByIndex));
+    }
+
+    /**
+     * A read-only list of all Nodes of this frozen graph, in index order.
+     * The list is backed by the graph and creates node views as they are first accessed.
+     *
+     * @return an unmodifiable view of the nodes
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public List<Node> getNodeView() {
+        int size = requireFrozen().size();
+        return new NodeView(size);
+    }
+
+    /**
+     * Unmodifiable list of the node views of a frozen graph.
+     */
+    private final class NodeView extends AbstractList<Node> implements RandomAccess {
+        private final int size;
+
+        /**
+         * Constructs the view.
+         *
+         * @param size the number of nodes
+         */
+        NodeView(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Gets the node at an index.
+         *
+         * @param index the dense index of the node
+         * @return the node view
+         */
+        @Override
+        public Node get(int index) {
+            Objects.checkIndex(index, size);
+            return getNode(index);
+        }
+
+        /**
+         * Returns the number of nodes.
+         *
+         * @return the number of nodes
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Runs an action on the index of every node of this frozen graph, in index order.
+     *
+     * @param action the action to run on every node index
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public void forEachNode(IntConsumer action) {
+        forEachNode(0, requireFrozen().size(), action);
+    }
+
+    /**
+     * Runs an action on the index of every node in a range of this frozen graph, in index order.
+     * Ranges let callers split the nodes between workers themselves.
+     *
+     * @param from   the first node index, inclusive
+     * @param to     the last node index, exclusive
+     * @param action the action to run on every node index
+     * @throws IllegalStateException if this graph has not been frozen
+     * @throws IndexOutOfBoundsException if the range lies outside the graph
+     */
+    public void forEachNode(int from, int to, IntConsumer action) {
+        Objects.checkFromToIndex(from, to, requireFrozen().size());
+        Objects.requireNonNull(action);
+        for (int i = from; i < to; i++)
+            action.accept(i);
+    }
+
+    /**
+     * Runs an action on the index of every neighbor of a node of this frozen graph.
+     *
+     * @param index  the dense index of the node
+     * @param action the action to run on every neighbor index
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public void forEachNeighbor(int index, IntConsumer action) {
+        CompactGraph compact = requireFrozen();
+        Objects.checkIndex(index, compact.size());
+        Objects.requireNonNull(action);
+        int[] offsets = compact.offsets();
+        int[] neighbors = compact.neighbors();
+        for (int e = offsets[index]; e < offsets[index + 1]; e++)
+            action.accept(neighbors[e]);
+    }
+
+    /**
+     * Returns the number of neighbors of a node of this frozen graph.
+     *
+     * @param index the dense index of the node
+     * @return the number of neighbors
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public int degree(int index) {
+        return requireFrozen().degree(index);
+    }
+
+    /**
+     * A spliterator over the node indices of this frozen graph.
+     * It splits only at the block boundaries the simulation uses, so parallel streams give
+     * every worker whole blocks of nodes.
+     *
+     * @return a spliterator over [0, size())
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public Spliterator.OfInt nodeSpliterator() {
+        return new NodeRangeSpliterator(0, requireFrozen().size());
+    }
+
+    /**
+     * A stream of the node indices of this frozen graph. Call parallel() on it to spread the work.
+     *
+     * @return a sequential stream over [0, size())
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public IntStream nodeIndices() {
+        return StreamSupport.intStream(nodeSpliterator(), false);
+    }
+
+    /**
+     * A stream of the neighbor indices of a node of this frozen graph, read straight from the adjacency array.
+     *
+     * @param index the dense index of the node
+     * @return a stream of the node's neighbors
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    public IntStream neighborIndices(int index) {
+        CompactGraph compact = requireFrozen();
+        Objects.checkIndex(index, compact.size());
+        return Arrays.stream(compact.neighbors(), compact.offsets()[index], compact.offsets()[index + 1]);
+    }
+
+    /**
+     * Gets the compact form of this graph, which index based access requires.
+     *
+     * @return the compact graph
+     * @throws IllegalStateException if this graph has not been frozen
+     */
+    private CompactGraph requireFrozen() {
+        CompactGraph compact = this.compact;
+        if (compact == null)
+            throw new IllegalStateException("Graph has not been frozen");
+        return compact;
     }
 
     /**
@@ -127,7 +461,7 @@ public class Graph {
      * @return the number of nodes in the graph
      */
     public int size() {
-        return nodesById.size();
+        return compact == null ? nodesById.size() : compact.size();
     }
 
     /**
@@ -136,9 +470,13 @@ public class Graph {
      * @return the number of edges in the graph
      */
     public int edgeSize() {
+        if (compact != null)
+            return compact.edgeSize();
         int edgeCount = 0;
-        for (Node node : getNodes()) {
-            edgeCount += node.getChildren().size();
+        synchronized (this) {
+            for (Node node : nodesById.values()) {
+                edgeCount += node.getChildren().size();
+            }
         }
         return edgeCount;
     }
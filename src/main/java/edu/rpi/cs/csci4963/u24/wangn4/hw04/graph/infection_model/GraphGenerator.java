@@ -0,0 +1,227 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generator of synthetic random graphs for scale testing.
+ * A generator splits its edges into blocks that each depend only on the seed and the block
+ * number, so the same graph can be produced twice without being stored in between. Building a
+ * {@link CompactGraph} generates it twice in parallel, once to count degrees and once to fill the
+ * neighbor arrays, and writing a CSV streams the edges straight to disk; no edge list is kept.
+ * Nodes are numbered from 0, no generator produces self loops and any repeated edge is kept once.
+ */
+public abstract class GraphGenerator {
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * Receiver of the edges a generator produces.
+     */
+    @FunctionalInterface
+    interface EdgeSink {
+        /**
+         * Accepts an undirected edge.
+         *
+         * @param u one endpoint
+         * @param v the other endpoint
+         */
+        void edge(int u, int v);
+    }
+
+    final int size;
+    final RandomStreams random;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param size the number of nodes
+     * @param seed the seed the graph is derived from
+     */
+    GraphGenerator(int size, long seed) {
+        if (size < 1)
+            throw new IllegalArgumentException("Graph needs at least one node");
+        this.size = size;
+        this.random = new RandomStreams(seed);
+    }
+
+    /**
+     * Creates an Erdős–Rényi G(n, p) generator, where every pair of nodes is connected independently.
+     *
+     * @param size        the number of nodes
+     * @param probability the probability of each edge
+     * @param seed        the seed of the graph
+     * @return the generator
+     */
+    public static GraphGenerator erdosRenyi(int size, double probability, long seed) {
+        return new ErdosRenyiGenerator(size, probability, seed);
+    }
+
+    /**
+     * Creates a Barabási–Albert preferential attachment generator.
+     * Growth starts from a star of edgesPerNode + 1 nodes and every later node attaches to
+     * edgesPerNode distinct earlier nodes chosen proportionally to their degree.
+     *
+     * @param size         the number of nodes
+     * @param edgesPerNode the number of edges every new node brings
+     * @param seed         the seed of the graph
+     * @return the generator
+     */
+    public static GraphGenerator barabasiAlbert(int size, int edgesPerNode, long seed) {
+        return new BarabasiAlbertGenerator(size, edgesPerNode, seed);
+    }
+
+    /**
+     * Creates a Watts–Strogatz small world generator.
+     * Every node is linked to its degree / 2 successors on a ring, and each of those links is
+     * rewired to a uniformly chosen node with the given probability.
+     *
+     * @param size     the number of nodes
+     * @param degree   the even mean degree of the ring lattice
+     * @param rewiring the probability of rewiring each link
+     * @param seed     the seed of the graph
+     * @return the generator
+     */
+    public static GraphGenerator wattsStrogatz(int size, int degree, double rewiring, long seed) {
+        return new WattsStrogatzGenerator(size, degree, rewiring, seed);
+    }
+
+    /**
+     * Creates a stochastic block model generator.
+     * Nodes are split into consecutive communities, and two nodes are connected with probability
+     * inside if they share a community and outside otherwise.
+     *
+     * @param communitySizes the number of nodes in every community
+     * @param inside         the edge probability within a community
+     * @param outside        the edge probability between communities
+     * @param seed           the seed of the graph
+     * @return the generator
+     */
+    public static GraphGenerator stochasticBlockModel(int[] communitySizes, double inside, double outside, long seed) {
+        return new StochasticBlockModelGenerator(communitySizes, inside, outside, seed);
+    }
+
+    /**
+     * Returns the number of nodes of the generated graph.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of independent blocks the edges are generated in.
+     *
+     * @return the number of blocks
+     */
+    abstract int blocks();
+
+    /**
+     * Generates the edges of one block. Calling this twice for a block yields the same edges.
+     *
+     * @param block the block to generate
+     * @param sink  the receiver of the edges
+     */
+    abstract void generate(int block, EdgeSink sink);
+
+    /**
+     * Generates the graph in memory, using the common pool.
+     *
+     * @return the generated graph
+     * @throws IllegalStateException if the graph has more adjacency entries than an int can index
+     */
+    public CompactGraph build() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int blocks = blocks();
+
+        // pass 1: count degrees
+        int[] degrees = new int[size];
+        pool.invoke(new BlockTask(block -> generate(block, (u, v) -> {
+            INTS.getAndAdd(degrees, u, 1);
+            INTS.getAndAdd(degrees, v, 1);
+        }), 0, blocks));
+        int[] offsets = new int[size + 1];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += degrees[i];
+            if (total > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Generated graph has too many edges for int indices");
+            offsets[i + 1] = (int) total;
+        }
+
+        // pass 2: fill, reusing the degree array as the per-node write cursor
+        int[] neighbors = new int[(int) total];
+        int[] cursor = degrees;
+        System.arraycopy(offsets, 0, cursor, 0, size);
+        pool.invoke(new BlockTask(block -> generate(block, (u, v) -> {
+            neighbors[(int) INTS.getAndAdd(cursor, u, 1)] = v;
+            neighbors[(int) INTS.getAndAdd(cursor, v, 1)] = u;
+        }), 0, blocks));
+        int[] unique = GraphLoader.normalizeNeighbors(offsets, neighbors);
+
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++)
+            ids[i] = i;
+        return new CompactGraph(ids, offsets, unique);
+    }
+
+    /**
+     * Streams the graph to a CSV edge list the loader reads, one edge per line.
+     * Nodes without any edge do not appear in the file.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 1 << 20)) {
+            IOException[] failure = new IOException[1];
+            for (int block = 0; block < blocks() && failure[0] == null; block++) {
+                generate(block, (u, v) -> {
+                    if (failure[0] != null)
+                        return;
+                    try {
+                        out.write(Integer.toString(u));
+                        out.write(';');
+                        out.write(Integer.toString(v));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+            }
+            if (failure[0] != null)
+                throw failure[0];
+        }
+    }
+
+    /**
+     * Generates the graph and writes it as a {@link GraphSnapshot}.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        GraphSnapshot.write(build(), path);
+    }
+
+    /**
+     * Draws the number of failures before the next success of a Bernoulli trial, which lets
+     * sparse random graphs skip straight from one edge to the next.
+     *
+     * @param random     the source of randomness
+     * @param logFailure the natural log of one minus the success probability
+     * @return the number of pairs to skip
+     */
+    static long skip(SplittableRandom random, double logFailure) {
+        double skip = Math.floor(Math.log(1 - random.nextDouble()) / logFailure);
+        return skip >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) skip;
+    }
+}
@@ -0,0 +1,645 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable 2D positions of the nodes of a {@link CompactGraph}, for drawing the network.
+ * Layouts are computed with the Fruchterman-Reingold force model: linked nodes attract each
+ * other and all nodes repel each other. Nearby nodes repel one by one, and farther ones through
+ * the centers of mass of the cells of a grid pyramid, as in the fast multipole method, so an
+ * iteration takes O(n log n) time. Iterations run on a ForkJoin pool in blocks and only depend
+ * on the seed, so the same graph always gets the same layout.
+ * <p>
+ * Since a layout of a large graph takes seconds, it can be cached in a file next to the graph.
+ * All values are little endian: the magic {@code "EPLY"}, the format version, the number of nodes
+ * n, a long fingerprint of the graph, then the n x and the n y coordinates as floats.
+ * <p>
+ * The nodes are also indexed by the cell of a grid over the layout, so a renderer can visit only
+ * the nodes inside its view.
+ */
+public final class GraphLayout {
+    /**
+     * The extension added to a graph file name to get the name of its layout cache.
+     */
+    public static final String EXTENSION = ".layout";
+    /**
+     * The number of iterations {@link #compute(CompactGraph, long, ForkJoinPool)} runs.
+     */
+    public static final int DEFAULT_ITERATIONS = 80;
+
+    private static final int MAGIC = 'E' | 'P' << 8 | 'L' << 16 | 'Y' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    /**
+     * The number of rows and columns of the grid indexing the final layout.
+     */
+    private static final int INDEX_CELLS = 128;
+    /**
+     * The largest number of nodes of one cell a node is repelled by individually; the force of
+     * any others in the cell is extrapolated from these.
+     */
+    private static final int MAX_REPELLING = 16;
+    /**
+     * The strength of the pull of every node towards the center of the layout.
+     */
+    private static final float GRAVITY = 2;
+
+    private final float[] x;
+    private final float[] y;
+    private final long fingerprint;
+    private final float minX, minY, maxX, maxY;
+    private final Cells index;
+    /*
+        Abstraction function:
+            Node i is drawn at (x[i], y[i]). fingerprint identifies the graph the layout was
+            computed for.
+        Rep Invariant:
+            x and y have the same length, all their values are finite and lie within
+            [minX, maxX] x [minY, maxY], and index holds every node exactly once.
+     */
+
+    /**
+     * Creates a layout from coordinates and indexes it.
+     *
+     * @param x           the x coordinate of every node
+     * @param y           the y coordinate of every node
+     * @param fingerprint the fingerprint of the graph
+     */
+    private GraphLayout(float[] x, float[] y, long fingerprint) {
+        this.x = x;
+        this.y = y;
+        this.fingerprint = fingerprint;
+        float lowX = 0, lowY = 0, highX = 0, highY = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (i == 0 || x[i] < lowX)
+                lowX = x[i];
+            if (i == 0 || x[i] > highX)
+                highX = x[i];
+            if (i == 0 || y[i] < lowY)
+                lowY = y[i];
+            if (i == 0 || y[i] > highY)
+                highY = y[i];
+        }
+        this.minX = lowX;
+        this.minY = lowY;
+        this.maxX = highX;
+        this.maxY = highY;
+        this.index = Cells.of(x, y, minX, minY, Math.max(maxX - minX, 1e-3f) / INDEX_CELLS,
+                Math.max(maxY - minY, 1e-3f) / INDEX_CELLS, INDEX_CELLS, INDEX_CELLS);
+
+        checkRep();
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if a coordinate is invalid or the index does not hold every node
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        if (x.length != y.length)
+            throw new RuntimeException("GraphLayout coordinates have different lengths");
+        for (int i = 0; i < x.length; i++) {
+            if (!Float.isFinite(x[i]) || !Float.isFinite(y[i]) || x[i] < minX || x[i] > maxX || y[i] < minY || y[i] > maxY)
+                throw new RuntimeException("GraphLayout position of node " + i + " is invalid");
+        }
+        boolean[] seen = new boolean[x.length];
+        for (int node : index.nodes) {
+            if (seen[node])
+                throw new RuntimeException("GraphLayout index holds node " + node + " twice");
+            seen[node] = true;
+        }
+        if (index.nodes.length != x.length)
+            throw new RuntimeException("GraphLayout index does not hold every node");
+    }
+
+    /**
+     * Computes the layout of a graph with the default number of iterations.
+     *
+     * @param graph the graph to lay out
+     * @param seed  the seed of the initial positions
+     * @param pool  the pool to run the iterations on
+     * @return the layout
+     */
+    public static GraphLayout compute(CompactGraph graph, long seed, ForkJoinPool pool) {
+        return compute(graph, seed, DEFAULT_ITERATIONS, pool);
+    }
+
+    /**
+     * Computes the layout of a graph.
+     * The nodes start at random positions in a square whose area grows with the number of nodes,
+     * and every iteration moves each node along its net force by at most a temperature that
+     * cools down linearly to zero. A weak pull towards the center keeps the layout compact.
+     *
+     * @param graph      the graph to lay out
+     * @param seed       the seed of the initial positions
+     * @param iterations the number of iterations
+     * @param pool       the pool to run the iterations on
+     * @return the layout
+     */
+    public static GraphLayout compute(CompactGraph graph, long seed, int iterations, ForkJoinPool pool) {
+        int size = graph.size();
+        float[] x = new float[size];
+        float[] y = new float[size];
+        float[] forceX = new float[size];
+        float[] forceY = new float[size];
+        // with an ideal edge length of 1, every node gets about one unit of area
+        float side = (float) Math.sqrt(Math.max(size, 1));
+        int blocks = BlockTask.blockCount(size);
+        RandomStreams random = new RandomStreams(seed);
+
+        pool.invoke(new BlockTask(block -> {
+            SplittableRandom rng = random.stream(0, RandomStreams.SEED_PHASE, block);
+            int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+            for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+                x[i] = (float) (rng.nextDouble() * side);
+                y[i] = (float) (rng.nextDouble() * side);
+            }
+        }, 0, blocks));
+
+        // four to sixteen nodes per cell of the finest level
+        int levels = Math.max(1, 31 - Integer.numberOfLeadingZeros((int) Math.max(side / 2, 1)));
+        Pyramid pyramid = new Pyramid(levels);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            float temperature = side / 10 * (1 - (float) iteration / iterations);
+            pyramid.build(x, y);
+            pool.invoke(new BlockTask(pyramid::farField, 0, BlockTask.blockCount(pyramid.mass[levels].length)));
+            pool.invoke(new BlockTask(block -> force(graph, pyramid, x, y, side / 2, forceX, forceY, block), 0, blocks));
+            pool.invoke(new BlockTask(block -> {
+                int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+                for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+                    float length = (float) Math.sqrt(forceX[i] * forceX[i] + forceY[i] * forceY[i]);
+                    if (!(length > 0))
+                        continue;
+                    float step = Math.min(length, temperature) / length;
+                    x[i] += forceX[i] * step;
+                    y[i] += forceY[i] * step;
+                }
+            }, 0, blocks));
+        }
+        return new GraphLayout(x, y, graph.fingerprint());
+    }
+
+    /**
+     * Computes the net force on the nodes of one block from the current positions.
+     * Nodes in the 3 x 3 finest cells around a node repel it one by one, and every other node
+     * through the far field of the node's cell.
+     *
+     * @param graph   the graph being laid out
+     * @param pyramid the nodes indexed by grid cell, with the mass of every cell
+     * @param x       the x coordinate of every node
+     * @param y       the y coordinate of every node
+     * @param center  the coordinate of the center of the layout on both axes
+     * @param forceX  receives the x component of the force on every node of the block
+     * @param forceY  receives the y component of the force on every node of the block
+     * @param block   the block of nodes
+     */
+    private static void force(CompactGraph graph, Pyramid pyramid, float[] x, float[] y, float center,
+                              float[] forceX, float[] forceY, int block) {
+        int[] offsets = graph.offsets();
+        int[] neighbors = graph.neighbors();
+        Cells cells = pyramid.cells;
+        int end = Math.min(x.length, (block + 1) * BlockTask.BLOCK_SIZE);
+        for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+            float fx = GRAVITY * (center - x[i]), fy = GRAVITY * (center - y[i]);
+            int column = cells.column(x[i]), row = cells.row(y[i]);
+
+            // repulsion of k^2 / d from the nodes in the 3 x 3 finest cells around the node
+            for (int r = Math.max(0, row - 1); r <= Math.min(cells.rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(cells.columns - 1, column + 1); c++) {
+                    int cell = r * cells.columns + c;
+                    int from = cells.start[cell], count = cells.start[cell + 1] - from;
+                    int examined = Math.min(count, MAX_REPELLING);
+                    if (examined == 0)
+                        continue;
+                    float rx = 0, ry = 0;
+                    for (int k = from; k < from + examined; k++) {
+                        int j = cells.nodes[k];
+                        if (j == i)
+                            continue;
+                        float dx = x[i] - x[j], dy = y[i] - y[j];
+                        float distance2 = dx * dx + dy * dy;
+                        if (distance2 < 1e-8f) {
+                            // nodes on the same spot are pushed apart in a fixed direction
+                            dx = i < j ? 0.01f : -0.01f;
+                            distance2 = 1e-4f;
+                        }
+                        rx += dx / distance2;
+                        ry += dy / distance2;
+                    }
+                    fx += rx * count / examined;
+                    fy += ry * count / examined;
+                }
+            }
+
+            // the repulsion of farther nodes, the same for the whole cell
+            int cell = row * cells.columns + column;
+            fx += pyramid.farX[cell];
+            fy += pyramid.farY[cell];
+
+            // attraction of d^2 / k towards every neighbor
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                int j = neighbors[e];
+                float dx = x[j] - x[i], dy = y[j] - y[i];
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                fx += dx * distance;
+                fy += dy * distance;
+            }
+            forceX[i] = fx;
+            forceY[i] = fy;
+        }
+    }
+
+    /**
+     * Gets the layout of a graph from its cache file, or computes it and tries to write the cache.
+     * A cache that belongs to another graph or cannot be read is recomputed.
+     *
+     * @param graph the graph to lay out
+     * @param cache the cache file
+     * @param pool  the pool to compute the layout on
+     * @return the layout
+     */
+    public static GraphLayout load(CompactGraph graph, Path cache, ForkJoinPool pool) {
+        try {
+            GraphLayout cached = read(cache, graph);
+            if (cached != null)
+                return cached;
+        } catch (IOException e) {
+            // an unreadable cache is recomputed below
+        }
+        GraphLayout layout = compute(graph, 0, pool);
+        try {
+            layout.write(cache);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return layout;
+    }
+
+    /**
+     * Reads a layout from a cache file, if it was computed for a graph.
+     *
+     * @param path  the cache file
+     * @param graph the graph the layout should belong to
+     * @return the layout, or null if the file does not exist or belongs to another graph
+     * @throws IOException if the file cannot be read or is not a valid layout
+     */
+    public static GraphLayout read(Path path, CompactGraph graph) throws IOException {
+        if (!path.toFile().isFile())
+            return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION)
+                throw new IOException("Not a graph layout: " + path);
+            int size = header.getInt(2 * Integer.BYTES);
+            if (size != graph.size() || header.getLong(3 * Integer.BYTES) != graph.fingerprint())
+                return null;
+
+            ByteBuffer body = ByteBuffer.allocate(2 * size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, body);
+            body.flip();
+            float[] x = new float[size];
+            float[] y = new float[size];
+            body.asFloatBuffer().get(x).get(y);
+            return new GraphLayout(x, y, graph.fingerprint());
+        }
+    }
+
+    /**
+     * Writes this layout to a cache file, replacing any existing file.
+     *
+     * @param path the cache file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * x.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(x.length).putLong(fingerprint);
+        buffer.asFloatBuffer().put(x).put(y);
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads from a channel until a buffer is full.
+     *
+     * @param channel the channel to read
+     * @param buffer  the buffer to fill
+     * @throws IOException if the channel ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("Truncated graph layout");
+        }
+    }
+
+    /**
+     * Gets the number of nodes laid out.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Gets the x coordinate of a node.
+     *
+     * @param index the dense index of the node
+     * @return its x coordinate
+     */
+    public float x(int index) {
+        return x[index];
+    }
+
+    /**
+     * Gets the y coordinate of a node.
+     *
+     * @param index the dense index of the node
+     * @return its y coordinate
+     */
+    public float y(int index) {
+        return y[index];
+    }
+
+    /**
+     * Gets the smallest x coordinate of any node.
+     *
+     * @return the left edge of the layout
+     */
+    public float minX() {
+        return minX;
+    }
+
+    /**
+     * Gets the smallest y coordinate of any node.
+     *
+     * @return the top edge of the layout
+     */
+    public float minY() {
+        return minY;
+    }
+
+    /**
+     * Gets the largest x coordinate of any node.
+     *
+     * @return the right edge of the layout
+     */
+    public float maxX() {
+        return maxX;
+    }
+
+    /**
+     * Gets the largest y coordinate of any node.
+     *
+     * @return the bottom edge of the layout
+     */
+    public float maxY() {
+        return maxY;
+    }
+
+    /**
+     * Counts the nodes in the index cells overlapping a rectangle, an upper bound of the number
+     * of nodes inside it, without visiting them.
+     *
+     * @param left   the left edge of the rectangle
+     * @param top    the top edge of the rectangle
+     * @param right  the right edge of the rectangle
+     * @param bottom the bottom edge of the rectangle
+     * @return the number of nodes in the overlapping cells
+     */
+    public int countNear(double left, double top, double right, double bottom) {
+        if (right < minX || left > maxX || bottom < minY || top > maxY)
+            return 0;
+        int count = 0;
+        for (int r = index.row(top); r <= index.row(bottom); r++)
+            count += index.start[r * index.columns + index.column(right) + 1] - index.start[r * index.columns + index.column(left)];
+        return count;
+    }
+
+    /**
+     * Visits every node inside a rectangle, going through the index cells overlapping it.
+     *
+     * @param left   the left edge of the rectangle
+     * @param top    the top edge of the rectangle
+     * @param right  the right edge of the rectangle
+     * @param bottom the bottom edge of the rectangle
+     * @param action called with the index of every node inside the rectangle
+     */
+    public void forEachIn(double left, double top, double right, double bottom, IntConsumer action) {
+        if (right < minX || left > maxX || bottom < minY || top > maxY)
+            return;
+        for (int r = index.row(top); r <= index.row(bottom); r++) {
+            // the cells of a row are contiguous in the index
+            int from = index.start[r * index.columns + index.column(left)];
+            int to = index.start[r * index.columns + index.column(right) + 1];
+            for (int k = from; k < to; k++) {
+                int node = index.nodes[k];
+                if (x[node] >= left && x[node] <= right && y[node] >= top && y[node] <= bottom)
+                    action.accept(node);
+            }
+        }
+    }
+
+    /**
+     * The finest grid of nodes of a layout iteration, with the number of nodes and the sum of
+     * their coordinates in every cell of it and of every coarser level, each level having half
+     * as many rows and columns as the one below.
+     */
+    private static final class Pyramid {
+        private final int levels;
+        private final int[][] mass;
+        private final float[][] sumX;
+        private final float[][] sumY;
+        private final float[] farX;
+        private final float[] farY;
+        private Cells cells;
+
+        /**
+         * Allocates the levels.
+         *
+         * @param levels the number of levels above the single cell at level 0
+         */
+        Pyramid(int levels) {
+            this.levels = levels;
+            this.mass = new int[levels + 1][];
+            this.sumX = new float[levels + 1][];
+            this.sumY = new float[levels + 1][];
+            for (int level = 0; level <= levels; level++) {
+                mass[level] = new int[1 << 2 * level];
+                sumX[level] = new float[1 << 2 * level];
+                sumY[level] = new float[1 << 2 * level];
+            }
+            this.farX = new float[1 << 2 * levels];
+            this.farY = new float[1 << 2 * levels];
+        }
+
+        /**
+         * Sorts the nodes into a grid over their bounding square and sums up every level.
+         *
+         * @param x the x coordinate of every node
+         * @param y the y coordinate of every node
+         */
+        void build(float[] x, float[] y) {
+            float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+            float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < x.length; i++) {
+                left = Math.min(left, x[i]);
+                right = Math.max(right, x[i]);
+                top = Math.min(top, y[i]);
+                bottom = Math.max(bottom, y[i]);
+            }
+            int width = 1 << levels;
+            float cellSize = Math.max(Math.max(right - left, bottom - top), 1e-3f) / width;
+            cells = Cells.of(x, y, left, top, cellSize, cellSize, width, width);
+
+            int[] finest = mass[levels];
+            float[] finestX = sumX[levels], finestY = sumY[levels];
+            for (int c = 0; c < finest.length; c++) {
+                finest[c] = cells.start[c + 1] - cells.start[c];
+                float sx = 0, sy = 0;
+                for (int k = cells.start[c]; k < cells.start[c + 1]; k++) {
+                    sx += x[cells.nodes[k]];
+                    sy += y[cells.nodes[k]];
+                }
+                finestX[c] = sx;
+                finestY[c] = sy;
+            }
+            for (int level = levels - 1; level >= 0; level--) {
+                int size = 1 << level;
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        int cell = r * size + c;
+                        int child = 2 * r * 2 * size + 2 * c;
+                        int below = child + 2 * size;
+                        mass[level][cell] = mass[level + 1][child] + mass[level + 1][child + 1]
+                                + mass[level + 1][below] + mass[level + 1][below + 1];
+                        sumX[level][cell] = sumX[level + 1][child] + sumX[level + 1][child + 1]
+                                + sumX[level + 1][below] + sumX[level + 1][below + 1];
+                        sumY[level][cell] = sumY[level + 1][child] + sumY[level + 1][child + 1]
+                                + sumY[level + 1][below] + sumY[level + 1][below + 1];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the repulsion on the center of mass of each finest cell of one block from
+         * every node outside the 3 x 3 cells around it. At every level it takes the cells that
+         * are not next to the cell but whose parents are next to its parent, so every node is
+         * counted exactly once, through the center of mass of the largest cell that is far enough.
+         *
+         * @param block the block of finest cells
+         */
+        void farField(int block) {
+            int width = 1 << levels;
+            int end = Math.min(width * width, (block + 1) * BlockTask.BLOCK_SIZE);
+            for (int cell = block * BlockTask.BLOCK_SIZE; cell < end; cell++) {
+                int row = cell / width, column = cell % width;
+                float fx = 0, fy = 0;
+                if (mass[levels][cell] > 0) {
+                    float x = sumX[levels][cell] / mass[levels][cell], y = sumY[levels][cell] / mass[levels][cell];
+                    for (int level = 2; level <= levels; level++) {
+                        int size = 1 << level;
+                        int r = row >> (levels - level), c = column >> (levels - level);
+                        int[] counts = mass[level];
+                        for (int rr = Math.max(0, (r & ~1) - 2); rr <= Math.min(size - 1, (r & ~1) + 3); rr++) {
+                            for (int cc = Math.max(0, (c & ~1) - 2); cc <= Math.min(size - 1, (c & ~1) + 3); cc++) {
+                                int other = rr * size + cc;
+                                if (Math.abs(rr - r) <= 1 && Math.abs(cc - c) <= 1 || counts[other] == 0)
+                                    continue;
+                                float dx = x - sumX[level][other] / counts[other];
+                                float dy = y - sumY[level][other] / counts[other];
+                                float distance2 = Math.max(dx * dx + dy * dy, 1e-4f);
+                                fx += counts[other] * dx / distance2;
+                                fy += counts[other] * dy / distance2;
+                            }
+                        }
+                    }
+                }
+                farX[cell] = fx;
+                farY[cell] = fy;
+            }
+        }
+    }
+
+    /**
+     * Nodes sorted by the cell of a grid they lie in, stored like a CSR adjacency.
+     *
+     * @param left       the left edge of the grid
+     * @param top        the top edge of the grid
+     * @param cellWidth  the width of a cell
+     * @param cellHeight the height of a cell
+     * @param columns    the number of columns
+     * @param rows       the number of rows
+     * @param start      the position in nodes of the first node of every cell, row by row, and the number of nodes at the end
+     * @param nodes      the nodes, cell by cell
+     */
+    private record Cells(float left, float top, float cellWidth, float cellHeight, int columns, int rows, int[] start, int[] nodes) {
+        /**
+         * Sorts nodes into the cells of a grid with a counting sort.
+         * Nodes outside the grid go to the nearest cell.
+         *
+         * @param x          the x coordinate of every node
+         * @param y          the y coordinate of every node
+         * @param left       the left edge of the grid
+         * @param top        the top edge of the grid
+         * @param cellWidth  the width of a cell
+         * @param cellHeight the height of a cell
+         * @param columns    the number of columns
+         * @param rows       the number of rows
+         * @return the sorted nodes
+         */
+        static Cells of(float[] x, float[] y, float left, float top, float cellWidth, float cellHeight, int columns, int rows) {
+            int[] start = new int[columns * rows + 1];
+            int[] nodes = new int[x.length];
+            Cells cells = new Cells(left, top, cellWidth, cellHeight, columns, rows, start, nodes);
+            int[] cellOf = new int[x.length];
+            for (int i = 0; i < x.length; i++) {
+                cellOf[i] = cells.row(y[i]) * columns + cells.column(x[i]);
+                start[cellOf[i] + 1]++;
+            }
+            for (int cell = 0; cell < columns * rows; cell++)
+                start[cell + 1] += start[cell];
+            int[] next = new int[columns * rows];
+            for (int i = 0; i < x.length; i++)
+                nodes[start[cellOf[i]] + next[cellOf[i]]++] = i;
+            return cells;
+        }
+
+        /**
+         * Gets the column a coordinate falls in, clamped to the grid.
+         *
+         * @param x the x coordinate
+         * @return the column
+         */
+        int column(double x) {
+            return Math.clamp((long) Math.floor((x - left) / cellWidth), 0, columns - 1);
+        }
+
+        /**
+         * Gets the row a coordinate falls in, clamped to the grid.
+         *
+         * @param y the y coordinate
+         * @return the row
+         */
+        int row(double y) {
+            return Math.clamp((long) Math.floor((y - top) / cellHeight), 0, rows - 1);
+        }
+    }
+}
@@ -0,0 +1,876 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads edge list CSV files into a {@link CompactGraph}.
+ * Every line holds a node id followed by the ids of its neighbors, separated by ';'.
+ * The file is memory-mapped and split into chunks at line boundaries, which are parsed in
+ * parallel straight from the mapped bytes without creating a String per token. The graph is
+ * built in two passes over the chunks: one counting the degree of every node, one filling the
+ * neighbor arrays. Each undirected edge is kept once per endpoint however often the file
+ * lists it. Files whose ids are all plain non-negative integers skip the string dictionary
+ * altogether. Binary {@link GraphSnapshot} files are recognised and read directly.
+ * <p>
+ * Weighted files hold one contact per line instead: {@code u;v;weight}, optionally followed by
+ * {@code ;start;end} to make the contact active only during the ticks [start, end). A contact
+ * listed more than once with the same window, for instance once in each direction, is stored
+ * once per endpoint with the largest of its weights. Contacts between the same nodes in
+ * different windows are kept apart.
+ */
+public final class GraphLoader {
+    private static final byte SEPARATOR = ';';
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private GraphLoader() {
+    }
+
+    /**
+     * Loads a CSV edge list or a graph snapshot.
+     *
+     * @param csvFile the path to the CSV file containing the graph data
+     * @return the loaded graph
+     * @throws IOException if the file cannot be read or holds a line longer than 1 MiB
+     */
+    public static CompactGraph load(String csvFile) throws IOException {
+        return load(Path.of(csvFile));
+    }
+
+    /**
+     * Loads a CSV edge list or a graph snapshot.
+     *
+     * @param path the CSV file containing the graph data
+     * @return the loaded graph
+     * @throws IOException if the file cannot be read or holds a line longer than 1 MiB
+     */
+    public static CompactGraph load(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Loads a CSV edge list, a weighted CSV contact list or a graph snapshot.
+     *
+     * @param path     the CSV file containing the graph data
+     * @param weighted whether every line of a CSV file is a single weighted contact
+     * @return the loaded graph
+     * @throws IOException if the file cannot be read or holds a line longer than 1 MiB
+     */
+    public static CompactGraph load(Path path, boolean weighted) throws IOException {
+        if (GraphSnapshot.isSnapshot(path))
+            return GraphSnapshot.read(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Chunk[] chunks = split(channel, weighted);
+            forEachChunk(chunks, index -> chunks[index].scan());
+            for (Chunk chunk : chunks) {
+                if (chunk.error != null)
+                    throw chunk.error;
+            }
+
+            boolean numeric = true;
+            boolean temporal = false;
+            long edges = 0;
+            int maxId = -1;
+            for (Chunk chunk : chunks) {
+                numeric &= chunk.numeric;
+                temporal |= chunk.temporal;
+                edges += chunk.edges;
+                maxId = Math.max(maxId, chunk.maxId);
+            }
+            if (2 * edges > Integer.MAX_VALUE - 8)
+                throw new IOException("Graph has too many edges: " + edges);
+
+            Entries entries = new Entries(new int[(int) (2 * edges)], weighted ? new float[(int) (2 * edges)] : null,
+                    temporal ? new int[(int) (2 * edges)] : null, temporal ? new int[(int) (2 * edges)] : null);
+            // ids far beyond the edge count would make the id lookup table larger than the graph
+            if (numeric && (long) maxId + 1 <= Math.max(1 << 24, 8 * edges))
+                return loadNumeric(chunks, maxId, entries);
+            return loadStrings(chunks, entries);
+        }
+    }
+
+    /**
+     * Builds the graph of a file whose ids are all integers, using the ids as table indices.
+     *
+     * @param chunks  the scanned chunks of the file
+     * @param maxId   the largest id in the file
+     * @param entries the empty adjacency arrays to fill
+     * @return the loaded graph
+     */
+    private static CompactGraph loadNumeric(Chunk[] chunks, int maxId, Entries entries) {
+        // pass 1: degree count by raw id
+        int[] byId = new int[maxId + 1];
+        forEachChunk(chunks, index -> chunks[index].forEachEdge((chunk, parent, child) -> {
+            INTS.getAndAdd(byId, chunk.parseInt(parent), 1);
+            INTS.getAndAdd(byId, chunk.parseInt(child), 1);
+        }));
+
+        int size = 0;
+        for (int degree : byId) {
+            if (degree > 0)
+                size++;
+        }
+        int[] ids = new int[size];
+        int[] offsets = new int[size + 1];
+        int index = 0;
+        for (int id = 0; id <= maxId; id++) {
+            int degree = byId[id];
+            if (degree > 0) {
+                ids[index] = id;
+                offsets[index + 1] = offsets[index] + degree;
+                // the degree is no longer needed, so the table now maps ids to indices
+                byId[id] = index++;
+            }
+        }
+
+        // pass 2: fill
+        int[] cursor = Arrays.copyOf(offsets, size);
+        forEachChunk(chunks, chunkIndex -> chunks[chunkIndex].forEachEdge((chunk, parent, child) -> {
+            int from = byId[chunk.parseInt(parent)];
+            int to = byId[chunk.parseInt(child)];
+            chunk.put(entries, (int) INTS.getAndAdd(cursor, from, 1), to);
+            chunk.put(entries, (int) INTS.getAndAdd(cursor, to, 1), from);
+        }));
+        Entries normalized = normalize(offsets, entries);
+        return new CompactGraph(ids, offsets, normalized.neighbors(), normalized.weights(),
+                normalized.activeFrom(), normalized.activeUntil());
+    }
+
+    /**
+     * Builds the graph of a file with arbitrary string ids.
+     * Indices are assigned in order of first appearance in the file.
+     *
+     * @param chunks  the scanned chunks of the file
+     * @param entries the empty adjacency arrays to fill
+     * @return the loaded graph
+     */
+    private static CompactGraph loadStrings(Chunk[] chunks, Entries entries) {
+        forEachChunk(chunks, index -> {
+            Chunk chunk = chunks[index];
+            chunk.dictionary = new ByteDictionary();
+            chunk.forEachEdge((c, parent, child) -> {
+                c.dictionary.add(c.buffer, c.tokenStart[parent], c.tokenEnd[parent]);
+                c.dictionary.add(c.buffer, c.tokenStart[child], c.tokenEnd[child]);
+            });
+        });
+        ByteDictionary dictionary = new ByteDictionary();
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.dictionary.size(); i++)
+                dictionary.add(chunk.dictionary.key(i));
+            chunk.dictionary = null;
+        }
+        int size = dictionary.size();
+
+        // pass 1: degree count
+        int[] degrees = new int[size];
+        forEachChunk(chunks, index -> chunks[index].forEachEdge((chunk, parent, child) -> {
+            INTS.getAndAdd(degrees, chunk.lookup(dictionary, parent), 1);
+            INTS.getAndAdd(degrees, chunk.lookup(dictionary, child), 1);
+        }));
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++)
+            offsets[i + 1] = offsets[i] + degrees[i];
+
+        // pass 2: fill, reusing the degree array as the per-node write cursor
+        int[] cursor = degrees;
+        System.arraycopy(offsets, 0, cursor, 0, size);
+        forEachChunk(chunks, index -> chunks[index].forEachEdge((chunk, parent, child) -> {
+            int from = chunk.lookup(dictionary, parent);
+            int to = chunk.lookup(dictionary, child);
+            chunk.put(entries, (int) INTS.getAndAdd(cursor, from, 1), to);
+            chunk.put(entries, (int) INTS.getAndAdd(cursor, to, 1), from);
+        }));
+
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++)
+            ids[i] = new String(dictionary.key(i), StandardCharsets.UTF_8);
+        Entries normalized = normalize(offsets, entries);
+        return new CompactGraph(ids, offsets, normalized.neighbors(), normalized.weights(),
+                normalized.activeFrom(), normalized.activeUntil());
+    }
+
+    /**
+     * Sorts every node's neighbor range and drops repeated neighbors, so the result does not
+     * depend on the order the chunks were filled in and an edge listed in both directions, or
+     * more than once, is stored once per endpoint.
+     *
+     * @param offsets   the neighbor range start of every node followed by the end sentinel, updated in place
+     * @param neighbors the neighbor array, sorted and deduplicated in place
+     * @return the neighbor array, or a shorter copy of it if any duplicates were dropped
+     */
+    static int[] normalizeNeighbors(int[] offsets, int[] neighbors) {
+        return normalize(offsets, new Entries(neighbors, null, null, null)).neighbors();
+    }
+
+    /**
+     * Sorts every node's adjacency range by neighbor and activity window and merges repeated
+     * entries, so the result does not depend on the order the chunks were filled in. Entries
+     * with the same neighbor and window merge into one keeping the largest weight.
+     *
+     * @param offsets the neighbor range start of every node followed by the end sentinel, updated in place
+     * @param entries the adjacency arrays, sorted and merged in place
+     * @return the adjacency arrays, or shorter copies of them if any entries were merged
+     */
+    private static Entries normalize(int[] offsets, Entries entries) {
+        int size = offsets.length - 1;
+        int blocks = BlockTask.blockCount(size);
+        int[] unique = new int[size];
+        int[] neighbors = entries.neighbors();
+        ForkJoinPool.commonPool().invoke(new BlockTask(block -> {
+            int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+            RowSorter sorter = entries.isPlain() ? null : new RowSorter(entries);
+            for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+                int from = offsets[i];
+                int to = offsets[i + 1];
+                if (sorter != null) {
+                    unique[i] = sorter.sort(from, to);
+                    continue;
+                }
+                Arrays.sort(neighbors, from, to);
+                int kept = from;
+                for (int e = from; e < to; e++) {
+                    if (kept == from || neighbors[kept - 1] != neighbors[e])
+                        neighbors[kept++] = neighbors[e];
+                }
+                unique[i] = kept - from;
+            }
+        }, 0, blocks));
+
+        int total = 0;
+        for (int degree : unique)
+            total += degree;
+        if (total == neighbors.length)
+            return entries;
+
+        int[] starts = Arrays.copyOf(offsets, size);
+        for (int i = 0; i < size; i++)
+            offsets[i + 1] = offsets[i] + unique[i];
+        Entries compacted = new Entries(new int[total], entries.weights() == null ? null : new float[total],
+                entries.activeFrom() == null ? null : new int[total], entries.activeUntil() == null ? null : new int[total]);
+        ForkJoinPool.commonPool().invoke(new BlockTask(block -> {
+            int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+            for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+                System.arraycopy(neighbors, starts[i], compacted.neighbors(), offsets[i], unique[i]);
+                if (entries.weights() != null)
+                    System.arraycopy(entries.weights(), starts[i], compacted.weights(), offsets[i], unique[i]);
+                if (entries.activeFrom() != null) {
+                    System.arraycopy(entries.activeFrom(), starts[i], compacted.activeFrom(), offsets[i], unique[i]);
+                    System.arraycopy(entries.activeUntil(), starts[i], compacted.activeUntil(), offsets[i], unique[i]);
+                }
+            }
+        }, 0, blocks));
+        return compacted;
+    }
+
+    /**
+     * Runs a body for every chunk in parallel.
+     *
+     * @param chunks the chunks of the file
+     * @param body   the work to do for one chunk, given its index
+     */
+    private static void forEachChunk(Chunk[] chunks, IntConsumer body) {
+        ForkJoinPool.commonPool().invoke(new BlockTask(body, 0, chunks.length));
+    }
+
+    /**
+     * Maps a file as a series of chunks of roughly equal size.
+     *
+     * @param channel  the open file
+     * @param weighted whether every line is a single weighted contact
+     * @return the chunks covering the whole file
+     * @throws IOException if the file cannot be mapped
+     */
+    private static Chunk[] split(FileChannel channel, boolean weighted) throws IOException {
+        long size = channel.size();
+        long chunkSize = size / (ForkJoinPool.getCommonPoolParallelism() * 4L);
+        chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (long start = 0; start < size; start += chunkSize) {
+            long end = Math.min(size, start + chunkSize);
+            // map one byte before the chunk to tell whether it starts on a line boundary,
+            // and enough after it to finish its last line
+            long mapStart = Math.max(0, start - 1);
+            long mapEnd = Math.min(size, end + MAX_LINE_LENGTH);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            chunks.add(new Chunk(buffer, (int) (start - mapStart), (int) (end - mapStart), mapEnd == size, weighted));
+        }
+        return chunks.toArray(new Chunk[0]);
+    }
+
+    /**
+     * The adjacency arrays of a graph being built. The arrays other than the neighbors are
+     * null when the file does not hold them.
+     *
+     * @param neighbors   the neighbor of every entry
+     * @param weights     the weight of every entry
+     * @param activeFrom  the first tick every entry is active in
+     * @param activeUntil the tick every entry stops being active in
+     */
+    private record Entries(int[] neighbors, float[] weights, int[] activeFrom, int[] activeUntil) {
+        /**
+         * Whether the entries are plain neighbors without weights or windows.
+         *
+         * @return true if only the neighbor array is present
+         */
+        private boolean isPlain() {
+            return weights == null && activeFrom == null;
+        }
+    }
+
+    /**
+     * Sorts and merges the adjacency range of one node at a time when entries carry weights or
+     * windows. Entries are ordered by neighbor with a primitive sort of packed keys, then by
+     * window with an insertion sort that only has to move entries sharing a neighbor.
+     */
+    private static final class RowSorter {
+        private final Entries entries;
+        private long[] keys = new long[16];
+        private int[] neighbors = new int[16];
+        private float[] weights = new float[16];
+        private int[] activeFrom = new int[16];
+        private int[] activeUntil = new int[16];
+        private int[] order = new int[16];
+
+        /**
+         * Constructs a sorter working on the given arrays.
+         *
+         * @param entries the adjacency arrays
+         */
+        private RowSorter(Entries entries) {
+            this.entries = entries;
+        }
+
+        /**
+         * Sorts a range of entries and merges those with the same neighbor and window.
+         *
+         * @param from the position of the first entry
+         * @param to   the position after the last entry
+         * @return the number of entries kept at the start of the range
+         */
+        private int sort(int from, int to) {
+            int length = to - from;
+            if (length > keys.length) {
+                int capacity = Math.max(length, keys.length * 2);
+                keys = new long[capacity];
+                neighbors = new int[capacity];
+                weights = new float[capacity];
+                activeFrom = new int[capacity];
+                activeUntil = new int[capacity];
+                order = new int[capacity];
+            }
+            for (int k = 0; k < length; k++) {
+                neighbors[k] = entries.neighbors()[from + k];
+                weights[k] = entries.weights() == null ? 1 : entries.weights()[from + k];
+                activeFrom[k] = entries.activeFrom() == null ? 0 : entries.activeFrom()[from + k];
+                activeUntil[k] = entries.activeFrom() == null ? 0 : entries.activeUntil()[from + k];
+                keys[k] = (long) neighbors[k] << 32 | k;
+            }
+            Arrays.sort(keys, 0, length);
+            for (int k = 0; k < length; k++) {
+                int local = (int) keys[k];
+                int j = k;
+                for (; j > 0 && compare(order[j - 1], local) > 0; j--)
+                    order[j] = order[j - 1];
+                order[j] = local;
+            }
+
+            int kept = 0;
+            for (int k = 0; k < length; k++) {
+                int local = order[k];
+                if (kept > 0 && compare(order[kept - 1], local) == 0) {
+                    weights[order[kept - 1]] = Math.max(weights[order[kept - 1]], weights[local]);
+                    continue;
+                }
+                order[kept++] = local;
+            }
+            for (int k = 0; k < kept; k++) {
+                int local = order[k];
+                entries.neighbors()[from + k] = neighbors[local];
+                if (entries.weights() != null)
+                    entries.weights()[from + k] = weights[local];
+                if (entries.activeFrom() != null) {
+                    entries.activeFrom()[from + k] = activeFrom[local];
+                    entries.activeUntil()[from + k] = activeUntil[local];
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Orders two entries of the current range by neighbor, then window start, then window end.
+         *
+         * @param a the local index of the first entry
+         * @param b the local index of the second entry
+         * @return a negative, zero or positive value as a sorts before, with or after b
+         */
+        private int compare(int a, int b) {
+            if (neighbors[a] != neighbors[b])
+                return Integer.compare(neighbors[a], neighbors[b]);
+            if (activeFrom[a] != activeFrom[b])
+                return Integer.compare(activeFrom[a], activeFrom[b]);
+            return Integer.compare(activeUntil[a], activeUntil[b]);
+        }
+    }
+
+    /**
+     * Callback receiving the edges of a chunk as indices into its token arrays.
+     */
+    private interface EdgeVisitor {
+        /**
+         * Visits one edge.
+         *
+         * @param chunk  the chunk holding the tokens
+         * @param parent the token index of the parent id
+         * @param child  the token index of the child id
+         */
+        void edge(Chunk chunk, int parent, int child);
+    }
+
+    /**
+     * A mapped part of the file, owning the lines that start inside it.
+     */
+    private static final class Chunk {
+        private final MappedByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final boolean lastInFile;
+        private final boolean weighted;
+        private int[] tokenStart = new int[8];
+        private int[] tokenEnd = new int[8];
+
+        private boolean numeric = true;
+        private boolean temporal = false;
+        private long edges = 0;
+        private int maxId = -1;
+        private ByteDictionary dictionary;
+        private float weight = 1;
+        private int activeFrom = 0;
+        private int activeUntil = Integer.MAX_VALUE;
+        private IOException error;
+
+        /**
+         * Constructs a chunk.
+         *
+         * @param buffer     the mapped bytes
+         * @param start      the buffer position of the chunk's first byte
+         * @param end        the buffer position after the chunk's last byte
+         * @param lastInFile whether the buffer extends to the end of the file
+         * @param weighted   whether every line is a single weighted contact
+         */
+        private Chunk(MappedByteBuffer buffer, int start, int end, boolean lastInFile, boolean weighted) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.lastInFile = lastInFile;
+            this.weighted = weighted;
+        }
+
+        /**
+         * Counts the edges of this chunk and checks whether all its ids are integers.
+         * Reports the lines that hold fewer than two ids, or are not a valid weighted contact.
+         * Stops at a line longer than the limit, leaving the reason in {@link #error}.
+         */
+        private void scan() {
+            forEachLine(tokens -> {
+                if (weighted ? !parseContact(tokens) : tokens < 2) {
+                    System.err.println("Invalid line format: " + line(tokens));
+                    return;
+                }
+                edges += weighted ? 1 : tokens - 1;
+                temporal |= tokens == 5;
+                for (int t = 0; numeric && t < (weighted ? 2 : tokens); t++) {
+                    int id = parseInt(t);
+                    if (id < 0)
+                        numeric = false;
+                    else
+                        maxId = Math.max(maxId, id);
+                }
+            });
+        }
+
+        /**
+         * Visits every edge of this chunk: each id following the first id on a line forms an
+         * edge with the first id. For weighted files the contact of each valid line is visited,
+         * with its weight and window parsed into this chunk.
+         *
+         * @param visitor the callback receiving the edges
+         */
+        private void forEachEdge(EdgeVisitor visitor) {
+            forEachLine(tokens -> {
+                if (weighted) {
+                    if (parseContact(tokens))
+                        visitor.edge(this, 0, 1);
+                    return;
+                }
+                for (int t = 1; t < tokens; t++)
+                    visitor.edge(this, 0, t);
+            });
+        }
+
+        /**
+         * Stores an adjacency entry along with the weight and window of the contact being visited.
+         *
+         * @param entries  the adjacency arrays
+         * @param entry    the position of the entry
+         * @param neighbor the neighbor index of the entry
+         */
+        private void put(Entries entries, int entry, int neighbor) {
+            entries.neighbors()[entry] = neighbor;
+            if (entries.weights() != null)
+                entries.weights()[entry] = weight;
+            if (entries.activeFrom() != null) {
+                entries.activeFrom()[entry] = activeFrom;
+                entries.activeUntil()[entry] = activeUntil;
+            }
+        }
+
+        /**
+         * Parses the weight and optional window of a weighted contact line.
+         *
+         * @param tokens the number of tokens on the line
+         * @return true if the line holds two ids, a finite non-negative weight and either no
+         * window or a window of non-negative integer ticks whose end is not before its start
+         */
+        private boolean parseContact(int tokens) {
+            if (tokens != 3 && tokens != 5)
+                return false;
+            weight = parseWeight(2);
+            activeFrom = tokens == 5 ? parseInt(3) : 0;
+            activeUntil = tokens == 5 ? parseInt(4) : Integer.MAX_VALUE;
+            return weight >= 0 && !Float.isInfinite(weight) && activeFrom >= 0 && activeUntil >= activeFrom;
+        }
+
+        /**
+         * Parses a token as a float. Plain decimals are parsed straight from the mapped bytes;
+         * anything else, such as exponents, goes through {@link Float#parseFloat}.
+         *
+         * @param token the token index
+         * @return the value or NaN if the token is not a number
+         */
+        private float parseWeight(int token) {
+            int from = tokenStart[token];
+            int to = tokenEnd[token];
+            long mantissa = 0;
+            int digits = 0;
+            int scale = -1;
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else if (b >= '0' && b <= '9' && digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0)
+                        scale++;
+                } else {
+                    byte[] bytes = new byte[to - from];
+                    buffer.get(from, bytes);
+                    try {
+                        return Float.parseFloat(new String(bytes, StandardCharsets.UTF_8).trim());
+                    } catch (NumberFormatException e) {
+                        return Float.NaN;
+                    }
+                }
+            }
+            if (digits == 0)
+                return Float.NaN;
+            return (float) (scale <= 0 ? mantissa : mantissa / Math.pow(10, scale));
+        }
+
+        /**
+         * Splits every line of this chunk into tokens and hands the token count to a callback.
+         * Blank lines are skipped, as are empty tokens at the end of a line.
+         * Stops at the first line longer than {@link #MAX_LINE_LENGTH}, wherever it lies, and
+         * records it in {@link #error}.
+         *
+         * @param visitor the callback receiving the number of tokens of each line
+         */
+        private void forEachLine(IntConsumer visitor) {
+            int limit = buffer.limit();
+            int position = start;
+            // a chunk that does not start a line leaves the partial line to the chunk before it
+            if (start > 0 && buffer.get(start - 1) != '\n') {
+                while (position < limit && buffer.get(position) != '\n')
+                    position++;
+                position++;
+            }
+
+            while (position < end) {
+                int lineEnd = position;
+                int lineLimit = (int) Math.min(limit, (long) position + MAX_LINE_LENGTH + 1);
+                while (lineEnd < lineLimit && buffer.get(lineEnd) != '\n')
+                    lineEnd++;
+                // the mapping extends a full line past the chunk, so only an overlong line reaches its end
+                if (lineEnd - position > MAX_LINE_LENGTH || (lineEnd == limit && !lastInFile)) {
+                    error = new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+                    return;
+                }
+
+                int tokens = tokenize(position, lineEnd);
+                if (tokens > 0)
+                    visitor.accept(tokens);
+                position = lineEnd + 1;
+            }
+        }
+
+        /**
+         * Splits one line into tokens.
+         *
+         * @param from the position of the first byte of the line
+         * @param to   the position of the line terminator
+         * @return the number of tokens, 0 for a blank line
+         */
+        private int tokenize(int from, int to) {
+            if (to > from && buffer.get(to - 1) == '\r')
+                to--;
+            boolean blank = true;
+            for (int i = from; blank && i < to; i++)
+                blank = (buffer.get(i) & 0xff) <= ' ';
+            if (blank)
+                return 0;
+
+            int tokens = 0;
+            int tokenFrom = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || buffer.get(i) == SEPARATOR) {
+                    if (tokens == tokenStart.length) {
+                        tokenStart = Arrays.copyOf(tokenStart, tokens * 2);
+                        tokenEnd = Arrays.copyOf(tokenEnd, tokens * 2);
+                    }
+                    tokenStart[tokens] = tokenFrom;
+                    tokenEnd[tokens] = i;
+                    tokens++;
+                    tokenFrom = i + 1;
+                }
+            }
+            while (tokens > 0 && tokenStart[tokens - 1] == tokenEnd[tokens - 1])
+                tokens--;
+            return tokens;
+        }
+
+        /**
+         * Parses a token as a non-negative integer in canonical decimal form.
+         *
+         * @param token the token index
+         * @return the value or -1 if the token is not such an integer
+         */
+        private int parseInt(int token) {
+            int from = tokenStart[token];
+            int length = tokenEnd[token] - from;
+            if (length == 0 || length > 10 || (length > 1 && buffer.get(from) == '0'))
+                return -1;
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                int digit = buffer.get(from + i) - '0';
+                if (digit < 0 || digit > 9)
+                    return -1;
+                value = value * 10 + digit;
+            }
+            return value > Integer.MAX_VALUE ? -1 : (int) value;
+        }
+
+        /**
+         * Looks a token up in a dictionary.
+         *
+         * @param dictionary the dictionary holding every id of the file
+         * @param token      the token index
+         * @return the index of the token's id
+         */
+        private int lookup(ByteDictionary dictionary, int token) {
+            return dictionary.indexOf(buffer, tokenStart[token], tokenEnd[token]);
+        }
+
+        /**
+         * Rebuilds the text of the current line from its tokens, for error messages.
+         *
+         * @param tokens the number of tokens on the line
+         * @return the line without its terminator
+         */
+        private String line(int tokens) {
+            byte[] bytes = new byte[tokenEnd[tokens - 1] - tokenStart[0]];
+            buffer.get(tokenStart[0], bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Open addressing hash table assigning dense indices to byte strings in insertion order.
+     * Lookups compare against the mapped file bytes, so only new keys are ever copied.
+     * Concurrent lookups are safe as long as no key is being added.
+     */
+    private static final class ByteDictionary {
+        private int[] table = new int[64];
+        private byte[][] keys = new byte[32][];
+        private int[] hashes = new int[32];
+        private int size = 0;
+
+        /**
+         * Returns the number of keys
+         *
+         * @return the number of keys
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Gets the key with the given index.
+         *
+         * @param index the index of the key
+         * @return the bytes of the key
+         */
+        private byte[] key(int index) {
+            return keys[index];
+        }
+
+        /**
+         * Adds a key read from a buffer unless it is already present.
+         *
+         * @param buffer the buffer holding the key
+         * @param from   the position of the first byte of the key
+         * @param to     the position after the last byte of the key
+         * @return the index of the key
+         */
+        private int add(MappedByteBuffer buffer, int from, int to) {
+            int index = indexOf(buffer, from, to);
+            if (index >= 0)
+                return index;
+            byte[] key = new byte[to - from];
+            buffer.get(from, key);
+            return insert(key, hash(key));
+        }
+
+        /**
+         * Adds a key unless it is already present.
+         *
+         * @param key the bytes of the key
+         * @return the index of the key
+         */
+        private int add(byte[] key) {
+            int hash = hash(key);
+            for (int slot = hash & (table.length - 1); table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+                int index = table[slot] - 1;
+                if (hashes[index] == hash && Arrays.equals(keys[index], key))
+                    return index;
+            }
+            return insert(key, hash);
+        }
+
+        /**
+         * Looks up a key read from a buffer.
+         *
+         * @param buffer the buffer holding the key
+         * @param from   the position of the first byte of the key
+         * @param to     the position after the last byte of the key
+         * @return the index of the key or -1 if absent
+         */
+        private int indexOf(MappedByteBuffer buffer, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++)
+                hash = 31 * hash + buffer.get(i);
+            hash = spread(hash);
+
+            for (int slot = hash & (table.length - 1); table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+                int index = table[slot] - 1;
+                if (hashes[index] == hash && matches(keys[index], buffer, from, to))
+                    return index;
+            }
+            return -1;
+        }
+
+        /**
+         * Stores a new key, growing the table once it is half full.
+         *
+         * @param key  the bytes of the key
+         * @param hash the spread hash of the key
+         * @return the index assigned to the key
+         */
+        private int insert(byte[] key, int hash) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            keys[size] = key;
+            hashes[size] = hash;
+            size++;
+            if (size * 2 > table.length) {
+                table = new int[table.length * 2];
+                for (int i = 0; i < size; i++)
+                    place(i);
+            } else {
+                place(size - 1);
+            }
+            return size - 1;
+        }
+
+        /**
+         * Puts a key index into the first free slot of its probe sequence.
+         *
+         * @param index the index of the key
+         */
+        private void place(int index) {
+            int slot = hashes[index] & (table.length - 1);
+            while (table[slot] != 0)
+                slot = (slot + 1) & (table.length - 1);
+            table[slot] = index + 1;
+        }
+
+        /**
+         * Hashes a key the same way {@link #indexOf} hashes buffer bytes.
+         *
+         * @param key the bytes of the key
+         * @return the spread hash
+         */
+        private static int hash(byte[] key) {
+            return spread(Arrays.hashCode(key));
+        }
+
+        /**
+         * Spreads the bits of a hash so that the low bits used for slots are well mixed.
+         *
+         * @param hash the raw hash
+         * @return the spread hash
+         */
+        private static int spread(int hash) {
+            hash *= 0x9e3779b9;
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Compares a key with bytes in a buffer.
+         *
+         * @param key    the bytes of the key
+         * @param buffer the buffer to compare with
+         * @param from   the position of the first byte to compare
+         * @param to     the position after the last byte to compare
+         * @return true if the bytes are equal
+         */
+        private static boolean matches(byte[] key, MappedByteBuffer buffer, int from, int to) {
+            if (key.length != to - from)
+                return false;
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
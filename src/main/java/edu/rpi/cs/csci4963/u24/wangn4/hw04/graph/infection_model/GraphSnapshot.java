@@ -0,0 +1,316 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary file format holding a {@link CompactGraph}, so a graph parsed once from CSV
+ * can be memory-mapped back in without any parsing.
+ * <p>
+ * All values are little endian. The file starts with a header of five ints: the magic
+ * {@code "EPIG"}, the format version, a flag word, the number of nodes n and the number of
+ * adjacency entries m. The id dictionary follows: n ints for numeric ids, or n + 1 byte offsets
+ * followed by the UTF-8 bytes of all string ids, padded to a multiple of four. Then come the
+ * n + 1 offsets and the m neighbors of the CSR arrays. Since version 2, graphs with weighted
+ * edges follow these with the m weights as floats, and graphs with activity windows with the
+ * m window starts and the m window ends. Version 1 files are still read.
+ */
+public final class GraphSnapshot {
+    /**
+     * The file extension used for snapshots.
+     */
+    public static final String EXTENSION = ".csr";
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 'E' | 'P' << 8 | 'I' << 16 | 'G' << 24;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int FLAG_NUMERIC_IDS = 1;
+    private static final int FLAG_WEIGHTS = 2;
+    private static final int FLAG_WINDOWS = 4;
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    /**
+     * Not instantiable, all methods are static.
+     */
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Converts a CSV edge list, or another snapshot, into a snapshot file.
+     *
+     * @param args an optional --weighted flag, the input file and the snapshot file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public static void main(String[] args) throws IOException {
+        boolean weighted = args.length == 3 && args[0].equals("--weighted");
+        if (args.length != (weighted ? 3 : 2)) {
+            System.err.println("Usage: GraphSnapshot [--weighted] <input.csv> <output" + EXTENSION + ">");
+            System.exit(2);
+        }
+        write(GraphLoader.load(Path.of(args[args.length - 2]), weighted), Path.of(args[args.length - 1]));
+    }
+
+    /**
+     * Checks whether a file starts with the snapshot magic.
+     *
+     * @param path the file to check
+     * @return true if the file is a snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0)
+                ;
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes a graph to a snapshot file, replacing any existing file.
+     *
+     * @param graph the graph to write
+     * @param path  the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(CompactGraph graph, Path path) throws IOException {
+        int size = graph.size();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            int flags = (graph.hasNumericIds() ? FLAG_NUMERIC_IDS : 0) | (graph.hasWeights() ? FLAG_WEIGHTS : 0)
+                    | (graph.isTemporal() ? FLAG_WINDOWS : 0);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(size).putInt(graph.edgeSize());
+
+            if (graph.hasNumericIds()) {
+                putInts(channel, buffer, graph.numericIds());
+            } else {
+                byte[][] ids = new byte[size][];
+                int length = 0;
+                putInt(channel, buffer, 0);
+                for (int i = 0; i < size; i++) {
+                    ids[i] = graph.idOf(i).getBytes(StandardCharsets.UTF_8);
+                    length += ids[i].length;
+                    putInt(channel, buffer, length);
+                }
+                for (byte[] id : ids) {
+                    for (byte b : id) {
+                        if (!buffer.hasRemaining())
+                            flush(channel, buffer);
+                        buffer.put(b);
+                    }
+                }
+                for (int pad = length; pad % Integer.BYTES != 0; pad++) {
+                    if (!buffer.hasRemaining())
+                        flush(channel, buffer);
+                    buffer.put((byte) 0);
+                }
+            }
+
+            putInts(channel, buffer, graph.offsets());
+            putInts(channel, buffer, graph.neighbors());
+            if (graph.hasWeights()) {
+                for (float weight : graph.weights())
+                    putInt(channel, buffer, Float.floatToRawIntBits(weight));
+            }
+            if (graph.isTemporal()) {
+                putInts(channel, buffer, graph.activeFrom());
+                putInts(channel, buffer, graph.activeUntil());
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads a graph from a snapshot file.
+     * The arrays are bulk copied out of the mapped file, so the hot loops keep working on plain
+     * int arrays and the file itself is shared through the page cache.
+     *
+     * @param path the snapshot file
+     * @return the graph held by the file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static CompactGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("Not a graph snapshot: " + path);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a graph snapshot: " + path);
+            int version = header.getInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException("Unsupported graph snapshot version " + version + ": " + path);
+            int flags = header.getInt();
+            int size = header.getInt();
+            int edges = header.getInt();
+            if (size < 0 || edges < 0)
+                throw new IOException("Corrupt graph snapshot header: " + path);
+            // check the arrays the header announces fit in the file before allocating any of them
+            long required = ((flags & FLAG_NUMERIC_IDS) != 0 ? (long) size : size + 1L) * Integer.BYTES
+                    + (size + 1L) * Integer.BYTES + (long) edges * Integer.BYTES
+                    + ((flags & FLAG_WEIGHTS) != 0 ? (long) edges * Integer.BYTES : 0)
+                    + ((flags & FLAG_WINDOWS) != 0 ? 2L * edges * Integer.BYTES : 0);
+            if (required > channel.size() - HEADER_SIZE)
+                throw new IOException("Truncated graph snapshot: " + path);
+
+            long position = HEADER_SIZE;
+            int[] numericIds = null;
+            String[] ids = null;
+            if ((flags & FLAG_NUMERIC_IDS) != 0) {
+                numericIds = new int[size];
+                position = readInts(channel, position, numericIds);
+                for (int i = 0; i < size; i++) {
+                    if (numericIds[i] < 0 || (i > 0 && numericIds[i - 1] >= numericIds[i]))
+                        throw new IOException("Corrupt graph snapshot ids: " + path);
+                }
+            } else {
+                int[] idOffsets = new int[size + 1];
+                position = readInts(channel, position, idOffsets);
+                if (idOffsets[0] != 0 || !isNonDecreasing(idOffsets) || idOffsets[size] > channel.size() - position)
+                    throw new IOException("Corrupt graph snapshot ids: " + path);
+                int length = idOffsets[size];
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                ids = new String[size];
+                for (int i = 0; i < size; i++) {
+                    byte[] id = new byte[idOffsets[i + 1] - idOffsets[i]];
+                    bytes.get(idOffsets[i], id);
+                    ids[i] = new String(id, StandardCharsets.UTF_8);
+                }
+                position += (length + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+            }
+
+            int[] offsets = new int[size + 1];
+            position = readInts(channel, position, offsets);
+            int[] neighbors = new int[edges];
+            position = readInts(channel, position, neighbors);
+            // the hot loops index with these unchecked, so a corrupt file must not get past here
+            if (offsets[0] != 0 || offsets[size] != edges || !isNonDecreasing(offsets))
+                throw new IOException("Corrupt graph snapshot offsets: " + path);
+            for (int neighbor : neighbors) {
+                if (neighbor < 0 || neighbor >= size)
+                    throw new IOException("Corrupt graph snapshot neighbors: " + path);
+            }
+
+            float[] weights = null;
+            if ((flags & FLAG_WEIGHTS) != 0) {
+                int[] bits = new int[edges];
+                position = readInts(channel, position, bits);
+                weights = new float[edges];
+                for (int e = 0; e < edges; e++) {
+                    weights[e] = Float.intBitsToFloat(bits[e]);
+                    if (!(weights[e] >= 0) || Float.isInfinite(weights[e]))
+                        throw new IOException("Corrupt graph snapshot weights: " + path);
+                }
+            }
+            int[] activeFrom = null;
+            int[] activeUntil = null;
+            if ((flags & FLAG_WINDOWS) != 0) {
+                activeFrom = new int[edges];
+                position = readInts(channel, position, activeFrom);
+                activeUntil = new int[edges];
+                readInts(channel, position, activeUntil);
+                for (int e = 0; e < edges; e++) {
+                    if (activeFrom[e] < 0 || activeFrom[e] > activeUntil[e])
+                        throw new IOException("Corrupt graph snapshot windows: " + path);
+                }
+            }
+
+            return numericIds != null ? new CompactGraph(numericIds, offsets, neighbors, weights, activeFrom, activeUntil)
+                    : new CompactGraph(ids, offsets, neighbors, weights, activeFrom, activeUntil);
+        }
+    }
+
+    /**
+     * Checks that an array of offsets never decreases.
+     *
+     * @param offsets the offsets
+     * @return true if every offset is at least the one before it
+     */
+    private static boolean isNonDecreasing(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i - 1] > offsets[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies ints out of the mapped file, mapping at most {@link #WINDOW_SIZE} bytes at a time.
+     *
+     * @param channel  the open snapshot file
+     * @param position the file position of the first int
+     * @param target   the array to fill
+     * @return the file position after the last int read
+     * @throws IOException if the file is shorter than expected
+     */
+    private static long readInts(FileChannel channel, long position, int[] target) throws IOException {
+        if (position + (long) target.length * Integer.BYTES > channel.size())
+            throw new IOException("Truncated graph snapshot");
+        int done = 0;
+        while (done < target.length) {
+            int count = Math.min(target.length - done, WINDOW_SIZE / Integer.BYTES);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(target, done, count);
+            done += count;
+            position += (long) count * Integer.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Appends an int to the write buffer, flushing it when full.
+     *
+     * @param channel the file being written
+     * @param buffer  the write buffer
+     * @param value   the value to append
+     * @throws IOException if the file cannot be written
+     */
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES)
+            flush(channel, buffer);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Appends an int array to the write buffer in bulk, flushing it whenever it fills up.
+     *
+     * @param channel the file being written
+     * @param buffer  the write buffer
+     * @param values  the values to append
+     * @throws IOException if the file cannot be written
+     */
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            if (buffer.remaining() < Integer.BYTES)
+                flush(channel, buffer);
+            int count = Math.min(values.length - done, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, done, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes out and clears the write buffer.
+     *
+     * @param channel the file being written
+     * @param buffer  the write buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,228 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of dense int keys ordered by a double priority, where every key can be
+ * located in O(1) time and have its priority changed in O(log n) time.
+ * All state lives in three flat arrays sized for the largest key, so no objects are created
+ * when keys are added, updated or removed.
+ */
+final class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final double[] priority;
+    private int size = 0;
+    /*
+        Abstraction function:
+            The heap holds the keys heap[0 .. size), key k having the priority priority[k].
+        Rep Invariant:
+            heap.length == position.length == priority.length and 0 <= size <= heap.length.
+            position[heap[i]] == i for every i < size, position[k] == -1 for every key not held.
+            priority[heap[(i - 1) / 2]] <= priority[heap[i]] for every 0 < i < size.
+     */
+
+    /**
+     * Constructs an empty heap for the keys 0 .. capacity - 1.
+     *
+     * @param capacity the number of distinct keys
+     */
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.priority = new double[capacity];
+        Arrays.fill(position, -1);
+
+        checkRep();
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if a key is misplaced or the heap order is violated
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        for (int i = 0; i < size; i++) {
+            if (position[heap[i]] != i)
+                throw new RuntimeException("IndexedMinHeap.position does not locate key " + heap[i]);
+            if (i > 0 && priority[heap[(i - 1) / 2]] > priority[heap[i]])
+                throw new RuntimeException("IndexedMinHeap order violated at " + i);
+        }
+    }
+
+    /**
+     * Returns the number of keys in the heap.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether the heap holds no keys.
+     *
+     * @return true if the heap is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Whether the heap holds a key.
+     *
+     * @param key the key
+     * @return true if the key is in the heap
+     */
+    boolean contains(int key) {
+        return position[key] >= 0;
+    }
+
+    /**
+     * Gets the priority of a key held by the heap.
+     *
+     * @param key the key
+     * @return the priority of the key, or positive infinity if it is not in the heap
+     */
+    double priority(int key) {
+        return position[key] >= 0 ? priority[key] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Gets the key with the smallest priority without removing it.
+     *
+     * @return the first key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    /**
+     * Gets the smallest priority in the heap.
+     *
+     * @return the priority of the first key, or positive infinity if the heap is empty
+     */
+    double peekPriority() {
+        return size == 0 ? Double.POSITIVE_INFINITY : priority[heap[0]];
+    }
+
+    /**
+     * Removes the key with the smallest priority.
+     *
+     * @return the removed key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    int poll() {
+        int key = peek();
+        remove(key);
+        return key;
+    }
+
+    /**
+     * Adds a key, or moves it to a new priority if it is already in the heap.
+     *
+     * @param key   the key
+     * @param value the priority of the key
+     */
+    void put(int key, double value) {
+        int i = position[key];
+        if (i < 0) {
+            i = size++;
+            heap[i] = key;
+            position[key] = i;
+            priority[key] = value;
+            siftUp(i);
+        } else if (value < priority[key]) {
+            priority[key] = value;
+            siftUp(i);
+        } else {
+            priority[key] = value;
+            siftDown(i);
+        }
+
+        checkRep();
+    }
+
+    /**
+     * Removes a key if it is in the heap.
+     *
+     * @param key the key
+     * @return true if the key was removed
+     */
+    boolean remove(int key) {
+        int i = position[key];
+        if (i < 0)
+            return false;
+        position[key] = -1;
+        int last = heap[--size];
+        if (i < size) {
+            heap[i] = last;
+            position[last] = i;
+            siftDown(i);
+            siftUp(position[last]);
+        }
+
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Removes every key. Takes time proportional to the number of keys held.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * Moves the key at a heap slot up until its parent is not larger.
+     *
+     * @param i the heap slot
+     */
+    private void siftUp(int i) {
+        int key = heap[i];
+        double value = priority[key];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priority[heap[parent]] <= value)
+                break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = key;
+        position[key] = i;
+    }
+
+    /**
+     * Moves the key at a heap slot down until no child is smaller.
+     *
+     * @param i the heap slot
+     */
+    private void siftDown(int i) {
+        int key = heap[i];
+        double value = priority[key];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && priority[heap[child + 1]] < priority[heap[child]])
+                child++;
+            if (priority[heap[child]] >= value)
+                break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = key;
+        position[key] = i;
+    }
+}
@@ -1,30 +1,63 @@
 package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
 
 /**
  * The Infection class models the spread of an infection through a graph.
+ * Every phase of a tick is a synchronous update: the node range is split into blocks that
+ * ForkJoin workers update from the current states into the next ones, which are swapped in
+ * once all blocks are done.
+ * Random numbers come from per-block {@link RandomStreams}, so a run is fully determined by its seed.
+ * Blocks also count the state changes they make; the totals update the state counts at the
+ * barrier and are published as a {@link StateCounts} snapshot that can be read at any time.
+ * On graphs with weighted edges an infected node transmits across an edge of weight w with
+ * probability 1 - (1 - f)^w for the force of infection f, and edges with an activity window
+ * only transmit during the ticks inside it.
+ * {@link EventDrivenInfection} simulates the same outbreak in continuous time instead.
+ * Every tick is recorded as a {@link TickEvent} for Flight Recorder, and into {@link TickMetrics}
+ * once they are set, with the time of each phase and the nodes and edges it visited.
  */
-public class Infection {
+public class Infection implements Simulation {
     private Graph graph;
-    private final ExecutorService executor;
+    private final CompactGraph compact;
+    private final NodeStateStore states;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int[] blockInfected;
+    private final int[] blockChanged;
+    private final int[] blockRecovered;
+    private final int[] blockEdges;
+    private final long[] blockAllocated;
+    private RandomStreams random;
+    private final Frontier fresh;
+    private long tickCount = 0;
     private double recoveryRate;
     private double infectionRate;
     private int maxInfectionTime;
 
+    private double initialForceOfInfection;
     private double force_of_infection;
     private double prevForceOfInfection;
     private long prevInfectionCount = 0;
     private long infectionCount = 0;
     private long totalSusceptibleNeighbors = 0;
+    private volatile StateCounts counts;
+    private volatile TickMetrics metrics;
+    private long nodesVisited = 0;
+    private long edgesVisited = 0;
+    private long transitions = 0;
+    private boolean measuringAllocation = false;
+    private long invokeAllocated = 0;
 
     /**
-     * Constructs an Infection model from a CSV file.
+     * Constructs an Infection model from a CSV file with a random seed.
      *
      * @param graph the graph representing the network of nodes
      * @param infectionRate the rate at which nodes become infected
@@ -34,126 +67,505 @@ public class Infection {
      * @param csvFile the path to the CSV file containing the graph data
      */
     public Infection(Graph graph, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime ,String csvFile) {
+        this(graph, infectionRate, recoveryRate, force_of_infection, maxInfectionTime, csvFile, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs an Infection model from a CSV file.
+     * Two models built from the same file, parameters and seed evolve identically.
+     *
+     * @param graph the graph representing the network of nodes
+     * @param infectionRate the rate at which nodes become infected
+     * @param recoveryRate the rate at which nodes recover from infection
+     * @param force_of_infection the initial force of infection
+     * @param maxInfectionTime the maximum time a node can be infected
+     * @param csvFile the path to the CSV file containing the graph data
+     * @param seed the seed of every random decision of the run
+     */
+    public Infection(Graph graph, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime, String csvFile, long seed) {
+        this(load(graph, csvFile), infectionRate, recoveryRate, force_of_infection, maxInfectionTime, seed);
+    }
+
+    /**
+     * Constructs an Infection model on a topology that has already been loaded.
+     * The model gets its own Graph view, so any number of models can share one CompactGraph.
+     *
+     * @param topology the immutable network of nodes
+     * @param infectionRate the rate at which nodes become infected
+     * @param recoveryRate the rate at which nodes recover from infection
+     * @param force_of_infection the initial force of infection
+     * @param maxInfectionTime the maximum time a node can be infected
+     * @param seed the seed of every random decision of the run
+     */
+    public Infection(CompactGraph topology, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime, long seed) {
+        this(new Graph(topology), infectionRate, recoveryRate, force_of_infection, maxInfectionTime, seed, null);
+    }
+
+    /**
+     * Constructs an Infection model on a topology that has already been loaded, ticking on a shared pool.
+     * Models running on the same pool as their caller nest their block tasks into it, so an
+     * ensemble of models can share one pool without oversubscribing the cores.
+     *
+     * @param topology the immutable network of nodes
+     * @param infectionRate the rate at which nodes become infected
+     * @param recoveryRate the rate at which nodes recover from infection
+     * @param force_of_infection the initial force of infection
+     * @param maxInfectionTime the maximum time a node can be infected
+     * @param seed the seed of every random decision of the run
+     * @param pool the pool to run ticks on, which {@link #shutdown()} leaves running
+     */
+    public Infection(CompactGraph topology, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime, long seed, ForkJoinPool pool) {
+        this(new Graph(topology), infectionRate, recoveryRate, force_of_infection, maxInfectionTime, seed, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * Constructs an Infection model on a graph that has already been loaded.
+     * The graph is frozen if it is not yet, and its node states are bound to this model, so a
+     * graph must not be shared between models.
+     *
+     * @param graph the graph representing the network of nodes
+     * @param infectionRate the rate at which nodes become infected
+     * @param recoveryRate the rate at which nodes recover from infection
+     * @param force_of_infection the initial force of infection
+     * @param maxInfectionTime the maximum time a node can be infected
+     * @param seed the seed of every random decision of the run
+     */
+    public Infection(Graph graph, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime, long seed) {
+        this(graph, infectionRate, recoveryRate, force_of_infection, maxInfectionTime, seed, null);
+    }
+
+    /**
+     * Constructs an Infection model on a graph that has already been loaded.
+     *
+     * @param graph the graph representing the network of nodes
+     * @param infectionRate the rate at which nodes become infected
+     * @param recoveryRate the rate at which nodes recover from infection
+     * @param force_of_infection the initial force of infection
+     * @param maxInfectionTime the maximum time a node can be infected
+     * @param seed the seed of every random decision of the run
+     * @param pool the shared pool to run ticks on, or null to create one owned by this model
+     */
+    private Infection(Graph graph, double infectionRate, double recoveryRate, double force_of_infection, int maxInfectionTime, long seed, ForkJoinPool pool) {
         this.graph = graph;
         this.infectionRate = infectionRate;
         this.recoveryRate = recoveryRate;
-        this.prevForceOfInfection = force_of_infection;
-        this.force_of_infection = force_of_infection;
+        this.initialForceOfInfection = force_of_infection;
         this.maxInfectionTime = maxInfectionTime;
-        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        // Create infection model from csv file
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
-                }
-                String[] values = line.split(";");
-                if (values.length < 2) {
-                    System.err.println("Invalid line format: " + line);
-                    continue; // Skip invalid lines
-                }
-                String parent = values[0];
-                Node parentNode = graph.getNode(parent);
-                // infect the node based on the infection rate
-                if (parentNode == null) {
-                    parentNode = new Node(parent, Math.random() < infectionRate ? NodeState.INFECTED : NodeState.SUSCEPTIBLE);
-                    graph.addNode(parentNode);
-                    infectionCount++;
-                }
-                for (int i = 1; i < values.length; i++) {
-                    String child = values[i];
-                    Node childNode = graph.getNode(child);
-                    // infect the node based on the infection rate
-                    if (childNode == null) {
-                        childNode = new Node(child, Math.random() < infectionRate ? NodeState.INFECTED : NodeState.SUSCEPTIBLE);
-                        graph.addNode(childNode);
-                    }
-                    graph.addEdge(parentNode, childNode, "edge");
-                }
-            }
+        this.ownsPool = pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : pool;
+        // Freeze the loaded graph so ticks can walk the compact adjacency arrays directly
+        this.compact = graph.freeze();
+        this.states = new NodeStateStore(compact.size());
+        graph.bindStates(states);
+        this.blockInfected = new int[BlockTask.blockCount(compact.size())];
+        this.blockChanged = new int[blockInfected.length];
+        this.blockRecovered = new int[blockInfected.length];
+        this.blockEdges = new int[blockInfected.length];
+        this.blockAllocated = new long[blockInfected.length];
+        this.fresh = new Frontier(compact.size());
+
+        reset(seed);
+    }
+
+    /**
+     * Loads a CSV file into a graph, reporting but otherwise ignoring read errors.
+     *
+     * @param graph the empty graph to load into
+     * @param csvFile the path to the CSV file containing the graph data
+     * @return the graph
+     */
+    private static Graph load(Graph graph, String csvFile) {
+        try {
+            graph.load(GraphLoader.load(csvFile));
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return graph;
+    }
+
+    /**
+     * Restarts the run from tick 0 with a new seed, without touching the topology.
+     * Every node is made susceptible again and then infected based on the infection rate, and
+     * the force of infection goes back to its initial value. Takes O(n) time.
+     *
+     * @param seed the seed of every random decision of the new run
+     */
+    @Override
+    public synchronized void reset(long seed) {
+        random = new RandomStreams(seed);
+        tickCount = 0;
+        force_of_infection = initialForceOfInfection;
+        prevForceOfInfection = initialForceOfInfection;
+        prevInfectionCount = 0;
+        infectionCount = 0;
+        totalSusceptibleNeighbors = 0;
+        states.clear();
+        fresh.clear();
+
+        // infect the nodes based on the infection rate
+        pool.invoke(new BlockTask(this::seedBlock, 0, blockInfected.length));
+        for (int infected : blockInfected)
+            infectionCount += infected;
+        states.transfer(NodeStateStore.SUSCEPTIBLE, NodeStateStore.INFECTED, infectionCount);
+        counts = StateCounts.of(tickCount, states);
+    }
+
+    /**
+     * Stops the worker threads of this model, unless they belong to a shared pool.
+     * The model must not be ticked afterwards.
+     */
+    @Override
+    public void shutdown() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /**
+     * Assigns the initial state of every node of one block based on the infection rate.
+     *
+     * @param block the block to seed
+     */
+    private void seedBlock(int block) {
+        SplittableRandom rng = random.stream(0, RandomStreams.SEED_PHASE, block);
+        byte[] state = states.states();
+        byte[] next = states.nextStates();
+        int infected = 0;
+
+        int end = Math.min(states.size(), (block + 1) * BlockTask.BLOCK_SIZE);
+        for (int i = block * BlockTask.BLOCK_SIZE; i < end; i++) {
+            if (rng.nextDouble() < infectionRate) {
+                state[i] = NodeStateStore.INFECTED;
+                next[i] = NodeStateStore.INFECTED;
+                states.infected().add(i);
+                infected++;
+            }
+        }
+        blockInfected[block] = infected;
     }
 
     /**
      * Infects susceptible neighbors of infected nodes.
+     * Only the frontier of infected nodes and their neighbors is visited. Neighbor states are
+     * read from the current buffer while new infections go to the next one, so the result does
+     * not depend on the order the blocks are processed in.
      */
     public synchronized void infect() {
-        int totalInfected = 0;
+        invokeBlocks(this::infectBlock);
+        states.swap();
+        invokeBlocks(this::commitBlock);
+
+        long totalInfected = 0;
         totalSusceptibleNeighbors = 0;
-        for (Node node : graph.getNodes()) {
-            // if infected node, grab neighbors and infect based on force of infection
-            if (node.getState() == NodeState.INFECTED) {
-                totalInfected++;
-                for (Edge edge : node.getChildren()) {
-                    Node child = edge.getChild();
-                    if (child.getState() == NodeState.SUSCEPTIBLE && Math.random() < force_of_infection) {
-                        totalSusceptibleNeighbors++;
-                        executor.submit(() -> {
-                            synchronized (child) {
-                                infectionCount++;
-                                child.setState(NodeState.INFECTED);
-                                child.updateInfectedTime();
-                            }
-                        });
-                    }
-                }
-            }
+        for (int block = 0; block < blockInfected.length; block++) {
+            totalInfected += blockInfected[block];
+            totalSusceptibleNeighbors += blockChanged[block];
+            edgesVisited += blockEdges[block];
         }
+        nodesVisited += totalInfected;
+        transitions += totalSusceptibleNeighbors;
+        infectionCount += totalSusceptibleNeighbors;
+        states.transfer(NodeStateStore.SUSCEPTIBLE, NodeStateStore.INFECTED, totalSusceptibleNeighbors);
 
         if (totalInfected > 0) {
             force_of_infection = (double) totalSusceptibleNeighbors / totalInfected;
         } else {
             force_of_infection = 0;
         }
+        counts = StateCounts.of(tickCount, states);
+    }
+
+    /**
+     * Lets the infected nodes of one block infect their susceptible neighbors.
+     * Neighbors may lie in any block, so the next state is claimed with a compare-and-set and
+     * only the winning worker counts the infection.
+     * Per-edge probabilities of weighted graphs are derived from a single logarithm of the
+     * escape probability 1 - f, taken once per block.
+     *
+     * @param block the block whose infected nodes spread the infection
+     */
+    private void infectBlock(int block) {
+        long[] active = states.infected().words();
+        int[] offsets = compact.offsets();
+        int[] neighbors = compact.neighbors();
+        float[] weights = compact.weights();
+        int[] activeFrom = compact.activeFrom();
+        int[] activeUntil = compact.activeUntil();
+        // a force of 1 or more makes every contact of positive weight certain
+        double logEscape = force_of_infection >= 1 ? Double.NEGATIVE_INFINITY : Math.log1p(-force_of_infection);
+        byte[] state = states.states();
+        int[] timeInfected = states.timeInfected();
+        int endWord = states.infected().endWord(block);
+        int infected = 0;
+        int newlyInfected = 0;
+        int edges = 0;
+        SplittableRandom rng = null;
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = active[w];
+            if (bits == 0)
+                continue;
+            if (rng == null)
+                rng = random.stream(tickCount, RandomStreams.INFECT_PHASE, block);
+            infected += Long.bitCount(bits);
+            for (; bits != 0; bits &= bits - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+                edges += offsets[node + 1] - offsets[node];
+                // grab neighbors and infect based on force of infection
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    int child = neighbors[e];
+                    if (state[child] != NodeStateStore.SUSCEPTIBLE
+                            || (activeFrom != null && (tickCount < activeFrom[e] || tickCount >= activeUntil[e])))
+                        continue;
+                    // a zero weight times an infinite logarithm gives NaN, which never passes the draw
+                    double chance = weights == null ? force_of_infection : -Math.expm1(weights[e] * logEscape);
+                    if (rng.nextDouble() < chance
+                            && states.compareAndSetNext(child, NodeStateStore.SUSCEPTIBLE, NodeStateStore.INFECTED)) {
+                        timeInfected[child] = 1;
+                        fresh.add(child);
+                        newlyInfected++;
+                    }
+                }
+            }
+        }
+        blockInfected[block] = infected;
+        blockChanged[block] = newlyInfected;
+        blockEdges[block] = edges;
+    }
+
+    /**
+     * Brings one block of the buffers and the frontier up to date after an infection pass.
+     * The nodes infected in the pass are copied into the new next buffer and join the frontier.
+     *
+     * @param block the block to commit
+     */
+    private void commitBlock(int block) {
+        long[] added = fresh.words();
+        long[] active = states.infected().words();
+        byte[] next = states.nextStates();
+        int endWord = fresh.endWord(block);
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = added[w];
+            if (bits == 0)
+                continue;
+            added[w] = 0;
+            active[w] |= bits;
+            for (; bits != 0; bits &= bits - 1)
+                next[(w << 6) + Long.numberOfTrailingZeros(bits)] = NodeStateStore.INFECTED;
+        }
     }
 
     /**
      * Recovers or kills infected nodes based on the recovery rate and maximum infection time.
+     * Only the frontier of infected nodes is visited.
      */
     public synchronized void recover() {
-        for (Node node : graph.getNodes()) {
-            executor.submit(() -> {
-                // if infected node, recover or kill based on time infected and recovery rate
-                if (node.getState() == NodeState.INFECTED) {
-                    if (node.getTimeInfected() == maxInfectionTime && Math.random() < recoveryRate) {
-                        synchronized (node) {
-                            node.setState(NodeState.RECOVERED);
-                            infectionCount--;
-                        }
-                    }
-                    else if (node.getTimeInfected() == maxInfectionTime) {
-                        synchronized (node) {
-                            node.setState(NodeState.DEAD);
-                            infectionCount--;
-                        }
-                    }
-                    else synchronized (node) {
-                            node.updateInfectedTime();
-                        }
+        nodesVisited += states.infectedCount();
+        invokeBlocks(this::recoverBlock);
+
+        long removed = 0;
+        long recovered = 0;
+        for (int block = 0; block < blockChanged.length; block++) {
+            removed += blockChanged[block];
+            recovered += blockRecovered[block];
+        }
+        infectionCount -= removed;
+        transitions += removed;
+        states.transfer(NodeStateStore.INFECTED, NodeStateStore.RECOVERED, recovered);
+        states.transfer(NodeStateStore.INFECTED, NodeStateStore.DEAD, removed - recovered);
+        counts = StateCounts.of(tickCount, states);
+    }
+
+    /**
+     * Updates the infected nodes of one block during the recovery phase.
+     * A node's recovery only depends on its own state, so both buffers are written in place.
+     *
+     * @param block the block to update
+     */
+    private void recoverBlock(int block) {
+        long[] active = states.infected().words();
+        byte[] state = states.states();
+        byte[] next = states.nextStates();
+        int[] timeInfected = states.timeInfected();
+        int endWord = states.infected().endWord(block);
+        int removed = 0;
+        int recovered = 0;
+        SplittableRandom rng = null;
+
+        for (int w = Frontier.firstWord(block); w < endWord; w++) {
+            long bits = active[w];
+            if (bits == 0)
+                continue;
+            if (rng == null)
+                rng = random.stream(tickCount, RandomStreams.RECOVER_PHASE, block);
+            for (long left = bits; left != 0; left &= left - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(left);
+                // recover or kill based on time infected and recovery rate
+                if (timeInfected[node] >= maxInfectionTime) {
+                    byte outcome = rng.nextDouble() < recoveryRate ? NodeStateStore.RECOVERED : NodeStateStore.DEAD;
+                    state[node] = outcome;
+                    next[node] = outcome;
+                    bits &= ~(1L << node);
+                    removed++;
+                    if (outcome == NodeStateStore.RECOVERED)
+                        recovered++;
+                } else {
+                    timeInfected[node]++;
                 }
-            });
+            }
+            active[w] = bits;
+        }
+        blockChanged[block] = removed;
+        blockRecovered[block] = recovered;
+    }
+
+    /**
+     * Runs a body for every block on the pool. While a tick's allocation is measured, every block
+     * adds what its thread allocated running it to {@link #blockAllocated}, and the allocation of
+     * the ticking thread while it waits is left out of its own count, since it may run tasks of
+     * other models meanwhile.
+     *
+     * @param body the work to do for one block, given the block number
+     */
+    private void invokeBlocks(IntConsumer body) {
+        if (!measuringAllocation) {
+            pool.invoke(new BlockTask(body, 0, blockInfected.length));
+            return;
         }
+        long before = TickMetrics.threadAllocatedBytes();
+        pool.invoke(new BlockTask(block -> {
+            long start = TickMetrics.threadAllocatedBytes();
+            body.accept(block);
+            blockAllocated[block] += TickMetrics.threadAllocatedBytes() - start;
+        }, 0, blockInfected.length));
+        invokeAllocated += TickMetrics.threadAllocatedBytes() - before;
     }
 
     /**
      * Advances the infection model by one tick, updating the infection and recovery states.
+     * The tick is timed and recorded if metrics are set or Flight Recorder is recording it.
+     * Its allocation is the sum of what the ticking thread and the workers allocated for this
+     * model, so models ticking at the same time do not count each other's.
      */
+    @Override
     public synchronized void tick() {
+        TickEvent event = new TickEvent();
+        TickMetrics recorder = metrics;
+        boolean measured = recorder != null || event.isEnabled();
+        int queueDepth = 0;
+        long allocated = 0;
+        if (measured) {
+            queueDepth = (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+            allocated = TickMetrics.threadAllocatedBytes();
+            measuringAllocation = allocated >= 0;
+            invokeAllocated = 0;
+            Arrays.fill(blockAllocated, 0);
+        }
+        nodesVisited = 0;
+        edgesVisited = 0;
+        transitions = 0;
+
+        event.begin();
+        long start = System.nanoTime();
         prevForceOfInfection = force_of_infection;
         prevInfectionCount = infectionCount;
         infect();
+        long infected = System.nanoTime();
         recover();
+        long recovered = System.nanoTime();
         updateForceOfInfection();
+        long end = System.nanoTime();
+        event.end();
+        tickCount++;
+        counts = StateCounts.of(tickCount, states);
+        if (!measured)
+            return;
+
+        // a JVM that does not measure allocation reports -1 before and after
+        if (measuringAllocation) {
+            measuringAllocation = false;
+            allocated = TickMetrics.threadAllocatedBytes() - allocated - invokeAllocated;
+            for (long blockBytes : blockAllocated)
+                allocated += blockBytes;
+        }
+        if (recorder != null) {
+            recorder.recordPhase(TickMetrics.Phase.INFECT, infected - start);
+            recorder.recordPhase(TickMetrics.Phase.RECOVER, recovered - infected);
+            recorder.recordPhase(TickMetrics.Phase.FORCE_UPDATE, end - recovered);
+            recorder.recordTick(end - start, nodesVisited, edgesVisited, transitions, queueDepth, allocated);
+        }
+        if (event.shouldCommit()) {
+            event.tick = tickCount;
+            event.infectDuration = infected - start;
+            event.recoverDuration = recovered - infected;
+            event.forceUpdateDuration = end - recovered;
+            event.nodesVisited = nodesVisited;
+            event.edgesVisited = edgesVisited;
+            event.transitions = transitions;
+            event.queueDepth = queueDepth;
+            event.allocated = Math.max(0, allocated);
+            event.commit();
+        }
+    }
+
+    /**
+     * Sets the metrics every following tick is recorded into. Any number of models may share them.
+     *
+     * @param metrics the metrics, or null to stop recording
+     */
+    public void setMetrics(TickMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
      * Updates the force of infection based on the current and previous infection states.
      */
     public synchronized void updateForceOfInfection() {
-        force_of_infection = (double) (prevForceOfInfection * prevInfectionCount + totalSusceptibleNeighbors) / infectionCount;
+        if (infectionCount == 0) {
+            force_of_infection = 0;
+            return;
+        }
+        force_of_infection = (prevForceOfInfection * prevInfectionCount + totalSusceptibleNeighbors) / infectionCount;
+    }
+
+    /**
+     * Takes a checkpoint of the run between two ticks. Only copies the node arrays, which takes
+     * O(n) time, so the checkpoint can be written by another thread while the run goes on.
+     *
+     * @return a copy of the full dynamic state of the run
+     */
+    public synchronized InfectionCheckpoint checkpoint() {
+        return new InfectionCheckpoint(compact.fingerprint(), tickCount, random.getSeed(), infectionRate,
+                recoveryRate, maxInfectionTime, initialForceOfInfection, force_of_infection, prevForceOfInfection,
+                prevInfectionCount, infectionCount, totalSusceptibleNeighbors, states.states().clone(),
+                states.timeInfected().clone());
+    }
+
+    /**
+     * Resumes a run from a checkpoint taken on the same graph. Ticking on afterwards gives the
+     * same states as the run the checkpoint was taken from. Takes O(n) time.
+     *
+     * @param checkpoint the checkpoint to resume from
+     * @return true if the checkpoint was restored, false if it belongs to another graph
+     */
+    public synchronized boolean restore(InfectionCheckpoint checkpoint) {
+        if (!checkpoint.belongsTo(compact))
+            return false;
+        random = new RandomStreams(checkpoint.seed);
+        tickCount = checkpoint.tick;
+        infectionRate = checkpoint.infectionRate;
+        recoveryRate = checkpoint.recoveryRate;
+        maxInfectionTime = checkpoint.maxInfectionTime;
+        initialForceOfInfection = checkpoint.initialForceOfInfection;
+        force_of_infection = checkpoint.forceOfInfection;
+        prevForceOfInfection = checkpoint.prevForceOfInfection;
+        prevInfectionCount = checkpoint.prevInfectionCount;
+        infectionCount = checkpoint.infectionCount;
+        totalSusceptibleNeighbors = checkpoint.totalSusceptibleNeighbors;
+        fresh.clear();
+        states.restore(checkpoint.states, checkpoint.timeInfected);
+        counts = StateCounts.of(tickCount, states);
+        return true;
     }
 
     /**
@@ -174,12 +586,109 @@ public class Infection {
         this.recoveryRate = recoveryRate;
     }
 
+    /**
+     * Sets the rate at which nodes are infected when the run is reset.
+     *
+     * @param infectionRate the new infection rate, used from the next {@link #reset(long)}
+     */
+    public void setInfectionRate(double infectionRate) {
+        this.infectionRate = infectionRate;
+    }
+
+    /**
+     * Sets the force of infection a run starts with. The current run keeps its own force of
+     * infection, which {@link #getForceOfInfection()} reports until the next reset.
+     *
+     * @param force_of_infection the new initial force of infection, used from the next {@link #reset(long)}
+     */
+    public void setForceOfInfection(double force_of_infection) {
+        this.initialForceOfInfection = force_of_infection;
+    }
+
+    /**
+     * Gets the rate at which nodes are infected when the run starts.
+     *
+     * @return the infection rate
+     */
+    public double getInfectionRate() {
+        return infectionRate;
+    }
+
+    /**
+     * Gets the recovery rate for nodes.
+     *
+     * @return the recovery rate
+     */
+    public double getRecoveryRate() {
+        return recoveryRate;
+    }
+
+    /**
+     * Gets the maximum infection time for nodes.
+     *
+     * @return the maximum infection time
+     */
+    public int getMaxInfectionTime() {
+        return maxInfectionTime;
+    }
+
+    /**
+     * Gets the current force of infection.
+     *
+     * @return the force of infection
+     */
+    public double getForceOfInfection() {
+        return force_of_infection;
+    }
+
     /**
      * Gets the graph representing the network of nodes.
      *
      * @return the graph
      */
+    @Override
     public Graph getGraph() {
         return graph;
     }
+
+    /**
+     * Gets the seed this run was started with.
+     *
+     * @return the run seed
+     */
+    @Override
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Gets the number of ticks run so far.
+     *
+     * @return the number of completed ticks
+     */
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the number of nodes in every state as of the last completed phase.
+     * Takes O(1) time and does not wait for a tick in progress, so monitoring threads can poll it freely.
+     *
+     * @return the latest state counts
+     */
+    @Override
+    public StateCounts getStateCounts() {
+        return counts;
+    }
+
+    /**
+     * Gets the store holding the state of every node.
+     *
+     * @return the node state store
+     */
+    @Override
+    public NodeStateStore getStates() {
+        return states;
+    }
 }
\ No newline at end of file
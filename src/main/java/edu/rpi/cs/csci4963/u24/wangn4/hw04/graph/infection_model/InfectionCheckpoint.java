@@ -0,0 +1,259 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The full dynamic state of an {@link Infection} run between two ticks, from which the run can be
+ * resumed exactly: restoring it and ticking on gives the same states as never having stopped,
+ * since every random number of a tick is drawn from streams keyed by the run seed and the tick.
+ * <p>
+ * A checkpoint holds its own copies of the node arrays, so it can be written by another thread
+ * while the run goes on. Files are little endian: the magic {@code "EPCK"}, the format version,
+ * the number of nodes n, the maximum infection time, the fingerprint of the graph, the tick, the
+ * seed, the three infection counters and the five rates of the run, then the n state codes as
+ * bytes and the n infection times as ints, and finally a long CRC-32 of everything before it.
+ * Files are written next to their destination and moved over it, so a crash while writing leaves
+ * the previous checkpoint intact.
+ */
+public final class InfectionCheckpoint {
+    /**
+     * The extension added to a graph file name to get the name of its checkpoint.
+     */
+    public static final String EXTENSION = ".checkpoint";
+
+    private static final int MAGIC = 'E' | 'P' << 8 | 'C' << 16 | 'K' << 24;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 6 * Long.BYTES + 5 * Double.BYTES;
+    /**
+     * The size of the buffer the node arrays are copied through.
+     */
+    private static final int CHUNK = 1 << 20;
+
+    final long fingerprint;
+    final long tick;
+    final long seed;
+    final double infectionRate;
+    final double recoveryRate;
+    final int maxInfectionTime;
+    final double initialForceOfInfection;
+    final double forceOfInfection;
+    final double prevForceOfInfection;
+    final long prevInfectionCount;
+    final long infectionCount;
+    final long totalSusceptibleNeighbors;
+    final byte[] states;
+    final int[] timeInfected;
+
+    /**
+     * Creates a checkpoint. The arrays are kept, so the caller must pass copies.
+     *
+     * @param fingerprint               the fingerprint of the graph
+     * @param tick                      the number of completed ticks
+     * @param seed                      the seed of the run
+     * @param infectionRate             the infection rate
+     * @param recoveryRate              the recovery rate
+     * @param maxInfectionTime          the maximum infection time
+     * @param initialForceOfInfection   the force of infection the run started with
+     * @param forceOfInfection          the current force of infection
+     * @param prevForceOfInfection      the force of infection before the last tick
+     * @param prevInfectionCount        the number of infected nodes before the last tick
+     * @param infectionCount            the number of infected nodes
+     * @param totalSusceptibleNeighbors the number of nodes infected in the last tick
+     * @param states                    the state code of every node
+     * @param timeInfected              the infection time of every node
+     */
+    InfectionCheckpoint(long fingerprint, long tick, long seed, double infectionRate, double recoveryRate,
+                        int maxInfectionTime, double initialForceOfInfection, double forceOfInfection,
+                        double prevForceOfInfection, long prevInfectionCount, long infectionCount,
+                        long totalSusceptibleNeighbors, byte[] states, int[] timeInfected) {
+        this.fingerprint = fingerprint;
+        this.tick = tick;
+        this.seed = seed;
+        this.infectionRate = infectionRate;
+        this.recoveryRate = recoveryRate;
+        this.maxInfectionTime = maxInfectionTime;
+        this.initialForceOfInfection = initialForceOfInfection;
+        this.forceOfInfection = forceOfInfection;
+        this.prevForceOfInfection = prevForceOfInfection;
+        this.prevInfectionCount = prevInfectionCount;
+        this.infectionCount = infectionCount;
+        this.totalSusceptibleNeighbors = totalSusceptibleNeighbors;
+        this.states = states;
+        this.timeInfected = timeInfected;
+    }
+
+    /**
+     * Gets the number of ticks the run had completed.
+     *
+     * @return the tick of the checkpoint
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the seed of the run.
+     *
+     * @return the run seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Tells whether this checkpoint was taken on a graph.
+     *
+     * @param graph the graph
+     * @return true if the graph has the size and fingerprint of the checkpointed one
+     */
+    public boolean belongsTo(CompactGraph graph) {
+        return graph.size() == states.length && graph.fingerprint() == fingerprint;
+    }
+
+    /**
+     * Writes this checkpoint, replacing the file only once it is complete.
+     *
+     * @param path the checkpoint file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Path partial = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(states.length).putInt(maxInfectionTime)
+                    .putLong(fingerprint).putLong(tick).putLong(seed)
+                    .putLong(prevInfectionCount).putLong(infectionCount).putLong(totalSusceptibleNeighbors)
+                    .putDouble(infectionRate).putDouble(recoveryRate).putDouble(initialForceOfInfection)
+                    .putDouble(forceOfInfection).putDouble(prevForceOfInfection);
+            writeFully(channel, header.flip(), checksum);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            for (int from = 0; from < states.length; from += CHUNK) {
+                chunk.clear();
+                chunk.put(states, from, Math.min(CHUNK, states.length - from));
+                writeFully(channel, chunk.flip(), checksum);
+            }
+            int perChunk = CHUNK / Integer.BYTES;
+            for (int from = 0; from < timeInfected.length; from += perChunk) {
+                int count = Math.min(perChunk, timeInfected.length - from);
+                chunk.clear();
+                chunk.asIntBuffer().put(timeInfected, from, count);
+                writeFully(channel, chunk.limit(count * Integer.BYTES), checksum);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeFully(channel, trailer.putLong(checksum.getValue()).flip(), new CRC32());
+            channel.force(false);
+        }
+        try {
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint, if it was taken on a graph. Takes O(n) time.
+     *
+     * @param path  the checkpoint file
+     * @param graph the graph the checkpoint should belong to
+     * @return the checkpoint, or null if the file does not exist or belongs to another graph
+     * @throws IOException if the file cannot be read, is not a checkpoint or is corrupted
+     */
+    public static InfectionCheckpoint read(Path path, CompactGraph graph) throws IOException {
+        if (!path.toFile().isFile())
+            return null;
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, checksum);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a simulation checkpoint: " + path);
+            int size = header.getInt();
+            int maxInfectionTime = header.getInt();
+            long fingerprint = header.getLong();
+            if (size != graph.size() || fingerprint != graph.fingerprint())
+                return null;
+            long tick = header.getLong(), seed = header.getLong();
+            long prevInfectionCount = header.getLong(), infectionCount = header.getLong();
+            long totalSusceptibleNeighbors = header.getLong();
+            double infectionRate = header.getDouble(), recoveryRate = header.getDouble();
+            double initialForceOfInfection = header.getDouble(), forceOfInfection = header.getDouble();
+            double prevForceOfInfection = header.getDouble();
+
+            byte[] states = new byte[size];
+            int[] timeInfected = new int[size];
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            for (int from = 0; from < size; from += CHUNK) {
+                chunk.clear().limit(Math.min(CHUNK, size - from));
+                readFully(channel, chunk, checksum);
+                chunk.flip().get(states, from, chunk.limit());
+            }
+            int perChunk = CHUNK / Integer.BYTES;
+            for (int from = 0; from < size; from += perChunk) {
+                int count = Math.min(perChunk, size - from);
+                chunk.clear().limit(count * Integer.BYTES);
+                readFully(channel, chunk, checksum);
+                chunk.flip().asIntBuffer().get(timeInfected, from, count);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, trailer, new CRC32());
+            if (trailer.getLong(0) != checksum.getValue())
+                throw new IOException("Corrupted simulation checkpoint: " + path);
+            return new InfectionCheckpoint(fingerprint, tick, seed, infectionRate, recoveryRate, maxInfectionTime,
+                    initialForceOfInfection, forceOfInfection, prevForceOfInfection, prevInfectionCount,
+                    infectionCount, totalSusceptibleNeighbors, states, timeInfected);
+        }
+    }
+
+    /**
+     * Writes a whole buffer to a channel and adds it to a checksum.
+     *
+     * @param channel  the channel to write
+     * @param buffer   the bytes to write
+     * @param checksum the checksum to update
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Reads from a channel until a buffer is full and adds what was read to a checksum.
+     *
+     * @param channel  the channel to read
+     * @param buffer   the buffer to fill
+     * @param checksum the checksum to update
+     * @throws IOException if the channel ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("Truncated simulation checkpoint");
+        }
+        checksum.update(buffer.duplicate().flip().position(start));
+    }
+}
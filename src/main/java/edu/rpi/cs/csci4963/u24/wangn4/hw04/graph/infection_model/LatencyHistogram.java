@@ -0,0 +1,157 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative durations in nanoseconds with log-linear buckets, in the style of
+ * HdrHistogram: values below 128 get a bucket each, and every power of two above that is split
+ * into 64 buckets, so any recorded value is reported within 1/64 of itself whatever its
+ * magnitude. The whole range of a long fits in a fixed 29 KB of counters, and recording is a
+ * few shifts and atomic additions, cheap enough to time every phase of every tick.
+ * Any number of threads may record and read at the same time; a read taken while others record
+ * may miss their latest values but never sees a count that was not recorded.
+ */
+public final class LatencyHistogram {
+    /**
+     * The number of sub-buckets each power of two above the linear range is split into.
+     */
+    private static final int SUB_BUCKETS = 64;
+    /**
+     * The values recorded exactly, one bucket each.
+     */
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (Long.SIZE - 8) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    /*
+        Abstraction function:
+            counts[b] values lie in the range of bucket b, count values were recorded in total,
+            adding up to sum, the largest of which was max.
+        Rep Invariant:
+            counts has BUCKETS entries, all non-negative; count, sum and max are non-negative.
+     */
+
+    /**
+     * Records a duration. Negative durations, e.g. from a clock going backwards, count as 0.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the sum of the recorded durations.
+     *
+     * @return the total in nanoseconds
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Gets the longest recorded duration.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded durations.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Gets the duration below or at which a fraction of the recorded durations lie.
+     * Takes time proportional to the number of buckets.
+     *
+     * @param quantile the fraction, from 0 to 1
+     * @return the highest value of the bucket the quantile falls in, at most the maximum, in
+     * nanoseconds, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the quantile is not in [0, 1]
+     */
+    public long getValueAtQuantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1))
+            throw new IllegalArgumentException("The quantile must lie in [0, 1]: " + quantile);
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+            total += snapshot[b];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += snapshot[b];
+            if (seen >= rank)
+                return Math.min(highestValue(b), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded duration. Durations recorded at the same time may be partly kept.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++)
+            counts.set(b, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Gets the bucket a value falls in.
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < LINEAR)
+            return (int) value;
+        // shift so the value keeps its top 7 bits, the highest of which is always set
+        int shift = Long.SIZE - 7 - Long.numberOfLeadingZeros(value);
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Gets the highest value that falls in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the highest value of its range
+     */
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR)
+            return bucket;
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long top = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        // the end of the last bucket overflows to the smallest long, one past the largest
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves {@link TickMetrics} in the Prometheus text format at {@code /metrics}.
+ * The server only listens on the loopback interface, so the metrics are visible to a scraper or
+ * a tunnel on the same machine but not to the network.
+ */
+public final class MetricsServer implements AutoCloseable {
+    /**
+     * The path the metrics are served at.
+     */
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final TickMetrics metrics;
+
+    /**
+     * Starts serving metrics.
+     *
+     * @param metrics the metrics to serve
+     * @param port    the port to listen on, or 0 for any free port
+     * @param io      the executor handling the requests
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsServer(TickMetrics metrics, int port, ExecutorService io) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(io);
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers one scrape.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder(4096);
+            metrics.writePrometheus(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Stops the server, letting a scrape in progress finish.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -1,5 +1,6 @@
 package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -13,6 +14,8 @@ public class Node {
     private int hash = -1;
     private final String id;
     private int timeInfected = 0;
+    private Graph graph;
+    private int index = -1;
 
     /**
      * Constructs an instance of Node with the provided data.
@@ -28,6 +31,39 @@ public class Node {
     }
 
 
+    /**
+     * Binds this node to the dense index it was given when its graph was frozen.
+     * The node's own edge list is released since edges are then read from the compact graph.
+     *
+     * @param graph the frozen graph owning this node
+     * @param index the index of this node within the graph's compact form
+     */
+    synchronized void bind(Graph graph, int index) {
+        this.graph = graph;
+        this.index = index;
+        childrenList.clear();
+        if (childrenList instanceof ArrayList<Edge> list)
+            list.trimToSize();
+    }
+
+    /**
+     * Gets the frozen graph this node belongs to.
+     *
+     * @return the graph or null if the node has not been frozen into one
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the dense index of this node within its frozen graph.
+     *
+     * @return the index or -1 if the node has not been frozen into a graph
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * Gets the id of this node.
      *
@@ -41,7 +77,8 @@ public class Node {
      *
      */
     public int getTimeInfected() {
-        return timeInfected;
+        NodeStateStore store = states();
+        return store == null ? timeInfected : store.getTimeInfected(index);
     }
 
     /**
@@ -50,7 +87,8 @@ public class Node {
      * @return the data contained within this node
      */
     public NodeState getState() {
-        return state;
+        NodeStateStore store = states();
+        return store == null ? state : store.getState(index);
     }
 
     /**
@@ -62,9 +100,29 @@ public class Node {
 
     /**
      * Gets the children of this node.
+     * For a node of a frozen graph this is a read-only view of the compact graph whose edges are created as they are read.
      */
     public List<Edge> getChildren() {
-        return childrenList;
+        if (graph == null)
+            return childrenList;
+
+        CompactGraph compact = graph.getCompactGraph();
+        int start = compact.offsets()[index];
+        int degree = compact.degree(index);
+        int[] neighbors = compact.neighbors();
+        // a view over the adjacency range; edges are created as they are read
+        return new AbstractList<>() {
+            @Override
+            public Edge get(int i) {
+                Objects.checkIndex(i, degree);
+                return new Edge(Node.this, graph.getNode(neighbors[start + i]), "edge", compact.weight(start + i));
+            }
+
+            @Override
+            public int size() {
+                return degree;
+            }
+        };
     }
 
     /**
@@ -73,7 +131,7 @@ public class Node {
      */
     public synchronized void setData(NodeState state) {
         Objects.requireNonNull(state);
-        this.state = state;
+        setState(state);
         hash = -1;
     }
 
@@ -83,14 +141,31 @@ public class Node {
      * @param state The new state of the node
      */
     public synchronized void setState(NodeState state) {
-        this.state = state;
+        NodeStateStore store = states();
+        if (store == null)
+            this.state = state;
+        else
+            store.setState(index, state);
     }
 
     /**
      * Update timeInfected.
      */
     public synchronized void updateInfectedTime() {
-        timeInfected++;
+        NodeStateStore store = states();
+        if (store == null)
+            timeInfected++;
+        else
+            store.updateInfectedTime(index);
+    }
+
+    /**
+     * The state store backing this node, if its graph has one bound.
+     *
+     * @return the store or null if this node keeps its own state
+     */
+    private NodeStateStore states() {
+        return graph == null ? null : graph.getStates();
     }
 
     /**
@@ -99,19 +174,20 @@ public class Node {
      * @param child the node to add to the children
      */
     public synchronized void addChild(Edge child) {
-        if (child == null)
+        if (child == null || graph != null)
             return;
         childrenList.add(child);
     }
 
     /**
      * Removes an Edge from this node's list of children.
+     * Only this endpoint's list is changed; use {@link Graph#removeEdge(Edge)} to remove it from both.
      *
      * @param edge the edge to remove
      * @return true if the child was successfully removed, false if edge is not in the list of children
      */
     public synchronized boolean remove(Edge edge) {
-        if (edge == null || !containsChild(edge))
+        if (edge == null || graph != null)
             return false;
         return childrenList.remove(edge);
     }
@@ -119,13 +195,13 @@ public class Node {
     /**
      * Does this node contain a child node given an edge connection?
      *
-     * @param edge The Node instance to search for.
-     * @return true if node child is a child of this node.
+     * @param edge The edge to search for, matched by its endpoints and label.
+     * @return true if this node has an edge joining the same nodes under the same label.
      */
     public boolean containsChild(Edge edge) {
-        if (edge == null)
+        if (edge == null || edge.getOther(this) == null)
             return false;
-        return containsChild(edge.getLabel());
+        return getChildren().contains(edge);
     }
 
     /**
@@ -135,7 +211,7 @@ public class Node {
      * @return true if node child is a child of this node.
      */
     public boolean containsChild(String edgeLabel) {
-        for (Edge e : childrenList) {
+        for (Edge e : getChildren()) {
             if (e.getLabel().equals(edgeLabel))
                 return true;
         }
@@ -148,7 +224,7 @@ public class Node {
      * @return a copy of the children edges
      */
     public List<Edge> getChildrenList() {
-        return new ArrayList<>(childrenList);
+        return new ArrayList<>(getChildren());
     }
 
     /**
@@ -177,7 +253,7 @@ public class Node {
     @Override
     public int hashCode() {
         if (hash == -1)
-            hash = 21 * this.state.hashCode();
+            hash = 21 * getState().hashCode();
         return hash;
     }
 
@@ -188,6 +264,6 @@ public class Node {
      */
     @Override
     public String toString() {
-        return state.toString();
+        return getState().toString();
     }
 }
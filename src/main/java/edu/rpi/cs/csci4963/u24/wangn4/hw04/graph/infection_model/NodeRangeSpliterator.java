@@ -0,0 +1,106 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over a range of node indices that only splits at block boundaries.
+ * Parallel streams over a graph then hand out the same blocks as the tick loops, so no two
+ * workers write into the same block of state bytes or the same frontier words.
+ */
+final class NodeRangeSpliterator implements Spliterator.OfInt {
+    private int from;
+    private final int to;
+    /*
+        Abstraction function:
+            The indices [from, to) remain to be visited.
+        Rep Invariant:
+            0 <= from <= to.
+     */
+
+    /**
+     * Constructs a spliterator over the indices [from, to).
+     *
+     * @param from the first index, inclusive
+     * @param to   the last index, exclusive
+     */
+    NodeRangeSpliterator(int from, int to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Splits off the first half of the remaining blocks.
+     *
+     * @return a spliterator over the first half, or null if the range is a single block
+     */
+    @Override
+    public OfInt trySplit() {
+        int firstBlock = from / BlockTask.BLOCK_SIZE;
+        int lastBlock = (to - 1) / BlockTask.BLOCK_SIZE;
+        if (to - from <= BlockTask.BLOCK_SIZE || firstBlock >= lastBlock)
+            return null;
+        int mid = ((firstBlock + lastBlock + 1) >>> 1) * BlockTask.BLOCK_SIZE;
+        NodeRangeSpliterator prefix = new NodeRangeSpliterator(from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    /**
+     * Visits the next index, if any.
+     *
+     * @param action the action to run on the index
+     * @return true if an index was visited
+     */
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (from >= to)
+            return false;
+        action.accept(from++);
+        return true;
+    }
+
+    /**
+     * Visits every remaining index.
+     *
+     * @param action the action to run on every index
+     */
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        int end = to;
+        for (int i = from; i < end; i++)
+            action.accept(i);
+        from = end;
+    }
+
+    /**
+     * Returns the number of remaining indices.
+     *
+     * @return the exact number of remaining indices
+     */
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    /**
+     * Reports the characteristics of a range of distinct, sorted indices.
+     *
+     * @return the characteristics of this spliterator
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Indices are in natural order.
+     *
+     * @return null, meaning natural order
+     */
+    @Override
+    public Comparator<? super Integer> getComparator() {
+        return null;
+    }
+}
@@ -19,5 +19,26 @@ public enum NodeState {
     /**
      * Represents a node that has died from infection.
      */
-    DEAD
-}
\ No newline at end of file
+    DEAD;
+
+    private static final NodeState[] BY_CODE = values();
+
+    /**
+     * The compact code used for this state in a {@link NodeStateStore}.
+     *
+     * @return the code of this state
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Looks up a state from its compact code.
+     *
+     * @param code the code as returned by {@link #code()}
+     * @return the state with the given code
+     */
+    public static NodeState fromCode(int code) {
+        return BY_CODE[code];
+    }
+}
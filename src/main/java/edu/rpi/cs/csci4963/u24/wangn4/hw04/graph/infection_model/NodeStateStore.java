@@ -0,0 +1,283 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Struct-of-arrays store of the per-node epidemic state of a frozen graph.
+ * The state of node i is kept as a byte code in states[i] and the number of
+ * ticks it has been infected in timeInfected[i], so a tick walks two flat arrays
+ * instead of chasing Node objects around the heap.
+ * States are double buffered: a synchronous update reads the current buffer,
+ * writes the next states of the nodes it changes into the other one and then swaps them.
+ * Outside of an update both buffers hold the same states.
+ * The store also keeps the frontier of currently infected nodes, so updates only need to
+ * visit the outbreak and its neighborhood, and the number of nodes in every state, so
+ * monitoring never has to scan the nodes.
+ */
+public final class NodeStateStore {
+    public static final byte SUSCEPTIBLE = 0;
+    public static final byte INFECTED = 1;
+    public static final byte RECOVERED = 2;
+    public static final byte DEAD = 3;
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private byte[] states;
+    private byte[] nextStates;
+    private final int[] timeInfected;
+    private final Frontier infected;
+    private final long[] counts;
+    /*
+        Abstraction function:
+            Node i is in state NodeState.fromCode(states[i]) and has been infected for timeInfected[i] ticks.
+            nextStates is scratch space for the update in progress.
+            infected holds exactly the nodes whose state is INFECTED.
+            counts[c] nodes are in the state with code c.
+        Rep Invariant:
+            states.length == nextStates.length == timeInfected.length and every state is a valid NodeState code.
+            Between updates nextStates equals states and counts matches states.
+     */
+
+    /**
+     * Constructs a store for the given number of nodes with every node susceptible.
+     *
+     * @param size the number of nodes
+     */
+    public NodeStateStore(int size) {
+        this.states = new byte[size];
+        this.nextStates = new byte[size];
+        this.timeInfected = new int[size];
+        this.infected = new Frontier(size);
+        this.counts = new long[NodeState.values().length];
+        counts[SUSCEPTIBLE] = size;
+
+        checkRep();
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the arrays disagree in length or hold an invalid state
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        if (states.length != timeInfected.length || states.length != nextStates.length)
+            throw new RuntimeException("NodeStateStore arrays differ in length");
+        long[] scanned = new long[counts.length];
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] < SUSCEPTIBLE || states[i] > DEAD)
+                throw new RuntimeException("NodeStateStore.states contains an invalid code " + states[i]);
+            if ((states[i] == INFECTED) != infected.contains(i))
+                throw new RuntimeException("NodeStateStore.infected does not match the state of node " + i);
+            scanned[states[i]]++;
+        }
+        if (!Arrays.equals(scanned, counts))
+            throw new RuntimeException("NodeStateStore.counts does not match the node states");
+    }
+
+    /**
+     * Returns the number of nodes in the store
+     *
+     * @return the number of nodes in the store
+     */
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * Gets the state of a node.
+     *
+     * @param index the dense index of the node
+     * @return the state of the node
+     */
+    public NodeState getState(int index) {
+        return NodeState.fromCode(states[index]);
+    }
+
+    /**
+     * Gets the state code of a node, as returned by {@link NodeState#code()}.
+     * Renderers read it for every node every frame, so it skips decoding the enum. It may be
+     * called while a tick is in progress, in which case it returns the state before or after the tick.
+     *
+     * @param index the dense index of the node
+     * @return the state code of the node
+     */
+    public byte getStateCode(int index) {
+        return states[index];
+    }
+
+    /**
+     * Sets the state of a node. Must not be called while an update is in progress.
+     *
+     * @param index the dense index of the node
+     * @param state the new state of the node
+     */
+    public void setState(int index, NodeState state) {
+        Objects.requireNonNull(state);
+        counts[states[index]]--;
+        counts[state.code()]++;
+        states[index] = state.code();
+        nextStates[index] = state.code();
+        if (state == NodeState.INFECTED)
+            infected.add(index);
+        else
+            infected.remove(index);
+    }
+
+    /**
+     * Makes every node susceptible again with an infection time of 0.
+     */
+    public void clear() {
+        Arrays.fill(states, SUSCEPTIBLE);
+        Arrays.fill(nextStates, SUSCEPTIBLE);
+        Arrays.fill(timeInfected, 0);
+        infected.clear();
+        Arrays.fill(counts, 0);
+        counts[SUSCEPTIBLE] = states.length;
+    }
+
+    /**
+     * Replaces the state and infection time of every node, e.g. from a checkpoint, and rebuilds
+     * the frontier and the counts from them. Takes O(n) time.
+     *
+     * @param codes         the state code of every node
+     * @param infectedTimes the infection time of every node
+     * @throws IllegalArgumentException if an array has the wrong length or a code is invalid
+     */
+    void restore(byte[] codes, int[] infectedTimes) {
+        if (codes.length != states.length || infectedTimes.length != states.length)
+            throw new IllegalArgumentException("The restored states do not have one entry per node");
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] < SUSCEPTIBLE || codes[i] > DEAD)
+                throw new IllegalArgumentException("Invalid state code " + codes[i] + " of node " + i);
+        }
+        infected.clear();
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < codes.length; i++) {
+            counts[codes[i]]++;
+            if (codes[i] == INFECTED)
+                infected.add(i);
+        }
+        System.arraycopy(codes, 0, states, 0, codes.length);
+        System.arraycopy(codes, 0, nextStates, 0, codes.length);
+        System.arraycopy(infectedTimes, 0, timeInfected, 0, infectedTimes.length);
+
+        checkRep();
+    }
+
+    /**
+     * Gets the number of nodes in a state. Takes O(1) time.
+     *
+     * @param state the state to count
+     * @return the number of nodes in the state
+     */
+    public long count(NodeState state) {
+        return counts[state.code()];
+    }
+
+    /**
+     * Returns the number of infected nodes.
+     *
+     * @return the number of infected nodes
+     */
+    public long infectedCount() {
+        return counts[INFECTED];
+    }
+
+    /**
+     * Moves nodes from one state count to another, once a tick loop has changed their states.
+     * Tick loops count their transitions per block and apply the totals at the barrier.
+     *
+     * @param from   the code of the state the nodes left
+     * @param to     the code of the state the nodes entered
+     * @param amount the number of nodes that changed state
+     */
+    void transfer(byte from, byte to, long amount) {
+        counts[from] -= amount;
+        counts[to] += amount;
+    }
+
+    /**
+     * Gets the time a node has been infected.
+     *
+     * @param index the dense index of the node
+     * @return the number of ticks the node has been infected
+     */
+    public int getTimeInfected(int index) {
+        return timeInfected[index];
+    }
+
+    /**
+     * Update the time a node has been infected.
+     *
+     * @param index the dense index of the node
+     */
+    public void updateInfectedTime(int index) {
+        timeInfected[index]++;
+    }
+
+    /**
+     * The state codes backing this store, for use by tick loops. Callers must only write valid codes.
+     *
+     * @return the state code of every node
+     */
+    byte[] states() {
+        return states;
+    }
+
+    /**
+     * The buffer the update in progress writes next states into.
+     *
+     * @return the next state code of every node
+     */
+    byte[] nextStates() {
+        return nextStates;
+    }
+
+    /**
+     * Atomically changes the next state of a node if it still holds the expected value.
+     * Lets several workers race to change the same node with exactly one of them winning.
+     *
+     * @param index    the dense index of the node
+     * @param expected the next state the node must currently hold
+     * @param state    the next state to write
+     * @return true if this call changed the next state
+     */
+    boolean compareAndSetNext(int index, byte expected, byte state) {
+        return STATES.compareAndSet(nextStates, index, expected, state);
+    }
+
+    /**
+     * The frontier of infected nodes, for use by tick loops.
+     *
+     * @return the infected nodes
+     */
+    Frontier infected() {
+        return infected;
+    }
+
+    /**
+     * Makes the next states current once every changed node's next state has been written.
+     * Must only be called at the barrier between two updates; the caller then copies the
+     * changed states back into the new next buffer and brings the frontier up to date.
+     */
+    void swap() {
+        byte[] current = states;
+        states = nextStates;
+        nextStates = current;
+    }
+
+    /**
+     * The infection times backing this store, for use by tick loops.
+     *
+     * @return the infection time of every node
+     */
+    int[] timeInfected() {
+        return timeInfected;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+/**
+ * The file formats a {@link ResultWriter} can write.
+ */
+public enum ResultFormat {
+    /**
+     * Plain CSV with a header line, states written by name.
+     */
+    CSV("csv", ".csv"),
+    /**
+     * The same CSV compressed with gzip.
+     */
+    GZIP_CSV("csv.gz", ".csv.gz"),
+    /**
+     * Little endian binary columns, states written as their one byte code.
+     * See {@link ResultWriter} for the layout.
+     */
+    BINARY("binary", ".bin");
+
+    private final String label;
+    private final String extension;
+
+    /**
+     * Creates a format.
+     *
+     * @param label     the name of the format on the command line
+     * @param extension the extension of its files
+     */
+    ResultFormat(String label, String extension) {
+        this.label = label;
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the extension of the files in this format.
+     *
+     * @return the extension, including the leading dot
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Gets the name of the format on the command line.
+     *
+     * @return the label
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Parses the name of a format.
+     *
+     * @param label csv, csv.gz or binary
+     * @return the format
+     * @throws IllegalArgumentException if the name is not a format
+     */
+    public static ResultFormat parse(String label) {
+        for (ResultFormat format : values()) {
+            if (format.label.equals(label))
+                return format;
+        }
+        throw new IllegalArgumentException("Unknown result format: " + label + " (expected csv, csv.gz or binary)");
+    }
+}
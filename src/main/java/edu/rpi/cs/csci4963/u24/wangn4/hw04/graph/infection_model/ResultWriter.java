@@ -0,0 +1,680 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the results of simulation runs to files while they run: the state counts of every tick
+ * of every run and, optionally, every state change of every node as tracked by a
+ * {@link TransitionTracker}.
+ * <p>
+ * Rows are appended to large column batches. A full batch is handed to the writer task of its
+ * file on an I/O executor, which encodes it and writes it through a file channel while the runs go
+ * on, so the simulation threads never format or write anything themselves. Every file has a fixed
+ * number of batches: a run only waits for one to come back when all of them are queued for
+ * writing, that is when the disk has been slower than the simulation for longer than the batches
+ * can absorb. The memory used stays bounded and no row is ever dropped.
+ * <p>
+ * Rows may be recorded from several threads at once, e.g. by the replicas of an ensemble; each
+ * row names its replica. The run file has the columns replica, seed, tick, susceptible, infected,
+ * recovered and dead, the transition file replica, tick, node, from and to, where node is the
+ * dense index of the node in its {@link CompactGraph}.
+ * <p>
+ * CSV files start with a header line and write states by name. Binary files are little endian:
+ * the magic {@code "EPRS"}, the format version, the number of columns, and for every column its
+ * width in bytes (1 for a state code, 4 or 8 for an integer) and its name as a length byte
+ * followed by ASCII; then blocks of a row count followed by that many values of each column in
+ * turn, up to the end of the file.
+ */
+public final class ResultWriter implements Closeable {
+    /**
+     * The number of rows of a batch.
+     */
+    public static final int DEFAULT_BATCH_ROWS = 1 << 16;
+    /**
+     * The number of batches of every file.
+     */
+    public static final int DEFAULT_BATCHES = 4;
+
+    private static final Column[] RUN_COLUMNS = {
+            new Column("replica", Integer.BYTES), new Column("seed", Long.BYTES), new Column("tick", Long.BYTES),
+            new Column("susceptible", Integer.BYTES), new Column("infected", Integer.BYTES),
+            new Column("recovered", Integer.BYTES), new Column("dead", Integer.BYTES)};
+    private static final Column[] TRANSITION_COLUMNS = {
+            new Column("replica", Integer.BYTES), new Column("tick", Long.BYTES), new Column("node", Integer.BYTES),
+            new Column("from", Column.STATE), new Column("to", Column.STATE)};
+    private static final int MAGIC = 'E' | 'P' << 8 | 'R' << 16 | 'S' << 24;
+    private static final int VERSION = 1;
+    /**
+     * The size of the buffer CSV is encoded into before it is written.
+     */
+    private static final int CSV_BUFFER = 1 << 20;
+    /**
+     * The longest CSV row: every column a negative long and a separator.
+     */
+    private static final int MAX_CSV_ROW = 8 * 21;
+    private static final byte[][] STATE_NAMES = new byte[NodeState.values().length][];
+
+    static {
+        for (NodeState state : NodeState.values())
+            STATE_NAMES[state.code()] = state.name().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final ResultFormat format;
+    private final Output runs;
+    private final Output transitions;
+
+    /**
+     * Opens the files of a writer with the default batches.
+     *
+     * @param runs        the file of the state counts
+     * @param transitions the file of the state changes, or null not to record them
+     * @param format      the format of both files
+     * @param io          the executor the writer tasks run on, one per file for the writer's lifetime
+     * @throws IOException if a file cannot be created
+     */
+    public ResultWriter(Path runs, Path transitions, ResultFormat format, ExecutorService io) throws IOException {
+        this(runs, transitions, format, io, DEFAULT_BATCH_ROWS, DEFAULT_BATCHES);
+    }
+
+    /**
+     * Opens the files of a writer.
+     *
+     * @param runs        the file of the state counts
+     * @param transitions the file of the state changes, or null not to record them
+     * @param format      the format of both files
+     * @param io          the executor the writer tasks run on, one per file for the writer's lifetime
+     * @param batchRows   the number of rows of a batch
+     * @param batches     the number of batches of every file
+     * @throws IOException              if a file cannot be created
+     * @throws IllegalArgumentException if a batch holds no row or there are fewer than 2 batches
+     */
+    public ResultWriter(Path runs, Path transitions, ResultFormat format, ExecutorService io,
+                        int batchRows, int batches) throws IOException {
+        Objects.requireNonNull(format);
+        Objects.requireNonNull(io);
+        if (batchRows < 1 || batches < 2)
+            throw new IllegalArgumentException("A result writer needs batches of at least one row and at least 2 batches");
+        this.format = format;
+        this.runs = new Output(runs, RUN_COLUMNS, format, io, batchRows, batches);
+        Output events = null;
+        try {
+            if (transitions != null)
+                events = new Output(transitions, TRANSITION_COLUMNS, format, io, batchRows, batches);
+        } finally {
+            if (transitions != null && events == null)
+                this.runs.close();
+        }
+        this.transitions = events;
+    }
+
+    /**
+     * Opens the files {@code <prefix>-runs} and, if asked, {@code <prefix>-events}, with the
+     * extension of the format.
+     *
+     * @param prefix      the path of the files without their suffix
+     * @param format      the format of both files
+     * @param transitions whether to record state changes
+     * @param io          the executor the writer tasks run on
+     * @return the writer
+     * @throws IOException if a file cannot be created
+     */
+    public static ResultWriter open(String prefix, ResultFormat format, boolean transitions, ExecutorService io) throws IOException {
+        return new ResultWriter(Path.of(prefix + "-runs" + format.extension()),
+                transitions ? Path.of(prefix + "-events" + format.extension()) : null, format, io);
+    }
+
+    /**
+     * Gets the format of the files.
+     *
+     * @return the format
+     */
+    public ResultFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Tells whether state changes are recorded.
+     *
+     * @return true if there is a transition file
+     */
+    public boolean isRecordingTransitions() {
+        return transitions != null;
+    }
+
+    /**
+     * Records the state counts of one tick of a run.
+     *
+     * @param replica the replica the run belongs to
+     * @param seed    the seed of the run
+     * @param counts  the state counts
+     * @throws IOException if an earlier batch could not be written, or the wait for a free batch
+     *                     was interrupted
+     */
+    public void recordCounts(int replica, long seed, StateCounts counts) throws IOException {
+        Batch batch = runs.lock();
+        try {
+            int row = batch.size++;
+            batch.columns[0][row] = replica;
+            batch.columns[1][row] = seed;
+            batch.columns[2][row] = counts.tick();
+            batch.columns[3][row] = counts.susceptible();
+            batch.columns[4][row] = counts.infected();
+            batch.columns[5][row] = counts.recovered();
+            batch.columns[6][row] = counts.dead();
+        } finally {
+            runs.unlock();
+        }
+    }
+
+    /**
+     * Records the state changes of one tick of a run. Does nothing unless transitions are recorded.
+     *
+     * @param replica the replica the run belongs to
+     * @param tick    the tick the nodes changed state in
+     * @param nodes   the nodes that changed state
+     * @param from    the state code of every node before the change
+     * @param to      the state code of every node after the change
+     * @param count   the number of changes, at the start of the arrays
+     * @throws IOException if an earlier batch could not be written, or the wait for a free batch
+     *                     was interrupted
+     */
+    public void recordTransitions(int replica, long tick, int[] nodes, byte[] from, byte[] to, int count)
+            throws IOException {
+        if (transitions == null)
+            return;
+        int k = 0;
+        while (k < count) {
+            Batch batch = transitions.lock();
+            try {
+                for (; k < count && !batch.isFull(); k++) {
+                    int row = batch.size++;
+                    batch.columns[0][row] = replica;
+                    batch.columns[1][row] = tick;
+                    batch.columns[2][row] = nodes[k];
+                    batch.columns[3][row] = from[k];
+                    batch.columns[4][row] = to[k];
+                }
+            } finally {
+                transitions.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the rows still in memory, waits for the writer tasks and closes the files.
+     *
+     * @throws IOException if a batch could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (Output output : new Output[]{runs, transitions}) {
+            if (output == null)
+                continue;
+            try {
+                output.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * A column of a result file.
+     *
+     * @param name  the name of the column
+     * @param width the number of bytes of a value in binary files, {@link #STATE} for a state code
+     */
+    private record Column(String name, int width) {
+        /**
+         * The width of a column of state codes.
+         */
+        static final int STATE = 1;
+    }
+
+    /**
+     * Rows of a result file in memory, one array per column.
+     */
+    private static final class Batch {
+        private final long[][] columns;
+        private int size = 0;
+
+        /**
+         * Allocates a batch.
+         *
+         * @param columns the number of columns
+         * @param rows    the number of rows
+         */
+        Batch(int columns, int rows) {
+            this.columns = new long[columns][rows];
+        }
+
+        /**
+         * Tells whether no row fits anymore.
+         *
+         * @return true if the batch is full
+         */
+        boolean isFull() {
+            return size == columns[0].length;
+        }
+    }
+
+    /**
+     * One result file with its batches and its writer task.
+     * The producers fill one batch at a time and hand it to the writer through a queue; the writer
+     * returns every batch it has written to the free queue, which the producers take from.
+     * A producer only holds the lock while it appends rows, never while it waits for a free batch,
+     * so a waiting producer does not keep the others or {@link #close()} out.
+     */
+    private static final class Output {
+        /**
+         * Tells the writer task there is nothing more to write.
+         */
+        private static final Batch END = new Batch(1, 1);
+
+        private final Column[] columns;
+        private final ResultFormat format;
+        private final FileChannel channel;
+        private final BlockingQueue<Batch> free;
+        private final BlockingQueue<Batch> full;
+        private final Future<?> writer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Batch current;
+        private boolean isClosed = false;
+        private volatile IOException failure;
+        /*
+            Abstraction function:
+                The file holds the rows of every batch the writer task has taken from full,
+                followed by the rows queued in full and then those of current.
+            Rep Invariant:
+                Every batch is either current, queued in full, being written, in free, or taken
+                from free by a producer about to make it current or give it back.
+                current, full and isClosed are only changed while holding lock. current is null
+                only while a producer waits for a free batch or after closing.
+                failure is set only by the writer task, which then discards every later batch.
+         */
+
+        /**
+         * Creates the file and starts its writer task.
+         *
+         * @param path    the file
+         * @param columns the columns of the file
+         * @param format  the format of the file
+         * @param io      the executor the writer task runs on
+         * @param rows    the number of rows of a batch
+         * @param batches the number of batches
+         * @throws IOException if the file cannot be created
+         */
+        Output(Path path, Column[] columns, ResultFormat format, ExecutorService io, int rows, int batches) throws IOException {
+            this.columns = columns;
+            this.format = format;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.free = new ArrayBlockingQueue<>(batches);
+            this.full = new ArrayBlockingQueue<>(batches + 1);
+            for (int b = 1; b < batches; b++)
+                free.add(new Batch(columns.length, rows));
+            this.current = new Batch(columns.length, rows);
+            this.writer = io.submit(this::drain);
+        }
+
+        /**
+         * Locks the file and gets the batch to append rows to, handing the current one to the
+         * writer if it is full. Waits for a free batch without holding the lock if every other one
+         * is still queued for writing. On success the caller holds the lock and must
+         * {@link #unlock()} it once its rows are appended.
+         *
+         * @return a batch with room for at least one row
+         * @throws IOException if a batch could not be written, the file is closed, or the wait was
+         *                     interrupted; the lock is not held then
+         */
+        Batch lock() throws IOException {
+            lock.lock();
+            while (true) {
+                IOException error = failure != null ? failure
+                        : isClosed ? new IOException("The result file is closed") : null;
+                if (error != null) {
+                    lock.unlock();
+                    throw error;
+                }
+                if (current != null && !current.isFull())
+                    return current;
+                if (current != null) {
+                    full.add(current);
+                    current = null;
+                }
+
+                lock.unlock();
+                Batch next;
+                try {
+                    next = free.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the result file");
+                }
+                lock.lock();
+                // another producer may have made its own free batch current in the meantime
+                if (current == null && !isClosed)
+                    current = next;
+                else
+                    free.add(next);
+            }
+        }
+
+        /**
+         * Unlocks the file after appending rows to the batch {@link #lock()} returned.
+         */
+        void unlock() {
+            lock.unlock();
+        }
+
+        /**
+         * Hands the last rows to the writer, waits for it to finish and closes the file.
+         *
+         * @throws IOException if a batch could not be written
+         */
+        void close() throws IOException {
+            lock.lock();
+            try {
+                if (isClosed)
+                    return;
+                isClosed = true;
+                if (current != null && current.size > 0)
+                    full.add(current);
+                current = null;
+                full.add(END);
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writer.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while closing the result file");
+            } catch (ExecutionException e) {
+                throw new IOException("The result writer failed", e.getCause());
+            } finally {
+                channel.close();
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        /**
+         * The writer task: encodes and writes every batch handed over until the end.
+         * After a failure it keeps taking batches and discarding them, so no producer waits forever.
+         * If it is interrupted it stops, giving back every batch still queued.
+         */
+        private void drain() {
+            Encoder encoder = null;
+            try {
+                encoder = format == ResultFormat.BINARY ? new BinaryEncoder(channel, columns)
+                        : new CsvEncoder(format == ResultFormat.GZIP_CSV
+                        ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16))
+                        : channel, columns);
+            } catch (IOException e) {
+                failure = e;
+            }
+            while (true) {
+                Batch batch;
+                try {
+                    batch = full.take();
+                } catch (InterruptedException e) {
+                    release(new InterruptedIOException("Interrupted while writing the result file"));
+                    return;
+                }
+                if (batch == END)
+                    break;
+                if (failure == null) {
+                    try {
+                        encoder.write(batch);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                batch.size = 0;
+                free.add(batch);
+            }
+            if (failure == null) {
+                try {
+                    encoder.finish();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Fails the file and returns every queued batch to the free queue, so producers waiting
+         * for a batch wake up and see the failure.
+         * Holds the lock, so no producer queues a batch after seeing the file as healthy.
+         *
+         * @param e the reason the writer task stopped
+         */
+        private void release(IOException e) {
+            lock.lock();
+            try {
+                failure = e;
+                for (Batch batch = full.poll(); batch != null; batch = full.poll()) {
+                    if (batch != END) {
+                        batch.size = 0;
+                        free.add(batch);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Turns batches into the bytes of a file.
+     */
+    private interface Encoder {
+        /**
+         * Writes the rows of a batch.
+         *
+         * @param batch the batch
+         * @throws IOException if the file cannot be written
+         */
+        void write(Batch batch) throws IOException;
+
+        /**
+         * Writes whatever the format needs at the end of the file.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        void finish() throws IOException;
+    }
+
+    /**
+     * Writes CSV rows, formatting numbers straight into a byte buffer.
+     */
+    private static final class CsvEncoder implements Encoder {
+        private final WritableByteChannel out;
+        private final Column[] columns;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CSV_BUFFER);
+        private final byte[] digits = new byte[20];
+
+        /**
+         * Writes the header line.
+         *
+         * @param out     the destination
+         * @param columns the columns of the file
+         * @throws IOException if the header cannot be written
+         */
+        CsvEncoder(WritableByteChannel out, Column[] columns) throws IOException {
+            this.out = out;
+            this.columns = columns;
+            for (int c = 0; c < columns.length; c++) {
+                if (c > 0)
+                    buffer.put((byte) ',');
+                buffer.put(columns[c].name().getBytes(StandardCharsets.US_ASCII));
+            }
+            buffer.put((byte) '\n');
+        }
+
+        /**
+         * Formats the rows of a batch, writing the buffer out whenever it fills up.
+         *
+         * @param batch the batch
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void write(Batch batch) throws IOException {
+            for (int row = 0; row < batch.size; row++) {
+                if (buffer.remaining() < MAX_CSV_ROW)
+                    flush();
+                for (int c = 0; c < columns.length; c++) {
+                    if (c > 0)
+                        buffer.put((byte) ',');
+                    long value = batch.columns[c][row];
+                    if (columns[c].width() == Column.STATE)
+                        buffer.put(STATE_NAMES[(int) value]);
+                    else
+                        putDecimal(value);
+                }
+                buffer.put((byte) '\n');
+            }
+        }
+
+        /**
+         * Writes the rest of the buffer and closes the destination, which ends a gzip stream.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void finish() throws IOException {
+            flush();
+            out.close();
+        }
+
+        /**
+         * Writes the buffered bytes.
+         *
+         * @throws IOException if they cannot be written
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                out.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Appends a number in decimal.
+         * Digits are taken off a non-positive value, so the smallest long needs no special case.
+         *
+         * @param value the number
+         */
+        private void putDecimal(long value) {
+            int start = digits.length;
+            long rest = value < 0 ? value : -value;
+            do {
+                digits[--start] = (byte) ('0' - rest % 10);
+                rest /= 10;
+            } while (rest != 0);
+            if (value < 0)
+                buffer.put((byte) '-');
+            buffer.put(digits, start, digits.length - start);
+        }
+    }
+
+    /**
+     * Writes blocks of little endian columns.
+     */
+    private static final class BinaryEncoder implements Encoder {
+        private final FileChannel out;
+        private final Column[] columns;
+        private ByteBuffer buffer;
+
+        /**
+         * Writes the header.
+         *
+         * @param out     the destination
+         * @param columns the columns of the file
+         * @throws IOException if the header cannot be written
+         */
+        BinaryEncoder(FileChannel out, Column[] columns) throws IOException {
+            this.out = out;
+            this.columns = columns;
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES + columns.length * (2 + Byte.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(columns.length);
+            for (Column column : columns) {
+                byte[] name = column.name().getBytes(StandardCharsets.US_ASCII);
+                header.put((byte) column.width()).put((byte) name.length).put(name);
+            }
+            header.flip();
+            while (header.hasRemaining())
+                out.write(header);
+        }
+
+        /**
+         * Writes a batch as one block.
+         *
+         * @param batch the batch
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void write(Batch batch) throws IOException {
+            int rowBytes = 0;
+            for (Column column : columns)
+                rowBytes += column.width();
+            int size = Integer.BYTES + batch.size * rowBytes;
+            if (buffer == null || buffer.capacity() < size)
+                buffer = ByteBuffer.allocateDirect(Integer.BYTES + batch.columns[0].length * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.clear();
+            buffer.putInt(batch.size);
+            for (int c = 0; c < columns.length; c++) {
+                long[] values = batch.columns[c];
+                switch (columns[c].width()) {
+                    case Column.STATE -> {
+                        for (int row = 0; row < batch.size; row++)
+                            buffer.put((byte) values[row]);
+                    }
+                    case Integer.BYTES -> {
+                        for (int row = 0; row < batch.size; row++)
+                            buffer.putInt((int) values[row]);
+                    }
+                    default -> {
+                        for (int row = 0; row < batch.size; row++)
+                            buffer.putLong(values[row]);
+                    }
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining())
+                out.write(buffer);
+        }
+
+        /**
+         * Does nothing, a binary file simply ends after its last block.
+         */
+        @Override
+        public void finish() {
+        }
+    }
+}
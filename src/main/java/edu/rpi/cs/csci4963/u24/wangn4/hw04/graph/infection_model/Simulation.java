@@ -0,0 +1,75 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+/**
+ * An epidemic simulation running on a frozen graph, advanced one tick of simulated time at a time.
+ * Implementations differ in how they get from one tick to the next: {@link Infection} updates
+ * every infected node synchronously each tick, {@link EventDrivenInfection} processes the
+ * individual infection and removal events falling inside the tick in continuous time, and
+ * {@link CompartmentInfection} runs any {@link CompartmentModel} such as SEIR or SIRS with
+ * synchronous ticks. The parameters each engine takes are set on the engine itself.
+ * <p>
+ * Closing a simulation releases the threads it owns; simulations created on a shared pool such
+ * as {@link WorkerPools#compute()} own none, so they can be created and closed indefinitely.
+ */
+public interface Simulation extends AutoCloseable {
+    /**
+     * Restarts the run from tick 0 with a new seed, without touching the topology.
+     *
+     * @param seed the seed of every random decision of the new run
+     */
+    void reset(long seed);
+
+    /**
+     * Advances the simulation by one tick.
+     */
+    void tick();
+
+    /**
+     * Releases any worker threads owned by this simulation. It must not be ticked afterwards.
+     */
+    void shutdown();
+
+    /**
+     * Releases any worker threads owned by this simulation, as {@link #shutdown()} does.
+     */
+    @Override
+    default void close() {
+        shutdown();
+    }
+
+    /**
+     * Gets the graph representing the network of nodes.
+     *
+     * @return the graph
+     */
+    Graph getGraph();
+
+    /**
+     * Gets the seed this run was started with.
+     *
+     * @return the run seed
+     */
+    long getSeed();
+
+    /**
+     * Gets the number of ticks run so far.
+     *
+     * @return the number of completed ticks
+     */
+    long getTickCount();
+
+    /**
+     * Gets the number of nodes in every state as of the last completed tick.
+     * Takes O(1) time, so monitoring threads can poll it freely.
+     *
+     * @return the latest state counts
+     */
+    StateCounts getStateCounts();
+
+    /**
+     * Gets the store holding the state of every node.
+     *
+     * @return the node state store
+     */
+    NodeStateStore getStates();
+}
@@ -0,0 +1,169 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ticks a simulation on its own thread, as fast as possible or at a fixed rate, and publishes
+ * the counts of every tick into a {@link SnapshotRing}.
+ * The simulation never waits for its readers, so a UI can sample the ring at frame rate while
+ * the run goes on at thousands of ticks a second. One runner thread is kept for the lifetime of
+ * the runner and reused by every run. Runs of an {@link Infection} can be checkpointed between
+ * ticks by a {@link Checkpointer}.
+ */
+public final class SimulationRunner implements AutoCloseable {
+    private final SnapshotRing snapshots;
+    private final ExecutorService thread;
+    private volatile double ticksPerSecond;
+    private volatile boolean running = false;
+    private volatile Thread worker;
+    private volatile Checkpointer checkpointer;
+    private Future<?> loop;
+
+    /**
+     * Creates a runner that ticks as fast as possible.
+     *
+     * @param capacity the number of snapshots the ring keeps
+     * @throws IllegalArgumentException if the capacity is less than 2
+     */
+    public SimulationRunner(int capacity) {
+        this.snapshots = new SnapshotRing(capacity);
+        this.thread = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("simulation-runner").daemon().factory());
+    }
+
+    /**
+     * Starts ticking a simulation until it is finished or paused.
+     * Does nothing if a run is already going.
+     *
+     * @param simulation the simulation to run
+     * @param onFinish   called on the runner thread once nobody is infected anymore; it must not
+     *                   call {@link #pause()}, which would wait for its own thread
+     * @return true if a new run was started
+     */
+    public synchronized boolean start(Simulation simulation, Runnable onFinish) {
+        Objects.requireNonNull(simulation);
+        Objects.requireNonNull(onFinish);
+        if (loop != null && !loop.isDone())
+            return false;
+        running = true;
+        loop = thread.submit(() -> run(simulation, onFinish));
+        return true;
+    }
+
+    /**
+     * Stops the current run after the tick in progress and waits for it to end, so the simulation
+     * can be reset or replaced right after this returns.
+     */
+    public synchronized void pause() {
+        running = false;
+        if (loop == null)
+            return;
+        LockSupport.unpark(worker);
+        try {
+            loop.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        loop = null;
+    }
+
+    /**
+     * Tells whether a run is going.
+     *
+     * @return true if the runner is ticking a simulation
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Sets the pace of the runs.
+     *
+     * @param ticksPerSecond the number of ticks per second, or 0 to tick as fast as possible
+     * @throws IllegalArgumentException if the rate is negative or not a number
+     */
+    public void setTicksPerSecond(double ticksPerSecond) {
+        if (!(ticksPerSecond >= 0))
+            throw new IllegalArgumentException("The tick rate must be non-negative: " + ticksPerSecond);
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    /**
+     * Gets the pace of the runs.
+     *
+     * @return the number of ticks per second, 0 meaning as fast as possible
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * Sets the checkpointer that periodically saves the runs of {@link Infection} models.
+     * Other simulations are never checkpointed.
+     *
+     * @param checkpointer the checkpointer, or null to stop checkpointing
+     */
+    public void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Gets the ring the counts of every tick are published to.
+     *
+     * @return the snapshot ring
+     */
+    public SnapshotRing snapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Stops the current run and the runner thread.
+     */
+    @Override
+    public void close() {
+        pause();
+        thread.shutdown();
+    }
+
+    /**
+     * The loop of one run on the runner thread.
+     * When paced, each tick is due one interval after the previous one; a run that falls behind
+     * carries on from the current time instead of bursting to catch up.
+     *
+     * @param simulation the simulation to run
+     * @param onFinish   called once nobody is infected anymore
+     */
+    private void run(Simulation simulation, Runnable onFinish) {
+        worker = Thread.currentThread();
+        long due = System.nanoTime();
+        while (running) {
+            double rate = ticksPerSecond;
+            if (rate > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                    continue;
+                }
+                long interval = (long) (1e9 / rate);
+                due = wait < -interval ? System.nanoTime() + interval : due + interval;
+            }
+
+            simulation.tick();
+            StateCounts counts = simulation.getStateCounts();
+            snapshots.publish(counts);
+            Checkpointer saver = checkpointer;
+            if (saver != null && simulation instanceof Infection infection)
+                saver.afterTick(infection);
+            if (counts.isFinished()) {
+                running = false;
+                onFinish.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.function.Consumer;
+
+/**
+ * A bounded ring of the latest state counts published by one simulation thread.
+ * The producer never waits: once the ring is full every snapshot overwrites the oldest one, so a
+ * reader that falls behind, like a UI sampling once per frame, skips the snapshots it missed
+ * instead of slowing the simulation down.
+ * Snapshots are numbered by a sequence counting every snapshot ever published, which readers use
+ * as a cursor.
+ */
+public final class SnapshotRing {
+    private final StateCounts[] slots;
+    private volatile long published = 0;
+    /*
+        Abstraction function:
+            The snapshots numbered max(0, published - slots.length) to published - 1, snapshot n
+            being stored in slots[n % slots.length].
+        Rep Invariant:
+            slots.length >= 2 and published >= 0. Only the producer writes slots and published,
+            and it writes slot n only after publishing snapshot n - 1.
+     */
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param capacity the number of snapshots kept
+     * @throws IllegalArgumentException if the capacity is less than 2
+     */
+    public SnapshotRing(int capacity) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("A snapshot ring needs at least 2 slots");
+        this.slots = new StateCounts[capacity];
+    }
+
+    /**
+     * Publishes a snapshot, overwriting the oldest one if the ring is full.
+     * Must only be called by the single producer thread.
+     *
+     * @param counts the snapshot
+     */
+    public void publish(StateCounts counts) {
+        long sequence = published;
+        slots[(int) (sequence % slots.length)] = counts;
+        published = sequence + 1;
+    }
+
+    /**
+     * Gets the number of snapshots published so far, which is the cursor of the next one.
+     *
+     * @return the sequence of the next snapshot
+     */
+    public long published() {
+        return published;
+    }
+
+    /**
+     * Gets the number of snapshots the ring holds.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Hands every snapshot published since a cursor to a reader, oldest first.
+     * Snapshots that were overwritten before or while they were read are skipped, so the reader
+     * may see gaps but never a snapshot out of order.
+     * Any number of threads may read at the same time as the producer publishes.
+     *
+     * @param cursor the sequence of the first snapshot wanted
+     * @param reader receives the snapshots
+     * @return the cursor to pass next time
+     */
+    public long drain(long cursor, Consumer<StateCounts> reader) {
+        long end = published;
+        long start = Math.max(cursor, end - slots.length + 1);
+        if (start >= end)
+            return Math.max(cursor, end);
+
+        StateCounts[] read = new StateCounts[(int) (end - start)];
+        for (long sequence = start; sequence < end; sequence++)
+            read[(int) (sequence - start)] = slots[(int) (sequence % slots.length)];
+        // the producer starts overwriting snapshot n only after publishing n + capacity - 1
+        long safe = Math.max(start, published - slots.length + 1);
+        for (long sequence = safe; sequence < end; sequence++)
+            reader.accept(read[(int) (sequence - start)]);
+        return end;
+    }
+
+    /**
+     * Gets the most recently published snapshot.
+     *
+     * @return the latest snapshot, or null if nothing was published yet
+     */
+    public StateCounts latest() {
+        long end = published;
+        return end == 0 ? null : slots[(int) ((end - 1) % slots.length)];
+    }
+}
@@ -0,0 +1,48 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+/**
+ * Immutable snapshot of the number of nodes in every state after a tick of an Infection run.
+ *
+ * @param tick        the number of ticks the run had completed
+ * @param susceptible the number of susceptible nodes
+ * @param infected    the number of infected nodes
+ * @param recovered   the number of recovered nodes
+ * @param dead        the number of dead nodes
+ */
+public record StateCounts(long tick, long susceptible, long infected, long recovered, long dead) {
+    /**
+     * Takes a snapshot of the counts of a state store.
+     *
+     * @param tick   the number of ticks the run had completed
+     * @param states the store to read
+     * @return the snapshot
+     */
+    static StateCounts of(long tick, NodeStateStore states) {
+        return new StateCounts(tick, states.count(NodeState.SUSCEPTIBLE), states.count(NodeState.INFECTED),
+                states.count(NodeState.RECOVERED), states.count(NodeState.DEAD));
+    }
+
+    /**
+     * Gets the number of nodes in a state.
+     *
+     * @param state the state to count
+     * @return the number of nodes in the state
+     */
+    public long get(NodeState state) {
+        return switch (state) {
+            case SUSCEPTIBLE -> susceptible;
+            case INFECTED -> infected;
+            case RECOVERED -> recovered;
+            case DEAD -> dead;
+        };
+    }
+
+    /**
+     * Whether the run is over: with nobody infected no state can change any more.
+     *
+     * @return true if no node is infected
+     */
+    public boolean isFinished() {
+        return infected == 0;
+    }
+}
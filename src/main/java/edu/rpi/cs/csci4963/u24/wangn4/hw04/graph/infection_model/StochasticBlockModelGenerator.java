@@ -0,0 +1,91 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Stochastic block model generator over consecutive communities.
+ * Each block covers a range of nodes v and decides the pairs (v, w) with w &lt; v one community
+ * at a time, skipping geometrically between edges with that community's edge probability.
+ */
+final class StochasticBlockModelGenerator extends GraphGenerator {
+    private final int[] starts;
+    private final double inside;
+    private final double outside;
+    /*
+        Abstraction function:
+            Community c holds the nodes [starts[c], starts[c + 1]).
+        Rep Invariant:
+            starts[0] == 0, starts is strictly increasing and ends with size.
+     */
+
+    /**
+     * Constructs the generator.
+     *
+     * @param communitySizes the number of nodes in every community
+     * @param inside         the edge probability within a community
+     * @param outside        the edge probability between communities
+     * @param seed           the seed of the graph
+     */
+    StochasticBlockModelGenerator(int[] communitySizes, double inside, double outside, long seed) {
+        super(total(communitySizes), seed);
+        if (!(inside >= 0 && inside <= 1 && outside >= 0 && outside <= 1))
+            throw new IllegalArgumentException("Edge probabilities must lie in [0, 1]");
+        this.starts = new int[communitySizes.length + 1];
+        for (int c = 0; c < communitySizes.length; c++)
+            starts[c + 1] = starts[c] + communitySizes[c];
+        this.inside = inside;
+        this.outside = outside;
+    }
+
+    /**
+     * Adds up the community sizes.
+     *
+     * @param communitySizes the number of nodes in every community
+     * @return the number of nodes
+     * @throws IllegalArgumentException if a community is empty or the total overflows
+     */
+    private static int total(int[] communitySizes) {
+        long total = 0;
+        for (int communitySize : communitySizes) {
+            if (communitySize < 1)
+                throw new IllegalArgumentException("Every community needs at least one node");
+            total += communitySize;
+        }
+        if (total > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many nodes: " + total);
+        return (int) total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int blocks() {
+        return BlockTask.blockCount(size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(int block, EdgeSink sink) {
+        SplittableRandom stream = random.stream(0, RandomStreams.SEED_PHASE, block);
+        double logInside = Math.log1p(-inside);
+        double logOutside = Math.log1p(-outside);
+        int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+        int community = 0;
+        for (int v = block * BlockTask.BLOCK_SIZE; v < end; v++) {
+            while (starts[community + 1] <= v)
+                community++;
+            for (int c = 0; c <= community; c++) {
+                double probability = c == community ? inside : outside;
+                if (probability == 0)
+                    continue;
+                long limit = Math.min(v, starts[c + 1]);
+                double logFailure = c == community ? logInside : logOutside;
+                for (long w = starts[c] + skip(stream, logFailure); w < limit; w += 1 + skip(stream, logFailure))
+                    sink.edge(v, (int) w);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event spanning one tick of an {@link Infection}, with the time of each of
+ * its phases and the work it did. Costs nothing unless a recording enables it; a recording with
+ * a threshold on it keeps only the slow ticks, e.g.
+ * {@code -XX:StartFlightRecording:+edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.Tick#threshold=50ms}.
+ */
+@Name("edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.Tick")
+@Label("Simulation Tick")
+@Category("Epidemic Simulation")
+@Description("One tick of the discrete-time infection model")
+@StackTrace(false)
+final class TickEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    long tick;
+
+    @Label("Infect")
+    @Timespan
+    long infectDuration;
+
+    @Label("Recover")
+    @Timespan
+    long recoverDuration;
+
+    @Label("Force Update")
+    @Timespan
+    long forceUpdateDuration;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Edges Visited")
+    long edgesVisited;
+
+    @Label("Transitions")
+    long transitions;
+
+    @Label("Queue Depth")
+    @Description("Tasks waiting in the executor when the tick started")
+    int queueDepth;
+
+    @Label("Allocated")
+    @Description("Bytes the threads working on the tick allocated for it")
+    @DataAmount
+    long allocated;
+}
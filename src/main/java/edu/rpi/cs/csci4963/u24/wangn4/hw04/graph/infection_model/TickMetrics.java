@@ -0,0 +1,550 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live metrics of the ticks of {@link Infection} models: a {@link LatencyHistogram} per phase,
+ * the nodes and edges visited, the state changes made, the executor queue depth and the memory
+ * allocated by every tick. Any number of models may record into one instance at the same time,
+ * e.g. every replica of an ensemble.
+ * <p>
+ * The metrics can be read through JMX once {@link #register(String) registered}, or in the
+ * Prometheus text format with {@link #writePrometheus(Appendable)}, which a {@link MetricsServer}
+ * serves over HTTP. Ticks are also recorded as {@link TickEvent Flight Recorder events} whether
+ * or not a model records into metrics.
+ */
+public final class TickMetrics implements TickMetricsMBean {
+    /**
+     * The JMX domain metrics are registered under.
+     */
+    public static final String DOMAIN = "edu.rpi.cs.csci4963.u24.wangn4.hw04.graph";
+    /**
+     * The quantiles exported to Prometheus.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    /**
+     * The phases of a tick that are timed.
+     */
+    public enum Phase {
+        /**
+         * The infection phase, {@link Infection#infect()}.
+         */
+        INFECT("infect"),
+        /**
+         * The recovery phase, {@link Infection#recover()}.
+         */
+        RECOVER("recover"),
+        /**
+         * The force of infection update, {@link Infection#updateForceOfInfection()}.
+         */
+        FORCE_UPDATE("force_update"),
+        /**
+         * The whole tick.
+         */
+        TICK("tick");
+
+        private final String label;
+
+        /**
+         * Creates a phase.
+         *
+         * @param label the name of the phase in exported metrics
+         */
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the name of the phase in exported metrics.
+         *
+         * @return the label
+         */
+        public String label() {
+            return label;
+        }
+
+        /**
+         * Parses the name of a phase.
+         *
+         * @param label infect, recover, force_update or tick
+         * @return the phase
+         * @throws IllegalArgumentException if the name is not a phase
+         */
+        public static Phase parse(String label) {
+            for (Phase phase : values()) {
+                if (phase.label.equals(label))
+                    return phase;
+            }
+            throw new IllegalArgumentException("Unknown tick phase: " + label + " (expected infect, recover, force_update or tick)");
+        }
+    }
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong nodesVisited = new AtomicLong();
+    private final AtomicLong edgesVisited = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile long lastTickNanos;
+    private volatile long lastNodesVisited;
+    private volatile long lastEdgesVisited;
+    private volatile long lastTransitions;
+    private volatile long lastAllocatedBytes;
+    private volatile int lastQueueDepth;
+    private ObjectName name;
+    /*
+        Abstraction function:
+            latencies[p.ordinal()] holds the durations of phase p; the atomic totals add up every
+            tick recorded and the volatile fields describe the last one. name is the JMX name the
+            metrics are registered under, or null if they are not.
+        Rep Invariant:
+            latencies has one histogram per phase; every total is non-negative.
+     */
+
+    /**
+     * Creates empty metrics.
+     */
+    public TickMetrics() {
+        for (int p = 0; p < latencies.length; p++)
+            latencies[p] = new LatencyHistogram();
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase the phase
+     * @param nanos its duration in nanoseconds
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        latencies[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a whole tick.
+     *
+     * @param nanos      its duration in nanoseconds
+     * @param nodes      the number of node visits
+     * @param edges      the number of edge visits
+     * @param changes    the number of state changes
+     * @param queueDepth the number of tasks waiting in the executor when it started
+     * @param allocated  the number of bytes allocated during the tick, or -1 if unknown
+     */
+    public void recordTick(long nanos, long nodes, long edges, long changes, int queueDepth, long allocated) {
+        latencies[Phase.TICK.ordinal()].record(nanos);
+        ticks.incrementAndGet();
+        nodesVisited.addAndGet(nodes);
+        edgesVisited.addAndGet(edges);
+        transitions.addAndGet(changes);
+        maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        if (allocated >= 0)
+            allocatedBytes.addAndGet(allocated);
+        lastTickNanos = nanos;
+        lastNodesVisited = nodes;
+        lastEdgesVisited = edges;
+        lastTransitions = changes;
+        lastQueueDepth = queueDepth;
+        lastAllocatedBytes = Math.max(0, allocated);
+    }
+
+    /**
+     * Gets the histogram of the durations of a phase.
+     *
+     * @param phase the phase
+     * @return its latency histogram
+     */
+    public LatencyHistogram latency(Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated so far.
+     * The difference of two calls on one thread is its allocation in between. Takes constant time.
+     *
+     * @return the allocated bytes, or -1 if the JVM does not measure them
+     */
+    static long threadAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Gets the thread bean measuring allocation, if the JVM supports it.
+     *
+     * @return the bean, or null if allocation is not measured
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+            return threads;
+        return null;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under
+     * {@code edu.rpi.cs.csci4963.u24.wangn4.hw04.graph:type=TickMetrics,name=<label>}.
+     *
+     * @param label the name telling these metrics apart from others of the same JVM
+     * @return true if the metrics were registered, false if they already were or the name is taken
+     */
+    public synchronized boolean register(String label) {
+        if (name != null)
+            return false;
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=TickMetrics,name=" + ObjectName.quote(label));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            name = objectName;
+            return true;
+        } catch (InstanceAlreadyExistsException e) {
+            return false;
+        } catch (JMException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server.
+     *
+     * @return true if they were removed, false if they were not registered
+     */
+    public synchronized boolean unregister() {
+        if (name == null)
+            return false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // removed by someone else, which leaves the same result
+        } catch (JMException e) {
+            e.printStackTrace();
+            return false;
+        }
+        name = null;
+        return true;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text exposition format, durations in seconds.
+     *
+     * @param out the destination
+     * @throws IOException if the destination cannot be written
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        out.append("# HELP epidemic_tick_phase_seconds Duration of the phases of a simulation tick.\n");
+        out.append("# TYPE epidemic_tick_phase_seconds summary\n");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = latencies[phase.ordinal()];
+            for (double quantile : QUANTILES) {
+                sample(out, "epidemic_tick_phase_seconds{phase=\"" + phase.label + "\",quantile=\"" + quantile + "\"}",
+                        seconds(histogram.getValueAtQuantile(quantile)));
+            }
+            sample(out, "epidemic_tick_phase_seconds_sum{phase=\"" + phase.label + "\"}", seconds(histogram.getSum()));
+            sample(out, "epidemic_tick_phase_seconds_count{phase=\"" + phase.label + "\"}", histogram.getCount());
+        }
+        out.append("# HELP epidemic_tick_phase_max_seconds Longest duration of the phases of a simulation tick.\n");
+        out.append("# TYPE epidemic_tick_phase_max_seconds gauge\n");
+        for (Phase phase : Phase.values())
+            sample(out, "epidemic_tick_phase_max_seconds{phase=\"" + phase.label + "\"}", seconds(latencies[phase.ordinal()].getMax()));
+
+        counter(out, "epidemic_ticks_total", "Simulation ticks run.", ticks.get());
+        counter(out, "epidemic_nodes_visited_total", "Infected nodes visited by the phases of a tick.", nodesVisited.get());
+        counter(out, "epidemic_edges_visited_total", "Edges scanned by the infection phases.", edgesVisited.get());
+        counter(out, "epidemic_transitions_total", "Node state changes made by the ticks.", transitions.get());
+        counter(out, "epidemic_allocated_bytes_total", "Bytes the ticks allocated.", allocatedBytes.get());
+        gauge(out, "epidemic_last_tick_seconds", "Duration of the last tick.", seconds(lastTickNanos));
+        gauge(out, "epidemic_last_tick_nodes_visited", "Node visits of the last tick.", lastNodesVisited);
+        gauge(out, "epidemic_last_tick_edges_visited", "Edge visits of the last tick.", lastEdgesVisited);
+        gauge(out, "epidemic_last_tick_transitions", "State changes of the last tick.", lastTransitions);
+        gauge(out, "epidemic_last_tick_allocated_bytes", "Bytes the last tick allocated.", lastAllocatedBytes);
+        gauge(out, "epidemic_executor_queue_depth", "Tasks waiting in the executor when the last tick started.", lastQueueDepth);
+        gauge(out, "epidemic_executor_queue_depth_max", "Most tasks seen waiting in the executor when a tick started.", maxQueueDepth.get());
+    }
+
+    /**
+     * Writes a counter with its help and type lines.
+     *
+     * @param out   the destination
+     * @param name  the metric name
+     * @param help  what it counts
+     * @param value its value
+     * @throws IOException if the destination cannot be written
+     */
+    private static void counter(Appendable out, String name, String help, double value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        sample(out, name, value);
+    }
+
+    /**
+     * Writes a gauge with its help and type lines.
+     *
+     * @param out   the destination
+     * @param name  the metric name
+     * @param help  what it measures
+     * @param value its value
+     * @throws IOException if the destination cannot be written
+     */
+    private static void gauge(Appendable out, String name, String help, double value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        sample(out, name, value);
+    }
+
+    /**
+     * Writes one sample line.
+     *
+     * @param out    the destination
+     * @param series the metric name with its labels
+     * @param value  the value
+     * @throws IOException if the destination cannot be written
+     */
+    private static void sample(Appendable out, String series, double value) throws IOException {
+        out.append(series).append(' ');
+        out.append(value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value));
+        out.append('\n');
+    }
+
+    /**
+     * Converts nanoseconds to seconds.
+     *
+     * @param nanos a duration in nanoseconds
+     * @return the duration in seconds
+     */
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos a duration in nanoseconds
+     * @return the duration in milliseconds
+     */
+    private static double millis(double nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Gets the number of ticks recorded.
+     *
+     * @return the number of ticks
+     */
+    @Override
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    /**
+     * Gets the number of infected nodes the ticks visited, counting each phase's visit.
+     *
+     * @return the total number of node visits
+     */
+    @Override
+    public long getNodesVisited() {
+        return nodesVisited.get();
+    }
+
+    /**
+     * Gets the number of edges the infection phases scanned.
+     *
+     * @return the total number of edge visits
+     */
+    @Override
+    public long getEdgesVisited() {
+        return edgesVisited.get();
+    }
+
+    /**
+     * Gets the number of state changes the ticks made.
+     *
+     * @return the total number of transitions
+     */
+    @Override
+    public long getTransitions() {
+        return transitions.get();
+    }
+
+    /**
+     * Gets the number of bytes the ticks allocated, counting every thread working on them.
+     *
+     * @return the total allocation, or 0 if the JVM does not measure it
+     */
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Gets the duration of the last tick.
+     *
+     * @return the duration in milliseconds
+     */
+    @Override
+    public double getLastTickMillis() {
+        return millis(lastTickNanos);
+    }
+
+    /**
+     * Gets the number of node visits of the last tick.
+     *
+     * @return the number of node visits
+     */
+    @Override
+    public long getLastNodesVisited() {
+        return lastNodesVisited;
+    }
+
+    /**
+     * Gets the number of edge visits of the last tick.
+     *
+     * @return the number of edge visits
+     */
+    @Override
+    public long getLastEdgesVisited() {
+        return lastEdgesVisited;
+    }
+
+    /**
+     * Gets the number of state changes of the last tick.
+     *
+     * @return the number of transitions
+     */
+    @Override
+    public long getLastTransitions() {
+        return lastTransitions;
+    }
+
+    /**
+     * Gets the number of bytes the last tick allocated, counting every thread working on it.
+     *
+     * @return the allocation, or 0 if the JVM does not measure it
+     */
+    @Override
+    public long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    /**
+     * Gets the number of tasks waiting in the executor when the last tick started.
+     *
+     * @return the queue depth
+     */
+    @Override
+    public int getLastQueueDepth() {
+        return lastQueueDepth;
+    }
+
+    /**
+     * Gets the largest number of tasks seen waiting in the executor when a tick started.
+     *
+     * @return the largest queue depth
+     */
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the mean duration of a tick.
+     *
+     * @return the mean in milliseconds
+     */
+    @Override
+    public double getMeanTickMillis() {
+        return millis(latency(Phase.TICK).getMean());
+    }
+
+    /**
+     * Gets the 99th percentile of the tick durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    @Override
+    public double getTickP99Millis() {
+        return millis(latency(Phase.TICK).getValueAtQuantile(0.99));
+    }
+
+    /**
+     * Gets the longest tick.
+     *
+     * @return the maximum in milliseconds
+     */
+    @Override
+    public double getMaxTickMillis() {
+        return millis(latency(Phase.TICK).getMax());
+    }
+
+    /**
+     * Gets the 99th percentile of the infection phase durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    @Override
+    public double getInfectP99Millis() {
+        return millis(latency(Phase.INFECT).getValueAtQuantile(0.99));
+    }
+
+    /**
+     * Gets the 99th percentile of the recovery phase durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    @Override
+    public double getRecoverP99Millis() {
+        return millis(latency(Phase.RECOVER).getValueAtQuantile(0.99));
+    }
+
+    /**
+     * Gets the 99th percentile of the force of infection update durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    @Override
+    public double getForceUpdateP99Millis() {
+        return millis(latency(Phase.FORCE_UPDATE).getValueAtQuantile(0.99));
+    }
+
+    /**
+     * Gets any quantile of the durations of a phase.
+     *
+     * @param phase    infect, recover, force_update or tick
+     * @param quantile the fraction, from 0 to 1
+     * @return the quantile in milliseconds
+     * @throws IllegalArgumentException if the phase or quantile is invalid
+     */
+    @Override
+    public double latencyMillis(String phase, double quantile) {
+        return millis(latency(Phase.parse(phase)).getValueAtQuantile(quantile));
+    }
+
+    /**
+     * Forgets everything recorded so far. Ticks recorded at the same time may be partly kept.
+     */
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies)
+            histogram.reset();
+        ticks.set(0);
+        nodesVisited.set(0);
+        edgesVisited.set(0);
+        transitions.set(0);
+        allocatedBytes.set(0);
+        maxQueueDepth.set(0);
+        lastTickNanos = 0;
+        lastNodesVisited = 0;
+        lastEdgesVisited = 0;
+        lastTransitions = 0;
+        lastAllocatedBytes = 0;
+        lastQueueDepth = 0;
+    }
+}
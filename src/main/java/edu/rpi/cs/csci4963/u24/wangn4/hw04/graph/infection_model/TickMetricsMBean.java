@@ -0,0 +1,148 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+/**
+ * The management interface of {@link TickMetrics}, as shown by JConsole or any other JMX client.
+ * Totals count every tick recorded since the last reset; durations are in milliseconds.
+ */
+public interface TickMetricsMBean {
+    /**
+     * Gets the number of ticks recorded.
+     *
+     * @return the number of ticks
+     */
+    long getTicks();
+
+    /**
+     * Gets the number of infected nodes the ticks visited, counting each phase's visit.
+     *
+     * @return the total number of node visits
+     */
+    long getNodesVisited();
+
+    /**
+     * Gets the number of edges the infection phases scanned.
+     *
+     * @return the total number of edge visits
+     */
+    long getEdgesVisited();
+
+    /**
+     * Gets the number of state changes the ticks made.
+     *
+     * @return the total number of transitions
+     */
+    long getTransitions();
+
+    /**
+     * Gets the number of bytes the ticks allocated, counting every thread working on them.
+     *
+     * @return the total allocation, or 0 if the JVM does not measure it
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Gets the duration of the last tick.
+     *
+     * @return the duration in milliseconds
+     */
+    double getLastTickMillis();
+
+    /**
+     * Gets the number of node visits of the last tick.
+     *
+     * @return the number of node visits
+     */
+    long getLastNodesVisited();
+
+    /**
+     * Gets the number of edge visits of the last tick.
+     *
+     * @return the number of edge visits
+     */
+    long getLastEdgesVisited();
+
+    /**
+     * Gets the number of state changes of the last tick.
+     *
+     * @return the number of transitions
+     */
+    long getLastTransitions();
+
+    /**
+     * Gets the number of bytes the last tick allocated, counting every thread working on it.
+     *
+     * @return the allocation, or 0 if the JVM does not measure it
+     */
+    long getLastAllocatedBytes();
+
+    /**
+     * Gets the number of tasks waiting in the executor when the last tick started.
+     *
+     * @return the queue depth
+     */
+    int getLastQueueDepth();
+
+    /**
+     * Gets the largest number of tasks seen waiting in the executor when a tick started.
+     *
+     * @return the largest queue depth
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * Gets the mean duration of a tick.
+     *
+     * @return the mean in milliseconds
+     */
+    double getMeanTickMillis();
+
+    /**
+     * Gets the 99th percentile of the tick durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    double getTickP99Millis();
+
+    /**
+     * Gets the longest tick.
+     *
+     * @return the maximum in milliseconds
+     */
+    double getMaxTickMillis();
+
+    /**
+     * Gets the 99th percentile of the infection phase durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    double getInfectP99Millis();
+
+    /**
+     * Gets the 99th percentile of the recovery phase durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    double getRecoverP99Millis();
+
+    /**
+     * Gets the 99th percentile of the force of infection update durations.
+     *
+     * @return the percentile in milliseconds
+     */
+    double getForceUpdateP99Millis();
+
+    /**
+     * Gets any quantile of the durations of a phase.
+     *
+     * @param phase    infect, recover, force_update or tick
+     * @param quantile the fraction, from 0 to 1
+     * @return the quantile in milliseconds
+     * @throws IllegalArgumentException if the phase or quantile is invalid
+     */
+    double latencyMillis(String phase, double quantile);
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,310 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The state counts of a run over time, stored as primitive columns.
+ * Each recorded tick costs about 25 bytes, so a chart can keep the whole history of a long run and
+ * only turn the part it shows into a bounded number of points with {@link #downsample}.
+ * Alongside the points it keeps the index of the lowest and highest point of every aligned block
+ * of 64, 4096 and 262144 points, so finding the extremes of a range skips whole blocks and
+ * downsampling costs about the same however many ticks the range holds.
+ * Ticks must be appended in increasing order; there may be gaps between them.
+ * Not thread-safe: it is meant to be owned by the thread drawing the chart.
+ */
+public final class TimeSeries {
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Each level of blocks groups 2^LEVEL_BITS blocks of the level below.
+     */
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVELS = 3;
+
+    private long[] ticks = new long[INITIAL_CAPACITY];
+    private final int[][] values = new int[NodeState.values().length][INITIAL_CAPACITY];
+    private final int[][][] minIndex = new int[LEVELS][NodeState.values().length][];
+    private final int[][][] maxIndex = new int[LEVELS][NodeState.values().length][];
+    private int size = 0;
+    /*
+        Abstraction function:
+            The i-th recorded point, for i < size, is tick ticks[i] with values[s.ordinal()][i]
+            nodes in every state s.
+        Rep Invariant:
+            ticks[0..size) is strictly increasing and every column has the length of ticks.
+            For every level l, state s and block b started by a recorded point,
+            minIndex[l][s][b] and maxIndex[l][s][b] are the indices of the first lowest and first
+            highest recorded value of s among the points b * 2^(LEVEL_BITS * (l + 1)) onwards
+            that fall in the block.
+     */
+
+    /**
+     * Creates an empty series.
+     */
+    public TimeSeries() {
+        allocateLevels(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Checks ensuring the fields are storing valid data.
+     *
+     * @throws RuntimeException if the ticks are out of order or a column has the wrong length
+     */
+    private void checkRep() {
+        if (Graph.DISABLE_CHECK_REP)
+            return;
+
+        for (int[] column : values) {
+            if (column.length != ticks.length)
+                throw new RuntimeException("TimeSeries columns have different lengths");
+        }
+        for (int i = 1; i < size; i++) {
+            if (ticks[i] <= ticks[i - 1])
+                throw new RuntimeException("TimeSeries.ticks is not increasing at " + i);
+        }
+    }
+
+    /**
+     * Records the counts of a tick.
+     *
+     * @param counts the counts, of a tick later than the last one recorded
+     * @throws IllegalArgumentException if the tick is not later than the last one recorded
+     */
+    public void append(StateCounts counts) {
+        if (size > 0 && counts.tick() <= ticks[size - 1])
+            throw new IllegalArgumentException("Tick " + counts.tick() + " is not after tick " + ticks[size - 1]);
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            for (int s = 0; s < values.length; s++)
+                values[s] = Arrays.copyOf(values[s], size * 2);
+            allocateLevels(size * 2);
+        }
+        int index = size;
+        ticks[index] = counts.tick();
+        for (NodeState state : NodeState.values())
+            values[state.ordinal()][index] = (int) counts.get(state);
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = LEVEL_BITS * (level + 1);
+            int block = index >> shift;
+            boolean starts = (index & ((1 << shift) - 1)) == 0;
+            for (int s = 0; s < values.length; s++) {
+                int[] column = values[s], min = minIndex[level][s], max = maxIndex[level][s];
+                if (starts || column[index] < column[min[block]])
+                    min[block] = index;
+                if (starts || column[index] > column[max[block]])
+                    max[block] = index;
+            }
+        }
+        size++;
+
+        checkRep();
+    }
+
+    /**
+     * Forgets every recorded tick, keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the number of recorded ticks.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether nothing is recorded.
+     *
+     * @return true if there are no points
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the tick of a recorded point.
+     *
+     * @param index the index of the point
+     * @return its tick
+     * @throws IndexOutOfBoundsException if there is no such point
+     */
+    public long tick(int index) {
+        return ticks[checkIndex(index)];
+    }
+
+    /**
+     * Gets the number of nodes in a state at a recorded point.
+     *
+     * @param index the index of the point
+     * @param state the state
+     * @return the number of nodes in the state
+     * @throws IndexOutOfBoundsException if there is no such point
+     */
+    public int value(int index, NodeState state) {
+        return values[state.ordinal()][checkIndex(index)];
+    }
+
+    /**
+     * Gets the first recorded tick.
+     *
+     * @return the first tick
+     * @throws IndexOutOfBoundsException if nothing is recorded
+     */
+    public long firstTick() {
+        return tick(0);
+    }
+
+    /**
+     * Gets the last recorded tick.
+     *
+     * @return the last tick
+     * @throws IndexOutOfBoundsException if nothing is recorded
+     */
+    public long lastTick() {
+        return tick(size - 1);
+    }
+
+    /**
+     * Finds the first point at or after a tick.
+     *
+     * @param tick the tick to look for
+     * @return the index of the first point whose tick is at least the given one, or size() if none is
+     */
+    public int indexOf(long tick) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ticks[middle] < tick)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Reduces the points of one state within a range of ticks to at most a given number.
+     * The range is split into equal buckets of points, and the lowest and highest point of every
+     * bucket are kept in tick order, so peaks and troughs survive however far the series is
+     * zoomed out. The nearest point outside each end of the range is included as well, so the
+     * plotted line reaches the edges of the view.
+     *
+     * @param state     the state whose counts to reduce
+     * @param fromTick  the first tick of the range
+     * @param toTick    the last tick of the range
+     * @param maxPoints the largest number of points to produce, at least 4
+     * @param out       receives the kept points in tick order
+     * @throws IllegalArgumentException if maxPoints is less than 4
+     */
+    public void downsample(NodeState state, long fromTick, long toTick, int maxPoints, PointConsumer out) {
+        if (maxPoints < 4)
+            throw new IllegalArgumentException("Downsampling needs room for at least 4 points");
+        int[] column = values[state.ordinal()];
+        int from = Math.max(0, indexOf(fromTick) - 1);
+        int to = Math.min(size, indexOf(toTick + 1) + 1);
+        int count = to - from;
+        if (count <= maxPoints) {
+            for (int i = from; i < to; i++)
+                out.accept(ticks[i], column[i]);
+            return;
+        }
+
+        // the end points are kept as they are, the points between them go in buckets of two
+        out.accept(ticks[from], column[from]);
+        int[] extremes = new int[2];
+        int inner = count - 2;
+        int buckets = (maxPoints - 2) / 2;
+        for (int b = 0; b < buckets; b++) {
+            int start = from + 1 + (int) ((long) inner * b / buckets);
+            int end = from + 1 + (int) ((long) inner * (b + 1) / buckets);
+            findExtremes(state.ordinal(), start, end, extremes);
+            int first = Math.min(extremes[0], extremes[1]), second = Math.max(extremes[0], extremes[1]);
+            out.accept(ticks[first], column[first]);
+            if (second != first)
+                out.accept(ticks[second], column[second]);
+        }
+        out.accept(ticks[to - 1], column[to - 1]);
+    }
+
+    /**
+     * Finds the first lowest and first highest point of a state in a range of points.
+     * Walks the range with the largest aligned blocks that fit in it, so a range of n points
+     * takes O(n / 2^(LEVEL_BITS * LEVELS) + 2^LEVEL_BITS * LEVELS) steps.
+     *
+     * @param state  the ordinal of the state
+     * @param start  the index of the first point
+     * @param end    the index after the last point, greater than start
+     * @param result receives the index of the lowest point at 0 and of the highest at 1
+     */
+    private void findExtremes(int state, int start, int end, int[] result) {
+        int[] column = values[state];
+        int min = start, max = start;
+        int i = start;
+        while (i < end) {
+            int level = 0;
+            while (level < LEVELS) {
+                int blockSize = 1 << (LEVEL_BITS * (level + 1));
+                if ((i & (blockSize - 1)) != 0 || end - i < blockSize)
+                    break;
+                level++;
+            }
+            int lowest = i, highest = i;
+            if (level > 0) {
+                int block = i >> (LEVEL_BITS * level);
+                lowest = minIndex[level - 1][state][block];
+                highest = maxIndex[level - 1][state][block];
+            }
+            if (column[lowest] < column[min])
+                min = lowest;
+            if (column[highest] > column[max])
+                max = highest;
+            i += 1 << (LEVEL_BITS * level);
+        }
+        result[0] = min;
+        result[1] = max;
+    }
+
+    /**
+     * Grows the block levels to hold the blocks of a number of points.
+     *
+     * @param capacity the number of points
+     */
+    private void allocateLevels(int capacity) {
+        for (int level = 0; level < LEVELS; level++) {
+            int blocks = (capacity >> (LEVEL_BITS * (level + 1))) + 1;
+            for (int s = 0; s < values.length; s++) {
+                minIndex[level][s] = minIndex[level][s] == null ? new int[blocks] : Arrays.copyOf(minIndex[level][s], blocks);
+                maxIndex[level][s] = maxIndex[level][s] == null ? new int[blocks] : Arrays.copyOf(maxIndex[level][s], blocks);
+            }
+        }
+    }
+
+    /**
+     * Checks that a point exists.
+     *
+     * @param index the index of the point
+     * @return the index
+     * @throws IndexOutOfBoundsException if there is no such point
+     */
+    private int checkIndex(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    /**
+     * Receives the points of a series one at a time, without boxing them.
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+        /**
+         * Receives a point.
+         *
+         * @param tick  the tick of the point
+         * @param value the number of nodes at that tick
+         */
+        void accept(long tick, int value);
+    }
+}
@@ -0,0 +1,83 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+/**
+ * A {@link CompartmentModel} compiled into flat primitive arrays indexed by compartment code,
+ * so the tick loops of {@link CompartmentInfection} look every rule up with plain array reads.
+ * Per-tick transitions and duration outcomes are stored CSR style: the moves out of compartment
+ * c occupy the range [offsets[c], offsets[c + 1]) of the target and threshold arrays, and a
+ * uniform draw u selects the first move whose cumulative probability threshold exceeds u.
+ *
+ * @param kind                 the NodeState code every compartment reports as
+ * @param initial              the compartment of the nodes infected when a run starts
+ * @param infectivity          the infectivity of every compartment, 0 if it does not infect
+ * @param susceptibility       the susceptibility of every compartment
+ * @param infectTarget         the compartment every compartment's infected nodes move to, or -1 if it cannot be infected
+ * @param duration             the ticks after which nodes leave every compartment, or -1 if they may stay
+ * @param transitionOffsets    the start of every compartment's per-tick moves, with an end sentinel
+ * @param transitionTargets    the compartment entered by every per-tick move
+ * @param transitionThresholds the cumulative probability of every per-tick move within its range
+ * @param outcomeOffsets       the start of every compartment's duration outcomes, with an end sentinel
+ * @param outcomeTargets       the compartment entered by every outcome
+ * @param outcomeThresholds    the cumulative probability of every outcome, the last of a range being infinite
+ */
+record TransitionTable(byte[] kind, byte initial, double[] infectivity, double[] susceptibility, byte[] infectTarget,
+                       int[] duration, int[] transitionOffsets, byte[] transitionTargets, double[] transitionThresholds,
+                       int[] outcomeOffsets, byte[] outcomeTargets, double[] outcomeThresholds) {
+    /**
+     * Returns the number of compartments.
+     *
+     * @return the number of compartments
+     */
+    int size() {
+        return kind.length;
+    }
+
+    /**
+     * Whether nodes of a compartment infect their neighbors.
+     *
+     * @param compartment the compartment code
+     * @return true if its infectivity is positive
+     */
+    boolean isInfectious(int compartment) {
+        return infectivity[compartment] > 0;
+    }
+
+    /**
+     * Whether nodes of a compartment can leave it on their own, so they must be visited every tick.
+     *
+     * @param compartment the compartment code
+     * @return true if the compartment has a duration or per-tick moves
+     */
+    boolean isTransient(int compartment) {
+        return duration[compartment] >= 0 || transitionOffsets[compartment] < transitionOffsets[compartment + 1];
+    }
+
+    /**
+     * Picks the per-tick move a node of a compartment makes.
+     *
+     * @param compartment the compartment code
+     * @param draw        a uniform draw in [0, 1)
+     * @return the compartment entered, or -1 if the node stays
+     */
+    int transition(int compartment, double draw) {
+        for (int k = transitionOffsets[compartment]; k < transitionOffsets[compartment + 1]; k++) {
+            if (draw < transitionThresholds[k])
+                return transitionTargets[k];
+        }
+        return -1;
+    }
+
+    /**
+     * Picks where a node goes once its time in a compartment is up.
+     *
+     * @param compartment the compartment code
+     * @param draw        a uniform draw in [0, 1)
+     * @return the compartment entered
+     */
+    int outcome(int compartment, double draw) {
+        int k = outcomeOffsets[compartment];
+        while (draw >= outcomeThresholds[k])
+            k++;
+        return outcomeTargets[k];
+    }
+}
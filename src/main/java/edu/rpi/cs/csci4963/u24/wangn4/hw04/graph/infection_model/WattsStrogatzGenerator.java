@@ -0,0 +1,62 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Watts–Strogatz small world generator.
+ * Each block covers a range of nodes and emits the links from every node to its successors on
+ * the ring, rewiring the far end of each link with the configured probability. Rewired links
+ * avoid self loops but may land on an existing link, which then merges with it, so the mean
+ * degree can fall slightly below the lattice degree.
+ */
+final class WattsStrogatzGenerator extends GraphGenerator {
+    private final int halfDegree;
+    private final double rewiring;
+
+    /**
+     * Constructs the generator.
+     *
+     * @param size     the number of nodes
+     * @param degree   the even mean degree of the ring lattice
+     * @param rewiring the probability of rewiring each link
+     * @param seed     the seed of the graph
+     */
+    WattsStrogatzGenerator(int size, int degree, double rewiring, long seed) {
+        super(size, seed);
+        if (degree < 2 || degree % 2 != 0 || degree >= size)
+            throw new IllegalArgumentException("Degree must be even, at least 2 and below the number of nodes");
+        if (!(rewiring >= 0 && rewiring <= 1))
+            throw new IllegalArgumentException("Rewiring probability must lie in [0, 1]");
+        this.halfDegree = degree / 2;
+        this.rewiring = rewiring;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int blocks() {
+        return BlockTask.blockCount(size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void generate(int block, EdgeSink sink) {
+        SplittableRandom stream = random.stream(0, RandomStreams.SEED_PHASE, block);
+        int end = Math.min(size, (block + 1) * BlockTask.BLOCK_SIZE);
+        for (int v = block * BlockTask.BLOCK_SIZE; v < end; v++) {
+            for (int j = 1; j <= halfDegree; j++) {
+                int w = (int) (((long) v + j) % size);
+                if (stream.nextDouble() < rewiring) {
+                    // uniform over every node but v itself
+                    w = stream.nextInt(size - 1);
+                    if (w >= v)
+                        w++;
+                }
+                sink.edge(v, w);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The threads a long-running application shares between all of its simulations.
+ * CPU-bound tick work runs on one work-stealing pool sized to the cores, which every simulation
+ * created with {@link #compute()} nests its block tasks into, so any number of runs can be started
+ * and closed without adding threads. Blocking work such as loading graphs or writing results runs
+ * on virtual threads from {@link #io()}, which cost nothing while they wait.
+ */
+public final class WorkerPools implements AutoCloseable {
+    private final ForkJoinPool compute;
+    private final ExecutorService io;
+
+    /**
+     * Creates the pools with one compute worker per available processor.
+     */
+    public WorkerPools() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates the pools.
+     *
+     * @param parallelism the number of compute workers
+     * @throws IllegalArgumentException if the parallelism is not positive
+     */
+    public WorkerPools(int parallelism) {
+        this.compute = new ForkJoinPool(parallelism);
+        this.io = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("simulation-io-", 0).factory());
+    }
+
+    /**
+     * Gets the pool simulations tick on.
+     *
+     * @return the compute pool
+     */
+    public ForkJoinPool compute() {
+        return compute;
+    }
+
+    /**
+     * Gets the executor running every task on its own virtual thread.
+     *
+     * @return the I/O executor
+     */
+    public ExecutorService io() {
+        return io;
+    }
+
+    /**
+     * Stops accepting work and waits for the I/O tasks already submitted to finish, then stops
+     * the compute pool. I/O tasks such as a graph layout may still hand work to the compute pool
+     * while they finish, so it is only shut down once they are done.
+     * Simulations created on these pools must not be ticked afterwards.
+     */
+    @Override
+    public void close() {
+        io.close();
+        compute.shutdown();
+    }
+}
@@ -1,8 +1,13 @@
 module edu.rpi.cs.csci4963.u24.wangn4.hw04.graph {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
+    requires jdk.httpserver;
     opens edu.rpi.cs.csci4963.u24.wangn4.hw04.graph to javafx.fxml;
     exports edu.rpi.cs.csci4963.u24.wangn4.hw04.graph;
     exports edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+    exports edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
     opens edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model to javafx.fxml;
-}
\ No newline at end of file
+}
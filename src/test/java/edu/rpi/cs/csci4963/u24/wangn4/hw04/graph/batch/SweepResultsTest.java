@@ -0,0 +1,195 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.batch;
+
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.CompactGraph;
+import edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model.StateCounts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a sweep results file resumes exactly the runs an earlier sweep left out, and only
+ * for the same sweep.
+ */
+class SweepResultsTest {
+    private static final String SWEEP = "ticks=10 engine=tick model=none graph=1";
+    private static final Parameters PARAMETERS = new Parameters(0.1, 0.2, 0.3, 4);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Builds a trajectory of two ticks.
+     *
+     * @param seed the seed of the run
+     * @return the trajectory
+     */
+    private static Trajectory trajectory(long seed) {
+        Trajectory trajectory = new Trajectory(seed);
+        trajectory.record(new StateCounts(0, 9, 1, 0, 0));
+        trajectory.record(new StateCounts(1, 7, 2, 1, 0));
+        return trajectory;
+    }
+
+    /**
+     * Runs written to a file are found again when it is reopened.
+     */
+    @Test
+    void resumesFinishedRuns() throws IOException {
+        Path file = directory.resolve("sweep.csv");
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            assertEquals(0, results.finishedCount());
+            results.append(0, 0, PARAMETERS, trajectory(11));
+            results.append(0, 1, PARAMETERS, trajectory(12));
+        }
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            assertEquals(2, results.finishedCount());
+            assertTrue(results.isFinished(0, 0, 11, PARAMETERS));
+            assertTrue(results.isFinished(0, 1, 12, PARAMETERS));
+            assertFalse(results.isFinished(1, 0, 13, PARAMETERS));
+        }
+    }
+
+    /**
+     * A row cut short by a crash is dropped and its run is done again.
+     */
+    @Test
+    void dropsPartialRow() throws IOException {
+        Path file = directory.resolve("sweep.csv");
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            results.append(0, 0, PARAMETERS, trajectory(11));
+            results.append(0, 1, PARAMETERS, trajectory(12));
+        }
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 5));
+
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            assertEquals(1, results.finishedCount());
+            assertFalse(results.isFinished(0, 1, 12, PARAMETERS));
+            results.append(0, 1, PARAMETERS, trajectory(12));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals(SweepResults.HEADER, lines.get(1));
+        assertTrue(lines.get(3).startsWith("0,1,12,"));
+    }
+
+    /**
+     * A run whose seed or parameters differ from the one in the file under the same indices
+     * means the file belongs to another sweep.
+     */
+    @Test
+    void rejectsDifferentRunUnderSameIndices() throws IOException {
+        Path file = directory.resolve("sweep.csv");
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            results.append(0, 0, PARAMETERS, trajectory(11));
+        }
+        try (SweepResults results = new SweepResults(file, SWEEP)) {
+            assertThrows(IOException.class, () -> results.isFinished(0, 0, 99, PARAMETERS));
+            assertThrows(IOException.class, () -> results.isFinished(0, 0, 11, new Parameters(0.5, 0.2, 0.3, 4)));
+        }
+    }
+
+    /**
+     * A sweep with other shared settings, such as another tick limit, does not resume the file.
+     */
+    @Test
+    void rejectsDifferentSweep() throws IOException {
+        Path file = directory.resolve("sweep.csv");
+        new SweepResults(file, SWEEP).close();
+        assertThrows(IOException.class, () -> new SweepResults(file, "ticks=20 engine=tick model=none graph=1"));
+        // the refused file is left as it was
+        assertEquals("# " + SWEEP, Files.readAllLines(file).get(0));
+    }
+
+    /**
+     * A file that is not a results file is not overwritten.
+     */
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.csv");
+        Files.writeString(file, "a,b\n1,2\n");
+        assertThrows(IOException.class, () -> new SweepResults(file, SWEEP));
+        assertEquals("a,b\n1,2\n", Files.readString(file));
+    }
+
+    /**
+     * An interrupted sweep resumed from its results file ends with the same rows as a sweep
+     * that ran through.
+     */
+    @Test
+    void resumedSweepMatchesUninterruptedSweep() throws IOException {
+        CompactGraph ring = ring(200);
+        ParameterSweep sweep = new ParameterSweep(ring, List.of(new Parameters(0.05, 0.5, 0.1, 3),
+                new Parameters(0.1, 0.5, 0.2, 5)), 3, 30, 7);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Path full = directory.resolve("full.csv");
+            try (SweepResults results = new SweepResults(full, sweep.describe("engine=tick model=none"))) {
+                assertEquals(6, sweep.run(pool, results));
+            }
+
+            // keep the header lines and the first two runs, as if the sweep had been killed
+            List<String> lines = Files.readAllLines(full);
+            Path resumed = directory.resolve("resumed.csv");
+            Files.write(resumed, lines.subList(0, 4));
+            try (SweepResults results = new SweepResults(resumed, sweep.describe("engine=tick model=none"))) {
+                assertEquals(2, results.finishedCount());
+                assertEquals(4, sweep.run(pool, results));
+            }
+            try (SweepResults results = new SweepResults(resumed, sweep.describe("engine=tick model=none"))) {
+                assertEquals(0, sweep.run(pool, results));
+            }
+
+            Set<String> expected = new HashSet<>(lines);
+            Set<String> actual = new HashSet<>(Files.readAllLines(resumed));
+            assertEquals(expected, actual);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The description of a sweep changes with its graph.
+     */
+    @Test
+    void describesGraph() {
+        List<Parameters> points = List.of(PARAMETERS);
+        String small = new ParameterSweep(ring(10), points, 1, 30, 7).describe("engine=tick model=none");
+        String large = new ParameterSweep(ring(11), points, 1, 30, 7).describe("engine=tick model=none");
+        assertNotEquals(small, large);
+    }
+
+    /**
+     * Builds a ring of nodes, each adjacent to the next.
+     *
+     * @param size the number of nodes
+     * @return the ring
+     */
+    private static CompactGraph ring(int size) {
+        int[] ids = new int[size];
+        int[] offsets = new int[size + 1];
+        int[] neighbors = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+            offsets[i + 1] = 2 * (i + 1);
+            neighbors[2 * i] = (i + size - 1) % size;
+            neighbors[2 * i + 1] = (i + 1) % size;
+        }
+        return new CompactGraph(ids, offsets, neighbors);
+    }
+}
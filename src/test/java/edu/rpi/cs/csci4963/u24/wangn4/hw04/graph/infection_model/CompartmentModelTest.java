@@ -0,0 +1,190 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests reading compartmental models and compiling them into transition tables.
+ */
+class CompartmentModelTest {
+    private static final String SEIRD = """
+            # SEIR with deaths
+            compartment S susceptible
+            compartment E infected
+            compartment I infected   # the infectious stage
+            compartment R recovered
+            compartment D dead
+
+            initial I
+            susceptible S E 1.0
+            infectious I 0.5
+            transition E I 0.2
+            transition E R 0.1
+            duration I 10
+            outcome I R 0.9
+            outcome I D 0.1
+            """;
+
+    /**
+     * Reads a model from text.
+     *
+     * @param text the declaration
+     * @return the model
+     * @throws IOException never, since the text is in memory
+     */
+    private static CompartmentModel read(String text) throws IOException {
+        return CompartmentModel.read(new StringReader(text));
+    }
+
+    /**
+     * Compartments keep their declaration order, names and kinds, and comments are ignored.
+     */
+    @Test
+    void readsCompartments() throws IOException {
+        CompartmentModel model = read(SEIRD);
+        assertEquals(5, model.size());
+        assertEquals("[S, E, I, R, D]", model.toString());
+        assertEquals(2, model.indexOf("I"));
+        assertEquals(-1, model.indexOf("V"));
+        assertEquals("E", model.name(1));
+        assertEquals(NodeState.INFECTED, model.kind(1));
+        assertEquals(NodeState.DEAD, model.kind(4));
+    }
+
+    /**
+     * The compiled table holds the infection rules of every compartment.
+     */
+    @Test
+    void compilesInfectionRules() throws IOException {
+        TransitionTable table = read(SEIRD).compile();
+        assertEquals(5, table.size());
+        assertEquals(2, table.initial());
+        assertEquals(NodeState.INFECTED.code(), table.kind()[1]);
+        assertEquals(1, table.infectTarget()[0]);
+        assertEquals(-1, table.infectTarget()[2]);
+        assertEquals(1.0, table.susceptibility()[0]);
+        assertTrue(table.isInfectious(2));
+        assertFalse(table.isInfectious(1));
+        assertEquals(0.5, table.infectivity()[2]);
+    }
+
+    /**
+     * A uniform draw picks the per-tick moves in declaration order, or none.
+     */
+    @Test
+    void picksTransitions() throws IOException {
+        TransitionTable table = read(SEIRD).compile();
+        assertTrue(table.isTransient(1));
+        assertTrue(table.isTransient(2));
+        assertFalse(table.isTransient(0));
+        assertFalse(table.isTransient(3));
+        assertEquals(2, table.transition(1, 0.0));
+        assertEquals(2, table.transition(1, 0.19));
+        assertEquals(3, table.transition(1, 0.2));
+        assertEquals(3, table.transition(1, 0.29));
+        assertEquals(-1, table.transition(1, 0.31));
+        assertEquals(-1, table.transition(0, 0.0));
+    }
+
+    /**
+     * Once their time is up nodes always go to one of the outcomes, even for draws just below 1.
+     */
+    @Test
+    void picksOutcomes() throws IOException {
+        TransitionTable table = read(SEIRD).compile();
+        assertEquals(10, table.duration()[2]);
+        assertEquals(-1, table.duration()[1]);
+        assertEquals(3, table.outcome(2, 0.0));
+        assertEquals(3, table.outcome(2, 0.89));
+        assertEquals(4, table.outcome(2, 0.9));
+        assertEquals(4, table.outcome(2, Math.nextDown(1.0)));
+        assertEquals(Double.POSITIVE_INFINITY, table.outcomeThresholds()[table.outcomeOffsets()[3] - 1]);
+    }
+
+    /**
+     * The built-in SIRD model matches the fixed infection time of {@link Infection}.
+     */
+    @Test
+    void buildsSird() {
+        TransitionTable table = CompartmentModel.sird(0.75, 4).compile();
+        assertEquals(1, table.initial());
+        assertEquals(4, table.duration()[1]);
+        assertEquals(2, table.outcome(1, 0.5));
+        assertEquals(3, table.outcome(1, 0.8));
+        assertEquals(-1, table.transition(1, 0.0));
+    }
+
+    /**
+     * A malformed line is reported with its line number.
+     */
+    @Test
+    void reportsLineOfErrors() {
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> read("compartment S susceptible\n\nsusceptable S I 1\n"));
+        assertTrue(unknown.getMessage().startsWith("Line 3: "));
+        IllegalArgumentException number = assertThrows(IllegalArgumentException.class,
+                () -> read("compartment S susceptible\ninfectious S lots\n"));
+        assertTrue(number.getMessage().startsWith("Line 2: "));
+        IllegalArgumentException arguments = assertThrows(IllegalArgumentException.class,
+                () -> read("compartment S\n"));
+        assertTrue(arguments.getMessage().startsWith("Line 1: "));
+        assertThrows(IllegalArgumentException.class, () -> read("compartment S healthy\n"));
+        assertThrows(IllegalArgumentException.class, () -> read("compartment S susceptible\ncompartment S infected\n"));
+    }
+
+    /**
+     * Models whose rules cannot be run are rejected when built.
+     */
+    @Test
+    void rejectsInvalidModels() {
+        assertThrows(IllegalArgumentException.class, () -> CompartmentModel.builder().build());
+        // no initial compartment
+        assertThrows(IllegalArgumentException.class, () -> sir().build());
+        // an undeclared compartment
+        assertThrows(IllegalArgumentException.class, () -> sir().initial("I").transition("I", "D", 0.1).build());
+        assertThrows(IllegalArgumentException.class, () -> sir().initial("X").build());
+        // transitions summing to more than 1
+        assertThrows(IllegalArgumentException.class,
+                () -> sir().initial("I").transition("I", "R", 0.6).transition("I", "S", 0.6).build());
+        // a probability outside [0, 1]
+        assertThrows(IllegalArgumentException.class, () -> sir().initial("I").transition("I", "R", -0.1).build());
+        assertThrows(IllegalArgumentException.class, () -> sir().initial("I").transition("I", "R", Double.NaN).build());
+        // outcomes that do not sum to 1, or without a duration
+        assertThrows(IllegalArgumentException.class,
+                () -> sir().initial("I").duration("I", 3).outcome("I", "R", 0.5).build());
+        assertThrows(IllegalArgumentException.class, () -> sir().initial("I").outcome("I", "R", 1).build());
+        // negative weights and durations
+        assertThrows(IllegalArgumentException.class, () -> sir().infectious("I", -1));
+        assertThrows(IllegalArgumentException.class, () -> sir().duration("I", -1));
+    }
+
+    /**
+     * Transitions summing to exactly 1 are accepted.
+     */
+    @Test
+    void acceptsCertainTransitions() {
+        TransitionTable table = sir().initial("I").transition("I", "R", 0.5).transition("I", "S", 0.5).build().compile();
+        assertEquals(2, table.transition(1, 0.49));
+        assertEquals(0, table.transition(1, 0.5));
+        assertEquals(0, table.transition(1, Math.nextDown(1.0)));
+    }
+
+    /**
+     * Declares the compartments of an SIR model with nothing else.
+     *
+     * @return the builder
+     */
+    private static CompartmentModel.Builder sir() {
+        return CompartmentModel.builder()
+                .compartment("S", NodeState.SUSCEPTIBLE)
+                .compartment("I", NodeState.INFECTED)
+                .compartment("R", NodeState.RECOVERED);
+    }
+}
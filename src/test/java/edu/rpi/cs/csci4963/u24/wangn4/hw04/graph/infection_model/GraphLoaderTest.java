@@ -0,0 +1,156 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests loading edge lists and contact lists into the CSR arrays of a {@link CompactGraph}.
+ */
+class GraphLoaderTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes a CSV file into the temporary directory.
+     *
+     * @param content the lines of the file
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path csv(String content) throws IOException {
+        Path file = directory.resolve("graph.csv");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    /**
+     * Lists the ids of the neighbors of a node in the order they are stored.
+     *
+     * @param graph the graph
+     * @param id    the id of the node
+     * @return the neighbor ids, sorted
+     */
+    private static List<String> neighbors(CompactGraph graph, String id) {
+        int node = graph.indexOf(id);
+        List<String> ids = new ArrayList<>();
+        for (int e = graph.offsets()[node]; e < graph.offsets()[node + 1]; e++)
+            ids.add(graph.idOf(graph.neighbors()[e]));
+        ids.sort(null);
+        return ids;
+    }
+
+    /**
+     * An edge listed from both of its ends is stored once per endpoint.
+     */
+    @Test
+    void storesEveryEdgeOncePerEndpoint() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("1;2;3\n2;1;3\n3;1\n"));
+        assertTrue(graph.hasNumericIds());
+        assertEquals(3, graph.size());
+        assertEquals(6, graph.edgeSize());
+        assertEquals(List.of("2", "3"), neighbors(graph, "1"));
+        assertEquals(List.of("1", "3"), neighbors(graph, "2"));
+        assertEquals(List.of("1", "2"), neighbors(graph, "3"));
+    }
+
+    /**
+     * The CSR arrays start at 0, never decrease and end at the number of entries.
+     */
+    @Test
+    void buildsConsistentOffsets() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("0;1;2;3\n4;0\n\n2;4\r\n"));
+        int[] offsets = graph.offsets();
+        assertEquals(graph.size() + 1, offsets.length);
+        assertEquals(0, offsets[0]);
+        assertEquals(graph.edgeSize(), offsets[graph.size()]);
+        for (int i = 0; i < graph.size(); i++) {
+            assertTrue(offsets[i] <= offsets[i + 1]);
+            assertEquals(offsets[i + 1] - offsets[i], graph.degree(i));
+        }
+        assertEquals(List.of("1", "2", "3", "4"), neighbors(graph, "0"));
+        assertEquals(List.of("0", "2"), neighbors(graph, "4"));
+    }
+
+    /**
+     * Ids that are not all integers go through the string dictionary.
+     */
+    @Test
+    void loadsStringIds() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("alice;bob;carol\nbob;alice\n007;alice\n"));
+        assertFalse(graph.hasNumericIds());
+        assertEquals(4, graph.size());
+        assertEquals(List.of("007", "bob", "carol"), neighbors(graph, "alice"));
+        assertEquals(List.of("alice"), neighbors(graph, "bob"));
+        assertEquals(-1, graph.indexOf("7"));
+    }
+
+    /**
+     * Only the canonical decimal form of a numeric id names its node.
+     */
+    @Test
+    void looksUpNumericIdsByTheirDecimalForm() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("10;20\n"));
+        assertTrue(graph.hasNumericIds());
+        assertEquals("10", graph.idOf(graph.indexOf("10")));
+        assertEquals(-1, graph.indexOf("010"));
+        assertEquals(-1, graph.indexOf("30"));
+    }
+
+    /**
+     * A contact listed in both directions keeps its largest weight, and a contact in another
+     * window is kept apart.
+     */
+    @Test
+    void mergesDuplicateContacts() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("1;2;0.5\n2;1;0.75\n1;2;0.25;3;7\n"), true);
+        assertTrue(graph.hasWeights());
+        assertTrue(graph.isTemporal());
+        assertEquals(4, graph.edgeSize());
+
+        int node = graph.indexOf("1");
+        float always = -1, windowed = -1;
+        for (int e = graph.offsets()[node]; e < graph.offsets()[node + 1]; e++) {
+            assertEquals("2", graph.idOf(graph.neighbors()[e]));
+            if (graph.isActive(e, 100)) {
+                always = graph.weight(e);
+            } else {
+                windowed = graph.weight(e);
+                assertTrue(graph.isActive(e, 3));
+                assertFalse(graph.isActive(e, 7));
+            }
+        }
+        assertEquals(0.75f, always);
+        assertEquals(0.25f, windowed);
+    }
+
+    /**
+     * A line longer than the limit fails the load with an IOException, even when it lies
+     * entirely inside one chunk.
+     */
+    @Test
+    void rejectsOverlongLines() throws IOException {
+        Path file = csv("1;2\n" + "3;".repeat(600_000) + "4\n5;6\n");
+        assertThrows(IOException.class, () -> GraphLoader.load(file));
+    }
+
+    /**
+     * Lines below the limit are loaded whatever their length.
+     */
+    @Test
+    void acceptsLongLinesBelowTheLimit() throws IOException {
+        CompactGraph graph = GraphLoader.load(csv("1;2\n" + "3;".repeat(200_000) + "4\n"));
+        assertEquals(4, graph.size());
+        assertEquals(List.of("3"), neighbors(graph, "4"));
+    }
+}
@@ -0,0 +1,253 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests writing graphs to binary snapshots, reading them back and rejecting corrupt files.
+ */
+class GraphSnapshotTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Builds a path graph 0 - 1 - 2 - 3 with numeric ids.
+     *
+     * @return the graph
+     */
+    private static CompactGraph numericPath() {
+        return new CompactGraph(new int[]{0, 1, 2, 3}, new int[]{0, 1, 3, 5, 6}, new int[]{1, 0, 2, 1, 3, 2});
+    }
+
+    /**
+     * Writes a graph and reads it back.
+     *
+     * @param graph the graph
+     * @return the graph read from the snapshot
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    private CompactGraph roundTrip(CompactGraph graph) throws IOException {
+        Path file = directory.resolve("graph" + GraphSnapshot.EXTENSION);
+        GraphSnapshot.write(graph, file);
+        assertTrue(GraphSnapshot.isSnapshot(file));
+        return GraphSnapshot.read(file);
+    }
+
+    /**
+     * Checks that two graphs have the same nodes, in the same order, and the same adjacency.
+     *
+     * @param expected the original graph
+     * @param actual   the graph read back
+     */
+    private static void assertSameGraph(CompactGraph expected, CompactGraph actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.hasNumericIds(), actual.hasNumericIds());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.idOf(i), actual.idOf(i));
+        assertArrayEquals(expected.offsets(), actual.offsets());
+        assertArrayEquals(expected.neighbors(), actual.neighbors());
+        assertArrayEquals(expected.weights(), actual.weights());
+        assertArrayEquals(expected.activeFrom(), actual.activeFrom());
+        assertArrayEquals(expected.activeUntil(), actual.activeUntil());
+        assertEquals(expected.fingerprint(), actual.fingerprint());
+    }
+
+    /**
+     * A graph with numeric ids reads back unchanged.
+     */
+    @Test
+    void roundTripsNumericIds() throws IOException {
+        CompactGraph graph = numericPath();
+        assertSameGraph(graph, roundTrip(graph));
+    }
+
+    /**
+     * A graph with string ids, including multi-byte ones, reads back unchanged.
+     */
+    @Test
+    void roundTripsStringIds() throws IOException {
+        CompactGraph graph = new CompactGraph(new String[]{"alice", "bob", "zoë"}, new int[]{0, 2, 3, 4},
+                new int[]{1, 2, 0, 0});
+        CompactGraph read = roundTrip(graph);
+        assertSameGraph(graph, read);
+        assertEquals(2, read.indexOf("zoë"));
+    }
+
+    /**
+     * Weights and activity windows read back unchanged.
+     */
+    @Test
+    void roundTripsWeightsAndWindows() throws IOException {
+        CompactGraph graph = weightedPair();
+        assertSameGraph(graph, roundTrip(graph));
+    }
+
+    /**
+     * An empty graph reads back unchanged.
+     */
+    @Test
+    void roundTripsEmptyGraph() throws IOException {
+        CompactGraph graph = new CompactGraph(new int[0], new int[]{0}, new int[0]);
+        assertSameGraph(graph, roundTrip(graph));
+    }
+
+    /**
+     * A CSV file is not taken for a snapshot.
+     */
+    @Test
+    void tellsCsvFromSnapshots() throws IOException {
+        Path file = directory.resolve("graph.csv");
+        Files.writeString(file, "1;2\n");
+        assertFalse(GraphSnapshot.isSnapshot(file));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+    }
+
+    /**
+     * Builds a graph of two nodes joined by an edge with a weight and an activity window.
+     *
+     * @return the graph
+     */
+    private static CompactGraph weightedPair() {
+        return new CompactGraph(new int[]{0, 1}, new int[]{0, 1, 2}, new int[]{1, 0},
+                new float[]{0.25f, 0.25f}, new int[]{2, 2}, new int[]{9, 9});
+    }
+
+    /**
+     * Overwrites one int of a snapshot of a graph at a position in the file.
+     *
+     * @param graph    the graph to write
+     * @param position the byte position of the int, counted from the end of the file if negative
+     * @param value    the new value
+     * @return the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    private Path corruptAt(CompactGraph graph, int position, int value) throws IOException {
+        Path file = directory.resolve("corrupt" + GraphSnapshot.EXTENSION);
+        GraphSnapshot.write(graph, file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(position < 0 ? bytes.length + position : position, value);
+        Files.write(file, bytes);
+        return file;
+    }
+
+    /**
+     * Overwrites one int of a snapshot of {@link #numericPath()}, counted from the end of the
+     * file, whose last ints are the offsets followed by the neighbors.
+     *
+     * @param fromEnd the number of ints between the overwritten one and the end of the file
+     * @param value   the new value
+     * @return the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    private Path corrupt(int fromEnd, int value) throws IOException {
+        return corruptAt(numericPath(), -(fromEnd + 1) * Integer.BYTES, value);
+    }
+
+    /**
+     * A neighbor outside the graph is rejected.
+     */
+    @Test
+    void rejectsNeighborOutOfRange() throws IOException {
+        Path file = corrupt(0, 4);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+        Path negative = corrupt(0, -1);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(negative));
+    }
+
+    /**
+     * Offsets that decrease are rejected even when the first and last are right.
+     */
+    @Test
+    void rejectsDecreasingOffsets() throws IOException {
+        // the offsets are 0 1 3 5 6, followed by 6 neighbors; the second one becomes 4
+        Path file = corrupt(6 + 3, 4);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+    }
+
+    /**
+     * A last offset other than the number of entries is rejected.
+     */
+    @Test
+    void rejectsWrongEdgeCount() throws IOException {
+        Path file = corrupt(6, 5);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+    }
+
+    /**
+     * A header announcing more nodes or entries than the file holds is rejected before any
+     * array is allocated, even when the count would overflow an array size.
+     */
+    @Test
+    void rejectsOversizedHeader() throws IOException {
+        // the node count is the fourth int of the header, the entry count the fifth
+        Path numeric = corruptAt(numericPath(), 3 * Integer.BYTES, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(numeric));
+        CompactGraph strings = new CompactGraph(new String[]{"a", "b"}, new int[]{0, 1, 2}, new int[]{1, 0});
+        Path named = corruptAt(strings, 3 * Integer.BYTES, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(named));
+        Path entries = corruptAt(numericPath(), 4 * Integer.BYTES, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(entries));
+    }
+
+    /**
+     * Weights the loader never produces are rejected.
+     */
+    @Test
+    void rejectsInvalidWeights() throws IOException {
+        // the last ints are the 2 weights, the 2 window starts and the 2 window ends
+        for (float weight : new float[]{-1, Float.NaN, Float.POSITIVE_INFINITY}) {
+            Path file = corruptAt(weightedPair(), -5 * Integer.BYTES, Float.floatToRawIntBits(weight));
+            assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+        }
+    }
+
+    /**
+     * Activity windows that start after they end, or before tick 0, are rejected.
+     */
+    @Test
+    void rejectsInvalidWindows() throws IOException {
+        Path late = corruptAt(weightedPair(), -3 * Integer.BYTES, 10);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(late));
+        Path negative = corruptAt(weightedPair(), -3 * Integer.BYTES, -1);
+        assertThrows(IOException.class, () -> GraphSnapshot.read(negative));
+    }
+
+    /**
+     * A file cut short is rejected.
+     */
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = directory.resolve("truncated" + GraphSnapshot.EXTENSION);
+        GraphSnapshot.write(numericPath(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+        assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+    }
+
+    /**
+     * A snapshot of a newer version is rejected rather than misread.
+     */
+    @Test
+    void rejectsUnknownVersion() throws IOException {
+        Path file = directory.resolve("future" + GraphSnapshot.EXTENSION);
+        GraphSnapshot.write(numericPath(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(Integer.BYTES, GraphSnapshot.VERSION + 1);
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> GraphSnapshot.read(file));
+        assertTrue(e.getMessage().contains("version"));
+    }
+}
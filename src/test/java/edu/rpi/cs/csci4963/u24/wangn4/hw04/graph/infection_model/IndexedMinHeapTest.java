@@ -0,0 +1,132 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the indexed heap the event-driven model keeps its pending events in.
+ */
+class IndexedMinHeapTest {
+    /**
+     * Keys come out in the order of their priorities.
+     */
+    @Test
+    void pollsInPriorityOrder() {
+        IndexedMinHeap heap = new IndexedMinHeap(5);
+        heap.put(3, 3.0);
+        heap.put(0, 5.0);
+        heap.put(4, 1.0);
+        heap.put(1, 4.0);
+        heap.put(2, 2.0);
+        assertEquals(5, heap.size());
+        assertEquals(1.0, heap.peekPriority());
+        for (int key : new int[]{4, 2, 3, 1, 0})
+            assertEquals(key, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    /**
+     * Putting a key that is already held moves it, in either direction.
+     */
+    @Test
+    void movesKeysToNewPriorities() {
+        IndexedMinHeap heap = new IndexedMinHeap(3);
+        heap.put(0, 1.0);
+        heap.put(1, 2.0);
+        heap.put(2, 3.0);
+        heap.put(2, 0.5);
+        assertEquals(2, heap.peek());
+        heap.put(2, 9.0);
+        assertEquals(0, heap.peek());
+        assertEquals(9.0, heap.priority(2));
+        assertEquals(3, heap.size());
+    }
+
+    /**
+     * Removing a key from the middle keeps the others in order.
+     */
+    @Test
+    void removesAnyKey() {
+        IndexedMinHeap heap = new IndexedMinHeap(4);
+        for (int key = 0; key < 4; key++)
+            heap.put(key, key);
+        assertTrue(heap.remove(1));
+        assertFalse(heap.remove(1));
+        assertFalse(heap.contains(1));
+        assertEquals(0, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(3, heap.poll());
+    }
+
+    /**
+     * An empty heap has no first key and an infinite smallest priority.
+     */
+    @Test
+    void emptyHeap() {
+        IndexedMinHeap heap = new IndexedMinHeap(2);
+        assertEquals(Double.POSITIVE_INFINITY, heap.peekPriority());
+        assertThrows(NoSuchElementException.class, heap::peek);
+        assertThrows(NoSuchElementException.class, heap::poll);
+    }
+
+    /**
+     * Clearing forgets every key, and the keys can be added again.
+     */
+    @Test
+    void clearsAllKeys() {
+        IndexedMinHeap heap = new IndexedMinHeap(3);
+        heap.put(0, 1.0);
+        heap.put(2, 2.0);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(0));
+        assertFalse(heap.contains(2));
+        heap.put(2, 7.0);
+        assertEquals(2, heap.poll());
+    }
+
+    /**
+     * A random mix of puts, updates and removals polls like a priority queue holding the
+     * latest priority of every key.
+     */
+    @Test
+    void matchesPriorityQueue() {
+        int keys = 200;
+        Random random = new Random(42);
+        IndexedMinHeap heap = new IndexedMinHeap(keys);
+        double[] priority = new double[keys];
+        boolean[] held = new boolean[keys];
+        for (int step = 0; step < 5000; step++) {
+            int key = random.nextInt(keys);
+            if (random.nextInt(4) == 0) {
+                assertEquals(held[key], heap.remove(key));
+                held[key] = false;
+            } else {
+                priority[key] = random.nextDouble();
+                heap.put(key, priority[key]);
+                held[key] = true;
+            }
+        }
+
+        PriorityQueue<Integer> expected = new PriorityQueue<>((a, b) -> Double.compare(priority[a], priority[b]));
+        for (int key = 0; key < keys; key++) {
+            if (held[key])
+                expected.add(key);
+        }
+        assertEquals(expected.size(), heap.size());
+        while (!expected.isEmpty()) {
+            int key = expected.poll();
+            assertEquals(priority[key], heap.peekPriority());
+            assertEquals(key, heap.poll());
+            assertEquals(Double.POSITIVE_INFINITY, heap.priority(key));
+        }
+    }
+}
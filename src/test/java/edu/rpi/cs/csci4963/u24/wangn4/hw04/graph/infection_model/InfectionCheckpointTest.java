@@ -0,0 +1,206 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a run resumed from a checkpoint goes on exactly like the run it was taken from,
+ * and that a checkpoint is only restored on the graph it was taken on.
+ */
+class InfectionCheckpointTest {
+    private static final int SIZE = 3_000;
+    private static final long SEED = 42;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Builds a ring of nodes, each adjacent to the nodes 1 and 7 places away on either side.
+     *
+     * @param weights the weight of every entry, or null for an unweighted graph
+     * @return the graph
+     */
+    private static CompactGraph ring(float[] weights) {
+        int[] ids = new int[SIZE];
+        int[] offsets = new int[SIZE + 1];
+        int[] neighbors = new int[4 * SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = i;
+            offsets[i + 1] = 4 * (i + 1);
+            neighbors[4 * i] = (i + SIZE - 7) % SIZE;
+            neighbors[4 * i + 1] = (i + SIZE - 1) % SIZE;
+            neighbors[4 * i + 2] = (i + 1) % SIZE;
+            neighbors[4 * i + 3] = (i + 7) % SIZE;
+        }
+        if (weights == null)
+            return new CompactGraph(ids, offsets, neighbors);
+        int[] activeFrom = new int[neighbors.length], activeUntil = new int[neighbors.length];
+        Arrays.fill(activeUntil, Integer.MAX_VALUE);
+        return new CompactGraph(ids, offsets, neighbors, weights, activeFrom, activeUntil);
+    }
+
+    /**
+     * Gives every entry of {@link #ring(float[])} the same weight.
+     *
+     * @return the weights
+     */
+    private static float[] uniformWeights() {
+        float[] weights = new float[4 * SIZE];
+        Arrays.fill(weights, 0.75f);
+        return weights;
+    }
+
+    /**
+     * Starts a run on a graph.
+     *
+     * @param graph the graph
+     * @param seed  the seed of the run
+     * @return the model
+     */
+    private static Infection start(CompactGraph graph, long seed) {
+        return new Infection(graph, 0.01, 0.7, 0.3, 8, seed);
+    }
+
+    /**
+     * Ticks a model a number of times.
+     *
+     * @param model the model
+     * @param ticks the number of ticks
+     */
+    private static void tick(Infection model, int ticks) {
+        for (int t = 0; t < ticks; t++)
+            model.tick();
+    }
+
+    /**
+     * Checks that two runs are in the same state.
+     *
+     * @param expected the uninterrupted run
+     * @param actual   the resumed run
+     */
+    private static void assertSameRun(Infection expected, Infection actual) {
+        assertEquals(expected.getTickCount(), actual.getTickCount());
+        assertEquals(expected.getStateCounts(), actual.getStateCounts());
+        assertEquals(expected.getForceOfInfection(), actual.getForceOfInfection());
+        assertArrayEquals(expected.getStates().states(), actual.getStates().states());
+        assertArrayEquals(expected.getStates().timeInfected(), actual.getStates().timeInfected());
+    }
+
+    /**
+     * A run restored from an in-memory checkpoint into another model ticks on like the run it
+     * was taken from.
+     */
+    @Test
+    void restoredRunMatchesUninterruptedRun() {
+        CompactGraph graph = ring(uniformWeights());
+        try (Infection full = start(graph, SEED); Infection part = start(graph, SEED);
+             Infection resumed = start(graph, SEED + 1)) {
+            tick(full, 40);
+            tick(part, 15);
+            InfectionCheckpoint checkpoint = part.checkpoint();
+            assertEquals(15, checkpoint.getTick());
+            // the checkpoint is a copy, so the run it came from may go on
+            tick(part, 5);
+
+            tick(resumed, 3);
+            assertTrue(resumed.restore(checkpoint));
+            assertEquals(15, resumed.getTickCount());
+            tick(resumed, 25);
+            assertSameRun(full, resumed);
+        }
+    }
+
+    /**
+     * A checkpoint written to a file and read back resumes the same run.
+     */
+    @Test
+    void writtenCheckpointMatchesUninterruptedRun() throws IOException {
+        CompactGraph graph = ring(null);
+        Path file = directory.resolve("run" + InfectionCheckpoint.EXTENSION);
+        try (Infection full = start(graph, SEED); Infection part = start(graph, SEED);
+             Infection resumed = start(graph, 7)) {
+            tick(full, 30);
+            tick(part, 12);
+            part.checkpoint().write(file);
+
+            InfectionCheckpoint checkpoint = InfectionCheckpoint.read(file, graph);
+            assertNotNull(checkpoint);
+            assertEquals(12, checkpoint.getTick());
+            assertEquals(SIZE, checkpoint.size());
+            assertTrue(resumed.restore(checkpoint));
+            tick(resumed, 18);
+            assertSameRun(full, resumed);
+        }
+    }
+
+    /**
+     * Changing the weight of a single entry changes the fingerprint of the graph, so a
+     * checkpoint of the original graph is neither restored nor read on it.
+     */
+    @Test
+    void rejectsGraphWithChangedWeight() throws IOException {
+        CompactGraph graph = ring(uniformWeights());
+        float[] weights = uniformWeights();
+        weights[123] = 0.5f;
+        CompactGraph changed = ring(weights);
+        assertNotEquals(graph.fingerprint(), changed.fingerprint());
+        assertEquals(graph.fingerprint(), ring(uniformWeights()).fingerprint());
+
+        Path file = directory.resolve("run" + InfectionCheckpoint.EXTENSION);
+        try (Infection run = start(graph, SEED); Infection other = start(changed, SEED)) {
+            tick(run, 5);
+            InfectionCheckpoint checkpoint = run.checkpoint();
+            assertTrue(checkpoint.belongsTo(graph));
+            assertFalse(checkpoint.belongsTo(changed));
+            assertFalse(other.restore(checkpoint));
+            assertEquals(0, other.getTickCount());
+
+            checkpoint.write(file);
+            assertNull(InfectionCheckpoint.read(file, changed));
+            assertNotNull(InfectionCheckpoint.read(file, graph));
+        }
+    }
+
+    /**
+     * A graph without weights is told apart from one whose weights are all 1.
+     */
+    @Test
+    void tellsUnweightedFromWeightedGraph() {
+        float[] ones = new float[4 * SIZE];
+        Arrays.fill(ones, 1);
+        assertNotEquals(ring(null).fingerprint(), ring(ones).fingerprint());
+    }
+
+    /**
+     * A missing checkpoint file reads as no checkpoint, and a damaged one fails to read.
+     */
+    @Test
+    void readsMissingAndDamagedFiles() throws IOException {
+        CompactGraph graph = ring(null);
+        Path file = directory.resolve("run" + InfectionCheckpoint.EXTENSION);
+        assertNull(InfectionCheckpoint.read(file, graph));
+
+        try (Infection run = start(graph, SEED)) {
+            tick(run, 5);
+            run.checkpoint().write(file);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> InfectionCheckpoint.read(file, graph));
+    }
+}
@@ -0,0 +1,107 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the log-linear buckets of the tick latency histogram and the quantiles read from them.
+ */
+class LatencyHistogramTest {
+    /**
+     * Values below 128 get a bucket each.
+     */
+    @Test
+    void recordsSmallValuesExactly() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(127, LatencyHistogram.bucket(127));
+        assertEquals(127, LatencyHistogram.highestValue(127));
+    }
+
+    /**
+     * The first log-linear bucket starts right after the linear range and is two values wide.
+     */
+    @Test
+    void startsLogBucketsAt128() {
+        assertEquals(128, LatencyHistogram.bucket(128));
+        assertEquals(128, LatencyHistogram.bucket(129));
+        assertEquals(129, LatencyHistogram.bucket(130));
+        assertEquals(129, LatencyHistogram.highestValue(128));
+    }
+
+    /**
+     * The largest long falls in the last bucket, which ends at the largest long.
+     */
+    @Test
+    void coversLongRange() {
+        int last = LatencyHistogram.bucket(Long.MAX_VALUE);
+        assertEquals(3711, last);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(last));
+        // the last bucket holds the values whose top 7 bits are all set
+        assertEquals(last, LatencyHistogram.bucket(127L << 56));
+        assertEquals(last - 1, LatencyHistogram.bucket((127L << 56) - 1));
+    }
+
+    /**
+     * Every bucket starts one past the end of the bucket before it and is at most 1/64 of its
+     * values wide.
+     */
+    @Test
+    void bucketsAreContiguous() {
+        int last = LatencyHistogram.bucket(Long.MAX_VALUE);
+        long start = 0;
+        for (int b = 0; b <= last; b++) {
+            long end = LatencyHistogram.highestValue(b);
+            assertTrue(end >= start, "bucket " + b + " is empty");
+            assertEquals(b, LatencyHistogram.bucket(start));
+            assertEquals(b, LatencyHistogram.bucket(end));
+            assertTrue(end - start <= Math.max(0, start / 64), "bucket " + b + " is too wide");
+            start = end + 1;
+        }
+        // the end of the last bucket wraps around past the largest long
+        assertEquals(Long.MIN_VALUE, start);
+    }
+
+    /**
+     * Quantiles report the end of their bucket, but never more than the maximum.
+     */
+    @Test
+    void readsQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+        for (long value = 1; value <= 100; value++)
+            histogram.record(value);
+        histogram.record(1_000_000);
+        assertEquals(101, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(1, histogram.getValueAtQuantile(0));
+        assertEquals(51, histogram.getValueAtQuantile(0.5));
+        assertEquals(100, histogram.getValueAtQuantile(0.99));
+        assertEquals(1_000_000, histogram.getValueAtQuantile(1));
+        long p100 = LatencyHistogram.highestValue(LatencyHistogram.bucket(1_000_000));
+        assertTrue(p100 - 1_000_000 <= 1_000_000 / 64);
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtQuantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtQuantile(Double.NaN));
+    }
+
+    /**
+     * Negative durations count as 0, and a reset forgets everything.
+     */
+    @Test
+    void clampsAndResets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtQuantile(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtQuantile(1));
+    }
+}
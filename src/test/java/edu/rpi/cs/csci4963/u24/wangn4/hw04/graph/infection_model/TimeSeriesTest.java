@@ -0,0 +1,192 @@
+package edu.rpi.cs.csci4963.u24.wangn4.hw04.graph.infection_model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests recording state counts and downsampling them for a chart.
+ */
+class TimeSeriesTest {
+    /**
+     * Records a series whose infected count is given for every other tick, starting at tick 0.
+     *
+     * @param infected the infected count of every point
+     * @return the series
+     */
+    private static TimeSeries series(int[] infected) {
+        TimeSeries series = new TimeSeries();
+        for (int i = 0; i < infected.length; i++)
+            series.append(new StateCounts(2L * i, 10_000 - infected[i], infected[i], 0, 0));
+        return series;
+    }
+
+    /**
+     * Downsamples the infected counts of a series into a list of points.
+     *
+     * @param series    the series
+     * @param fromTick  the first tick of the range
+     * @param toTick    the last tick of the range
+     * @param maxPoints the largest number of points
+     * @return the points as {tick, value} pairs in the order they were produced
+     */
+    private static List<long[]> downsample(TimeSeries series, long fromTick, long toTick, int maxPoints) {
+        List<long[]> points = new ArrayList<>();
+        series.downsample(NodeState.INFECTED, fromTick, toTick, maxPoints,
+                (tick, value) -> points.add(new long[]{tick, value}));
+        return points;
+    }
+
+    /**
+     * Points are stored in columns and found by tick.
+     */
+    @Test
+    void recordsPoints() {
+        TimeSeries series = series(new int[]{1, 5, 3});
+        assertEquals(3, series.size());
+        assertEquals(0, series.firstTick());
+        assertEquals(4, series.lastTick());
+        assertEquals(2, series.tick(1));
+        assertEquals(5, series.value(1, NodeState.INFECTED));
+        assertEquals(9_995, series.value(1, NodeState.SUSCEPTIBLE));
+        assertEquals(1, series.indexOf(1));
+        assertEquals(1, series.indexOf(2));
+        assertEquals(3, series.indexOf(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.tick(3));
+
+        series.clear();
+        assertTrue(series.isEmpty());
+        series.append(new StateCounts(0, 1, 0, 0, 0));
+        assertEquals(1, series.size());
+    }
+
+    /**
+     * Ticks must increase.
+     */
+    @Test
+    void rejectsTicksOutOfOrder() {
+        TimeSeries series = series(new int[]{1, 2});
+        assertThrows(IllegalArgumentException.class, () -> series.append(new StateCounts(2, 0, 0, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> series.append(new StateCounts(1, 0, 0, 0, 0)));
+        assertEquals(2, series.size());
+    }
+
+    /**
+     * Fewer than 4 points leave no room for the end points and one bucket.
+     */
+    @Test
+    void rejectsTooFewPoints() {
+        TimeSeries series = series(new int[]{1, 2});
+        assertThrows(IllegalArgumentException.class, () -> series.downsample(NodeState.INFECTED, 0, 2, 3,
+                (tick, value) -> { }));
+    }
+
+    /**
+     * A range with few points is passed on whole, with the nearest point outside each end.
+     */
+    @Test
+    void keepsAllPointsOfShortRanges() {
+        TimeSeries series = series(new int[]{0, 1, 2, 3, 4, 5, 6, 7});
+        List<long[]> points = downsample(series, 5, 9, 10);
+        assertEquals(4, points.size());
+        for (int i = 0; i < 4; i++)
+            assertEquals(4 + 2 * i, points.get(i)[0]);
+        assertEquals(2, points.get(0)[1]);
+        assertEquals(5, points.get(3)[1]);
+
+        assertEquals(8, downsample(series, -10, 100, 10).size());
+        assertEquals(0, downsample(new TimeSeries(), 0, 100, 10).size());
+    }
+
+    /**
+     * A long range is reduced to at most maxPoints points in tick order that keep its end points,
+     * its peak and its trough.
+     */
+    @Test
+    void keepsExtremesOfLongRanges() {
+        int[] infected = new int[10_000];
+        for (int i = 0; i < infected.length; i++)
+            infected[i] = 50 + (int) (40 * Math.sin(i / 300.0));
+        infected[7_777] = 1_000;
+        infected[1_234] = 0;
+        TimeSeries series = series(infected);
+
+        List<long[]> points = downsample(series, 0, 2L * (infected.length - 1), 100);
+        assertTrue(points.size() <= 100);
+        assertEquals(0, points.get(0)[0]);
+        assertEquals(2L * (infected.length - 1), points.get(points.size() - 1)[0]);
+        for (int i = 1; i < points.size(); i++)
+            assertTrue(points.get(i)[0] > points.get(i - 1)[0]);
+        assertTrue(points.stream().anyMatch(p -> p[0] == 2 * 7_777 && p[1] == 1_000));
+        assertTrue(points.stream().anyMatch(p -> p[0] == 2 * 1_234 && p[1] == 0));
+    }
+
+    /**
+     * Downsampling random ranges of a series long enough to use every block level picks the
+     * same points as scanning every point of every bucket.
+     */
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(7);
+        int[] infected = new int[300_000];
+        for (int i = 0; i < infected.length; i++)
+            infected[i] = random.nextInt(1_000);
+        TimeSeries series = series(infected);
+
+        for (int trial = 0; trial < 50; trial++) {
+            int a = random.nextInt(infected.length), b = random.nextInt(infected.length);
+            long fromTick = 2L * Math.min(a, b), toTick = 2L * Math.max(a, b);
+            int maxPoints = 4 + random.nextInt(600);
+            List<long[]> points = downsample(series, fromTick, toTick, maxPoints);
+            List<long[]> expected = scan(infected, Math.min(a, b), Math.max(a, b), maxPoints);
+            assertEquals(expected.size(), points.size());
+            for (int i = 0; i < points.size(); i++) {
+                assertEquals(expected.get(i)[0], points.get(i)[0]);
+                assertEquals(expected.get(i)[1], points.get(i)[1]);
+            }
+        }
+    }
+
+    /**
+     * Downsamples the points of a {@link #series(int[])} by scanning every point of every bucket.
+     *
+     * @param infected  the infected counts of the series
+     * @param first     the index of the first point in the range
+     * @param last      the index of the last point in the range
+     * @param maxPoints the largest number of points
+     * @return the points as {tick, value} pairs
+     */
+    private static List<long[]> scan(int[] infected, int first, int last, int maxPoints) {
+        int from = Math.max(0, first - 1), to = Math.min(infected.length, last + 2);
+        List<long[]> points = new ArrayList<>();
+        if (to - from <= maxPoints) {
+            for (int i = from; i < to; i++)
+                points.add(new long[]{2L * i, infected[i]});
+            return points;
+        }
+        points.add(new long[]{2L * from, infected[from]});
+        int inner = to - from - 2, buckets = (maxPoints - 2) / 2;
+        for (int b = 0; b < buckets; b++) {
+            int start = from + 1 + (int) ((long) inner * b / buckets);
+            int end = from + 1 + (int) ((long) inner * (b + 1) / buckets);
+            int min = start, max = start;
+            for (int i = start; i < end; i++) {
+                if (infected[i] < infected[min])
+                    min = i;
+                if (infected[i] > infected[max])
+                    max = i;
+            }
+            points.add(new long[]{2L * Math.min(min, max), infected[Math.min(min, max)]});
+            if (min != max)
+                points.add(new long[]{2L * Math.max(min, max), infected[Math.max(min, max)]});
+        }
+        points.add(new long[]{2L * (to - 1), infected[to - 1]});
+        return points;
+    }
+}